@@ -15,6 +15,10 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -65,8 +69,12 @@ public class SecurityConfig {
     public SecurityFilterChain publicApiFilterChain(HttpSecurity http) throws Exception {
         System.out.println(
                 "🔧 Configuring PUBLIC filter chain (Order 1) - /api/tariff-rate/**, /api/countries/**, /api/hs-products/**");
+        PathPatternRequestMatcher.Builder path = PathPatternRequestMatcher.withDefaults();
         http
-                .securityMatcher("/api/countries/**", "/api/hs-products/**")
+                // Classification jobs belong to the user who submitted them, so they stay on the JWT chain below
+                .securityMatcher(new AndRequestMatcher(
+                        new OrRequestMatcher(path.matcher("/api/countries/**"), path.matcher("/api/hs-products/**")),
+                        new NegatedRequestMatcher(path.matcher("/api/hs-products/classification-jobs/**"))))
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
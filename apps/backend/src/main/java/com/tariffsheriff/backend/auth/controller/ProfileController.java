@@ -3,6 +3,7 @@ package com.tariffsheriff.backend.auth.controller;
 import com.tariffsheriff.backend.auth.dto.UpdateProfileRequest;
 import com.tariffsheriff.backend.auth.entity.User;
 import com.tariffsheriff.backend.auth.repository.UserRepository;
+import com.tariffsheriff.backend.tariff.index.TradeRouteSummary;
 import com.tariffsheriff.backend.tariff.model.HsProduct;
 import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
 import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
@@ -32,6 +33,7 @@ public class ProfileController {
     private final TariffCalculationRepository calculationRepository;
     private final TariffRateRepository tariffRateRepository;
     private final HsProductRepository hsProductRepository;
+    private final TradeRouteSummary tradeRouteSummary;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getProfile(@AuthenticationPrincipal Jwt jwt) {
@@ -94,8 +96,11 @@ public class ProfileController {
             totalRevenue = BigDecimal.ZERO;
         }
 
-        // 2. Active Tariff Routes (distinct routes in database)
-        Long activeTariffRoutes = tariffRateRepository.countDistinctTradeRoutes();
+        // 2. Active Tariff Routes (distinct routes in database), precomputed once the summary has loaded
+        long precomputedRoutes = tradeRouteSummary.distinctRouteCount();
+        Long activeTariffRoutes = precomputedRoutes >= 0
+                ? Long.valueOf(precomputedRoutes)
+                : tariffRateRepository.countDistinctTradeRoutes();
 
         // 3. Calculations count based on period
         LocalDateTime startDate = switch (period.toLowerCase()) {
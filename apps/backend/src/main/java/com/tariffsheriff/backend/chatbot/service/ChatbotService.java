@@ -23,10 +23,13 @@ import com.tariffsheriff.backend.chatbot.exception.ChatbotException;
 import com.tariffsheriff.backend.chatbot.model.ChatConversation;
 import com.tariffsheriff.backend.tariff.dto.TariffRateLookupDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateOptionDto;
+import com.tariffsheriff.backend.tariff.exception.HsCodeSplitException;
 import com.tariffsheriff.backend.tariff.exception.TariffRateNotFoundException;
 import com.tariffsheriff.backend.tariff.model.Agreement;
 import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.model.Country;
 import com.tariffsheriff.backend.tariff.service.AgreementService;
+import com.tariffsheriff.backend.tariff.service.CountryService;
 import com.tariffsheriff.backend.tariff.service.HsProductService;
 import com.tariffsheriff.backend.tariff.service.TariffRateService;
 
@@ -86,17 +89,20 @@ public class ChatbotService {
     private final TariffRateService tariffRateService;
     private final HsProductService hsProductService;
     private final AgreementService agreementService;
+    private final CountryService countryService;
 
     public ChatbotService(LlmClient llmClient,
                           ConversationService conversationService,
                           TariffRateService tariffRateService,
                           HsProductService hsProductService,
-                          AgreementService agreementService) {
+                          AgreementService agreementService,
+                          CountryService countryService) {
         this.llmClient = llmClient;
         this.conversationService = conversationService;
         this.tariffRateService = tariffRateService;
         this.hsProductService = hsProductService;
         this.agreementService = agreementService;
+        this.countryService = countryService;
     }
 
     public ChatQueryResponse processQuery(ChatQueryRequest request, String userEmail) {
@@ -254,6 +260,15 @@ Try one of these steps:
                     })
                     .toList();
             return result;
+        } catch (HsCodeSplitException ex) {
+            // The concordance already knows the current codes, so name them instead of sending the model searching
+            TariffLookupResult split = new TariffLookupResult();
+            split.importerIso3 = importer;
+            split.originIso3 = origin;
+            split.hsCode = hsCode;
+            split.rates = java.util.List.of();
+            split.note = ex.getMessage() + ". Pick the one matching the product and call TariffLookupFunction with it.";
+            return split;
         } catch (TariffRateNotFoundException ex) {
             logger.info("Tariff lookup missing for importer {} origin {} hs {}", importer, origin, hsCode);
             TariffLookupResult fallback = new TariffLookupResult();
@@ -327,8 +342,14 @@ Try one of these steps:
         }).toList();
     }
 
+    // Canonical ISO3 from the country registry; unknown codes fail before any tariff query runs
     private String normalizeIso(String iso) {
-        return iso == null ? null : iso.trim().toUpperCase();
+        if (iso == null) {
+            return null;
+        }
+        return countryService.findByIso3(iso)
+                .map(Country::getIso3)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown country ISO3: " + iso.trim()));
     }
 
     private String sanitizeHsCode(String code) {
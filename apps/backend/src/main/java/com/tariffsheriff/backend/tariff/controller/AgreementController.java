@@ -40,4 +40,10 @@ public class AgreementController {
     public List<Agreement> getByCountry(@PathVariable String countryIso3) {
         return agreementService.getAgreementsByCountry(countryIso3);
     }
+
+    // Agreements that both countries are parties to, e.g. ?a=SGP&b=IND
+    @GetMapping("/common")
+    public List<Agreement> getCommon(@RequestParam("a") String a, @RequestParam("b") String b) {
+        return agreementService.getCommonAgreements(a, b);
+    }
 }
@@ -0,0 +1,104 @@
+package com.tariffsheriff.backend.tariff.controller;
+
+import com.tariffsheriff.backend.tariff.dto.HsClassificationJobDto;
+import com.tariffsheriff.backend.tariff.service.HsClassificationJobService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * Batch HS classification of product catalogs. A catalog is uploaded once,
+ * classified in the background, and its results downloaded as NDJSON while or
+ * after the job runs. Jobs are visible only to the user who submitted them,
+ * identified by the token's subject.
+ */
+@RestController
+@RequestMapping("/api/hs-products/classification-jobs")
+public class HsClassificationController {
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final HsClassificationJobService jobs;
+
+    public HsClassificationController(HsClassificationJobService jobs) {
+        this.jobs = jobs;
+    }
+
+    /**
+     * Starts a job for the request body: CSV with a sku,description,destination
+     * header ({@code text/csv}) or one JSON object per line
+     * ({@code application/x-ndjson}). {@code format=csv|ndjson} overrides the
+     * content type. Bodies over {@code hs.classification.max-upload-bytes} are
+     * rejected with 413.
+     */
+    @PostMapping
+    public ResponseEntity<HsClassificationJobDto> submit(
+            @AuthenticationPrincipal Jwt jwt,
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(value = "format", required = false) String format
+    ) {
+        HsClassificationJobDto job = jobs.submit(owner(jwt), body, format != null ? format : contentType);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/hs-products/classification-jobs/" + job.id()))
+                .body(job);
+    }
+
+    @GetMapping("/{id}")
+    public HsClassificationJobDto status(@AuthenticationPrincipal Jwt jwt, @PathVariable("id") String id) {
+        return jobs.status(owner(jwt), id);
+    }
+
+    /**
+     * The results classified so far, one JSON object per catalog row in input
+     * order, starting at row {@code from} (counted from 1) to resume a download.
+     */
+    @GetMapping("/{id}/results")
+    public ResponseEntity<StreamingResponseBody> results(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable("id") String id,
+            @RequestParam(value = "from", defaultValue = "1") long from
+    ) {
+        // Unknown ids and other users' jobs fail here, before the response is committed
+        String owner = owner(jwt);
+        jobs.status(owner, id);
+        StreamingResponseBody body = out -> jobs.writeResults(owner, id, from, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Restarts a failed job from its last checkpoint.
+     */
+    @PostMapping("/{id}/resume")
+    public HsClassificationJobDto resume(@AuthenticationPrincipal Jwt jwt, @PathVariable("id") String id) {
+        return jobs.resume(owner(jwt), id);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancel(@AuthenticationPrincipal Jwt jwt, @PathVariable("id") String id) {
+        jobs.cancel(owner(jwt), id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static String owner(Jwt jwt) {
+        if (jwt == null || jwt.getSubject() == null || jwt.getSubject().isBlank()) {
+            throw new AccessDeniedException("Unauthenticated");
+        }
+        return jwt.getSubject();
+    }
+}
@@ -1,17 +1,30 @@
 package com.tariffsheriff.backend.tariff.controller;
 
+import com.tariffsheriff.backend.tariff.dto.HsCodeResolutionDto;
+import com.tariffsheriff.backend.tariff.dto.HsSuggestionDto;
+import com.tariffsheriff.backend.tariff.dto.HsTreeDto;
+import com.tariffsheriff.backend.tariff.dto.HsTreeNodeDto;
+import com.tariffsheriff.backend.tariff.exception.HsNodeNotFoundException;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndex;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndexHolder;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndex;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.HsHierarchy;
+import com.tariffsheriff.backend.tariff.index.HsHierarchyHolder;
+import com.tariffsheriff.backend.tariff.index.HsTypeahead;
+import com.tariffsheriff.backend.tariff.index.HsTypeaheadHolder;
 import com.tariffsheriff.backend.tariff.model.HsProduct;
 import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
 import com.tariffsheriff.backend.tariff.service.HsProductService;
+import com.tariffsheriff.backend.tariff.service.HsSearchCache;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/hs-products")
@@ -19,34 +32,76 @@ public class HsProductController {
 
     private final HsProductService hsProductService;
     private final HsProductRepository hsProductRepository;
+    private final HsCodeIndexHolder hsCodeIndex;
+    private final HsTypeaheadHolder typeahead;
+    private final HsSearchCache searchCache;
+    private final HsHierarchyHolder hierarchy;
+    private final HsConcordanceIndexHolder concordance;
 
-    public HsProductController(HsProductService hsProductService, HsProductRepository hsProductRepository) {
+    public HsProductController(HsProductService hsProductService, HsProductRepository hsProductRepository,
+            HsCodeIndexHolder hsCodeIndex, HsTypeaheadHolder typeahead, HsSearchCache searchCache,
+            HsHierarchyHolder hierarchy, HsConcordanceIndexHolder concordance) {
         this.hsProductService = hsProductService;
         this.hsProductRepository = hsProductRepository;
+        this.hsCodeIndex = hsCodeIndex;
+        this.typeahead = typeahead;
+        this.searchCache = searchCache;
+        this.hierarchy = hierarchy;
+        this.concordance = concordance;
     }
 
     /**
      * Simple search endpoint combining code prefix and description search.
      * Returns up to `limit` items with minimal fields: hsCode and hsLabel.
+     * Keystrokes are answered from the precomputed typeahead; description search
+     * only runs when it has nothing (e.g. a misspelling) or has not loaded yet.
+     * Answers are cached by normalized query, destination and limit, and the
+     * normalized query is also what they are computed from.
      */
     @GetMapping("/search")
-    public List<Map<String, Object>> search(
+    public List<HsSuggestionDto> search(
             @RequestParam("q") String query,
             @RequestParam(value = "limit", defaultValue = "200") int limit,
             @RequestParam(value = "importerIso3", required = false) String importerIso3
     ) {
-        String q = query == null ? "" : query.trim();
-        int capped = Math.max(1, Math.min(limit, 200));
+        int capped = Math.max(1, Math.min(limit, HsTypeahead.MAX_COMPLETIONS));
+        // Suggestions are computed from the key's own query, so every query sharing the key gets the same answer
+        HsSearchCache.Key key = HsSearchCache.suggestionKey(query, importerIso3, capped);
+        return searchCache.get(key, HsSearchCache::suggestionWeight,
+                () -> suggest(key.query(), key.destinationIso3(), capped));
+    }
+
+    private List<HsSuggestionDto> suggest(String q, String importerIso3, int capped) {
+        boolean hasDestination = importerIso3 != null && !importerIso3.isBlank();
+
+        HsTypeahead completions = typeahead.current();
+        if (!completions.isEmpty() && (hasDestination || !q.isEmpty())) {
+            List<HsSuggestionDto> hits = completions.complete(
+                    hasDestination ? importerIso3.trim().toUpperCase() : null, q, capped);
+            if (!hits.isEmpty() || q.isEmpty()) {
+                return hits;
+            }
+        }
+
         List<HsProduct> results = new ArrayList<>();
+        // Code prefixes come from the in-memory trie; the repository queries serve until it has loaded,
+        // and always with hs.search.mode=postgres
+        HsCodeIndex index = hsCodeIndex.current();
 
         // If destination is selected and no query typed, return initial list for that destination
         if ((q.isEmpty() || q.isBlank()) && importerIso3 != null && !importerIso3.isBlank()) {
-            results.addAll(hsProductRepository.findByDestinationWithLimit(importerIso3.trim().toUpperCase(), capped));
+            String iso3 = importerIso3.trim().toUpperCase();
+            results.addAll(index.isEmpty()
+                    ? hsProductRepository.findByDestinationWithLimit(iso3, capped)
+                    : index.findByPrefix(iso3, "", capped));
         } else if (!q.isEmpty()) {
             boolean isDigitsOnly = q.chars().allMatch(Character::isDigit);
             if (importerIso3 != null && !importerIso3.isBlank()) {
                 String iso3 = importerIso3.trim().toUpperCase();
-                if (isDigitsOnly) {
+                if (isDigitsOnly && !index.isEmpty()) {
+                    // the trie is already dot-insensitive
+                    results.addAll(index.findByPrefix(iso3, q, capped));
+                } else if (isDigitsOnly) {
                     // dot-insensitive digits match first
                     results.addAll(hsProductRepository.findByDestinationAndHsCodeDigitsPrefix(iso3, q, capped));
                     // then literal prefix as fallback
@@ -54,19 +109,15 @@ public class HsProductController {
                         results.addAll(hsProductRepository.findByDestinationAndHsCodePrefix(iso3, q, capped));
                     }
                 } else {
-                    // description search filtered by destination
-                    List<HsProduct> desc = hsProductService.searchByDescription(q, capped);
-                    for (HsProduct p : desc) {
-                        if (iso3.equalsIgnoreCase(p.getDestinationIso3())) {
-                            results.add(p);
-                            if (results.size() >= capped) break;
-                        }
-                    }
+                    // description search ranked within the destination only
+                    results.addAll(hsProductService.searchByDescription(q, iso3, capped));
                 }
             } else {
                 // No destination filter
                 if (isDigitsOnly) {
-                    results.addAll(hsProductRepository.findByHsCodePrefix(q, capped));
+                    results.addAll(index.isEmpty()
+                            ? hsProductRepository.findByHsCodePrefix(q, capped)
+                            : index.findByPrefix(q, capped));
                 }
                 if (results.size() < capped) {
                     List<HsProduct> desc = hsProductService.searchByDescription(q, capped);
@@ -81,14 +132,66 @@ public class HsProductController {
         }
 
         // Map to minimal DTO
-        List<Map<String, Object>> out = new ArrayList<>();
+        List<HsSuggestionDto> out = new ArrayList<>(results.size());
         for (HsProduct p : results) {
-            Map<String, Object> m = new LinkedHashMap<>();
-            m.put("hsCode", p.getHsCode());
-            m.put("hsLabel", p.getHsLabel());
-            out.add(m);
+            out.add(new HsSuggestionDto(p.getHsCode(), p.getHsLabel()));
         }
         return out;
     }
-}
 
+    /**
+     * One level of a destination's HS hierarchy: the node for {@code node}
+     * (dots ignored; omitted for the list of chapters) and its children, each
+     * with its product count and whether anything below it has a rate.
+     * {@code hsVersion} defaults to the destination's newest version.
+     */
+    @GetMapping("/tree/{iso3}")
+    public HsTreeDto tree(
+            @PathVariable("iso3") String iso3,
+            @RequestParam(value = "node", required = false) String node,
+            @RequestParam(value = "hsVersion", required = false) String hsVersion
+    ) {
+        String destination = iso3.trim().toUpperCase();
+        HsHierarchy tree = hierarchy.forDestination(destination);
+        String version = hsVersion == null || hsVersion.isBlank() ? tree.latestVersion(destination) : hsVersion.trim();
+        HsHierarchy.Node found = tree.node(destination, version, node);
+        if (found == null) {
+            String what = node == null || node.isBlank() ? "HS hierarchy" : "HS code " + node.trim();
+            throw new HsNodeNotFoundException("No " + what + " for " + destination
+                    + (version == null ? "" : " in " + version));
+        }
+        List<HsTreeNodeDto> children = new ArrayList<>(found.children().size());
+        for (HsHierarchy.Node child : found.children()) {
+            children.add(toDto(child));
+        }
+        return new HsTreeDto(destination, version, toDto(found), children);
+    }
+
+    /**
+     * The destination's current-version lines for {@code hsCode} given in
+     * {@code hsVersion} (any version when omitted), through the HS version
+     * concordance. A code the current version has comes back as itself;
+     * {@code lines} is empty when nothing corresponds.
+     */
+    @GetMapping("/resolve/{iso3}")
+    public HsCodeResolutionDto resolve(
+            @PathVariable("iso3") String iso3,
+            @RequestParam("hsCode") String hsCode,
+            @RequestParam(value = "hsVersion", required = false) String hsVersion
+    ) {
+        String destination = iso3.trim().toUpperCase();
+        HsConcordanceIndex index = concordance.forDestination(destination);
+        List<HsSuggestionDto> lines = new ArrayList<>();
+        for (HsProduct line : index.resolve(destination, hsVersion, hsCode)) {
+            lines.add(new HsSuggestionDto(line.getHsCode(), line.getHsLabel()));
+        }
+        return new HsCodeResolutionDto(destination, hsCode.trim(),
+                hsVersion == null || hsVersion.isBlank() ? null : hsVersion.trim(),
+                index.currentVersion(destination), lines);
+    }
+
+    private static HsTreeNodeDto toDto(HsHierarchy.Node node) {
+        return new HsTreeNodeDto(node.code(), node.hsCode(), node.label(), node.descendants(), node.hasRates(),
+                !node.children().isEmpty());
+    }
+}
@@ -1,10 +1,14 @@
 package com.tariffsheriff.backend.tariff.controller;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -12,12 +16,24 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffRateBatchLookupResultDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateLookupDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateLookupRequestDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
 import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingResponse;
+import com.tariffsheriff.backend.tariff.index.TradeRoute;
+import com.tariffsheriff.backend.tariff.index.TradeRouteSummary;
 import com.tariffsheriff.backend.tariff.model.TariffRate;
 import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+import com.tariffsheriff.backend.tariff.service.TariffCalculationBatchService;
+import com.tariffsheriff.backend.tariff.service.TariffCalculationSweepService;
 import com.tariffsheriff.backend.tariff.service.TariffRateService;
 
 @RestController
@@ -25,14 +41,22 @@ import com.tariffsheriff.backend.tariff.service.TariffRateService;
 public class TariffRateController {
     private TariffRateService tariffRateService;
     private TariffRateRepository tariffRateRepository;
+    private TradeRouteSummary tradeRouteSummary;
+    private TariffCalculationBatchService calculationBatchService;
+    private TariffCalculationSweepService calculationSweepService;
 
-    public TariffRateController(TariffRateService trs, TariffRateRepository trr) {
+    public TariffRateController(TariffRateService trs, TariffRateRepository trr, TradeRouteSummary routeSummary,
+            TariffCalculationBatchService calculationBatchService,
+            TariffCalculationSweepService calculationSweepService) {
         this.tariffRateService = trs;
         this.tariffRateRepository = trr;
+        this.tradeRouteSummary = routeSummary;
+        this.calculationBatchService = calculationBatchService;
+        this.calculationSweepService = calculationSweepService;
     }
 
     @GetMapping({ "", "/" })
-    public List<TariffRate> getTariffRates(
+    public List<TariffRateListItemDto> getTariffRates(
             @RequestParam(required = false) String importerIso3,
             @RequestParam(required = false) String originIso3,
             @RequestParam(required = false) List<String> hsCodes,
@@ -65,16 +89,55 @@ public class TariffRateController {
         return tariffRateService.getTariffRateWithAgreement(importerIso3, originIso3, hsCode);
     }
 
+    @PostMapping("/lookup/batch")
+    public List<TariffRateBatchLookupResultDto> getTariffRatesAndAgreements(
+            @RequestBody List<TariffRateLookupRequestDto> lookups) {
+        return tariffRateService.getTariffRatesWithAgreement(lookups);
+    }
+
     @PostMapping("/calculate")
     public TariffCalculationResponse calculateTariffRate(
             @jakarta.validation.Valid @RequestBody TariffRateRequestDto tariffCalculationData) {
         return tariffRateService.calculateTariffRate(tariffCalculationData);
     }
 
+    // Body is NDJSON or a JSON array of calculate requests; results stream back as NDJSON in input order
+    @PostMapping("/calculate/batch")
+    public ResponseEntity<StreamingResponseBody> calculateTariffRates(InputStream body) {
+        StreamingResponseBody results = out -> calculationBatchService.calculate(body, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(results);
+    }
+
+    // Duty surface over one or two swept inputs, with the RVC break-even points
+    @PostMapping("/calculate/sweep")
+    public TariffCalculationSweepResponse sweepTariffRate(
+            @jakarta.validation.Valid @RequestBody TariffCalculationSweepRequestDto sweep) {
+        return calculationSweepService.sweep(sweep);
+    }
+
+    // Total duty for the same cost structure from every origin the importer has rates for, cheapest first
+    @PostMapping("/calculate/origins")
+    public TariffSourcingResponse rankOrigins(
+            @jakarta.validation.Valid @RequestBody TariffSourcingRequestDto sourcing) {
+        return tariffRateService.rankOrigins(sourcing);
+    }
+
     @GetMapping("/routes")
     public List<Map<String, Object>> getTradeRoutes() {
-        List<Object[]> routes = tariffRateRepository.findDistinctTradeRoutes();
         List<Map<String, Object>> result = new ArrayList<>();
+        // Served from the in-memory summary; the GROUP BY only runs until it has been built
+        if (tradeRouteSummary.isLoaded()) {
+            for (TradeRoute route : tradeRouteSummary.routes()) {
+                Map<String, Object> routeMap = new HashMap<>();
+                routeMap.put("importerIso3", route.importerIso3());
+                routeMap.put("originIso3", route.originIso3());
+                routeMap.put("count", route.count());
+                result.add(routeMap);
+            }
+            return result;
+        }
+
+        List<Object[]> routes = tariffRateRepository.findDistinctTradeRoutes();
 
         for (Object[] route : routes) {
             Map<String, Object> routeMap = new HashMap<>();
@@ -87,6 +150,13 @@ public class TariffRateController {
         return result;
     }
 
+    // Recounts the route summary from tariff_rate, e.g. after bulk SQL changes
+    @PostMapping("/routes/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> rebuildTradeRoutes() {
+        return Map.of("routes", tradeRouteSummary.rebuild());
+    }
+
     @GetMapping("/subcategories")
     public List<TariffRateLookupDto> getSubcategories(
             @RequestParam String importerIso3,
@@ -0,0 +1,11 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+/**
+ * One candidate HS code for a catalog row, with the search engine's relevance
+ * score from 0 to 1.
+ */
+public record HsClassificationCandidateDto(
+    String hsCode,
+    String hsLabel,
+    double score
+) {}
@@ -0,0 +1,21 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.time.Instant;
+
+/**
+ * Progress of a batch classification job. {@code rowsProcessed} rows have
+ * results (including {@code rowsFailed} with an error); {@code percentComplete}
+ * is the share of the uploaded input read so far.
+ */
+public record HsClassificationJobDto(
+    String id,
+    String status,
+    String format,
+    long rowsProcessed,
+    long rowsFailed,
+    double percentComplete,
+    double rowsPerSecond,
+    Instant createdAt,
+    Instant finishedAt,
+    String error
+) {}
@@ -0,0 +1,25 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.util.List;
+
+/**
+ * Classification of one catalog row, in input order. {@code row} counts data
+ * rows from 1; {@code error} is set, and {@code candidates} empty, when the row
+ * could not be read.
+ */
+public record HsClassificationResultDto(
+    long row,
+    String sku,
+    String destinationIso3,
+    List<HsClassificationCandidateDto> candidates,
+    String error
+) {
+    public static HsClassificationResultDto success(long row, String sku, String destinationIso3,
+            List<HsClassificationCandidateDto> candidates) {
+        return new HsClassificationResultDto(row, sku, destinationIso3, candidates, null);
+    }
+
+    public static HsClassificationResultDto failure(long row, String sku, String destinationIso3, String error) {
+        return new HsClassificationResultDto(row, sku, destinationIso3, List.of(), error);
+    }
+}
@@ -0,0 +1,15 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.util.List;
+
+/**
+ * The lines of a destination's current HS version that a code from any
+ * version corresponds to.
+ */
+public record HsCodeResolutionDto(
+    String destinationIso3,
+    String hsCode,
+    String hsVersion,
+    String currentVersion,
+    List<HsSuggestionDto> lines
+) {}
@@ -0,0 +1,9 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+/**
+ * One entry of the HS product search box: the code and its label.
+ */
+public record HsSuggestionDto(
+    String hsCode,
+    String hsLabel
+) {}
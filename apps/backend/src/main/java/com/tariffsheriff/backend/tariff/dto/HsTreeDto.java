@@ -0,0 +1,14 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.util.List;
+
+/**
+ * A node of a destination's HS hierarchy together with its children, so a
+ * browser can drill down one level per request.
+ */
+public record HsTreeDto(
+    String destinationIso3,
+    String hsVersion,
+    HsTreeNodeDto node,
+    List<HsTreeNodeDto> children
+) {}
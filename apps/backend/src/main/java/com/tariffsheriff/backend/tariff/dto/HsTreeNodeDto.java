@@ -0,0 +1,17 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+/**
+ * One node of the HS hierarchy browser. {@code code} is the dot-less code of
+ * the chapter, heading, subheading or national line; {@code hsCode} and
+ * {@code hsLabel} are {@code null} when no product sits exactly at it.
+ * {@code descendants} counts the products below the node and {@code hasRates}
+ * tells whether any product at or below it has a tariff rate.
+ */
+public record HsTreeNodeDto(
+    String code,
+    String hsCode,
+    String hsLabel,
+    int descendants,
+    boolean hasRates,
+    boolean hasChildren
+) {}
@@ -0,0 +1,19 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+/**
+ * Result of one batch calculation item, in input order. Exactly one of
+ * {@code result} and {@code error} is set.
+ */
+public record TariffCalculationBatchResultDto(
+    long index,
+    TariffCalculationResponse result,
+    String error
+) {
+    public static TariffCalculationBatchResultDto success(long index, TariffCalculationResponse result) {
+        return new TariffCalculationBatchResultDto(index, result, null);
+    }
+
+    public static TariffCalculationBatchResultDto failure(long index, String error) {
+        return new TariffCalculationBatchResultDto(index, null, error);
+    }
+}
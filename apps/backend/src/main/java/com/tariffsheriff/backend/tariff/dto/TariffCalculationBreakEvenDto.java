@@ -0,0 +1,19 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Where the preferential rate starts or stops applying as {@code variable}
+ * changes, with the other swept input (if any) held at {@code fixedValue}.
+ * {@code preferential} is {@code AT_OR_ABOVE} or {@code AT_OR_BELOW}
+ * {@code value}, the first qualifying value to six decimal places, or
+ * {@code ALWAYS}/{@code NEVER} when the variable cannot move the RVC across
+ * the threshold.
+ */
+public record TariffCalculationBreakEvenDto(
+    String variable,
+    String fixedVariable,
+    BigDecimal fixedValue,
+    BigDecimal value,
+    String preferential
+) {}
@@ -0,0 +1,12 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The values one swept input takes, in grid order.
+ */
+public record TariffCalculationSweepAxisDto(
+    String variable,
+    List<BigDecimal> values
+) {}
@@ -0,0 +1,19 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+
+/**
+ * One swept input of a sensitivity sweep: {@code steps} evenly spaced values
+ * of a {@link TariffRateRequestDto} field from {@code from} to {@code to}
+ * inclusive, rounded to six decimal places.
+ */
+public record TariffCalculationSweepRangeDto(
+    @NotBlank String variable,
+    @NotNull BigDecimal from,
+    @NotNull BigDecimal to,
+    @NotNull @Min(1) @Max(2000) Integer steps
+) {}
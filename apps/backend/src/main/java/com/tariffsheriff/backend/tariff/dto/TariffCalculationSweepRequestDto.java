@@ -0,0 +1,22 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class TariffCalculationSweepRequestDto {
+    // The calculation every grid point starts from
+    @NotNull
+    @Valid
+    private TariffRateRequestDto base;
+
+    // One or two inputs to vary; the second becomes the columns of the surface
+    @NotEmpty
+    @Size(max = 2)
+    @Valid
+    private List<TariffCalculationSweepRangeDto> ranges;
+}
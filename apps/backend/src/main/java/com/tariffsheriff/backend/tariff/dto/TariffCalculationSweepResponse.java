@@ -0,0 +1,16 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.util.List;
+
+/**
+ * The duty surface of a sensitivity sweep. {@code totalDuty[i][j]} and
+ * {@code preferential[i][j]} are the result at value {@code i} of the first
+ * axis and value {@code j} of the second (a single column when only one input
+ * is swept).
+ */
+public record TariffCalculationSweepResponse(
+    List<TariffCalculationSweepAxisDto> axes,
+    double[][] totalDuty,
+    boolean[][] preferential,
+    List<TariffCalculationBreakEvenDto> breakEvens
+) {}
@@ -0,0 +1,19 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+/**
+ * Result of one batch lookup item, in request order. Exactly one of
+ * {@code lookup} and {@code error} is set.
+ */
+public record TariffRateBatchLookupResultDto(
+    int index,
+    TariffRateLookupDto lookup,
+    String error
+) {
+    public static TariffRateBatchLookupResultDto success(int index, TariffRateLookupDto lookup) {
+        return new TariffRateBatchLookupResultDto(index, lookup, null);
+    }
+
+    public static TariffRateBatchLookupResultDto failure(int index, String error) {
+        return new TariffRateBatchLookupResultDto(index, null, error);
+    }
+}
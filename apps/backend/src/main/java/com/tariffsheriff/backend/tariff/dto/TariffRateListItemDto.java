@@ -0,0 +1,23 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Flat tariff rate row for list endpoints: the rate columns plus the HS code
+ * and label of its product, selected together in one statement instead of
+ * hydrating {@code TariffRate} and its eager {@code HsProduct}.
+ */
+public record TariffRateListItemDto(
+    Long id,
+    String importerIso3,
+    String originIso3,
+    Long hsProductId,
+    String hsCode,
+    String description,
+    String basis,
+    Long agreementId,
+    BigDecimal adValoremRate,
+    boolean nonAdValorem,
+    String nonAdValoremText,
+    String sourceRef
+) {}
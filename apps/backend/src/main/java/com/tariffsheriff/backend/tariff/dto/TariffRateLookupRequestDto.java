@@ -0,0 +1,10 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+/**
+ * One (importer, origin, HS code) tuple of a batch tariff lookup.
+ */
+public record TariffRateLookupRequestDto(
+    String importerIso3,
+    String originIso3,
+    String hsCode
+) {}
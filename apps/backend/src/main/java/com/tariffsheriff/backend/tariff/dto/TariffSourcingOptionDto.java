@@ -0,0 +1,24 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The duty for importing from one origin. {@code originIso3} is {@code null}
+ * for the MFN baseline that applies to any origin without its own rates;
+ * {@code appliedRate} and {@code totalDuty} are {@code null} when the rate
+ * that applies has no ad valorem part.
+ */
+public record TariffSourcingOptionDto(
+    String originIso3,
+    String basis,
+    BigDecimal appliedRate,
+    BigDecimal totalDuty,
+    BigDecimal mfnRate,
+    BigDecimal prefRate,
+    Long agreementId,
+    String agreementName,
+    BigDecimal rvc,
+    BigDecimal rvcThreshold,
+    boolean nonAdValorem,
+    String nonAdValoremText
+) {}
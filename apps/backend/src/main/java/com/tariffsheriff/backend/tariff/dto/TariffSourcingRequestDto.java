@@ -0,0 +1,40 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
+import lombok.Data;
+
+@Data
+public class TariffSourcingRequestDto {
+    @NotBlank
+    private String importerIso3;
+
+    @NotBlank
+    private String hsCode;
+
+    // The importer's cost structure, priced against every origin's rates
+    @NotNull
+    @DecimalMin(value = "0.0", inclusive = true)
+    private BigDecimal totalValue;
+
+    @NotNull @DecimalMin(value = "0.0", inclusive = true)
+    private BigDecimal materialCost;
+
+    @NotNull @DecimalMin(value = "0.0", inclusive = true)
+    private BigDecimal labourCost;
+
+    @NotNull @DecimalMin(value = "0.0", inclusive = true)
+    private BigDecimal overheadCost;
+
+    @NotNull @DecimalMin(value = "0.0", inclusive = true)
+    private BigDecimal profit;
+
+    @NotNull @DecimalMin(value = "0.0", inclusive = true)
+    private BigDecimal otherCosts;
+
+    @NotNull @Positive
+    private BigDecimal fob;
+}
@@ -0,0 +1,12 @@
+package com.tariffsheriff.backend.tariff.dto;
+
+import java.util.List;
+
+/**
+ * Origins for an importer and HS code, cheapest total duty first.
+ */
+public record TariffSourcingResponse(
+    String importerIso3,
+    String hsCode,
+    List<TariffSourcingOptionDto> origins
+) {}
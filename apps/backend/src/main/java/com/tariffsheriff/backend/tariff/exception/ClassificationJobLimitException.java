@@ -0,0 +1,11 @@
+package com.tariffsheriff.backend.tariff.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class ClassificationJobLimitException extends RuntimeException {
+    public ClassificationJobLimitException(int maxJobs) {
+        super("At most " + maxJobs + " classification jobs are kept per user; delete finished ones first");
+    }
+}
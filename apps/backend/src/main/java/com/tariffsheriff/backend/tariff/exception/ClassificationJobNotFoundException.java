@@ -0,0 +1,11 @@
+package com.tariffsheriff.backend.tariff.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ClassificationJobNotFoundException extends RuntimeException {
+    public ClassificationJobNotFoundException(String id) {
+        super("No classification job " + id);
+    }
+}
@@ -0,0 +1,11 @@
+package com.tariffsheriff.backend.tariff.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class ClassificationUploadTooLargeException extends RuntimeException {
+    public ClassificationUploadTooLargeException(long maxBytes) {
+        super("Catalog uploads are limited to " + maxBytes + " bytes");
+    }
+}
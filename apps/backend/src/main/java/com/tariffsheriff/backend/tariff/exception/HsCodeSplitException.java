@@ -0,0 +1,21 @@
+package com.tariffsheriff.backend.tariff.exception;
+
+import java.util.List;
+
+/**
+ * A lookup code from another HS version that corresponds to several of the
+ * importer's current lines, so no single rate applies to it.
+ */
+public class HsCodeSplitException extends TariffRateNotFoundException {
+    private final List<String> candidates;
+
+    public HsCodeSplitException(String importerIso3, String hsCode, String currentVersion, List<String> candidates) {
+        super("HS " + hsCode + " is not in " + importerIso3 + "'s " + currentVersion + " nomenclature; it corresponds to "
+                + String.join(", ", candidates) + ". Look up one of those codes instead");
+        this.candidates = List.copyOf(candidates);
+    }
+
+    public List<String> getCandidates() {
+        return candidates;
+    }
+}
@@ -0,0 +1,11 @@
+package com.tariffsheriff.backend.tariff.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class HsNodeNotFoundException extends RuntimeException {
+    public HsNodeNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,144 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holds an immutable in-memory snapshot and swaps it atomically when it is
+ * rebuilt. Readers call {@link #current()} and keep using the instance they
+ * got, so a rebuild never blocks or tears a lookup.
+ *
+ * Snapshots are loaded once the application is ready and rebuilt after any
+ * committed change to an entity type the snapshot {@link #dependsOn depends on}.
+ * Bursts of changes collapse into a single background rebuild. Rebuilds never
+ * overlap, so a load that read older data can't publish after a newer one.
+ * Every published
+ * snapshot is announced with a {@link SnapshotReloadedEvent}, so caches of
+ * results computed from the previous one can drop them.
+ */
+public abstract class AbstractSnapshotHolder<S> implements ApplicationEventPublisherAware {
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final AtomicReference<S> current;
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+    // Held for a whole load and publish, on every path that rebuilds
+    private final Object reloadLock = new Object();
+    // Rebuilds block on the database, so they get their own thread instead of the common pool
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "snapshot-" + getClass().getSimpleName());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ApplicationEventPublisher publisher;
+
+    protected AbstractSnapshotHolder(S empty) {
+        this.current = new AtomicReference<>(empty);
+    }
+
+    public S current() {
+        return current.get();
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Rebuilds the snapshot on the calling thread and publishes it, waiting
+     * for a rebuild already in progress to finish first.
+     */
+    public S reload() {
+        synchronized (reloadLock) {
+            long startedAt = System.currentTimeMillis();
+            S next = load();
+            current.set(next);
+            logger.info("Loaded {} in {} ms", next, System.currentTimeMillis() - startedAt);
+            if (publisher != null) {
+                publisher.publishEvent(new SnapshotReloadedEvent(this));
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Schedules a background rebuild unless one is already queued.
+     */
+    public void requestReload() {
+        if (isResident() && reloadPending.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                reloadPending.set(false);
+                reloadQuietly();
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (isResident()) {
+            reloadQuietly();
+        } else {
+            logger.info("{} not loaded: callers use the database", getClass().getSimpleName());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTariffDataChanged(TariffDataChangedEvent event) {
+        if (!isResident() || !dependsOn(event.entityType())) {
+            return;
+        }
+        if (reloadsInline()) {
+            reloadQuietly();
+        } else {
+            requestReload();
+        }
+    }
+
+    protected abstract S load();
+
+    protected abstract boolean dependsOn(Class<?> entityType);
+
+    /**
+     * Whether the snapshot is kept in memory at all. When it is not, it stays
+     * empty and is neither loaded at startup nor rebuilt on changes.
+     */
+    protected boolean isResident() {
+        return true;
+    }
+
+    /**
+     * Whether a change is applied on the committing thread instead of in the
+     * background. Only worth it for small tables whose readers must see a
+     * write as soon as it returns.
+     */
+    protected boolean reloadsInline() {
+        return false;
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Keep serving the previous snapshot; callers fall back to the database on misses
+            logger.warn("Failed to rebuild in-memory snapshot, keeping previous one", e);
+        }
+    }
+}
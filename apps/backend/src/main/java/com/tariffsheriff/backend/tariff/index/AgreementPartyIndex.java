@@ -0,0 +1,135 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import com.tariffsheriff.backend.tariff.model.Agreement;
+
+/**
+ * Immutable copy of {@code agreement_party} as one bitset per country.
+ *
+ * Agreements are numbered densely in id order and each country keeps a
+ * {@code long[]} whose bit {@code i} says it is a party to agreement
+ * {@code i}. "Which agreements cover both A and B" is then a word-by-word AND
+ * of two short arrays, and a single country's agreements are its set bits.
+ * Countries are found by {@link Iso3Codes packed} code, so lookups are
+ * case-insensitive and never query the database.
+ */
+public final class AgreementPartyIndex {
+
+    public static final AgreementPartyIndex EMPTY = new AgreementPartyIndex(List.of(), List.of());
+
+    private final Agreement[] agreements;
+    private final LongIntHashMap slotById;
+    private final long[][] partiesByCountry = new long[Iso3Codes.CARDINALITY][];
+    private final int words;
+
+    /**
+     * @param agreements every agreement
+     * @param partyRows rows shaped like {@code AgreementRepository#findAllPartyRows}:
+     *                  {@code (agreementId, countryIso3)}; rows for unknown
+     *                  agreements or malformed codes are skipped
+     */
+    public AgreementPartyIndex(Collection<Agreement> agreements, List<Object[]> partyRows) {
+        List<Agreement> sorted = new ArrayList<>();
+        for (Agreement agreement : agreements) {
+            if (agreement.getId() != null && agreement.getId() > 0) {
+                sorted.add(agreement);
+            }
+        }
+        sorted.sort(Comparator.comparing(Agreement::getId));
+        this.agreements = sorted.toArray(new Agreement[0]);
+        this.slotById = new LongIntHashMap(this.agreements.length);
+        for (int slot = 0; slot < this.agreements.length; slot++) {
+            slotById.put(this.agreements[slot].getId(), slot);
+        }
+        this.words = (this.agreements.length + 63) >>> 6;
+
+        for (Object[] row : partyRows) {
+            if (row[0] == null) {
+                continue;
+            }
+            int slot = slotById.get(((Number) row[0]).longValue());
+            int country = Iso3Codes.pack(row[1] == null ? null : ((String) row[1]).trim());
+            if (slot == LongIntHashMap.MISSING || country <= Iso3Codes.NONE) {
+                continue;
+            }
+            long[] bits = partiesByCountry[country];
+            if (bits == null) {
+                bits = new long[words];
+                partiesByCountry[country] = bits;
+            }
+            bits[slot >>> 6] |= 1L << slot;
+        }
+    }
+
+    /**
+     * Agreements {@code countryIso3} is a party to, in id order.
+     */
+    public List<Agreement> agreementsOf(CharSequence countryIso3) {
+        long[] bits = bitsOf(countryIso3);
+        return bits == null ? List.of() : collect(bits, bits);
+    }
+
+    /**
+     * Agreements both countries are parties to, in id order.
+     */
+    public List<Agreement> commonAgreements(CharSequence firstIso3, CharSequence secondIso3) {
+        long[] first = bitsOf(firstIso3);
+        long[] second = bitsOf(secondIso3);
+        return first == null || second == null ? List.of() : collect(first, second);
+    }
+
+    /**
+     * Whether both countries are parties to the agreement.
+     */
+    public boolean covers(Long agreementId, CharSequence firstIso3, CharSequence secondIso3) {
+        int slot = agreementId == null || agreementId <= 0 ? LongIntHashMap.MISSING : slotById.get(agreementId);
+        if (slot == LongIntHashMap.MISSING) {
+            return false;
+        }
+        return isSet(bitsOf(firstIso3), slot) && isSet(bitsOf(secondIso3), slot);
+    }
+
+    public int agreementCount() {
+        return agreements.length;
+    }
+
+    public boolean isEmpty() {
+        return agreements.length == 0;
+    }
+
+    @Override
+    public String toString() {
+        int countries = 0;
+        for (long[] bits : partiesByCountry) {
+            if (bits != null) {
+                countries++;
+            }
+        }
+        return "AgreementPartyIndex[agreements=" + agreements.length + ", countries=" + countries + "]";
+    }
+
+    private long[] bitsOf(CharSequence iso3) {
+        int country = Iso3Codes.pack(iso3);
+        return country > Iso3Codes.NONE ? partiesByCountry[country] : null;
+    }
+
+    private List<Agreement> collect(long[] first, long[] second) {
+        List<Agreement> matches = new ArrayList<>();
+        for (int w = 0; w < words; w++) {
+            long word = first[w] & second[w];
+            while (word != 0) {
+                matches.add(agreements[(w << 6) + Long.numberOfTrailingZeros(word)]);
+                word &= word - 1;
+            }
+        }
+        return matches;
+    }
+
+    private static boolean isSet(long[] bits, int slot) {
+        return bits != null && (bits[slot >>> 6] & (1L << slot)) != 0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.springframework.stereotype.Component;
+
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
+
+/**
+ * Keeps the current {@link AgreementPartyIndex}. {@code agreement_party} has no
+ * entity of its own, so the index follows changes to agreements (a deleted
+ * agreement also removes its parties).
+ */
+@Component
+public class AgreementPartyIndexHolder extends AbstractSnapshotHolder<AgreementPartyIndex> {
+
+    private final AgreementRepository agreements;
+
+    public AgreementPartyIndexHolder(AgreementRepository agreements) {
+        super(AgreementPartyIndex.EMPTY);
+        this.agreements = agreements;
+    }
+
+    @Override
+    protected AgreementPartyIndex load() {
+        return new AgreementPartyIndex(agreements.findAll(), agreements.findAllPartyRows());
+    }
+
+    @Override
+    protected boolean dependsOn(Class<?> entityType) {
+        return entityType == Agreement.class;
+    }
+}
@@ -0,0 +1,70 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.tariffsheriff.backend.tariff.model.Country;
+
+/**
+ * Immutable copy of the {@code country} table in a fixed array indexed by
+ * {@link Iso3Codes#pack packed} ISO3 code. Lookups are case-insensitive, a
+ * single array read and never allocate; malformed codes simply miss.
+ */
+public final class CountryRegistry {
+
+    public static final CountryRegistry EMPTY = new CountryRegistry(List.of());
+
+    private final Country[] byCode = new Country[Iso3Codes.CARDINALITY];
+    private final int size;
+
+    public CountryRegistry(Collection<Country> countries) {
+        int count = 0;
+        for (Country country : countries) {
+            String iso3 = country.getIso3() == null ? null : country.getIso3().trim().toUpperCase();
+            int code = Iso3Codes.pack(iso3);
+            if (code <= Iso3Codes.NONE) {
+                continue;
+            }
+            if (byCode[code] == null) {
+                count++;
+            }
+            // Detached copy so callers never touch a managed entity
+            byCode[code] = new Country(country.getId(), iso3, country.getName());
+        }
+        this.size = count;
+    }
+
+    /**
+     * The country for {@code iso3} in any letter case, or {@code null}.
+     */
+    public Country find(CharSequence iso3) {
+        int code = Iso3Codes.pack(iso3);
+        return code > Iso3Codes.NONE ? byCode[code] : null;
+    }
+
+    /**
+     * The stored (upper-case) spelling of {@code iso3}, or {@code null} when
+     * the country is unknown.
+     */
+    public String canonicalIso3(CharSequence iso3) {
+        Country country = find(iso3);
+        return country == null ? null : country.getIso3();
+    }
+
+    public boolean contains(CharSequence iso3) {
+        return find(iso3) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CountryRegistry[countries=" + size + "]";
+    }
+}
@@ -0,0 +1,37 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.springframework.stereotype.Component;
+
+import com.tariffsheriff.backend.tariff.model.Country;
+import com.tariffsheriff.backend.tariff.repository.CountryRepository;
+
+/**
+ * Keeps the current {@link CountryRegistry}. The table is a few hundred rows,
+ * so a committed create, update or delete reloads it on the committing thread
+ * and the next request already sees the change.
+ */
+@Component
+public class CountryRegistryHolder extends AbstractSnapshotHolder<CountryRegistry> {
+
+    private final CountryRepository countries;
+
+    public CountryRegistryHolder(CountryRepository countries) {
+        super(CountryRegistry.EMPTY);
+        this.countries = countries;
+    }
+
+    @Override
+    protected CountryRegistry load() {
+        return new CountryRegistry(countries.findAll());
+    }
+
+    @Override
+    protected boolean dependsOn(Class<?> entityType) {
+        return entityType == Country.class;
+    }
+
+    @Override
+    protected boolean reloadsInline() {
+        return true;
+    }
+}
@@ -0,0 +1,348 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Hierarchical navigable small world graph (Malkov and Yashunin) over unit
+ * vectors, for approximate nearest neighbours by cosine similarity.
+ *
+ * The vectors and the bottom layer's adjacency lists, which together are
+ * nearly all of the graph's memory, live in direct buffers outside the Java
+ * heap; the sparse upper layers (about one node in {@link #M}) and the
+ * positions of each vector's non-zero components stay on it. Similarities
+ * only visit those positions, which for hashed n-gram vectors is a small
+ * fraction of the dimensions. The buffers are released with the graph once
+ * it is unreachable.
+ *
+ * Node levels come from a fixed seed, so the same vectors inserted in the
+ * same order always give the same graph.
+ */
+final class HnswGraph {
+
+    static final int M = 16;
+    static final int M0 = 2 * M;
+    static final int EF_CONSTRUCTION = 100;
+
+    private static final long SEED = 0x5EED_C0DEL;
+    private static final int MAX_LEVEL = 16;
+
+    record Hit(int node, float similarity) {
+    }
+
+    private static final Comparator<Hit> CLOSEST_FIRST = Comparator.comparingDouble(Hit::similarity).reversed();
+    private static final Comparator<Hit> FARTHEST_FIRST = Comparator.comparingDouble(Hit::similarity);
+
+    private final int dimensions;
+    private final int size;
+    private final FloatBuffer vectors;
+    // Positions of each vector's non-zero components; hashed label vectors are mostly zeros
+    private final short[][] nonZero;
+    // Node n owns [n * (M0 + 1)]: neighbour count, then up to M0 neighbours
+    private final IntBuffer bottom;
+    // upper[n][l - 1] is {count, neighbours...} on layer l, null when n stops at layer 0
+    private final int[][][] upper;
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    HnswGraph(List<float[]> vectors, int dimensions) {
+        this.dimensions = dimensions;
+        this.size = vectors.size();
+        if (dimensions > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("At most " + Short.MAX_VALUE + " dimensions, got " + dimensions);
+        }
+        this.vectors = ByteBuffer.allocateDirect(Math.max(1, size) * dimensions * Float.BYTES)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        this.nonZero = new short[size][];
+        for (int n = 0; n < size; n++) {
+            float[] vector = vectors.get(n);
+            this.vectors.put(n * dimensions, vector, 0, dimensions);
+            nonZero[n] = nonZeroPositions(vector);
+        }
+        this.bottom = ByteBuffer.allocateDirect(Math.max(1, size) * (M0 + 1) * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.upper = new int[size][][];
+
+        Random random = new Random(SEED);
+        double levelScale = 1 / Math.log(M);
+        for (int n = 0; n < size; n++) {
+            int level = Math.min(MAX_LEVEL, (int) (-Math.log(1 - random.nextDouble()) * levelScale));
+            insert(n, level);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The (about) {@code k} nodes most similar to {@code query}, closest
+     * first. {@code ef} is the candidate list size: larger is slower and
+     * misses fewer of the true nearest neighbours.
+     */
+    List<Hit> search(float[] query, int k, int ef) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        Hit nearest = new Hit(entryPoint, similarity(query, entryPoint));
+        for (int level = topLevel; level > 0; level--) {
+            nearest = greedy(query, nearest, level);
+        }
+        List<Hit> found = searchLayer(query, nearest, Math.max(ef, k), 0);
+        return found.size() > k ? found.subList(0, k) : found;
+    }
+
+    /**
+     * The exact top {@code k} by scanning every vector; the reference the
+     * graph's recall is measured against.
+     */
+    List<Hit> exact(float[] query, int k) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(FARTHEST_FIRST);
+        for (int n = 0; n < size; n++) {
+            offer(best, new Hit(n, similarity(query, n)), k);
+        }
+        List<Hit> out = new ArrayList<>(best);
+        out.sort(CLOSEST_FIRST);
+        return out;
+    }
+
+    long offHeapBytes() {
+        return (long) vectors.capacity() * Float.BYTES + (long) bottom.capacity() * Integer.BYTES;
+    }
+
+    private void insert(int node, int level) {
+        if (level > 0) {
+            upper[node] = new int[level][];
+            for (int l = 0; l < level; l++) {
+                upper[node][l] = new int[M + 1];
+            }
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return;
+        }
+        float[] vector = vector(node);
+        Hit nearest = new Hit(entryPoint, similarity(vector, entryPoint));
+        for (int l = topLevel; l > level; l--) {
+            nearest = greedy(vector, nearest, l);
+        }
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            List<Hit> candidates = searchLayer(vector, nearest, EF_CONSTRUCTION, l);
+            List<Hit> neighbours = selectNeighbours(candidates, l == 0 ? M0 : M);
+            setNeighbours(node, l, neighbours);
+            for (Hit neighbour : neighbours) {
+                link(neighbour.node(), node, l);
+            }
+            nearest = candidates.get(0);
+        }
+        if (level > topLevel) {
+            entryPoint = node;
+            topLevel = level;
+        }
+    }
+
+    /**
+     * Adds {@code to} to {@code from}'s list on {@code level}; a full list is
+     * re-selected from its members and {@code to}.
+     */
+    private void link(int from, int to, int level) {
+        int capacity = level == 0 ? M0 : M;
+        int count = neighbourCount(from, level);
+        if (count < capacity) {
+            setNeighbour(from, level, count, to);
+            setNeighbourCount(from, level, count + 1);
+            return;
+        }
+        List<Hit> candidates = new ArrayList<>(count + 1);
+        candidates.add(new Hit(to, similarity(from, to)));
+        for (int i = 0; i < count; i++) {
+            int neighbour = neighbour(from, level, i);
+            candidates.add(new Hit(neighbour, similarity(from, neighbour)));
+        }
+        candidates.sort(CLOSEST_FIRST);
+        setNeighbours(from, level, selectNeighbours(candidates, capacity));
+    }
+
+    /**
+     * The paper's neighbour selection heuristic: a candidate (closest first) is
+     * kept only if it is closer to the new node than to every neighbour kept
+     * so far, which spreads the links across directions instead of spending
+     * them all on one tight cluster of near-duplicate labels. Leftover places
+     * are filled with the closest skipped candidates.
+     */
+    private List<Hit> selectNeighbours(List<Hit> candidates, int capacity) {
+        List<Hit> selected = new ArrayList<>(capacity);
+        List<Hit> skipped = new ArrayList<>();
+        for (Hit candidate : candidates) {
+            if (selected.size() >= capacity) {
+                break;
+            }
+            boolean diverse = true;
+            for (Hit kept : selected) {
+                if (similarity(candidate.node(), kept.node()) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : skipped).add(candidate);
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < capacity; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected;
+    }
+
+    private void setNeighbours(int node, int level, List<Hit> neighbours) {
+        for (int i = 0; i < neighbours.size(); i++) {
+            setNeighbour(node, level, i, neighbours.get(i).node());
+        }
+        setNeighbourCount(node, level, neighbours.size());
+    }
+
+    private Hit greedy(float[] query, Hit start, int level) {
+        Hit nearest = start;
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int node = nearest.node();
+            int count = neighbourCount(node, level);
+            for (int i = 0; i < count; i++) {
+                int candidate = neighbour(node, level, i);
+                float s = similarity(query, candidate);
+                if (s > nearest.similarity()) {
+                    nearest = new Hit(candidate, s);
+                    moved = true;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Best-first search of one layer from {@code start}, keeping the
+     * {@code ef} closest nodes seen; returned closest first.
+     */
+    private List<Hit> searchLayer(float[] query, Hit start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        visited.set(start.node());
+        PriorityQueue<Hit> candidates = new PriorityQueue<>(CLOSEST_FIRST);
+        PriorityQueue<Hit> found = new PriorityQueue<>(FARTHEST_FIRST);
+        candidates.add(start);
+        found.add(start);
+        while (!candidates.isEmpty()) {
+            Hit current = candidates.poll();
+            if (found.size() >= ef && current.similarity() < found.peek().similarity()) {
+                break;
+            }
+            int node = current.node();
+            int count = neighbourCount(node, level);
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbour(node, level, i);
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float s = similarity(query, neighbour);
+                if (found.size() < ef || s > found.peek().similarity()) {
+                    Hit hit = new Hit(neighbour, s);
+                    candidates.add(hit);
+                    offer(found, hit, ef);
+                }
+            }
+        }
+        List<Hit> out = new ArrayList<>(found);
+        out.sort(CLOSEST_FIRST);
+        return out;
+    }
+
+    private static void offer(PriorityQueue<Hit> best, Hit hit, int limit) {
+        if (best.size() < limit) {
+            best.add(hit);
+        } else if (hit.similarity() > best.peek().similarity()) {
+            best.poll();
+            best.add(hit);
+        }
+    }
+
+    private int neighbourCount(int node, int level) {
+        if (level == 0) {
+            return bottom.get(node * (M0 + 1));
+        }
+        int[][] lists = upper[node];
+        return lists == null || lists.length < level ? 0 : lists[level - 1][0];
+    }
+
+    private int neighbour(int node, int level, int i) {
+        return level == 0 ? bottom.get(node * (M0 + 1) + 1 + i) : upper[node][level - 1][1 + i];
+    }
+
+    private void setNeighbourCount(int node, int level, int count) {
+        if (level == 0) {
+            bottom.put(node * (M0 + 1), count);
+        } else {
+            upper[node][level - 1][0] = count;
+        }
+    }
+
+    private void setNeighbour(int node, int level, int i, int neighbour) {
+        if (level == 0) {
+            bottom.put(node * (M0 + 1) + 1 + i, neighbour);
+        } else {
+            upper[node][level - 1][1 + i] = neighbour;
+        }
+    }
+
+    private float[] vector(int node) {
+        float[] vector = new float[dimensions];
+        vectors.get(node * dimensions, vector, 0, dimensions);
+        return vector;
+    }
+
+    private float similarity(float[] query, int node) {
+        int offset = node * dimensions;
+        float dot = 0;
+        for (short i : nonZero[node]) {
+            dot += query[i] * vectors.get(offset + i);
+        }
+        return dot;
+    }
+
+    private float similarity(int a, int b) {
+        if (nonZero[a].length > nonZero[b].length) {
+            return similarity(b, a);
+        }
+        int offsetA = a * dimensions;
+        int offsetB = b * dimensions;
+        float dot = 0;
+        for (short i : nonZero[a]) {
+            dot += vectors.get(offsetA + i) * vectors.get(offsetB + i);
+        }
+        return dot;
+    }
+
+    private static short[] nonZeroPositions(float[] vector) {
+        int count = 0;
+        for (float v : vector) {
+            if (v != 0) {
+                count++;
+            }
+        }
+        short[] positions = new short[count];
+        int next = 0;
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] != 0) {
+                positions[next++] = (short) i;
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,60 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * A snapshot built from the whole {@code hs_product} catalog, labels included.
+ *
+ * With {@code hs.search.mode=postgres} the catalog is meant to stay in the
+ * database, so these snapshots are not {@link #isResident() resident}: they
+ * stay empty, and callers take the SQL paths they already use until a
+ * snapshot has loaded, or a per-destination copy the holder reads on demand.
+ */
+public abstract class HsCatalogSnapshotHolder<S> extends AbstractSnapshotHolder<S> {
+
+    private volatile boolean resident = true;
+
+    protected HsCatalogSnapshotHolder(S empty) {
+        super(empty);
+    }
+
+    // Setter-injected so the holders keep their constructors
+    @Value("${hs.search.mode:memory}")
+    public void setSearchMode(String searchMode) {
+        this.resident = searchMode == null || !"postgres".equalsIgnoreCase(searchMode.trim());
+    }
+
+    @Override
+    protected boolean isResident() {
+        return resident;
+    }
+
+    /**
+     * Trimmed, upper-case ISO3 code as stored in {@code hs_product}, or
+     * {@code null} when blank.
+     */
+    protected static String normalizeDestination(String destinationIso3) {
+        return destinationIso3 == null || destinationIso3.isBlank()
+                ? null
+                : destinationIso3.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Detached products from (id, destinationIso3, hsVersion, hsCode, hsLabel)
+     * rows, without the lazy destination association.
+     */
+    protected static List<HsProduct> toProducts(List<Object[]> rows) {
+        List<HsProduct> products = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            products.add(new HsProduct(((Number) row[0]).longValue(), (String) row[1], null, (String) row[2],
+                    (String) row[3], (String) row[4]));
+        }
+        return products;
+    }
+}
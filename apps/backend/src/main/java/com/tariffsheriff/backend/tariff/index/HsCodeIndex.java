@@ -0,0 +1,81 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * Immutable set of {@link HsCodeTrie}s, one per {@code destination_iso3},
+ * indexed by packed ISO3 code so picking the trie is an array read.
+ */
+public final class HsCodeIndex {
+
+    public static final HsCodeIndex EMPTY = new HsCodeIndex(List.of());
+
+    private final HsCodeTrie[] byDestination = new HsCodeTrie[Iso3Codes.CARDINALITY];
+    private final List<HsCodeTrie> tries = new ArrayList<>();
+    private final int size;
+
+    public HsCodeIndex(List<HsProduct> products) {
+        Map<Integer, List<HsProduct>> grouped = new HashMap<>();
+        for (HsProduct product : products) {
+            int destination = Iso3Codes.pack(product.getDestinationIso3());
+            if (destination > Iso3Codes.NONE && product.getId() != null) {
+                grouped.computeIfAbsent(destination, key -> new ArrayList<>()).add(product);
+            }
+        }
+        int total = 0;
+        for (Map.Entry<Integer, List<HsProduct>> entry : grouped.entrySet()) {
+            HsCodeTrie trie = new HsCodeTrie(entry.getValue().toArray(new HsProduct[0]));
+            byDestination[entry.getKey()] = trie;
+            tries.add(trie);
+            total += trie.size();
+        }
+        this.size = total;
+    }
+
+    /**
+     * Products of {@code destinationIso3} whose digit-normalized HS code starts
+     * with {@code digitsPrefix}, ordered by code. An empty prefix covers the
+     * whole destination.
+     */
+    public HsCodeRange range(String destinationIso3, CharSequence digitsPrefix) {
+        int destination = Iso3Codes.pack(destinationIso3);
+        HsCodeTrie trie = destination > Iso3Codes.NONE ? byDestination[destination] : null;
+        return trie == null ? HsCodeRange.EMPTY : trie.range(digitsPrefix);
+    }
+
+    public List<HsProduct> findByPrefix(String destinationIso3, CharSequence digitsPrefix, int limit) {
+        return range(destinationIso3, digitsPrefix).first(limit);
+    }
+
+    /**
+     * Prefix search across every destination, ordered by HS code.
+     */
+    public List<HsProduct> findByPrefix(CharSequence digitsPrefix, int limit) {
+        List<HsProduct> matches = new ArrayList<>();
+        for (HsCodeTrie trie : tries) {
+            matches.addAll(trie.range(digitsPrefix).first(limit));
+        }
+        matches.sort(Comparator.comparing(HsProduct::getHsCode, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(HsProduct::getId));
+        return matches.size() > limit ? List.copyOf(matches.subList(0, limit)) : matches;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "HsCodeIndex[destinations=" + tries.size() + ", products=" + size + "]";
+    }
+}
@@ -0,0 +1,32 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.springframework.stereotype.Component;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+
+/**
+ * Keeps the current {@link HsCodeIndex}, rebuilt whenever HS products change.
+ * Empty with {@code hs.search.mode=postgres}, where callers use the code
+ * prefix queries instead.
+ */
+@Component
+public class HsCodeIndexHolder extends HsCatalogSnapshotHolder<HsCodeIndex> {
+
+    private final HsProductRepository hsProducts;
+
+    public HsCodeIndexHolder(HsProductRepository hsProducts) {
+        super(HsCodeIndex.EMPTY);
+        this.hsProducts = hsProducts;
+    }
+
+    @Override
+    protected HsCodeIndex load() {
+        return new HsCodeIndex(toProducts(hsProducts.findAllIndexRows()));
+    }
+
+    @Override
+    protected boolean dependsOn(Class<?> entityType) {
+        return entityType == HsProduct.class;
+    }
+}
@@ -0,0 +1,49 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * Ordered view of the HS products under one prefix of an {@link HsCodeTrie}.
+ * It shares the trie's sorted array, so creating one copies nothing.
+ */
+public final class HsCodeRange {
+
+    static final HsCodeRange EMPTY = new HsCodeRange(new HsProduct[0], 0, 0);
+
+    private final HsProduct[] products;
+    private final int start;
+    private final int end;
+
+    HsCodeRange(HsProduct[] products, int start, int end) {
+        this.products = products;
+        this.start = start;
+        this.end = end;
+    }
+
+    public int size() {
+        return end - start;
+    }
+
+    public boolean isEmpty() {
+        return start == end;
+    }
+
+    public HsProduct product(int index) {
+        return products[start + index];
+    }
+
+    public long productId(int index) {
+        return products[start + index].getId();
+    }
+
+    /**
+     * The first {@code limit} products of the range, in code order.
+     */
+    public List<HsProduct> first(int limit) {
+        int to = start + Math.max(0, Math.min(limit, size()));
+        return List.of(Arrays.copyOfRange(products, start, to));
+    }
+}
@@ -0,0 +1,158 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * Compressed radix trie over the digit-normalized HS codes of one destination.
+ *
+ * Products are kept in one array sorted by digits (dots and other separators
+ * removed), then by the literal code and id. Every node covers a contiguous
+ * slice of that array, so resolving a prefix is a walk of at most a dozen
+ * nodes followed by returning the slice as an {@link HsCodeRange}. Node data
+ * lives in parallel int arrays; edge labels are read from the digits of the
+ * first product under the node instead of being stored separately.
+ */
+final class HsCodeTrie {
+
+    private static final int RADIX = 10;
+    private static final int NO_CHILD = -1;
+
+    private final HsProduct[] products;
+    private final String[] digits;
+
+    // Per node: depth where its label ends, the product slice it covers, and one child slot per digit
+    private int[] labelEnd;
+    private int[] rangeStart;
+    private int[] rangeEnd;
+    private int[] children;
+    private int nodeCount;
+
+    HsCodeTrie(HsProduct[] unsorted) {
+        HsProduct[] sorted = unsorted.clone();
+        String[] keys = new String[sorted.length];
+        Integer[] order = new Integer[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            keys[i] = digitsOf(sorted[i].getHsCode());
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer, String>comparing(i -> keys[i])
+                .thenComparing(i -> sorted[i].getHsCode(), Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(i -> sorted[i].getId(), Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        this.products = new HsProduct[sorted.length];
+        this.digits = new String[sorted.length];
+        for (int i = 0; i < order.length; i++) {
+            products[i] = sorted[order[i]];
+            digits[i] = keys[order[i]];
+        }
+
+        int capacity = Math.max(1, products.length * 2);
+        labelEnd = new int[capacity];
+        rangeStart = new int[capacity];
+        rangeEnd = new int[capacity];
+        children = new int[capacity * RADIX];
+        build(0, products.length, 0);
+    }
+
+    /**
+     * Returns the slice of products whose digit-normalized code starts with
+     * {@code digitsPrefix}. Non-digit characters in the prefix are ignored.
+     */
+    HsCodeRange range(CharSequence digitsPrefix) {
+        int node = 0;
+        int depth = 0;
+        int length = digitsPrefix == null ? 0 : digitsPrefix.length();
+        for (int i = 0; i < length; i++) {
+            char c = digitsPrefix.charAt(i);
+            if (c < '0' || c > '9') {
+                continue;
+            }
+            if (depth == labelEnd[node]) {
+                // Label consumed: descend on the next digit
+                node = children[node * RADIX + (c - '0')];
+                if (node == NO_CHILD) {
+                    return HsCodeRange.EMPTY;
+                }
+            }
+            if (digits[rangeStart[node]].charAt(depth) != c) {
+                return HsCodeRange.EMPTY;
+            }
+            depth++;
+        }
+        return new HsCodeRange(products, rangeStart[node], rangeEnd[node]);
+    }
+
+    int size() {
+        return products.length;
+    }
+
+    /**
+     * Builds the node for products {@code [lo, hi)}, which all share their first
+     * {@code depth} digits, and returns its index.
+     */
+    private int build(int lo, int hi, int depth) {
+        int node = newNode(lo, hi);
+        if (lo >= hi) {
+            labelEnd[node] = depth;
+            return node;
+        }
+        // The range is sorted, so its common prefix is the common prefix of its ends
+        String first = digits[lo];
+        String last = digits[hi - 1];
+        int end = depth;
+        int max = Math.min(first.length(), last.length());
+        while (end < max && first.charAt(end) == last.charAt(end)) {
+            end++;
+        }
+        labelEnd[node] = end;
+
+        // Codes that stop exactly here sort first; the rest group by their next digit
+        int i = lo;
+        while (i < hi && digits[i].length() == end) {
+            i++;
+        }
+        while (i < hi) {
+            char next = digits[i].charAt(end);
+            int j = i + 1;
+            while (j < hi && digits[j].charAt(end) == next) {
+                j++;
+            }
+            int child = build(i, j, end);
+            children[node * RADIX + (next - '0')] = child;
+            i = j;
+        }
+        return node;
+    }
+
+    private int newNode(int lo, int hi) {
+        if (nodeCount == rangeStart.length) {
+            int capacity = nodeCount * 2;
+            labelEnd = Arrays.copyOf(labelEnd, capacity);
+            rangeStart = Arrays.copyOf(rangeStart, capacity);
+            rangeEnd = Arrays.copyOf(rangeEnd, capacity);
+            children = Arrays.copyOf(children, capacity * RADIX);
+        }
+        int node = nodeCount++;
+        rangeStart[node] = lo;
+        rangeEnd[node] = hi;
+        Arrays.fill(children, node * RADIX, node * RADIX + RADIX, NO_CHILD);
+        return node;
+    }
+
+    static String digitsOf(String hsCode) {
+        if (hsCode == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(hsCode.length());
+        for (int i = 0; i < hsCode.length(); i++) {
+            char c = hsCode.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,346 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * Maps HS codes of any version onto the lines of a destination's current
+ * (newest) HS version, using the version concordance in both directions.
+ *
+ * A concordance row links a code in an older version to its counterpart in a
+ * newer one; codes without a row carried over unchanged. Resolving walks those
+ * links from the given version towards the destination's current one, forwards
+ * for older codes and backwards when the destination itself still uses an
+ * older version, through any versions in between. A split yields every
+ * counterpart, and a counterpart resolves to the destination lines at or
+ * below it (or the closest line above it when the destination is less
+ * detailed). All of that is precomputed per destination when the index is
+ * built, so {@link #resolve} is a few map lookups.
+ */
+public final class HsConcordanceIndex {
+
+    public static final HsConcordanceIndex EMPTY = new HsConcordanceIndex(List.of(), List.of());
+
+    private static final int SUBHEADING = 6;
+    private static final int HEADING = 4;
+    private static final Comparator<HsProduct> BY_CODE = Comparator.comparing(HsProduct::getHsCode)
+            .thenComparing(HsProduct::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    /**
+     * One concordance row: {@code fromCode} in {@code fromVersion} corresponds
+     * to {@code toCode} in {@code toVersion}.
+     */
+    public record Link(String fromVersion, String fromCode, String toVersion, String toCode) {
+    }
+
+    // "USA" -> "HS2022"
+    private final Map<String, String> currentVersions = new HashMap<>();
+    // "USA|850760" -> the current-version line with that code
+    private final Map<String, HsProduct> currentLines = new HashMap<>();
+    // "USA|HS2017|854140" -> current lines; "USA||854140" merges every version's mapping for that code
+    private final Map<String, List<HsProduct>> mapped = new HashMap<>();
+    private final int linkCount;
+
+    public HsConcordanceIndex(List<HsProduct> products, List<Link> links) {
+        // Newest version sorts last, as in HsHierarchy
+        NavigableSet<String> versions = new TreeSet<>();
+        Map<String, String> latest = new HashMap<>();
+        for (HsProduct product : products) {
+            String destination = normalize(product.getDestinationIso3());
+            String version = normalizeVersion(product.getHsVersion());
+            if (destination != null && version != null && product.getHsCode() != null) {
+                versions.add(version);
+                latest.merge(destination, version, (a, b) -> a.compareTo(b) >= 0 ? a : b);
+            }
+        }
+        currentVersions.putAll(latest);
+
+        Map<String, TreeMap<String, HsProduct>> linesByDestination = new HashMap<>();
+        List<HsProduct> sorted = new ArrayList<>(products);
+        // Lowest id wins when two products share a code (e.g. "8507.60" and "850760")
+        sorted.sort(Comparator.comparing(HsProduct::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        for (HsProduct product : sorted) {
+            String destination = normalize(product.getDestinationIso3());
+            String version = normalizeVersion(product.getHsVersion());
+            if (destination == null || version == null || product.getHsCode() == null
+                    || !version.equals(currentVersions.get(destination))) {
+                continue;
+            }
+            String digits = digitsOf(product.getHsCode());
+            if (!digits.isEmpty()) {
+                linesByDestination.computeIfAbsent(destination, k -> new TreeMap<>()).putIfAbsent(digits, product);
+                currentLines.putIfAbsent(destination + '|' + digits, product);
+            }
+        }
+
+        // Links oriented from the older version to the newer one, plus the reverse direction
+        Map<String, List<String>> newer = new HashMap<>();
+        Map<String, List<String>> older = new HashMap<>();
+        Set<String> linked = new LinkedHashSet<>();
+        int count = 0;
+        for (Link link : links) {
+            String fromVersion = normalizeVersion(link.fromVersion());
+            String toVersion = normalizeVersion(link.toVersion());
+            String fromDigits = link.fromCode() == null ? "" : digitsOf(link.fromCode());
+            String toDigits = link.toCode() == null ? "" : digitsOf(link.toCode());
+            if (fromVersion == null || toVersion == null || fromVersion.equals(toVersion)
+                    || fromDigits.isEmpty() || toDigits.isEmpty()) {
+                continue;
+            }
+            String from = node(fromVersion, fromDigits);
+            String to = node(toVersion, toDigits);
+            if (fromVersion.compareTo(toVersion) > 0) {
+                String swap = from;
+                from = to;
+                to = swap;
+            }
+            newer.computeIfAbsent(from, k -> new ArrayList<>()).add(to);
+            older.computeIfAbsent(to, k -> new ArrayList<>()).add(from);
+            versions.add(fromVersion);
+            versions.add(toVersion);
+            linked.add(from);
+            linked.add(to);
+            count++;
+        }
+        this.linkCount = count;
+
+        // Walks only depend on the target version, so destinations on the same version share them
+        Map<String, Map<String, Set<String>>> walksByVersion = new HashMap<>();
+        for (Map.Entry<String, TreeMap<String, HsProduct>> destination : linesByDestination.entrySet()) {
+            String current = currentVersions.get(destination.getKey());
+            Map<String, Set<String>> walks = walksByVersion.computeIfAbsent(current, v -> {
+                Map<String, Set<String>> out = new HashMap<>();
+                for (String start : linked) {
+                    if (!versionOf(start).equals(v)) {
+                        out.put(start, walk(start, v, versions, newer, older));
+                    }
+                }
+                return out;
+            });
+            Map<String, Map<Long, HsProduct>> anyVersion = new HashMap<>();
+            for (Map.Entry<String, Set<String>> walk : walks.entrySet()) {
+                List<HsProduct> lines = linesFor(walk.getValue(), destination.getValue());
+                if (lines.isEmpty()) {
+                    continue;
+                }
+                String start = walk.getKey();
+                mapped.put(destination.getKey() + '|' + start, lines);
+                Map<Long, HsProduct> merged = anyVersion.computeIfAbsent(digitsOfNode(start),
+                        k -> new LinkedHashMap<>());
+                for (HsProduct line : lines) {
+                    merged.putIfAbsent(line.getId(), line);
+                }
+            }
+            for (Map.Entry<String, Map<Long, HsProduct>> code : anyVersion.entrySet()) {
+                List<HsProduct> lines = new ArrayList<>(code.getValue().values());
+                lines.sort(BY_CODE);
+                mapped.put(destination.getKey() + "||" + code.getKey(), List.copyOf(lines));
+            }
+        }
+    }
+
+    /**
+     * The destination's current-version lines for {@code hsCode} (dots
+     * ignored) of version {@code hsVersion}, or of any version when it is
+     * {@code null}. A code the current version has resolves to itself; a
+     * national line the concordance does not list resolves through its
+     * subheading, narrowed to current lines with the same national suffix when
+     * there are any. Empty when nothing corresponds.
+     */
+    public List<HsProduct> resolve(String destinationIso3, String hsVersion, String hsCode) {
+        String destination = normalize(destinationIso3);
+        String current = destination == null ? null : currentVersions.get(destination);
+        String digits = hsCode == null ? "" : digitsOf(hsCode);
+        if (current == null || digits.isEmpty()) {
+            return List.of();
+        }
+        String version = normalizeVersion(hsVersion);
+        if (version != null && version.equals(current)) {
+            version = null;
+        }
+        if (version == null) {
+            HsProduct line = currentLines.get(destination + '|' + digits);
+            if (line != null) {
+                return List.of(line);
+            }
+        }
+
+        String scope = destination + '|' + (version == null ? "" : version) + '|';
+        for (int length : prefixLengths(digits)) {
+            List<HsProduct> lines = mapped.get(scope + digits.substring(0, length));
+            if (lines != null) {
+                return length == digits.length() ? lines : withSuffix(lines, digits, length);
+            }
+        }
+        if (version != null) {
+            // No concordance row: the code carried over into the current version unchanged
+            for (int length : prefixLengths(digits)) {
+                HsProduct line = currentLines.get(destination + '|' + digits.substring(0, length));
+                if (line != null) {
+                    return List.of(line);
+                }
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * The destination's current (newest) HS version, or {@code null} when it
+     * has no products.
+     */
+    public String currentVersion(String destinationIso3) {
+        String destination = normalize(destinationIso3);
+        return destination == null ? null : currentVersions.get(destination);
+    }
+
+    public int size() {
+        return linkCount;
+    }
+
+    public boolean isEmpty() {
+        return currentLines.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "HsConcordanceIndex[links=" + linkCount + ", destinations=" + currentVersions.size()
+                + ", mappedCodes=" + mapped.size() + "]";
+    }
+
+    /**
+     * The codes in {@code target} that {@code start} corresponds to. Each step
+     * follows the links towards {@code target} that do not overshoot it, or
+     * carries the code over unchanged into the adjacent version when there are
+     * none.
+     */
+    private static Set<String> walk(String start, String target, NavigableSet<String> versions,
+            Map<String, List<String>> newer, Map<String, List<String>> older) {
+        boolean forward = versionOf(start).compareTo(target) < 0;
+        Set<String> reached = new TreeSet<>();
+        Set<String> frontier = Set.of(start);
+        Set<String> seen = new LinkedHashSet<>(frontier);
+        while (!frontier.isEmpty()) {
+            Set<String> next = new LinkedHashSet<>();
+            for (String node : frontier) {
+                String version = versionOf(node);
+                if (version.equals(target)) {
+                    reached.add(digitsOfNode(node));
+                    continue;
+                }
+                boolean moved = false;
+                for (String counterpart : (forward ? newer : older).getOrDefault(node, List.of())) {
+                    int overshoot = versionOf(counterpart).compareTo(target);
+                    if (forward ? overshoot <= 0 : overshoot >= 0) {
+                        moved = true;
+                        if (seen.add(counterpart)) {
+                            next.add(counterpart);
+                        }
+                    }
+                }
+                if (!moved) {
+                    String adjacent = forward ? versions.higher(version) : versions.lower(version);
+                    String carried = adjacent == null ? null : node(adjacent, digitsOfNode(node));
+                    if (carried != null && seen.add(carried)) {
+                        next.add(carried);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return reached;
+    }
+
+    /**
+     * The destination lines at or below each code, or the most detailed line
+     * above it when there are none; sorted by code.
+     */
+    private static List<HsProduct> linesFor(Collection<String> codes, TreeMap<String, HsProduct> lines) {
+        Map<Long, HsProduct> found = new LinkedHashMap<>();
+        for (String code : codes) {
+            Collection<HsProduct> below = lines.subMap(code, true, code + Character.MAX_VALUE, false).values();
+            if (!below.isEmpty()) {
+                for (HsProduct line : below) {
+                    found.putIfAbsent(line.getId(), line);
+                }
+                continue;
+            }
+            for (int length = code.length() - 1; length > 0; length--) {
+                HsProduct above = lines.get(code.substring(0, length));
+                if (above != null) {
+                    found.putIfAbsent(above.getId(), above);
+                    break;
+                }
+            }
+        }
+        List<HsProduct> out = new ArrayList<>(found.values());
+        out.sort(BY_CODE);
+        return List.copyOf(out);
+    }
+
+    private static List<HsProduct> withSuffix(List<HsProduct> lines, String digits, int prefixLength) {
+        String suffix = digits.substring(prefixLength);
+        List<HsProduct> narrowed = new ArrayList<>();
+        for (HsProduct line : lines) {
+            String lineDigits = digitsOf(line.getHsCode());
+            if (lineDigits.length() == digits.length() && lineDigits.endsWith(suffix)) {
+                narrowed.add(line);
+            }
+        }
+        return narrowed.isEmpty() ? lines : List.copyOf(narrowed);
+    }
+
+    // The whole code, then its subheading and heading
+    private static int[] prefixLengths(String digits) {
+        int length = digits.length();
+        if (length > SUBHEADING) {
+            return new int[] {length, SUBHEADING, HEADING};
+        }
+        return length > HEADING ? new int[] {length, HEADING} : new int[] {length};
+    }
+
+    private static String node(String version, String digits) {
+        return version + '|' + digits;
+    }
+
+    private static String versionOf(String node) {
+        return node.substring(0, node.indexOf('|'));
+    }
+
+    private static String digitsOfNode(String node) {
+        return node.substring(node.indexOf('|') + 1);
+    }
+
+    private static String normalize(String destinationIso3) {
+        return destinationIso3 == null || destinationIso3.isBlank()
+                ? null
+                : destinationIso3.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String normalizeVersion(String hsVersion) {
+        return hsVersion == null || hsVersion.isBlank() ? null : hsVersion.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String digitsOf(String code) {
+        StringBuilder digits = new StringBuilder(code.length());
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
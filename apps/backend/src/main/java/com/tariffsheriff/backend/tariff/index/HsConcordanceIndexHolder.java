@@ -0,0 +1,65 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.tariffsheriff.backend.tariff.model.HsConcordance;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsConcordanceRepository;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+
+/**
+ * Keeps the current {@link HsConcordanceIndex}, rebuilt whenever HS products
+ * or concordance rows change. With {@code hs.search.mode=postgres} nothing is
+ * kept and {@link #forDestination} builds one destination's index per call.
+ */
+@Component
+public class HsConcordanceIndexHolder extends HsCatalogSnapshotHolder<HsConcordanceIndex> {
+
+    private final HsProductRepository hsProducts;
+    private final HsConcordanceRepository concordance;
+
+    public HsConcordanceIndexHolder(HsProductRepository hsProducts, HsConcordanceRepository concordance) {
+        super(HsConcordanceIndex.EMPTY);
+        this.hsProducts = hsProducts;
+        this.concordance = concordance;
+    }
+
+    /**
+     * An index resolving codes for {@code destinationIso3}: the resident one,
+     * or one built from the database for this call.
+     */
+    public HsConcordanceIndex forDestination(String destinationIso3) {
+        if (isResident()) {
+            return current();
+        }
+        String destination = normalizeDestination(destinationIso3);
+        if (destination == null) {
+            return HsConcordanceIndex.EMPTY;
+        }
+        List<Object[]> rows = hsProducts.findIndexRowsByDestination(destination);
+        return rows.isEmpty() ? HsConcordanceIndex.EMPTY : new HsConcordanceIndex(toProducts(rows), links());
+    }
+
+    @Override
+    protected HsConcordanceIndex load() {
+        return new HsConcordanceIndex(toProducts(hsProducts.findAllIndexRows()), links());
+    }
+
+    @Override
+    protected boolean dependsOn(Class<?> entityType) {
+        return entityType == HsProduct.class || entityType == HsConcordance.class;
+    }
+
+    private List<HsConcordanceIndex.Link> links() {
+        List<Object[]> linkRows = concordance.findAllLinkRows();
+        List<HsConcordanceIndex.Link> links = new ArrayList<>(linkRows.size());
+        for (Object[] row : linkRows) {
+            links.add(new HsConcordanceIndex.Link((String) row[0], (String) row[1], (String) row[2],
+                    (String) row[3]));
+        }
+        return links;
+    }
+}
@@ -0,0 +1,323 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * The HS nomenclature as a tree per destination and HS version: chapters
+ * (2 digits), headings (4), subheadings (6) and national lines (8, 10, ...)
+ * keyed by the dot-less code.
+ *
+ * Levels without a product of their own (a heading only present through its
+ * subheadings) still get a node, so every product hangs under one node per
+ * level above it. Each node knows how many products sit below it and whether
+ * any product at or below it has a tariff rate. The counts are computed once
+ * when the tree is built, so drilling down is one map lookup per call; rate
+ * coverage is a counter per node that {@link #setRated} moves along one path
+ * when a product gains its first rate or loses its last one, so rate writes
+ * never rebuild the tree.
+ */
+public final class HsHierarchy {
+
+    public static final HsHierarchy EMPTY = new HsHierarchy(List.of(), Set.of());
+
+    /**
+     * One tree node. {@code hsCode}, {@code label} and {@code productId} are
+     * {@code null} when no product sits exactly at this code. The root has an
+     * empty {@code code} and the chapters as children.
+     */
+    public static final class Node {
+
+        private final String code;
+        private final String hsCode;
+        private final String label;
+        private final Long productId;
+        private final int descendants;
+        private final List<Node> children;
+        private final int ordinal;
+        private final AtomicIntegerArray ratedBelow;
+
+        private Node(String code, HsProduct product, int descendants, List<Node> children, int ordinal,
+                AtomicIntegerArray ratedBelow) {
+            this.code = code;
+            this.hsCode = product == null ? null : product.getHsCode();
+            this.label = product == null ? null : product.getHsLabel();
+            this.productId = product == null ? null : product.getId();
+            this.descendants = descendants;
+            this.children = children;
+            this.ordinal = ordinal;
+            this.ratedBelow = ratedBelow;
+        }
+
+        public String code() {
+            return code;
+        }
+
+        public String hsCode() {
+            return hsCode;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public Long productId() {
+            return productId;
+        }
+
+        /**
+         * Products strictly below this node.
+         */
+        public int descendants() {
+            return descendants;
+        }
+
+        /**
+         * Whether this node's product or any product below it has a tariff
+         * rate, as of now.
+         */
+        public boolean hasRates() {
+            return ratedBelow.get(ordinal) > 0;
+        }
+
+        public List<Node> children() {
+            return children;
+        }
+
+        @Override
+        public String toString() {
+            return "Node[code=" + code + ", hsCode=" + hsCode + ", descendants=" + descendants
+                    + ", hasRates=" + hasRates() + ", children=" + children.size() + "]";
+        }
+    }
+
+    // "USA|HS2022" -> code -> node; the root is under ""
+    private final Map<String, Map<String, Node>> trees;
+    // "USA" -> versions, newest last
+    private final Map<String, List<String>> versions;
+    private final int productCount;
+    // Per node ordinal: rated products at or below it, and the parent's ordinal (-1 for roots)
+    private final AtomicIntegerArray ratedBelow;
+    private final int[] parents;
+    // Product id -> ordinal of the node it sits at
+    private final Map<Long, Integer> nodeByProduct;
+
+    /**
+     * @param ratedProductIds ids of the HS products that have at least one
+     *                        tariff rate
+     */
+    public HsHierarchy(List<HsProduct> products, Set<Long> ratedProductIds) {
+        Map<String, List<HsProduct>> byTree = new HashMap<>();
+        Map<String, TreeMap<String, Boolean>> versionsByDestination = new HashMap<>();
+        int count = 0;
+        for (HsProduct product : products) {
+            String destination = normalize(product.getDestinationIso3());
+            String version = product.getHsVersion();
+            if (destination == null || version == null || product.getHsCode() == null
+                    || digitsOf(product.getHsCode()).isEmpty()) {
+                continue;
+            }
+            byTree.computeIfAbsent(treeKey(destination, version), k -> new ArrayList<>()).add(product);
+            versionsByDestination.computeIfAbsent(destination, k -> new TreeMap<>()).put(version, Boolean.TRUE);
+            count++;
+        }
+
+        Map<String, Map<String, Draft>> drafts = new HashMap<>(byTree.size() * 4 / 3 + 1);
+        int nodes = 0;
+        for (Map.Entry<String, List<HsProduct>> tree : byTree.entrySet()) {
+            Map<String, Draft> draft = draft(tree.getValue(), ratedProductIds, nodes);
+            drafts.put(tree.getKey(), draft);
+            nodes += draft.size();
+        }
+        this.ratedBelow = new AtomicIntegerArray(nodes);
+        this.parents = new int[nodes];
+        this.nodeByProduct = new HashMap<>(count * 4 / 3 + 1);
+        this.trees = new HashMap<>(drafts.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Map<String, Draft>> tree : drafts.entrySet()) {
+            trees.put(tree.getKey(), freeze(tree.getValue()));
+        }
+        this.versions = new HashMap<>(versionsByDestination.size() * 4 / 3 + 1);
+        for (Map.Entry<String, TreeMap<String, Boolean>> destination : versionsByDestination.entrySet()) {
+            versions.put(destination.getKey(), List.copyOf(destination.getValue().keySet()));
+        }
+        this.productCount = count;
+    }
+
+    /**
+     * The node for {@code code} (digits, dots ignored; empty for the root) in
+     * the destination's tree for {@code hsVersion}, or for its newest version
+     * when {@code hsVersion} is {@code null}. {@code null} when there is no
+     * such tree or node.
+     */
+    public Node node(String destinationIso3, String hsVersion, String code) {
+        String destination = normalize(destinationIso3);
+        String version = hsVersion == null || hsVersion.isBlank() ? latestVersion(destination) : hsVersion.trim();
+        if (destination == null || version == null) {
+            return null;
+        }
+        Map<String, Node> tree = trees.get(treeKey(destination, version));
+        return tree == null ? null : tree.get(code == null ? "" : digitsOf(code));
+    }
+
+    /**
+     * The HS versions loaded for a destination, oldest first.
+     */
+    public List<String> versions(String destinationIso3) {
+        return versions.getOrDefault(normalize(destinationIso3), List.of());
+    }
+
+    /**
+     * The destination's newest HS version, or {@code null} when it has none.
+     */
+    public String latestVersion(String destinationIso3) {
+        List<String> loaded = versions(destinationIso3);
+        return loaded.isEmpty() ? null : loaded.get(loaded.size() - 1);
+    }
+
+    /**
+     * Flags or unflags one product as having a tariff rate, for the caller
+     * that tracks when a product gains its first rate or loses its last one.
+     * Unknown products are ignored. Callers must not run concurrently.
+     */
+    public void setRated(long productId, boolean rated) {
+        Integer ordinal = nodeByProduct.get(productId);
+        if (ordinal == null) {
+            return;
+        }
+        int delta = rated ? 1 : -1;
+        for (int node = ordinal; node >= 0; node = parents[node]) {
+            ratedBelow.addAndGet(node, delta);
+        }
+    }
+
+    public int size() {
+        return productCount;
+    }
+
+    public boolean isEmpty() {
+        return productCount == 0;
+    }
+
+    @Override
+    public String toString() {
+        int nodes = 0;
+        for (Map<String, Node> tree : trees.values()) {
+            nodes += tree.size();
+        }
+        return "HsHierarchy[products=" + productCount + ", trees=" + trees.size() + ", nodes=" + nodes + "]";
+    }
+
+    /**
+     * One tree's nodes, numbered from {@code firstOrdinal}, with their counts.
+     */
+    private static Map<String, Draft> draft(List<HsProduct> products, Set<Long> ratedProductIds,
+            int firstOrdinal) {
+        // Lowest id wins when two products share a code (e.g. "8507.60" and "850760")
+        List<HsProduct> sorted = new ArrayList<>(products);
+        sorted.sort(Comparator.comparing(HsProduct::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Map<String, Draft> drafts = new HashMap<>();
+        Draft root = new Draft("", null, firstOrdinal);
+        drafts.put("", root);
+        for (HsProduct product : sorted) {
+            String digits = digitsOf(product.getHsCode());
+            int rated = product.getId() != null && ratedProductIds.contains(product.getId()) ? 1 : 0;
+
+            Draft parent = root;
+            for (int length = 2; length < digits.length(); length += 2) {
+                Draft ancestor = child(drafts, digits.substring(0, length), parent, firstOrdinal);
+                parent.descendants++;
+                parent.rated += rated;
+                parent = ancestor;
+            }
+            parent.descendants++;
+            parent.rated += rated;
+
+            Draft own = child(drafts, digits, parent, firstOrdinal);
+            own.rated += rated;
+            own.products.add(product);
+        }
+        return drafts;
+    }
+
+    private Map<String, Node> freeze(Map<String, Draft> drafts) {
+        // Children before parents, so each parent is frozen with finished children
+        List<Draft> order = new ArrayList<>(drafts.values());
+        order.sort(Comparator.comparingInt((Draft d) -> d.code.length()).reversed());
+        Map<String, Node> nodes = new HashMap<>(drafts.size() * 4 / 3 + 1);
+        for (Draft draft : order) {
+            draft.children.sort(Comparator.comparing((Draft d) -> d.code));
+            List<Node> children = new ArrayList<>(draft.children.size());
+            for (Draft child : draft.children) {
+                children.add(nodes.get(child.code));
+            }
+            ratedBelow.set(draft.ordinal, draft.rated);
+            parents[draft.ordinal] = draft.parent == null ? -1 : draft.parent.ordinal;
+            for (HsProduct product : draft.products) {
+                if (product.getId() != null) {
+                    nodeByProduct.put(product.getId(), draft.ordinal);
+                }
+            }
+            nodes.put(draft.code, new Node(draft.code, draft.products.isEmpty() ? null : draft.products.get(0),
+                    draft.descendants, List.copyOf(children), draft.ordinal, ratedBelow));
+        }
+        return nodes;
+    }
+
+    private static Draft child(Map<String, Draft> drafts, String code, Draft parent, int firstOrdinal) {
+        Draft draft = drafts.get(code);
+        if (draft == null) {
+            draft = new Draft(code, parent, firstOrdinal + drafts.size());
+            drafts.put(code, draft);
+            parent.children.add(draft);
+        }
+        return draft;
+    }
+
+    private static String treeKey(String destination, String version) {
+        return destination + '|' + version;
+    }
+
+    private static String normalize(String destinationIso3) {
+        return destinationIso3 == null || destinationIso3.isBlank()
+                ? null
+                : destinationIso3.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String digitsOf(String code) {
+        StringBuilder digits = new StringBuilder(code.length());
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static final class Draft {
+        final String code;
+        final Draft parent;
+        final int ordinal;
+        final List<Draft> children = new ArrayList<>(4);
+        // Products at exactly this code, lowest id first
+        final List<HsProduct> products = new ArrayList<>(1);
+        int descendants;
+        int rated;
+
+        Draft(String code, Draft parent, int ordinal) {
+            this.code = code;
+            this.parent = parent;
+            this.ordinal = ordinal;
+        }
+    }
+}
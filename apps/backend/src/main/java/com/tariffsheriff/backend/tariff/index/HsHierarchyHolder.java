@@ -0,0 +1,156 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+
+/**
+ * Keeps the current {@link HsHierarchy}, rebuilt whenever HS products change.
+ * Its rate-coverage flags follow committed {@link TariffRateChangedEvent}s
+ * instead: every tracked rate remembers its product, so only a product gaining
+ * its first rate or losing its last one touches the tree, along one path. With
+ * {@code hs.search.mode=postgres} nothing is kept and {@link #forDestination}
+ * reads one destination's tree per call.
+ */
+@Component
+public class HsHierarchyHolder extends HsCatalogSnapshotHolder<HsHierarchy> {
+
+    private final HsProductRepository hsProducts;
+    private final TariffRateRepository tariffRates;
+
+    // All guarded by this
+    private Coverage coverage = new Coverage();
+    private List<TariffRateChangedEvent> duringLoad;
+    // The newest tree built, which may not be published yet
+    private HsHierarchy latest = HsHierarchy.EMPTY;
+
+    public HsHierarchyHolder(HsProductRepository hsProducts, TariffRateRepository tariffRates) {
+        super(HsHierarchy.EMPTY);
+        this.hsProducts = hsProducts;
+        this.tariffRates = tariffRates;
+    }
+
+    /**
+     * A hierarchy holding at least {@code destinationIso3}'s products: the
+     * resident one, or one read from the database for this call.
+     */
+    public HsHierarchy forDestination(String destinationIso3) {
+        if (isResident()) {
+            return current();
+        }
+        String destination = normalizeDestination(destinationIso3);
+        if (destination == null) {
+            return HsHierarchy.EMPTY;
+        }
+        return new HsHierarchy(toProducts(hsProducts.findIndexRowsByDestination(destination)),
+                new HashSet<>(tariffRates.findRatedHsProductIdsByDestination(destination)));
+    }
+
+    /**
+     * Reads the catalog and every rate's product without the lock; rate
+     * changes committed meanwhile are recorded and replayed into the new tree
+     * before it is handed over, the same way {@link TradeRouteSummary}
+     * rebuilds.
+     */
+    @Override
+    protected HsHierarchy load() {
+        // reload() never runs two loads at once, so only events race with this one
+        synchronized (this) {
+            duringLoad = new ArrayList<>();
+        }
+        try {
+            List<HsProduct> products = toProducts(hsProducts.findAllIndexRows());
+            Coverage next = new Coverage();
+            for (Object[] row : tariffRates.findAllRouteRows()) {
+                next.apply(((Number) row[0]).longValue(), row[3] != null ? ((Number) row[3]).longValue() : null,
+                        false);
+            }
+            HsHierarchy tree = new HsHierarchy(products, next.ratedProductIds());
+            synchronized (this) {
+                for (TariffRateChangedEvent event : duringLoad) {
+                    next.apply(event, tree);
+                }
+                coverage = next;
+                latest = tree;
+            }
+            return tree;
+        } finally {
+            synchronized (this) {
+                duringLoad = null;
+            }
+        }
+    }
+
+    @Override
+    protected boolean dependsOn(Class<?> entityType) {
+        return entityType == HsProduct.class;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTariffRateChanged(TariffRateChangedEvent event) {
+        if (!isResident()) {
+            return;
+        }
+        if (duringLoad != null) {
+            duringLoad.add(event);
+        }
+        // Until the holder publishes the newest tree, both it and the one readers have are kept current
+        HsHierarchy published = current();
+        if (published == latest) {
+            coverage.apply(event, latest);
+        } else {
+            coverage.apply(event, latest, published);
+        }
+    }
+
+    /**
+     * The number of rates per HS product. Every tracked rate remembers its
+     * product, which makes {@link #apply} idempotent.
+     */
+    private static final class Coverage {
+
+        final Map<Long, Long> productByRate = new HashMap<>();
+        final Map<Long, Integer> ratesPerProduct = new HashMap<>();
+
+        Set<Long> ratedProductIds() {
+            return ratesPerProduct.keySet();
+        }
+
+        void apply(TariffRateChangedEvent event, HsHierarchy... trees) {
+            apply(event.rateId(), event.hsProductId(), event.removed(), trees);
+        }
+
+        /**
+         * Moves, adds or removes one rate, flagging the products that gain
+         * their first rate or lose their last one in {@code trees}.
+         */
+        void apply(long rateId, Long hsProductId, boolean removed, HsHierarchy... trees) {
+            Long product = removed ? null : hsProductId;
+            Long previous = product == null ? productByRate.remove(rateId) : productByRate.put(rateId, product);
+            if (previous != null && previous.equals(product)) {
+                return;
+            }
+            if (previous != null && ratesPerProduct.merge(previous, -1, Integer::sum) == 0) {
+                ratesPerProduct.remove(previous);
+                for (HsHierarchy tree : trees) {
+                    tree.setRated(previous, false);
+                }
+            }
+            if (product != null && ratesPerProduct.merge(product, 1, Integer::sum) == 1) {
+                for (HsHierarchy tree : trees) {
+                    tree.setRated(product, true);
+                }
+            }
+        }
+    }
+}
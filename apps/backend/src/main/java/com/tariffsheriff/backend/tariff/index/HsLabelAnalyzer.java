@@ -0,0 +1,115 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns HS labels and search queries into index terms: lower-cased runs of
+ * letters and digits, minus stop words and single characters, each reduced by
+ * a light suffix stripper so "batteries" and "battery" or "horses" and
+ * "horse" meet on the same term.
+ *
+ * The stemmer only covers plural, {@code -ed} and {@code -ing} endings (roughly
+ * Porter step 1). HS labels are short noun phrases, so that is where nearly all
+ * of the useful conflation is.
+ */
+public final class HsLabelAnalyzer {
+
+    /** Common words that don't help with product identification. */
+    public static final Set<String> STOP_WORDS = Set.of("the", "and", "or", "but", "in", "on", "at", "to", "for",
+            "of", "with", "by", "from", "up", "about", "into", "through", "during", "before", "after", "above",
+            "below", "between", "among", "within", "without", "under", "over");
+
+    private HsLabelAnalyzer() {
+    }
+
+    public static boolean isStopWord(String word) {
+        return STOP_WORDS.contains(word);
+    }
+
+    /**
+     * Index terms of {@code text} in order of appearance, duplicates included.
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = tokens(text);
+        terms.replaceAll(HsLabelAnalyzer::stem);
+        return terms;
+    }
+
+    /**
+     * The lower-cased words of {@code text} that survive stop-word and length
+     * filtering, before stemming. Only letters and digits, so they are safe to
+     * splice into a {@code tsquery}.
+     */
+    public static List<String> tokens(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                addTerm(terms, lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static void addTerm(List<String> terms, String token) {
+        if (token.length() > 1 && !isStopWord(token)) {
+            terms.add(token);
+        }
+    }
+
+    static String stem(String word) {
+        if (word.length() <= 3 || !Character.isLetter(word.charAt(word.length() - 1))) {
+            return word;
+        }
+        String w = word;
+        if (w.endsWith("sses")) {
+            w = w.substring(0, w.length() - 2);
+        } else if (w.endsWith("ies") || w.endsWith("ied")) {
+            w = w.substring(0, w.length() - 3) + "y";
+        } else if (w.endsWith("s") && !w.endsWith("ss") && !w.endsWith("us") && !w.endsWith("is")) {
+            w = w.substring(0, w.length() - 1);
+        }
+        if (w.endsWith("eed")) {
+            return w;
+        }
+        if (w.endsWith("ed") && hasVowel(w, w.length() - 2)) {
+            w = undouble(w.substring(0, w.length() - 2));
+        } else if (w.endsWith("ing") && hasVowel(w, w.length() - 3)) {
+            w = undouble(w.substring(0, w.length() - 3));
+        }
+        // "horse"/"horses" and "prepare"/"prepared" all end up without the final e
+        if (w.length() > 3 && w.endsWith("e")) {
+            w = w.substring(0, w.length() - 1);
+        }
+        return w;
+    }
+
+    private static boolean hasVowel(String w, int end) {
+        for (int i = 0; i < end; i++) {
+            if ("aeiouy".indexOf(w.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String undouble(String w) {
+        int n = w.length();
+        if (n > 2 && w.charAt(n - 1) == w.charAt(n - 2) && "lsz".indexOf(w.charAt(n - 1)) < 0
+                && "aeiou".indexOf(w.charAt(n - 1)) < 0) {
+            return w.substring(0, n - 1);
+        }
+        return w;
+    }
+}
@@ -0,0 +1,334 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * Immutable inverted index over {@code hs_label}, ranked with Okapi BM25.
+ *
+ * Labels are split into terms by {@link HsLabelAnalyzer}. Every term owns a
+ * posting list of (document, term frequency) pairs sorted by document, so a
+ * query walks its terms' lists side by side once (document at a time) and
+ * keeps the best {@code limit} documents in a bounded heap. Only documents
+ * that make the current top {@code limit} are allocated a heap entry, and no
+ * list is visited twice.
+ *
+ * Documents are numbered destination by destination, so each destination owns
+ * one contiguous range of document numbers. A search for one destination
+ * starts every posting list at its range (a binary search) and stops at its
+ * end, so other destinations' postings are never scored and the top
+ * {@code limit} is taken within the destination alone.
+ *
+ * {@link #searchCorrected} is the misspelling fallback: query terms missing
+ * from the vocabulary are swapped for their nearest terms by the
+ * {@link HsTermCorrector} built alongside the postings.
+ */
+public final class HsLabelIndex {
+
+    public static final HsLabelIndex EMPTY = new HsLabelIndex(List.of());
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private static final Comparator<HsProduct> BY_CODE = Comparator
+            .comparing(HsProduct::getHsCode, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(HsProduct::getId);
+
+    private final HsProduct[] products;
+    private final int[] lengths;
+    private final double averageLength;
+    private final Map<String, Integer> termIds;
+    private final int[][] postingDocs;
+    private final int[][] postingFreqs;
+    private final HsTermCorrector corrector;
+    private final Map<String, int[]> destinationRanges;
+
+    public HsLabelIndex(List<HsProduct> products) {
+        List<HsProduct> indexed = new ArrayList<>(products.size());
+        for (HsProduct product : products) {
+            if (product.getId() != null) {
+                indexed.add(product);
+            }
+        }
+        indexed.sort(Comparator.comparing(HsLabelIndex::destinationOf,
+                Comparator.nullsFirst(Comparator.<String>naturalOrder())));
+        this.destinationRanges = new HashMap<>();
+        for (int doc = 0; doc < indexed.size(); doc++) {
+            String destination = destinationOf(indexed.get(doc));
+            if (destination != null) {
+                int first = doc;
+                destinationRanges.computeIfAbsent(destination, k -> new int[] { first, first })[1] = doc + 1;
+            }
+        }
+
+        List<List<String>> analyzed = new ArrayList<>(indexed.size());
+        long totalLength = 0;
+        for (HsProduct product : indexed) {
+            List<String> terms = HsLabelAnalyzer.analyze(product.getHsLabel());
+            analyzed.add(terms);
+            totalLength += terms.size();
+        }
+        this.products = indexed.toArray(new HsProduct[0]);
+        this.lengths = new int[this.products.length];
+        this.averageLength = this.products.length == 0 ? 0 : (double) totalLength / this.products.length;
+
+        // Term frequencies per document, then one posting list per term in document order
+        Map<String, Integer> ids = new HashMap<>();
+        List<int[]> docsByTerm = new ArrayList<>();
+        List<int[]> freqsByTerm = new ArrayList<>();
+        int[] sizes = new int[16];
+        for (int doc = 0; doc < this.products.length; doc++) {
+            List<String> terms = analyzed.get(doc);
+            lengths[doc] = terms.size();
+            Map<String, Integer> counts = new HashMap<>();
+            for (String term : terms) {
+                counts.merge(term, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                Integer termId = ids.get(entry.getKey());
+                if (termId == null) {
+                    termId = ids.size();
+                    ids.put(entry.getKey(), termId);
+                    docsByTerm.add(new int[4]);
+                    freqsByTerm.add(new int[4]);
+                    if (termId == sizes.length) {
+                        sizes = Arrays.copyOf(sizes, sizes.length * 2);
+                    }
+                }
+                int size = sizes[termId];
+                if (size == docsByTerm.get(termId).length) {
+                    docsByTerm.set(termId, Arrays.copyOf(docsByTerm.get(termId), size * 2));
+                    freqsByTerm.set(termId, Arrays.copyOf(freqsByTerm.get(termId), size * 2));
+                }
+                docsByTerm.get(termId)[size] = doc;
+                freqsByTerm.get(termId)[size] = entry.getValue();
+                sizes[termId] = size + 1;
+            }
+        }
+        this.termIds = ids;
+        this.postingDocs = new int[ids.size()][];
+        this.postingFreqs = new int[ids.size()][];
+        for (int t = 0; t < postingDocs.length; t++) {
+            postingDocs[t] = Arrays.copyOf(docsByTerm.get(t), sizes[t]);
+            postingFreqs[t] = Arrays.copyOf(freqsByTerm.get(t), sizes[t]);
+        }
+
+        String[] vocabulary = new String[ids.size()];
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            vocabulary[entry.getValue()] = entry.getKey();
+        }
+        this.corrector = new HsTermCorrector(Arrays.asList(vocabulary), Arrays.copyOf(sizes, vocabulary.length));
+    }
+
+    /**
+     * Products whose label shares at least one term with {@code query}, best
+     * BM25 score first; ties go to the lower HS code. Empty when the query has
+     * no indexable terms.
+     */
+    public List<HsProduct> search(String query, int limit) {
+        return search(query, null, limit);
+    }
+
+    /**
+     * {@link #search(String, int)} within one destination, or across all of
+     * them when {@code destinationIso3} is {@code null}.
+     */
+    public List<HsProduct> search(String query, String destinationIso3, int limit) {
+        return products(searchScored(query, destinationIso3, limit));
+    }
+
+    /**
+     * {@link #search(String, String, int)} with each product's BM25 score
+     * divided by the most the query's terms could score, so 1 is a label that
+     * matches every term as strongly as BM25 allows.
+     */
+    public List<HsProductMatch> searchScored(String query, String destinationIso3, int limit) {
+        int[] range = rangeOf(destinationIso3);
+        if (limit <= 0 || range == null) {
+            return List.of();
+        }
+        List<Integer> terms = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(HsLabelAnalyzer.analyze(query))) {
+            Integer termId = termIds.get(term);
+            if (termId != null) {
+                terms.add(termId);
+            }
+        }
+        return rank(terms, range, limit);
+    }
+
+    /**
+     * Like {@link #search}, but every query term missing from the vocabulary
+     * is replaced by its closest terms within one or two edits, so "lithum
+     * batery" finds "lithium battery". Empty when no term needed, or got, a
+     * correction; {@link #search} has already answered that query.
+     */
+    public List<HsProduct> searchCorrected(String query, int limit) {
+        return searchCorrected(query, null, limit);
+    }
+
+    /**
+     * {@link #searchCorrected(String, int)} within one destination, or across
+     * all of them when {@code destinationIso3} is {@code null}.
+     */
+    public List<HsProduct> searchCorrected(String query, String destinationIso3, int limit) {
+        return products(searchCorrectedScored(query, destinationIso3, limit));
+    }
+
+    /**
+     * {@link #searchCorrected(String, String, int)} scored like
+     * {@link #searchScored}.
+     */
+    public List<HsProductMatch> searchCorrectedScored(String query, String destinationIso3, int limit) {
+        int[] range = rangeOf(destinationIso3);
+        if (limit <= 0 || range == null) {
+            return List.of();
+        }
+        Set<Integer> terms = new LinkedHashSet<>();
+        boolean corrected = false;
+        for (String term : new LinkedHashSet<>(HsLabelAnalyzer.analyze(query))) {
+            Integer termId = termIds.get(term);
+            if (termId != null) {
+                terms.add(termId);
+                continue;
+            }
+            for (String correction : corrector.correct(term)) {
+                terms.add(termIds.get(correction));
+                corrected = true;
+            }
+        }
+        return corrected ? rank(new ArrayList<>(terms), range, limit) : List.of();
+    }
+
+    /**
+     * Scores the documents in {@code range} (first, end) that contain any of
+     * {@code terms}.
+     */
+    private List<HsProductMatch> rank(List<Integer> terms, int[] range, int limit) {
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        int n = terms.size();
+        int[][] docs = new int[n][];
+        int[][] freqs = new int[n][];
+        double[] idf = new double[n];
+        int[] cursor = new int[n];
+        int[] end = new int[n];
+        // termWeight approaches K1 + 1 as a term's frequency grows
+        double maxScore = 0;
+        for (int i = 0; i < n; i++) {
+            docs[i] = postingDocs[terms.get(i)];
+            freqs[i] = postingFreqs[terms.get(i)];
+            idf[i] = idf(docs[i].length);
+            maxScore += idf[i] * (K1 + 1);
+            cursor[i] = lowerBound(docs[i], range[0]);
+            end[i] = lowerBound(docs[i], range[1]);
+        }
+
+        // Worst hit on top so it can be evicted when a better one arrives
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, Hit.BEST_FIRST.reversed());
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (cursor[i] < end[i] && docs[i][cursor[i]] < doc) {
+                    doc = docs[i][cursor[i]];
+                }
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+            double score = 0;
+            for (int i = 0; i < n; i++) {
+                if (cursor[i] < end[i] && docs[i][cursor[i]] == doc) {
+                    score += idf[i] * termWeight(freqs[i][cursor[i]], lengths[doc]);
+                    cursor[i]++;
+                }
+            }
+            if (best.size() < limit || score >= best.peek().score()) {
+                best.add(new Hit(products[doc], score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(Hit.BEST_FIRST);
+        List<HsProductMatch> result = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            result.add(new HsProductMatch(hit.product(), maxScore > 0 ? Math.min(1, hit.score() / maxScore) : 0));
+        }
+        return result;
+    }
+
+    private static List<HsProduct> products(List<HsProductMatch> matches) {
+        List<HsProduct> products = new ArrayList<>(matches.size());
+        for (HsProductMatch match : matches) {
+            products.add(match.product());
+        }
+        return products;
+    }
+
+    public int size() {
+        return products.length;
+    }
+
+    public int termCount() {
+        return postingDocs.length;
+    }
+
+    public boolean isEmpty() {
+        return products.length == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "HsLabelIndex[products=" + products.length + ", terms=" + postingDocs.length + "]";
+    }
+
+    /**
+     * The document range of {@code destinationIso3}: everything for
+     * {@code null}, {@code null} for a destination without products.
+     */
+    private int[] rangeOf(String destinationIso3) {
+        if (destinationIso3 == null) {
+            return new int[] { 0, products.length };
+        }
+        return destinationRanges.get(destinationIso3.trim().toUpperCase(Locale.ROOT));
+    }
+
+    private static String destinationOf(HsProduct product) {
+        return product.getDestinationIso3() == null ? null : product.getDestinationIso3().toUpperCase(Locale.ROOT);
+    }
+
+    private static int lowerBound(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (products.length - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private double termWeight(int frequency, int length) {
+        double norm = K1 * (1 - B + B * length / averageLength);
+        return frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    private record Hit(HsProduct product, double score) {
+
+        static final Comparator<Hit> BEST_FIRST = Comparator.comparingDouble(Hit::score).reversed()
+                .thenComparing(Hit::product, BY_CODE);
+    }
+}
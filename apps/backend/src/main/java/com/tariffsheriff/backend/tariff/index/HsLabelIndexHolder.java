@@ -0,0 +1,44 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+
+/**
+ * Keeps the current {@link HsLabelIndex}, rebuilt whenever HS products change.
+ * Only present in the default heap-resident search mode
+ * ({@code hs.search.mode=memory}).
+ */
+@Component
+@ConditionalOnProperty(name = "hs.search.mode", havingValue = "memory", matchIfMissing = true)
+public class HsLabelIndexHolder extends AbstractSnapshotHolder<HsLabelIndex> {
+
+    private final HsProductRepository hsProducts;
+
+    public HsLabelIndexHolder(HsProductRepository hsProducts) {
+        super(HsLabelIndex.EMPTY);
+        this.hsProducts = hsProducts;
+    }
+
+    @Override
+    protected HsLabelIndex load() {
+        List<Object[]> rows = hsProducts.findAllIndexRows();
+        List<HsProduct> products = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            // Detached copies without the lazy destination association
+            products.add(new HsProduct(((Number) row[0]).longValue(), (String) row[1], null, (String) row[2],
+                    (String) row[3], (String) row[4]));
+        }
+        return new HsLabelIndex(products);
+    }
+
+    @Override
+    protected boolean dependsOn(Class<?> entityType) {
+        return entityType == HsProduct.class;
+    }
+}
@@ -0,0 +1,10 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * A description search hit with its relevance score, from 0 (unrelated) to 1
+ * (as good a match as the engine can report).
+ */
+public record HsProductMatch(HsProduct product, double score) {
+}
@@ -0,0 +1,157 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * Approximate nearest-neighbour search over embedded {@code hs_label}s, for
+ * descriptions that share meaning rather than words with the nomenclature.
+ *
+ * Labels are embedded by {@link HsTextEmbedder} and indexed in one
+ * {@link HnswGraph} per destination, so a destination search only walks that
+ * destination's graph and its top {@code limit} is its own. A search across
+ * all destinations queries every graph and merges the results. Hits below
+ * {@link #MIN_SIMILARITY} are dropped, so an unrelated query finds nothing
+ * rather than the least unrelated labels.
+ */
+public final class HsSemanticIndex {
+
+    public static final HsSemanticIndex EMPTY = new HsSemanticIndex(List.of(), new HsTextEmbedder(Map.of()));
+
+    static final float MIN_SIMILARITY = 0.15f;
+    static final int EF_SEARCH = 64;
+
+    private static final String NO_DESTINATION = "";
+
+    private final HsTextEmbedder embedder;
+    private final Map<String, Partition> partitions = new HashMap<>();
+    private final int productCount;
+
+    private record Partition(HsProduct[] products, HnswGraph graph) {
+    }
+
+    public HsSemanticIndex(List<HsProduct> products, HsTextEmbedder embedder) {
+        this.embedder = embedder;
+        Map<String, List<HsProduct>> byDestination = new HashMap<>();
+        int count = 0;
+        for (HsProduct product : products) {
+            if (product.getId() != null && product.getHsLabel() != null) {
+                byDestination.computeIfAbsent(destinationOf(product), k -> new ArrayList<>()).add(product);
+                count++;
+            }
+        }
+        for (Map.Entry<String, List<HsProduct>> destination : byDestination.entrySet()) {
+            List<HsProduct> members = destination.getValue();
+            // Insertion order fixes the graph, so build it in a stable order
+            members.sort(Comparator.comparing(HsProduct::getId));
+            List<float[]> vectors = new ArrayList<>(members.size());
+            for (HsProduct product : members) {
+                vectors.add(embedder.embedLabel(product.getHsLabel()));
+            }
+            partitions.put(destination.getKey(), new Partition(members.toArray(new HsProduct[0]),
+                    new HnswGraph(vectors, HsTextEmbedder.DIMENSIONS)));
+        }
+        this.productCount = count;
+    }
+
+    /**
+     * Up to {@code limit} products whose labels are closest in meaning to
+     * {@code description}, closest first, within one destination or across
+     * all of them when {@code destinationIso3} is {@code null}.
+     */
+    public List<HsProduct> search(String description, String destinationIso3, int limit) {
+        return products(search(description, destinationIso3, limit, false));
+    }
+
+    /**
+     * {@link #search} with each product's cosine similarity to the
+     * description as its score.
+     */
+    public List<HsProductMatch> searchScored(String description, String destinationIso3, int limit) {
+        return search(description, destinationIso3, limit, false);
+    }
+
+    /**
+     * {@link #search} by exhaustive scan instead of the graph, the reference
+     * for measuring the graph's recall.
+     */
+    List<HsProduct> searchExact(String description, String destinationIso3, int limit) {
+        return products(search(description, destinationIso3, limit, true));
+    }
+
+    public int size() {
+        return productCount;
+    }
+
+    public boolean isEmpty() {
+        return productCount == 0;
+    }
+
+    @Override
+    public String toString() {
+        long offHeap = 0;
+        for (Partition partition : partitions.values()) {
+            offHeap += partition.graph().offHeapBytes();
+        }
+        return "HsSemanticIndex[products=" + productCount + ", destinations=" + partitions.size()
+                + ", offHeapBytes=" + offHeap + "]";
+    }
+
+    private List<HsProductMatch> search(String description, String destinationIso3, int limit, boolean exact) {
+        if (limit <= 0 || isEmpty()) {
+            return List.of();
+        }
+        float[] query = embedder.embedQuery(description);
+        List<Candidate> found = new ArrayList<>();
+        if (destinationIso3 == null || destinationIso3.isBlank()) {
+            for (Partition partition : partitions.values()) {
+                collect(partition, query, limit, exact, found);
+            }
+        } else {
+            Partition partition = partitions.get(destinationIso3.trim().toUpperCase(Locale.ROOT));
+            if (partition != null) {
+                collect(partition, query, limit, exact, found);
+            }
+        }
+        found.sort(Comparator.comparingDouble(Candidate::similarity).reversed()
+                .thenComparing(c -> c.product().getHsCode(), Comparator.nullsFirst(Comparator.<String>naturalOrder())));
+        List<HsProductMatch> out = new ArrayList<>(Math.min(limit, found.size()));
+        for (int i = 0; i < found.size() && out.size() < limit; i++) {
+            out.add(new HsProductMatch(found.get(i).product(), Math.max(0, Math.min(1, found.get(i).similarity()))));
+        }
+        return out;
+    }
+
+    private static void collect(Partition partition, float[] query, int limit, boolean exact, List<Candidate> out) {
+        List<HnswGraph.Hit> hits = exact
+                ? partition.graph().exact(query, limit)
+                : partition.graph().search(query, limit, EF_SEARCH);
+        for (HnswGraph.Hit hit : hits) {
+            if (hit.similarity() >= MIN_SIMILARITY) {
+                out.add(new Candidate(partition.products()[hit.node()], hit.similarity()));
+            }
+        }
+    }
+
+    private static List<HsProduct> products(List<HsProductMatch> matches) {
+        List<HsProduct> products = new ArrayList<>(matches.size());
+        for (HsProductMatch match : matches) {
+            products.add(match.product());
+        }
+        return products;
+    }
+
+    private static String destinationOf(HsProduct product) {
+        String destination = product.getDestinationIso3();
+        return destination == null ? NO_DESTINATION : destination.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private record Candidate(HsProduct product, float similarity) {
+    }
+}
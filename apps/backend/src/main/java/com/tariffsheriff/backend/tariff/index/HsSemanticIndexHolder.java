@@ -0,0 +1,45 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+
+/**
+ * Keeps the current {@link HsSemanticIndex}, rebuilt whenever HS products
+ * change. Only present in the semantic search mode
+ * ({@code hs.search.mode=semantic}).
+ */
+@Component
+@ConditionalOnProperty(name = "hs.search.mode", havingValue = "semantic")
+public class HsSemanticIndexHolder extends AbstractSnapshotHolder<HsSemanticIndex> {
+
+    private final HsProductRepository hsProducts;
+    private final HsTextEmbedder embedder = HsTextEmbedder.withBundledLexicon();
+
+    public HsSemanticIndexHolder(HsProductRepository hsProducts) {
+        super(HsSemanticIndex.EMPTY);
+        this.hsProducts = hsProducts;
+    }
+
+    @Override
+    protected HsSemanticIndex load() {
+        List<Object[]> rows = hsProducts.findAllIndexRows();
+        List<HsProduct> products = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            // Detached copies without the lazy destination association
+            products.add(new HsProduct(((Number) row[0]).longValue(), (String) row[1], null, (String) row[2],
+                    (String) row[3], (String) row[4]));
+        }
+        return new HsSemanticIndex(products, embedder);
+    }
+
+    @Override
+    protected boolean dependsOn(Class<?> entityType) {
+        return entityType == HsProduct.class;
+    }
+}
@@ -0,0 +1,169 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spelling correction for HS label terms with a symmetric-delete dictionary.
+ *
+ * Every vocabulary term is stored under each string obtained by deleting up
+ * to {@link #MAX_DISTANCE} of its characters. A misspelled term generates its
+ * own deletes and looks them up, so any vocabulary term within that many
+ * edits shares at least one key with it. The candidates are then checked with
+ * the real (optimal string alignment) distance. A lookup touches a few dozen
+ * hash buckets and never scans the vocabulary.
+ *
+ * Short terms are allowed fewer edits: two edits turn most three-letter words
+ * into most others.
+ */
+public final class HsTermCorrector {
+
+    public static final int MAX_DISTANCE = 2;
+
+    static final int MAX_SUGGESTIONS = 3;
+
+    private static final int[] NO_TERMS = new int[0];
+
+    private final String[] terms;
+    private final int[] frequencies;
+    private final Map<String, int[]> termsByDelete;
+
+    /**
+     * @param frequencies how many documents contain each term; ties between
+     *                    equally close corrections go to the more common one
+     */
+    public HsTermCorrector(List<String> terms, int[] frequencies) {
+        this.terms = terms.toArray(new String[0]);
+        this.frequencies = Arrays.copyOf(frequencies, this.terms.length);
+
+        Map<String, List<Integer>> index = new HashMap<>();
+        for (int t = 0; t < this.terms.length; t++) {
+            for (String delete : deletes(this.terms[t], MAX_DISTANCE)) {
+                index.computeIfAbsent(delete, k -> new ArrayList<>(2)).add(t);
+            }
+        }
+        this.termsByDelete = new HashMap<>(index.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Integer>> entry : index.entrySet()) {
+            termsByDelete.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * The closest vocabulary terms to {@code term}, most common first, at most
+     * {@link #MAX_SUGGESTIONS}. Empty when {@code term} is itself in the
+     * vocabulary, too short to correct, or has nothing within reach.
+     */
+    public List<String> correct(String term) {
+        int allowed = allowedDistance(term);
+        if (allowed == 0) {
+            return List.of();
+        }
+        int best = allowed;
+        List<Integer> closest = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (String delete : deletes(term, allowed)) {
+            for (int t : termsByDelete.getOrDefault(delete, NO_TERMS)) {
+                if (!seen.add(t)) {
+                    continue;
+                }
+                int distance = distance(term, terms[t], best + 1);
+                if (distance == 0) {
+                    return List.of();
+                }
+                if (distance > best) {
+                    continue;
+                }
+                if (distance < best) {
+                    best = distance;
+                    closest.clear();
+                }
+                closest.add(t);
+            }
+        }
+        closest.sort((a, b) -> frequencies[a] != frequencies[b]
+                ? Integer.compare(frequencies[b], frequencies[a])
+                : terms[a].compareTo(terms[b]));
+        List<String> out = new ArrayList<>(Math.min(closest.size(), MAX_SUGGESTIONS));
+        for (int i = 0; i < closest.size() && i < MAX_SUGGESTIONS; i++) {
+            out.add(terms[closest.get(i)]);
+        }
+        return out;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    static int allowedDistance(String term) {
+        if (term.length() < 4) {
+            return 0;
+        }
+        return term.length() < 7 ? 1 : MAX_DISTANCE;
+    }
+
+    /**
+     * {@code word} and every string made by deleting up to {@code distance}
+     * of its characters.
+     */
+    static Set<String> deletes(String word, int distance) {
+        Set<String> out = new HashSet<>();
+        out.add(word);
+        List<String> frontier = List.of(word);
+        for (int d = 0; d < distance; d++) {
+            List<String> next = new ArrayList<>();
+            for (String w : frontier) {
+                for (int i = 0; i < w.length(); i++) {
+                    String delete = w.substring(0, i) + w.substring(i + 1);
+                    if (out.add(delete)) {
+                        next.add(delete);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return out;
+    }
+
+    /**
+     * Optimal string alignment distance (insertions, deletions, substitutions
+     * and adjacent transpositions), or {@code limit} once it is known to be at
+     * least that.
+     */
+    static int distance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) >= limit) {
+            return limit;
+        }
+        int[] twoBack = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, twoBack[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin >= limit) {
+                return limit;
+            }
+            int[] recycled = twoBack;
+            twoBack = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], limit);
+    }
+}
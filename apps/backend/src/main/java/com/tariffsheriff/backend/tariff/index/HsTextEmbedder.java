@@ -0,0 +1,166 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns HS labels and queries into fixed-size unit vectors without calling
+ * out to an embedding service.
+ *
+ * Each {@link HsLabelAnalyzer} term contributes a feature for the whole term
+ * and for each of its character 3- to 5-grams (with word boundary markers),
+ * hashed into {@link #DIMENSIONS} signed buckets. Labels sharing word stems
+ * or spelling fragments ("accumulator"/"accumulators", "lithium-ion"/"li-ion")
+ * end up close even when no term matches exactly.
+ *
+ * Queries are additionally expanded through a small lexicon bundled with the
+ * application ({@value #LEXICON_RESOURCE}) that maps everyday product words to
+ * the vocabulary of the nomenclature, so "phone charger" lands near "static
+ * converters" and "telephone sets". Labels are embedded as written.
+ */
+public final class HsTextEmbedder {
+
+    public static final int DIMENSIONS = 512;
+
+    static final String LEXICON_RESOURCE = "hs-search-lexicon.txt";
+
+    private static final int MIN_GRAM = 3;
+    private static final int MAX_GRAM = 5;
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float GRAMS_WEIGHT = 1.0f;
+    private static final float EXPANSION_WEIGHT = 0.8f;
+
+    private final Map<String, List<String>> lexicon;
+
+    /**
+     * @param lexicon query terms (stemmed) and the label terms (stemmed) they
+     *                stand for
+     */
+    public HsTextEmbedder(Map<String, List<String>> lexicon) {
+        this.lexicon = Map.copyOf(lexicon);
+    }
+
+    /**
+     * An embedder with the bundled lexicon.
+     */
+    public static HsTextEmbedder withBundledLexicon() {
+        try (InputStream in = HsTextEmbedder.class.getClassLoader().getResourceAsStream(LEXICON_RESOURCE)) {
+            if (in == null) {
+                return new HsTextEmbedder(Map.of());
+            }
+            return new HsTextEmbedder(parseLexicon(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + LEXICON_RESOURCE, e);
+        }
+    }
+
+    /**
+     * The unit vector of a label, or all zeros when it has no terms.
+     */
+    public float[] embedLabel(String label) {
+        float[] vector = new float[DIMENSIONS];
+        for (String term : HsLabelAnalyzer.analyze(label)) {
+            addTerm(vector, term, 1.0f);
+        }
+        return normalize(vector);
+    }
+
+    /**
+     * The unit vector of a query, with its terms' lexicon expansions mixed in;
+     * all zeros when it has no terms.
+     */
+    public float[] embedQuery(String query) {
+        float[] vector = new float[DIMENSIONS];
+        for (String term : HsLabelAnalyzer.analyze(query)) {
+            addTerm(vector, term, 1.0f);
+            for (String expansion : lexicon.getOrDefault(term, List.of())) {
+                addTerm(vector, expansion, EXPANSION_WEIGHT);
+            }
+        }
+        return normalize(vector);
+    }
+
+    public int lexiconSize() {
+        return lexicon.size();
+    }
+
+    /**
+     * Lexicon lines look like {@code charger: static converter, adaptor}: a
+     * query word, then the label words it stands for. Blank lines and lines
+     * starting with {@code #} are skipped. Both sides go through the label
+     * analyzer, so plurals and endings do not matter.
+     */
+    static Map<String, List<String>> parseLexicon(BufferedReader reader) throws IOException {
+        Map<String, List<String>> lexicon = new HashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            int colon = line.indexOf(':');
+            if (line.isEmpty() || line.startsWith("#") || colon < 0) {
+                continue;
+            }
+            List<String> keys = HsLabelAnalyzer.analyze(line.substring(0, colon));
+            List<String> expansions = HsLabelAnalyzer.analyze(line.substring(colon + 1));
+            if (keys.size() == 1 && !expansions.isEmpty()) {
+                lexicon.computeIfAbsent(keys.get(0), k -> new ArrayList<>()).addAll(expansions);
+            }
+        }
+        return lexicon;
+    }
+
+    private static void addTerm(float[] vector, String term, float weight) {
+        add(vector, "w:" + term, WORD_WEIGHT * weight);
+        String marked = "<" + term + ">";
+        int grams = 0;
+        for (int n = MIN_GRAM; n <= MAX_GRAM; n++) {
+            grams += Math.max(0, marked.length() - n + 1);
+        }
+        if (grams == 0) {
+            return;
+        }
+        float gramWeight = GRAMS_WEIGHT * weight / (float) Math.sqrt(grams);
+        for (int n = MIN_GRAM; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= marked.length(); i++) {
+                add(vector, marked.substring(i, i + n), gramWeight);
+            }
+        }
+    }
+
+    private static void add(float[] vector, String feature, float weight) {
+        int hash = mix(feature.hashCode());
+        // Low bits pick the bucket, the top bit the sign, so collisions cancel out on average
+        vector[hash & (DIMENSIONS - 1)] += hash < 0 ? -weight : weight;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    // MurmurHash3 finalizer: String.hashCode alone clusters similar n-grams in the low bits
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,339 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.tariffsheriff.backend.tariff.dto.HsSuggestionDto;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+
+/**
+ * Precomputed completions for the HS product search box.
+ *
+ * For every destination, and for all destinations together, the index stores
+ * the best {@link #MAX_COMPLETIONS} products under each digit prefix of the
+ * dot-less HS code (by code) and under each prefix of each label word (labels
+ * starting with the word first, then shorter labels, then by code). A
+ * keystroke is one hash probe into a {@link LongIntHashMap} and a copy of a
+ * slice of one shared {@code int[]}; the {@link HsSuggestionDto}s are built
+ * once per product and reused.
+ *
+ * Multi-word queries take the entry of their most selective word and keep the
+ * products whose label has a word starting with each of the others. Only that
+ * one entry is read, so when it is capped a few matches can be missed; the
+ * caller falls back to description search when nothing is left.
+ */
+public final class HsTypeahead {
+
+    public static final int MAX_COMPLETIONS = 200;
+
+    public static final HsTypeahead EMPTY = new HsTypeahead(List.of());
+
+    static final int MAX_DIGITS = 11;
+    static final int MAX_WORD_PREFIX = 12;
+
+    private static final int ALL_DESTINATIONS = Iso3Codes.NONE;
+
+    private final HsSuggestionDto[] suggestions;
+    private final String[][] words;
+
+    private final Map<String, Integer> wordPrefixIds = new HashMap<>();
+    private final LongIntHashMap digitEntries;
+    private final LongIntHashMap wordEntries;
+
+    // Entry e owns slots[offsets[e] .. offsets[e] + counts[e]) and matched totals[e] products before capping
+    private final int[] offsets;
+    private final int[] counts;
+    private final int[] totals;
+    private final int[] slots;
+
+    public HsTypeahead(List<HsProduct> products) {
+        // Slot order is code order, so digit entries only need to keep the first MAX_COMPLETIONS they see
+        List<HsProduct> sorted = new ArrayList<>();
+        for (HsProduct product : products) {
+            if (product.getId() != null && product.getHsCode() != null) {
+                sorted.add(product);
+            }
+        }
+        sorted.sort(Comparator.comparing(HsProduct::getHsCode).thenComparing(HsProduct::getId));
+
+        this.suggestions = new HsSuggestionDto[sorted.size()];
+        this.words = new String[sorted.size()][];
+        Map<Long, long[]> digitCandidates = new HashMap<>();
+        Map<Long, long[]> wordCandidates = new HashMap<>();
+        for (int slot = 0; slot < sorted.size(); slot++) {
+            HsProduct product = sorted.get(slot);
+            suggestions[slot] = new HsSuggestionDto(product.getHsCode(), product.getHsLabel());
+            words[slot] = HsLabelAnalyzer.tokens(product.getHsLabel()).toArray(new String[0]);
+            int destination = Iso3Codes.pack(product.getDestinationIso3());
+            int[] partitions = destination > Iso3Codes.NONE
+                    ? new int[] { ALL_DESTINATIONS, destination }
+                    : new int[] { ALL_DESTINATIONS };
+
+            String digits = digitsOf(product.getHsCode());
+            for (int length = 0; length <= Math.min(digits.length(), MAX_DIGITS); length++) {
+                long packed = packDigits(digits, length);
+                for (int partition : partitions) {
+                    add(digitCandidates, digitKey(partition, packed), slot, true);
+                }
+            }
+
+            int labelLength = Math.min(product.getHsLabel() == null ? 0 : product.getHsLabel().length(), 0xFFFFF);
+            Set<Long> seen = new HashSet<>();
+            for (int position = 0; position < words[slot].length; position++) {
+                String word = words[slot][position];
+                long rank = (position == 0 ? 0L : 1L << 61) | (long) labelLength << 40 | slot;
+                for (int length = 1; length <= Math.min(word.length(), MAX_WORD_PREFIX); length++) {
+                    int prefixId = wordPrefixIds.computeIfAbsent(word.substring(0, length), k -> wordPrefixIds.size());
+                    for (int partition : partitions) {
+                        long key = wordKey(partition, prefixId);
+                        // The first word carrying a prefix has the best rank for it
+                        if (seen.add(key)) {
+                            add(wordCandidates, key, rank, false);
+                        }
+                    }
+                }
+            }
+        }
+
+        int entryCount = digitCandidates.size() + wordCandidates.size();
+        this.digitEntries = new LongIntHashMap(digitCandidates.size());
+        this.wordEntries = new LongIntHashMap(wordCandidates.size());
+        this.offsets = new int[entryCount];
+        this.counts = new int[entryCount];
+        this.totals = new int[entryCount];
+        int slotCount = 0;
+        for (long[] candidates : digitCandidates.values()) {
+            slotCount += Math.min((int) candidates[0], MAX_COMPLETIONS);
+        }
+        for (long[] candidates : wordCandidates.values()) {
+            slotCount += Math.min((int) candidates[0], MAX_COMPLETIONS);
+        }
+        this.slots = new int[slotCount];
+
+        int entry = 0;
+        int next = 0;
+        for (Map.Entry<Long, long[]> candidates : digitCandidates.entrySet()) {
+            next = store(entry, next, candidates.getValue(), false);
+            digitEntries.put(candidates.getKey(), entry++);
+        }
+        for (Map.Entry<Long, long[]> candidates : wordCandidates.entrySet()) {
+            next = store(entry, next, candidates.getValue(), true);
+            wordEntries.put(candidates.getKey(), entry++);
+        }
+    }
+
+    /**
+     * Completions for what has been typed so far, at most {@code limit}. A
+     * query of digits and dots completes HS codes, topped up with label
+     * matches; anything else completes label words. {@code destinationIso3}
+     * may be {@code null} for all destinations. An empty query lists the
+     * destination's first codes.
+     */
+    public List<HsSuggestionDto> complete(String destinationIso3, String query, int limit) {
+        int partition = destinationIso3 == null ? ALL_DESTINATIONS : Iso3Codes.pack(destinationIso3);
+        int capped = Math.min(limit, MAX_COMPLETIONS);
+        if (partition < Iso3Codes.NONE || capped <= 0) {
+            return List.of();
+        }
+        String q = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        List<HsSuggestionDto> out = new ArrayList<>(Math.min(capped, 16));
+        if (isCodeQuery(q)) {
+            String digits = digitsOf(q);
+            int entry = digits.length() > MAX_DIGITS
+                    ? LongIntHashMap.MISSING
+                    : digitEntries.get(digitKey(partition, packDigits(digits, digits.length())));
+            Set<Integer> taken = null;
+            if (entry != LongIntHashMap.MISSING) {
+                int end = offsets[entry] + Math.min(counts[entry], capped);
+                for (int i = offsets[entry]; i < end; i++) {
+                    out.add(suggestions[slots[i]]);
+                }
+                if (out.size() < capped && !digits.isEmpty()) {
+                    // At most capped slots, so this stays small whatever the catalog size
+                    taken = new HashSet<>(out.size() * 2);
+                    for (int i = offsets[entry]; i < end; i++) {
+                        taken.add(slots[i]);
+                    }
+                }
+            }
+            if (out.size() < capped && !digits.isEmpty()) {
+                completeWords(partition, List.of(digits), capped, taken, out);
+            }
+            return out;
+        }
+        completeWords(partition, queryWords(q), capped, null, out);
+        return out;
+    }
+
+    public int size() {
+        return suggestions.length;
+    }
+
+    public boolean isEmpty() {
+        return suggestions.length == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "HsTypeahead[products=" + suggestions.length + ", entries=" + offsets.length
+                + ", slots=" + slots.length + "]";
+    }
+
+    private void completeWords(int partition, List<String> tokens, int capped, Set<Integer> taken,
+            List<HsSuggestionDto> out) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        // Read the entry of the most selective word only; the others filter it
+        int best = LongIntHashMap.MISSING;
+        for (String token : tokens) {
+            Integer prefixId = wordPrefixIds.get(token.length() > MAX_WORD_PREFIX
+                    ? token.substring(0, MAX_WORD_PREFIX)
+                    : token);
+            int entry = prefixId == null ? LongIntHashMap.MISSING : wordEntries.get(wordKey(partition, prefixId));
+            if (entry == LongIntHashMap.MISSING) {
+                return;
+            }
+            if (best == LongIntHashMap.MISSING || totals[entry] < totals[best]) {
+                best = entry;
+            }
+        }
+        boolean exact = tokens.size() == 1 && tokens.get(0).length() <= MAX_WORD_PREFIX;
+        int end = offsets[best] + counts[best];
+        for (int i = offsets[best]; i < end && out.size() < capped; i++) {
+            int slot = slots[i];
+            if ((taken == null || !taken.contains(slot)) && (exact || matchesAll(words[slot], tokens))) {
+                out.add(suggestions[slot]);
+            }
+        }
+    }
+
+    private static boolean matchesAll(String[] labelWords, List<String> tokens) {
+        for (String token : tokens) {
+            boolean found = false;
+            for (String word : labelWords) {
+                if (word.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lower-cased letter/digit runs of a query. Stop words are dropped unless
+     * they are the word still being typed, which is also kept at any length.
+     */
+    static List<String> queryWords(String query) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= query.length(); i++) {
+            boolean wordChar = i < query.length() && Character.isLetterOrDigit(query.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(query.substring(start, i));
+                start = -1;
+            }
+        }
+        List<String> kept = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            boolean last = i == tokens.size() - 1 && !Character.isWhitespace(query.charAt(query.length() - 1));
+            if (last || (token.length() > 1 && !HsLabelAnalyzer.isStopWord(token))) {
+                kept.add(token);
+            }
+        }
+        return kept;
+    }
+
+    private static boolean isCodeQuery(String q) {
+        for (int i = 0; i < q.length(); i++) {
+            char c = q.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String digitsOf(String code) {
+        StringBuilder digits = new StringBuilder(code.length());
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    /**
+     * A leading marker nibble keeps "" and "0" apart and every key non-zero;
+     * digits follow as 1..10 so leading zeros count.
+     */
+    private static long packDigits(String digits, int length) {
+        long packed = 1L;
+        for (int i = 0; i < length; i++) {
+            packed = packed << 4 | (digits.charAt(i) - '0' + 1);
+        }
+        return packed;
+    }
+
+    private static long digitKey(int partition, long packedDigits) {
+        return (long) partition << 48 | packedDigits;
+    }
+
+    private static long wordKey(int partition, int prefixId) {
+        return (long) partition << 32 | (prefixId + 1L);
+    }
+
+    /**
+     * Candidate lists are {@code [total, value...]}. Digit values arrive in
+     * slot order, so a capped list stops keeping them once full; word values
+     * are ranks that are sorted and capped in {@link #store}.
+     */
+    private static void add(Map<Long, long[]> candidates, long key, long value, boolean capped) {
+        long[] list = candidates.get(key);
+        if (list == null) {
+            list = new long[4];
+            candidates.put(key, list);
+        }
+        int total = (int) list[0];
+        if (!capped || total < MAX_COMPLETIONS) {
+            if (total + 1 == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                candidates.put(key, list);
+            }
+            list[total + 1] = value;
+        }
+        list[0] = total + 1;
+    }
+
+    private int store(int entry, int next, long[] candidates, boolean ranked) {
+        int total = (int) candidates[0];
+        if (ranked) {
+            Arrays.sort(candidates, 1, total + 1);
+        }
+        int count = Math.min(total, MAX_COMPLETIONS);
+        offsets[entry] = next;
+        counts[entry] = count;
+        totals[entry] = total;
+        for (int i = 0; i < count; i++) {
+            // Ranks carry the slot in their low 40 bits
+            slots[next + i] = (int) (candidates[i + 1] & ((1L << 40) - 1));
+        }
+        return next + count;
+    }
+}
@@ -0,0 +1,32 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.springframework.stereotype.Component;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+
+/**
+ * Keeps the current {@link HsTypeahead}, rebuilt whenever HS products change.
+ * Empty with {@code hs.search.mode=postgres}, where suggestions come from the
+ * code prefix queries and the description search.
+ */
+@Component
+public class HsTypeaheadHolder extends HsCatalogSnapshotHolder<HsTypeahead> {
+
+    private final HsProductRepository hsProducts;
+
+    public HsTypeaheadHolder(HsProductRepository hsProducts) {
+        super(HsTypeahead.EMPTY);
+        this.hsProducts = hsProducts;
+    }
+
+    @Override
+    protected HsTypeahead load() {
+        return new HsTypeahead(toProducts(hsProducts.findAllIndexRows()));
+    }
+
+    @Override
+    protected boolean dependsOn(Class<?> entityType) {
+        return entityType == HsProduct.class;
+    }
+}
@@ -0,0 +1,51 @@
+package com.tariffsheriff.backend.tariff.index;
+
+/**
+ * Packs three-letter ISO3 country codes into small positive ints so in-memory
+ * indexes can key on primitives instead of strings.
+ *
+ * Packing is case-insensitive and never allocates. Valid codes map to
+ * {@code 1..26^3}; {@link #NONE} (0) is reserved for "no country" (e.g. the
+ * missing origin of an MFN rate) and {@link #INVALID} (-1) flags input that is
+ * not three ASCII letters.
+ */
+public final class Iso3Codes {
+
+    public static final int NONE = 0;
+    public static final int INVALID = -1;
+
+    /** Number of distinct packed values, including {@link #NONE}. */
+    public static final int CARDINALITY = 26 * 26 * 26 + 1;
+
+    private Iso3Codes() {
+    }
+
+    public static int pack(CharSequence iso3) {
+        if (iso3 == null || iso3.length() != 3) {
+            return INVALID;
+        }
+        int code = 0;
+        for (int i = 0; i < 3; i++) {
+            // Folding with 0x20 lower-cases ASCII letters and pushes everything else out of range
+            int c = iso3.charAt(i) | 0x20;
+            if (c < 'a' || c > 'z') {
+                return INVALID;
+            }
+            code = code * 26 + (c - 'a');
+        }
+        return code + 1;
+    }
+
+    public static String unpack(int packed) {
+        if (packed <= NONE || packed >= CARDINALITY) {
+            return null;
+        }
+        int code = packed - 1;
+        char[] chars = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            chars[i] = (char) ('A' + code % 26);
+            code /= 26;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,15 @@
+package com.tariffsheriff.backend.tariff.index;
+
+/**
+ * Published after an {@link AbstractSnapshotHolder} swaps in a rebuilt
+ * snapshot, so anything derived from the previous one can be discarded.
+ */
+public record SnapshotReloadedEvent(AbstractSnapshotHolder<?> holder) {
+
+    /**
+     * Whether the reloaded snapshot is built from {@code entityType} rows.
+     */
+    public boolean dependsOn(Class<?> entityType) {
+        return holder.dependsOn(entityType);
+    }
+}
@@ -0,0 +1,43 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA entity listener that turns writes to tariff reference data into
+ * {@link TariffDataChangedEvent}s, plus a {@link TariffRateChangedEvent} for
+ * every tariff rate row. Hibernate obtains it through Spring's bean container,
+ * so the publisher is injected like in any other bean.
+ */
+public class TariffDataChangeListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    public TariffDataChangeListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    void onWrite(Object entity) {
+        publish(entity, false);
+    }
+
+    @PostRemove
+    void onRemove(Object entity) {
+        publish(entity, true);
+    }
+
+    private void publish(Object entity, boolean removed) {
+        publisher.publishEvent(new TariffDataChangedEvent(entity.getClass()));
+        if (entity instanceof TariffRate rate && rate.getId() != null) {
+            publisher.publishEvent(new TariffRateChangedEvent(rate.getId(), rate.getImporterIso3(),
+                    rate.getOriginIso3(), rate.getHsProductId(), removed));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.tariffsheriff.backend.tariff.index;
+
+/**
+ * Published whenever a tariff reference entity is inserted, updated or deleted
+ * through JPA, so in-memory indexes derived from it can rebuild.
+ */
+public record TariffDataChangedEvent(Class<?> entityType) {
+}
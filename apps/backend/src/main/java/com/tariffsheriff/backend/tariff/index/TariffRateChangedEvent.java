@@ -0,0 +1,11 @@
+package com.tariffsheriff.backend.tariff.index;
+
+/**
+ * Row-level companion of {@link TariffDataChangedEvent} for tariff rates: the
+ * rate's id and route columns after an insert or update, or as they were when
+ * it was deleted. Read models that are maintained incrementally use it instead
+ * of rebuilding.
+ */
+public record TariffRateChangedEvent(long rateId, String importerIso3, String originIso3, Long hsProductId,
+        boolean removed) {
+}
@@ -0,0 +1,324 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+
+/**
+ * Immutable in-memory copy of {@code hs_product}, {@code tariff_rate} and
+ * {@code agreement} keyed for single tariff lookups.
+ *
+ * Every key is a packed {@code long}: ISO3 codes become small ints via
+ * {@link Iso3Codes}, HS codes become 4-bit digits, and the rate key combines
+ * importer, origin, HS product id and the MFN/PREF basis bit. A lookup is
+ * therefore a few primitive hash probes with no allocation. Rows that cannot
+ * be packed (unusual HS code characters, ids past 32 bits) are simply left out
+ * and callers fall back to the repositories.
+ */
+public final class TariffRateSnapshot {
+
+    public static final long NOT_FOUND = -1L;
+
+    public static final TariffRateSnapshot EMPTY = new Builder().build();
+
+    private static final int MAX_HS_CODE_LENGTH = 12;
+    private static final long MAX_PACKABLE_PRODUCT_ID = 0xFFFF_FFFFL;
+
+    private final LongIntHashMap productIndex;
+    private final long[] productIds;
+    private final LongIntHashMap rateIndex;
+    private final TariffRate[] rates;
+    private final LongIntHashMap agreementIndex;
+    private final Agreement[] agreements;
+
+    // Rates grouped by HS product: group g owns rateSlots[groupOffsets[g] .. groupOffsets[g + 1])
+    private final LongIntHashMap productGroups;
+    private final int[] groupOffsets;
+    private final int[] rateSlots;
+
+    private TariffRateSnapshot(Builder builder) {
+        this.productIndex = builder.productIndex;
+        this.productIds = builder.productIds.stream().mapToLong(Long::longValue).toArray();
+        this.rateIndex = builder.rateIndex;
+        this.rates = builder.rates.toArray(new TariffRate[0]);
+        this.agreementIndex = builder.agreementIndex;
+        this.agreements = builder.agreements.toArray(new Agreement[0]);
+
+        this.productGroups = new LongIntHashMap(rates.length);
+        int[] groupOfRate = new int[rates.length];
+        int groups = 0;
+        for (int i = 0; i < rates.length; i++) {
+            long productId = rates[i].getHsProductId();
+            if (productId <= 0) {
+                groupOfRate[i] = LongIntHashMap.MISSING;
+                continue;
+            }
+            int group = productGroups.get(productId);
+            if (group == LongIntHashMap.MISSING) {
+                group = groups++;
+                productGroups.put(productId, group);
+            }
+            groupOfRate[i] = group;
+        }
+        this.groupOffsets = new int[groups + 1];
+        for (int group : groupOfRate) {
+            if (group != LongIntHashMap.MISSING) {
+                groupOffsets[group + 1]++;
+            }
+        }
+        for (int g = 0; g < groups; g++) {
+            groupOffsets[g + 1] += groupOffsets[g];
+        }
+        this.rateSlots = new int[rates.length];
+        int[] cursor = Arrays.copyOf(groupOffsets, groups);
+        for (int i = 0; i < rates.length; i++) {
+            if (groupOfRate[i] != LongIntHashMap.MISSING) {
+                rateSlots[cursor[groupOfRate[i]]++] = i;
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Resolves the HS product id for a destination and exact HS code, or
+     * {@link #NOT_FOUND} when the pair is not in the snapshot.
+     */
+    public long findHsProductId(String destinationIso3, String hsCode) {
+        long key = productKey(Iso3Codes.pack(destinationIso3), hsCode);
+        if (key < 0) {
+            return NOT_FOUND;
+        }
+        int slot = productIndex.get(key);
+        return slot == LongIntHashMap.MISSING ? NOT_FOUND : productIds[slot];
+    }
+
+    /**
+     * Finds the rate for an exact importer/origin/product/basis combination.
+     * A {@code null} origin matches rows stored without an origin.
+     */
+    public TariffRate findRate(String importerIso3, String originIso3, long hsProductId, String basis) {
+        int origin = originIso3 == null ? Iso3Codes.NONE : Iso3Codes.pack(originIso3);
+        long key = rateKey(Iso3Codes.pack(importerIso3), origin, hsProductId, basis);
+        return key < 0 ? null : slotOrNull(rates, rateIndex.get(key));
+    }
+
+    /**
+     * Finds the general (origin-less) MFN rate for an importer and product,
+     * the baseline every origin without its own MFN row falls back to.
+     */
+    public TariffRate findGeneralMfn(String importerIso3, long hsProductId) {
+        long key = generalMfnKey(Iso3Codes.pack(importerIso3), hsProductId);
+        return key < 0 ? null : slotOrNull(rates, rateIndex.get(key));
+    }
+
+    /**
+     * Every rate of an HS product (any importer, origin or basis), in the order
+     * the rows were added.
+     */
+    public List<TariffRate> findRatesForProduct(long hsProductId) {
+        int group = hsProductId > 0 ? productGroups.get(hsProductId) : LongIntHashMap.MISSING;
+        if (group == LongIntHashMap.MISSING) {
+            return List.of();
+        }
+        TariffRate[] found = new TariffRate[groupOffsets[group + 1] - groupOffsets[group]];
+        for (int i = 0; i < found.length; i++) {
+            found[i] = rates[rateSlots[groupOffsets[group] + i]];
+        }
+        return List.of(found);
+    }
+
+    public boolean isEmpty() {
+        return productIds.length == 0;
+    }
+
+    /**
+     * Whether an HS code can be keyed at all. Codes that cannot are never in a
+     * snapshot, so a miss for them says nothing about the database.
+     */
+    public static boolean isIndexable(String hsCode) {
+        return productKey(1, hsCode) >= 0;
+    }
+
+    public Agreement findAgreement(Long agreementId) {
+        if (agreementId == null || agreementId <= 0) {
+            return null;
+        }
+        return slotOrNull(agreements, agreementIndex.get(agreementId));
+    }
+
+    public int productCount() {
+        return productIds.length;
+    }
+
+    public int rateCount() {
+        return rates.length;
+    }
+
+    @Override
+    public String toString() {
+        return "TariffRateSnapshot[products=" + productIds.length + ", rates=" + rates.length
+                + ", agreements=" + agreements.length + "]";
+    }
+
+    private static <T> T slotOrNull(T[] values, int slot) {
+        return slot == LongIntHashMap.MISSING ? null : values[slot];
+    }
+
+    /**
+     * Packs destination and HS code into one key: 15 bits of country above up
+     * to 12 four-bit characters. Digits map to 1..10 and '.' to 11, so leading
+     * zeros and dotted codes stay distinct. Returns -1 for unpackable input.
+     */
+    static long productKey(int destination, String hsCode) {
+        if (destination <= Iso3Codes.NONE || hsCode == null) {
+            return -1L;
+        }
+        int length = hsCode.length();
+        if (length == 0 || length > MAX_HS_CODE_LENGTH) {
+            return -1L;
+        }
+        long packed = 0L;
+        for (int i = 0; i < length; i++) {
+            char c = hsCode.charAt(i);
+            int nibble;
+            if (c >= '0' && c <= '9') {
+                nibble = c - '0' + 1;
+            } else if (c == '.') {
+                nibble = 11;
+            } else {
+                return -1L;
+            }
+            packed = (packed << 4) | nibble;
+        }
+        return ((long) destination << 48) | packed;
+    }
+
+    /**
+     * Packs a rate key as {@code productId(32) | importer(15) | origin(15) | basis(1)}.
+     */
+    static long rateKey(int importer, int origin, long hsProductId, String basis) {
+        if (importer <= Iso3Codes.NONE || origin < Iso3Codes.NONE
+                || hsProductId < 0 || hsProductId > MAX_PACKABLE_PRODUCT_ID) {
+            return -1L;
+        }
+        long basisBit;
+        if ("MFN".equals(basis)) {
+            basisBit = 0L;
+        } else if ("PREF".equals(basis)) {
+            basisBit = 1L;
+        } else {
+            return -1L;
+        }
+        return (hsProductId << 31) | ((long) importer << 16) | ((long) origin << 1) | basisBit;
+    }
+
+    /**
+     * General MFN rows ignore the origin, so they live under the origin slot
+     * one past the last valid country code.
+     */
+    static long generalMfnKey(int importer, long hsProductId) {
+        return rateKey(importer, Iso3Codes.CARDINALITY, hsProductId, "MFN");
+    }
+
+    public static final class Builder {
+
+        private final LongIntHashMap productIndex = new LongIntHashMap(1024);
+        private final List<Long> productIds = new ArrayList<>();
+        private final LongIntHashMap rateIndex = new LongIntHashMap(1024);
+        private final List<TariffRate> rates = new ArrayList<>();
+        private final LongIntHashMap agreementIndex = new LongIntHashMap(64);
+        private final List<Agreement> agreements = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds an HS product key. When the same destination/code appears in
+         * several HS versions, the row added last wins.
+         */
+        public Builder addProduct(long id, String destinationIso3, String hsCode) {
+            long key = productKey(Iso3Codes.pack(destinationIso3), hsCode);
+            if (key >= 0) {
+                productIndex.put(key, productIds.size());
+                productIds.add(id);
+            }
+            return this;
+        }
+
+        /**
+         * Adds rows shaped like {@code HsProductRepository#findAllLookupKeys}:
+         * {@code (id, destinationIso3, hsCode)}.
+         */
+        public Builder addProductRows(List<Object[]> rows) {
+            for (Object[] row : rows) {
+                addProduct(((Number) row[0]).longValue(), (String) row[1], (String) row[2]);
+            }
+            return this;
+        }
+
+        /**
+         * Adds rows shaped like {@code TariffRateRepository#findAllSnapshotRows}.
+         */
+        public Builder addRateRows(List<Object[]> rows) {
+            for (Object[] row : rows) {
+                addRate(toTariffRate(row));
+            }
+            return this;
+        }
+
+        public Builder addRate(TariffRate rate) {
+            if (rate.getHsProductId() == null) {
+                return this;
+            }
+            int importer = Iso3Codes.pack(rate.getImporterIso3());
+            int origin = rate.getOriginIso3() == null ? Iso3Codes.NONE : Iso3Codes.pack(rate.getOriginIso3());
+            long productId = rate.getHsProductId();
+            long key = rateKey(importer, origin, productId, rate.getBasis());
+            if (key < 0) {
+                return this;
+            }
+            int slot = rates.size();
+            rates.add(rate);
+            rateIndex.put(key, slot);
+            // Only origin-less MFN rows are general; an origin's own MFN must not leak to other origins
+            if ("MFN".equals(rate.getBasis()) && origin == Iso3Codes.NONE) {
+                rateIndex.put(generalMfnKey(importer, productId), slot);
+            }
+            return this;
+        }
+
+        public Builder addAgreement(Agreement agreement) {
+            if (agreement.getId() != null && agreement.getId() > 0) {
+                agreementIndex.put(agreement.getId(), agreements.size());
+                agreements.add(agreement);
+            }
+            return this;
+        }
+
+        public TariffRateSnapshot build() {
+            return new TariffRateSnapshot(this);
+        }
+
+        private static TariffRate toTariffRate(Object[] row) {
+            TariffRate rate = new TariffRate();
+            rate.setId(((Number) row[0]).longValue());
+            rate.setImporterIso3((String) row[1]);
+            rate.setOriginIso3((String) row[2]);
+            rate.setHsProductId(row[3] != null ? ((Number) row[3]).longValue() : null);
+            rate.setBasis((String) row[4]);
+            rate.setAgreementId(row[5] != null ? ((Number) row[5]).longValue() : null);
+            rate.setAdValoremRate((BigDecimal) row[6]);
+            rate.setNonAdValorem(Boolean.TRUE.equals(row[7]));
+            rate.setNonAdValoremText((String) row[8]);
+            rate.setSourceRef((String) row[9]);
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.springframework.stereotype.Component;
+
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+
+/**
+ * Keeps the current {@link TariffRateSnapshot}. The rebuild reads the three
+ * tables with flat column queries so that no HS product is hydrated per rate.
+ */
+@Component
+public class TariffRateSnapshotHolder extends AbstractSnapshotHolder<TariffRateSnapshot> {
+
+    private final TariffRateRepository tariffRates;
+    private final HsProductRepository hsProducts;
+    private final AgreementRepository agreements;
+
+    public TariffRateSnapshotHolder(TariffRateRepository tariffRates, HsProductRepository hsProducts,
+            AgreementRepository agreements) {
+        super(TariffRateSnapshot.EMPTY);
+        this.tariffRates = tariffRates;
+        this.hsProducts = hsProducts;
+        this.agreements = agreements;
+    }
+
+    @Override
+    protected TariffRateSnapshot load() {
+        TariffRateSnapshot.Builder builder = TariffRateSnapshot.builder()
+                .addProductRows(hsProducts.findAllLookupKeys())
+                .addRateRows(tariffRates.findAllSnapshotRows());
+        for (Agreement agreement : agreements.findAll()) {
+            builder.addAgreement(agreement);
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected boolean dependsOn(Class<?> entityType) {
+        return entityType == TariffRate.class || entityType == HsProduct.class || entityType == Agreement.class;
+    }
+}
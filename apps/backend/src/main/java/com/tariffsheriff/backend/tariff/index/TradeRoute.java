@@ -0,0 +1,8 @@
+package com.tariffsheriff.backend.tariff.index;
+
+/**
+ * One importer/origin pair of the trade-route summary and how many tariff
+ * rates it has.
+ */
+public record TradeRoute(String importerIso3, String originIso3, long count) {
+}
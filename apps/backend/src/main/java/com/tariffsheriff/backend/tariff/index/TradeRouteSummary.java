@@ -0,0 +1,264 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+
+/**
+ * In-memory {@code trade_route_summary}: the number of tariff rates per
+ * importer/origin pair, as served by {@code /api/tariff-rate/routes}, and the
+ * exact number of distinct importer/origin/product routes shown on the
+ * dashboard.
+ *
+ * It is built once at startup and then kept current from committed
+ * {@link TariffRateChangedEvent}s, so reading it costs O(routes) instead of a
+ * {@code GROUP BY} over {@code tariff_rate}. Every tracked rate remembers its
+ * route, which makes applying an event idempotent: an insert seen twice or an
+ * update that did not move the rate changes nothing. Rows removed behind
+ * JPA's back (SQL scripts, {@code ON DELETE CASCADE}) are only picked up by
+ * {@link #rebuild()}, which scans {@code tariff_rate} without blocking
+ * readers or writers.
+ */
+@Component
+public class TradeRouteSummary {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeRouteSummary.class);
+
+    private static final Comparator<TradeRoute> BY_COUNT_DESC = Comparator.comparingLong(TradeRoute::count)
+            .reversed()
+            .thenComparing(TradeRoute::importerIso3)
+            .thenComparing(TradeRoute::originIso3);
+
+    private static final long ROUTE_MASK = (1L << 30) - 1;
+    private static final long MAX_PRODUCT_ID = (1L << 33) - 1;
+
+    private final TariffRateRepository tariffRates;
+
+    // Held for a whole rebuild, so two rebuilds never interleave; readers and events never take it
+    private final Object rebuildLock = new Object();
+
+    // All guarded by this
+    private Counts counts = new Counts(0);
+    private List<TariffRateChangedEvent> duringRebuild;
+    private List<TradeRoute> routes = List.of();
+    private boolean routesStale;
+    private boolean loaded;
+
+    // Published copy of the product route count, read without the lock
+    private volatile long distinctRouteCount = -1L;
+
+    public TradeRouteSummary(TariffRateRepository tariffRates) {
+        this.tariffRates = tariffRates;
+    }
+
+    /**
+     * Routes with an origin, busiest first.
+     */
+    public synchronized List<TradeRoute> routes() {
+        if (routesStale) {
+            List<TradeRoute> next = new ArrayList<>();
+            counts.ratesPerRoute.forEach((route, count) -> {
+                int origin = originOf(route);
+                if (count > 0 && origin != Iso3Codes.NONE) {
+                    next.add(new TradeRoute(Iso3Codes.unpack(importerOf(route)), Iso3Codes.unpack(origin), count));
+                }
+            });
+            next.sort(BY_COUNT_DESC);
+            routes = List.copyOf(next);
+            routesStale = false;
+        }
+        return routes;
+    }
+
+    /**
+     * Exact number of distinct (importer, origin or MFN, HS product) routes,
+     * matching {@code TariffRateRepository#countDistinctTradeRoutes}, or -1
+     * until the summary has loaded.
+     */
+    public long distinctRouteCount() {
+        return distinctRouteCount;
+    }
+
+    /**
+     * Whether the initial build has completed; until then callers should query
+     * the database.
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Recounts every rate into fresh maps and swaps them in. The scan runs
+     * without the lock, so {@link #routes()} and committing writers are not
+     * held up by it: events arriving meanwhile still update the current maps
+     * and are also recorded, then replayed into the new maps just before the
+     * swap. Replaying an event the scan already saw changes nothing, because
+     * applying them is idempotent.
+     *
+     * @return the number of routes with an origin
+     */
+    public int rebuild() {
+        synchronized (rebuildLock) {
+            long startedAt = System.currentTimeMillis();
+            synchronized (this) {
+                duringRebuild = new ArrayList<>();
+            }
+            try {
+                List<Object[]> rows = tariffRates.findAllRouteRows();
+                Counts next = new Counts(rows.size());
+                for (Object[] row : rows) {
+                    Long productId = row[3] != null ? ((Number) row[3]).longValue() : null;
+                    next.apply(((Number) row[0]).longValue(), (String) row[1], (String) row[2], productId, false);
+                }
+                int count;
+                int replayed;
+                synchronized (this) {
+                    replayed = duringRebuild.size();
+                    for (TariffRateChangedEvent event : duringRebuild) {
+                        next.apply(event);
+                    }
+                    counts = next;
+                    routesStale = true;
+                    loaded = true;
+                    distinctRouteCount = next.productRoutes;
+                    count = routes().size();
+                }
+                logger.info("Built trade route summary: {} rates, {} routes, {} product routes "
+                        + "({} changes replayed) in {} ms", next.productRouteByRate.size(), count,
+                        next.productRoutes, replayed, System.currentTimeMillis() - startedAt);
+                return count;
+            } finally {
+                synchronized (this) {
+                    duringRebuild = null;
+                }
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to build trade route summary, serving routes from the database", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTariffRateChanged(TariffRateChangedEvent event) {
+        if (duringRebuild != null) {
+            duringRebuild.add(event);
+        }
+        if (counts.apply(event)) {
+            routesStale = true;
+            if (loaded) {
+                distinctRouteCount = counts.productRoutes;
+            }
+        }
+    }
+
+    /**
+     * The route counts of one build. Every tracked rate remembers its product
+     * route, which is what makes {@link #apply} idempotent.
+     */
+    private static final class Counts {
+
+        final Map<Long, Long> productRouteByRate = new HashMap<>();
+        final LongIntHashMap ratesPerRoute;
+        final LongIntHashMap ratesPerProductRoute;
+        long productRoutes;
+
+        Counts(int rates) {
+            ratesPerRoute = new LongIntHashMap(Math.max(1024, rates / 8));
+            ratesPerProductRoute = new LongIntHashMap(Math.max(1024, rates));
+        }
+
+        boolean apply(TariffRateChangedEvent event) {
+            return apply(event.rateId(), event.importerIso3(), event.originIso3(), event.hsProductId(),
+                    event.removed());
+        }
+
+        /**
+         * Moves, adds or removes one rate; returns whether any count changed.
+         */
+        boolean apply(long rateId, String importerIso3, String originIso3, Long hsProductId, boolean removed) {
+            long productRoute = removed ? -1L : productRouteKey(routeKey(importerIso3, originIso3), hsProductId);
+            Long previous = productRoute < 0
+                    ? productRouteByRate.remove(rateId)
+                    : productRouteByRate.put(rateId, productRoute);
+            if (previous != null && previous == productRoute) {
+                return false;
+            }
+            if (previous != null) {
+                adjust(previous, -1);
+            }
+            if (productRoute >= 0) {
+                adjust(productRoute, 1);
+            }
+            return previous != null || productRoute >= 0;
+        }
+
+        private void adjust(long productRoute, int delta) {
+            increment(ratesPerRoute, productRoute & ROUTE_MASK, delta);
+            int rates = increment(ratesPerProductRoute, productRoute, delta);
+            // Only the 0 <-> 1 transitions change the number of distinct routes
+            if (rates == 0 && delta < 0) {
+                productRoutes--;
+            } else if (rates == 1 && delta > 0) {
+                productRoutes++;
+            }
+        }
+
+        private static int increment(LongIntHashMap counts, long key, int delta) {
+            int current = counts.get(key);
+            int next = (current == LongIntHashMap.MISSING ? 0 : current) + delta;
+            counts.put(key, next);
+            return next;
+        }
+    }
+
+    /**
+     * Packs importer and origin into 30 bits, or -1 when the importer is not a
+     * valid code. A missing origin packs as {@link Iso3Codes#NONE}.
+     */
+    static int routeKey(String importerIso3, String originIso3) {
+        int importer = Iso3Codes.pack(importerIso3);
+        int origin = originIso3 == null ? Iso3Codes.NONE : Iso3Codes.pack(originIso3);
+        if (importer <= Iso3Codes.NONE || origin < Iso3Codes.NONE) {
+            return -1;
+        }
+        return importer << 15 | origin;
+    }
+
+    /**
+     * Adds the HS product id above a {@link #routeKey}, or returns -1 when the
+     * route is invalid. Rates without a product share id 0, just as they share
+     * one string in the SQL count.
+     */
+    static long productRouteKey(int route, Long hsProductId) {
+        long productId = hsProductId == null ? 0L : hsProductId;
+        if (route < 0 || productId < 0 || productId > MAX_PRODUCT_ID) {
+            return -1L;
+        }
+        return productId << 30 | route;
+    }
+
+    private static int importerOf(long route) {
+        return (int) (route >>> 15);
+    }
+
+    private static int originOf(long route) {
+        return (int) (route & 0x7FFF);
+    }
+}
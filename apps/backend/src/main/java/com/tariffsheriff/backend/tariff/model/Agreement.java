@@ -1,14 +1,18 @@
 package com.tariffsheriff.backend.tariff.model;
 
 import java.math.BigDecimal;
+import com.tariffsheriff.backend.tariff.index.TariffDataChangeListener;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 
 import lombok.*;
 @Entity
+@EntityListeners(TariffDataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
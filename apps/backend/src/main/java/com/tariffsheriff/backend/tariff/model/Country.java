@@ -3,8 +3,11 @@ package com.tariffsheriff.backend.tariff.model;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
+import com.tariffsheriff.backend.tariff.index.TariffDataChangeListener;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -13,6 +16,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@EntityListeners(TariffDataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
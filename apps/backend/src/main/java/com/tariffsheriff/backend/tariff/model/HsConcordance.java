@@ -0,0 +1,41 @@
+package com.tariffsheriff.backend.tariff.model;
+
+import com.tariffsheriff.backend.tariff.index.TariffDataChangeListener;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One correlation between HS versions: {@code fromCode} in the older
+ * {@code fromVersion} corresponds (wholly or in part) to {@code toCode} in the
+ * newer {@code toVersion}.
+ */
+@Entity
+@EntityListeners(TariffDataChangeListener.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HsConcordance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "from_version", length = 20, nullable = false)
+    private String fromVersion;
+
+    @Column(name = "from_code", length = 12, nullable = false)
+    private String fromCode;
+
+    @Column(name = "to_version", length = 20, nullable = false)
+    private String toVersion;
+
+    @Column(name = "to_code", length = 12, nullable = false)
+    private String toCode;
+}
@@ -1,7 +1,10 @@
 package com.tariffsheriff.backend.tariff.model;
 
+import com.tariffsheriff.backend.tariff.index.TariffDataChangeListener;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -13,6 +16,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@EntityListeners(TariffDataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
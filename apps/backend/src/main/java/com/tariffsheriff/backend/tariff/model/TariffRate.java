@@ -2,9 +2,11 @@ package com.tariffsheriff.backend.tariff.model;
 
 import java.math.BigDecimal;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.tariffsheriff.backend.tariff.index.TariffDataChangeListener;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -17,6 +19,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@EntityListeners(TariffDataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
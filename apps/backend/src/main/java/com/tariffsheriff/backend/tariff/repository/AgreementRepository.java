@@ -17,4 +17,8 @@ public interface AgreementRepository extends JpaRepository<Agreement, Long> {
            "WHERE UPPER(ap.country_iso3) = UPPER(:countryIso3)", nativeQuery = true)
     List<Agreement> findAgreementsByCountryIso3(@Param("countryIso3") String countryIso3);
 
+    // Flat (agreement_id, country_iso3) rows for the in-memory party index
+    @Query(value = "SELECT ap.agreement_id, ap.country_iso3 FROM agreement_party ap", nativeQuery = true)
+    List<Object[]> findAllPartyRows();
+
 }
@@ -1,15 +1,23 @@
 package com.tariffsheriff.backend.tariff.repository;
 
 import com.tariffsheriff.backend.tariff.model.Country;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface CountryRepository extends JpaRepository<Country, Long> {
     Optional<Country> findByIso3IgnoreCase(String iso3);
 
+    // Codes are expected upper-cased by the caller
+    @Query("SELECT c FROM Country c WHERE UPPER(c.iso3) IN :iso3Codes")
+    List<Country> findByIso3InIgnoreCase(@Param("iso3Codes") Collection<String> iso3Codes);
+
     Page<Country> findAllByNameContainingIgnoreCase(String name, Pageable pageable);
 }
@@ -0,0 +1,17 @@
+package com.tariffsheriff.backend.tariff.repository;
+
+import com.tariffsheriff.backend.tariff.model.HsConcordance;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface HsConcordanceRepository extends JpaRepository<HsConcordance, Long> {
+
+    /**
+     * Flat (fromVersion, fromCode, toVersion, toCode) rows used to build the in-memory concordance index
+     */
+    @Query("SELECT c.fromVersion, c.fromCode, c.toVersion, c.toCode FROM HsConcordance c")
+    List<Object[]> findAllLinkRows();
+}
@@ -1,6 +1,7 @@
 package com.tariffsheriff.backend.tariff.repository;
 
 import com.tariffsheriff.backend.tariff.model.HsProduct;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -13,6 +14,33 @@ public interface HsProductRepository extends JpaRepository<HsProduct, Long> {
     Optional<HsProduct> findByHsCode(String hsCode);
 
     Optional<HsProduct> findByDestinationIso3IgnoreCaseAndHsCode(String destinationIso3, String hsCode);
+
+    /**
+     * Flat (id, destinationIso3, hsCode) rows used to build the in-memory lookup snapshot
+     */
+    @Query("SELECT h.id, h.destinationIso3, h.hsCode FROM HsProduct h ORDER BY h.id")
+    List<Object[]> findAllLookupKeys();
+
+    /**
+     * Same flat rows restricted to a set of destinations and exact codes (batch lookups)
+     */
+    @Query("SELECT h.id, h.destinationIso3, h.hsCode FROM HsProduct h " +
+           "WHERE h.destinationIso3 IN :destinations AND h.hsCode IN :hsCodes ORDER BY h.id")
+    List<Object[]> findLookupKeys(@Param("destinations") Collection<String> destinationIso3s,
+                                  @Param("hsCodes") Collection<String> hsCodes);
+
+    /**
+     * Flat (id, destinationIso3, hsVersion, hsCode, hsLabel) rows used to build the HS code prefix index
+     */
+    @Query("SELECT h.id, h.destinationIso3, h.hsVersion, h.hsCode, h.hsLabel FROM HsProduct h")
+    List<Object[]> findAllIndexRows();
+
+    /**
+     * Same rows for one destination, for per-request copies when the catalog is not kept in memory
+     */
+    @Query("SELECT h.id, h.destinationIso3, h.hsVersion, h.hsCode, h.hsLabel FROM HsProduct h " +
+           "WHERE h.destinationIso3 = :destinationIso3")
+    List<Object[]> findIndexRowsByDestination(@Param("destinationIso3") String destinationIso3);
     
     /**
      * Search for HS products by description using case-insensitive LIKE matching
@@ -27,6 +55,14 @@ public interface HsProductRepository extends JpaRepository<HsProduct, Long> {
     @Query(value = "SELECT * FROM hs_product WHERE LOWER(hs_label) LIKE LOWER(CONCAT('%', :description, '%')) ORDER BY hs_code LIMIT :limit", nativeQuery = true)
     List<HsProduct> findByHsLabelContainingIgnoreCaseWithLimit(@Param("description") String description, @Param("limit") int limit);
     
+    /**
+     * Destination-scoped search by description with limit
+     */
+    @Query(value = "SELECT * FROM hs_product WHERE destination_iso3 = :iso3 AND LOWER(hs_label) LIKE LOWER(CONCAT('%', :description, '%')) ORDER BY hs_code LIMIT :limit", nativeQuery = true)
+    List<HsProduct> findByDestinationAndHsLabelContainingIgnoreCaseWithLimit(@Param("iso3") String destinationIso3,
+                                                                             @Param("description") String description,
+                                                                             @Param("limit") int limit);
+    
     /**
      * Search for HS products using multiple keywords (all must match)
      */
@@ -39,6 +75,57 @@ public interface HsProductRepository extends JpaRepository<HsProduct, Long> {
                                           @Param("keyword2") String keyword2, 
                                           @Param("keyword3") String keyword3);
 
+    /**
+     * Destination-scoped search using multiple keywords (all must match)
+     */
+    @Query("SELECT h FROM HsProduct h WHERE h.destinationIso3 = :iso3 AND " +
+           "(:keyword1 IS NULL OR LOWER(h.hsLabel) LIKE LOWER(CONCAT('%', :keyword1, '%'))) AND " +
+           "(:keyword2 IS NULL OR LOWER(h.hsLabel) LIKE LOWER(CONCAT('%', :keyword2, '%'))) AND " +
+           "(:keyword3 IS NULL OR LOWER(h.hsLabel) LIKE LOWER(CONCAT('%', :keyword3, '%'))) " +
+           "ORDER BY h.hsCode")
+    List<HsProduct> findByDestinationAndMultipleKeywords(@Param("iso3") String destinationIso3,
+                                                        @Param("keyword1") String keyword1,
+                                                        @Param("keyword2") String keyword2,
+                                                        @Param("keyword3") String keyword3);
+
+    /**
+     * Ranked full-text search over the stored {@code hs_label_tsv} column (V6). {@code tsquery}
+     * is in {@code to_tsquery} syntax, e.g. {@code lithium | battery}. PostgreSQL only.
+     */
+    @Query(value = "SELECT h.* FROM hs_product h, to_tsquery('english', :tsquery) q " +
+                   "WHERE h.hs_label_tsv @@ q ORDER BY ts_rank(h.hs_label_tsv, q) DESC, h.hs_code LIMIT :limit",
+           nativeQuery = true)
+    List<HsProduct> searchByLabelFullText(@Param("tsquery") String tsquery, @Param("limit") int limit);
+
+    /**
+     * {@link #searchByLabelFullText} within one destination, served by the composite
+     * (destination_iso3, hs_label_tsv) GIN index from V7. PostgreSQL only.
+     */
+    @Query(value = "SELECT h.* FROM hs_product h, to_tsquery('english', :tsquery) q " +
+                   "WHERE h.destination_iso3 = :iso3 AND h.hs_label_tsv @@ q " +
+                   "ORDER BY ts_rank(h.hs_label_tsv, q) DESC, h.hs_code LIMIT :limit",
+           nativeQuery = true)
+    List<HsProduct> searchByDestinationAndLabelFullText(@Param("iso3") String destinationIso3,
+                                                        @Param("tsquery") String tsquery,
+                                                        @Param("limit") int limit);
+
+    /**
+     * Labels containing a word similar to {@code query} ({@code pg_trgm} word similarity, served by
+     * the trigram index from V6), most similar first. PostgreSQL only.
+     */
+    @Query(value = "SELECT * FROM hs_product WHERE :query <% hs_label " +
+                   "ORDER BY word_similarity(:query, hs_label) DESC, hs_code LIMIT :limit", nativeQuery = true)
+    List<HsProduct> searchByLabelSimilarity(@Param("query") String query, @Param("limit") int limit);
+
+    /**
+     * {@link #searchByLabelSimilarity} within one destination. PostgreSQL only.
+     */
+    @Query(value = "SELECT * FROM hs_product WHERE destination_iso3 = :iso3 AND :query <% hs_label " +
+                   "ORDER BY word_similarity(:query, hs_label) DESC, hs_code LIMIT :limit", nativeQuery = true)
+    List<HsProduct> searchByDestinationAndLabelSimilarity(@Param("iso3") String destinationIso3,
+                                                          @Param("query") String query,
+                                                          @Param("limit") int limit);
+
     /**
      * Search by HS code prefix with limit
      */
@@ -0,0 +1,33 @@
+package com.tariffsheriff.backend.tariff.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+
+import com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+
+/**
+ * Tariff rate filters over any number of HS code prefixes. Mixed into
+ * {@link TariffRateRepository}; the query is built per call because the
+ * number of prefixes varies.
+ */
+public interface TariffRateHsPrefixRepository {
+
+    /**
+     * Rates whose HS product code starts with any of {@code hsCodePrefixes},
+     * optionally narrowed to an importer and origin ({@code null} skips the
+     * filter). Blank prefixes are ignored; with none left the HS filter is
+     * dropped.
+     */
+    List<TariffRate> findByHsCodePrefixes(String importerIso3, String originIso3,
+            Collection<String> hsCodePrefixes, Pageable pageable);
+
+    /**
+     * Same filter as {@link #findByHsCodePrefixes}, returning list rows
+     * selected with their HS code and label instead of entities.
+     */
+    List<TariffRateListItemDto> findListItemsByHsCodePrefixes(String importerIso3, String originIso3,
+            Collection<String> hsCodePrefixes, Pageable pageable);
+}
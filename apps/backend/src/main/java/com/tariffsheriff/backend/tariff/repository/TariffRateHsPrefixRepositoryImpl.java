@@ -0,0 +1,169 @@
+package com.tariffsheriff.backend.tariff.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.data.domain.Pageable;
+
+import com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Turns every prefix into a half-open range {@code hs_code >= p AND hs_code < p'}
+ * where {@code p'} is {@code p} with its last character incremented, so each
+ * one is an index range scan rather than a {@code LIKE CONCAT(:p, '%')} the
+ * planner cannot use.
+ *
+ * The range only matches {@code LIKE} under code point ordering. PostgreSQL
+ * databases usually default to a linguistic collation, which ignores
+ * punctuation ("8509" sorts after "850:", "8507.10" next to "850710"), so
+ * there the codes are compared {@code COLLATE ucs_basic}, backed by
+ * {@code idx_hs_product_hs_code_ucs} from V10. H2 already compares code
+ * points.
+ */
+class TariffRateHsPrefixRepositoryImpl implements TariffRateHsPrefixRepository {
+
+    private static final String PLAIN_CODE = "hp.hsCode";
+    private static final String CODE_POINT_ORDERED_CODE = "collate(hp.hsCode as ucs_basic)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile String code;
+
+    @Override
+    public List<TariffRate> findByHsCodePrefixes(String importerIso3, String originIso3,
+            Collection<String> hsCodePrefixes, Pageable pageable) {
+        List<String> prefixes = normalizePrefixes(hsCodePrefixes);
+        StringBuilder jpql = new StringBuilder("SELECT tr FROM TariffRate tr WHERE 1 = 1");
+        appendCountryFilter(jpql, importerIso3, originIso3);
+        if (!prefixes.isEmpty()) {
+            jpql.append(" AND tr.hsProductId IN (SELECT hp.id FROM HsProduct hp WHERE ");
+            appendPrefixRanges(jpql, code(), prefixes);
+            jpql.append(')');
+        }
+        return execute(jpql, TariffRate.class, importerIso3, originIso3, prefixes, pageable);
+    }
+
+    @Override
+    public List<TariffRateListItemDto> findListItemsByHsCodePrefixes(String importerIso3, String originIso3,
+            Collection<String> hsCodePrefixes, Pageable pageable) {
+        List<String> prefixes = normalizePrefixes(hsCodePrefixes);
+        StringBuilder jpql = new StringBuilder(TariffRateRepository.LIST_ITEM_SELECT + " WHERE 1 = 1");
+        appendCountryFilter(jpql, importerIso3, originIso3);
+        if (!prefixes.isEmpty()) {
+            // The product is already joined, so the ranges apply to it directly
+            jpql.append(" AND (");
+            appendPrefixRanges(jpql, code(), prefixes);
+            jpql.append(')');
+        }
+        return execute(jpql, TariffRateListItemDto.class, importerIso3, originIso3, prefixes, pageable);
+    }
+
+    private static void appendCountryFilter(StringBuilder jpql, String importerIso3, String originIso3) {
+        if (importerIso3 != null) {
+            jpql.append(" AND tr.importerIso3 = :importerIso3");
+        }
+        if (originIso3 != null) {
+            jpql.append(" AND tr.originIso3 = :originIso3");
+        }
+    }
+
+    /**
+     * The HS code expression the ranges compare, collated by code point on
+     * PostgreSQL. Resolved once; the dialect does not change at runtime.
+     */
+    private String code() {
+        String resolved = code;
+        if (resolved == null) {
+            boolean postgres = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+            resolved = postgres ? CODE_POINT_ORDERED_CODE : PLAIN_CODE;
+            code = resolved;
+        }
+        return resolved;
+    }
+
+    private static void appendPrefixRanges(StringBuilder jpql, String code, List<String> prefixes) {
+        for (int i = 0; i < prefixes.size(); i++) {
+            if (i > 0) {
+                jpql.append(" OR ");
+            }
+            jpql.append('(').append(code).append(" >= :lower").append(i);
+            if (upperBound(prefixes.get(i)) != null) {
+                jpql.append(" AND ").append(code).append(" < :upper").append(i);
+            }
+            jpql.append(')');
+        }
+    }
+
+    private <T> List<T> execute(StringBuilder jpql, Class<T> resultType, String importerIso3, String originIso3,
+            List<String> prefixes, Pageable pageable) {
+        TypedQuery<T> query = entityManager.createQuery(jpql.toString(), resultType);
+        if (importerIso3 != null) {
+            query.setParameter("importerIso3", importerIso3);
+        }
+        if (originIso3 != null) {
+            query.setParameter("originIso3", originIso3);
+        }
+        for (int i = 0; i < prefixes.size(); i++) {
+            String prefix = prefixes.get(i);
+            query.setParameter("lower" + i, prefix);
+            String upper = upperBound(prefix);
+            if (upper != null) {
+                query.setParameter("upper" + i, upper);
+            }
+        }
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Trims, de-duplicates and drops blank prefixes and any prefix already
+     * covered by a shorter one ("01" makes "0101" redundant).
+     */
+    static List<String> normalizePrefixes(Collection<String> hsCodePrefixes) {
+        TreeSet<String> sorted = new TreeSet<>();
+        if (hsCodePrefixes != null) {
+            for (String prefix : hsCodePrefixes) {
+                if (prefix != null && !prefix.isBlank()) {
+                    sorted.add(prefix.trim());
+                }
+            }
+        }
+        // In sorted order every extension of a prefix follows it directly
+        List<String> prefixes = new ArrayList<>();
+        for (String prefix : sorted) {
+            if (prefixes.isEmpty() || !prefix.startsWith(prefixes.get(prefixes.size() - 1))) {
+                prefixes.add(prefix);
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * Smallest string greater than every string starting with {@code prefix},
+     * or {@code null} when there is none (every character is
+     * {@link Character#MAX_VALUE}).
+     */
+    static String upperBound(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (c + 1);
+            }
+        }
+        return null;
+    }
+}
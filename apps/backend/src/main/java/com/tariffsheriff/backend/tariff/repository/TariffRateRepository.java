@@ -1,5 +1,6 @@
 package com.tariffsheriff.backend.tariff.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,10 +10,17 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto;
 import com.tariffsheriff.backend.tariff.model.TariffRate;
 
 @Repository
-public interface TariffRateRepository extends JpaRepository<TariffRate, Long> {
+public interface TariffRateRepository extends JpaRepository<TariffRate, Long>, TariffRateHsPrefixRepository {
+
+    // List rows with the product's code and label joined in, built straight from the columns
+    String LIST_ITEM_SELECT = "SELECT new com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto(" +
+            "tr.id, tr.importerIso3, tr.originIso3, tr.hsProductId, hp.hsCode, hp.hsLabel, tr.basis, " +
+            "tr.agreementId, tr.adValoremRate, tr.nonAdValorem, tr.nonAdValoremText, tr.sourceRef) " +
+            "FROM TariffRate tr LEFT JOIN HsProduct hp ON hp.id = tr.hsProductId";
 
     Optional<TariffRate> findByImporterIso3AndOriginIso3AndHsProductIdAndBasis(
             String importerIso3, String originIso3, Long hsProductId, String basis);
@@ -20,7 +28,76 @@ public interface TariffRateRepository extends JpaRepository<TariffRate, Long> {
     Optional<TariffRate> findByImporterIso3AndHsProductIdAndBasis(
             String importerIso3, Long hsProductId, String basis);
 
-    // Count distinct trade routes (importer + origin + product combinations)
+    // Everything a single tariff lookup needs in one statement: importer and origin countries,
+    // the HS product, origin MFN, general (origin-less) MFN, PREF and its agreement. No row means the
+    // importer is unknown; null columns mean the corresponding piece does not exist.
+    // Ties (several HS versions or MFN rows) resolve to the highest id, like the snapshot.
+    @Query("SELECT imp.iso3 AS importerIso3, imp.name AS importerName, org.iso3 AS originIso3, " +
+            "hp.id AS hsProductId, " +
+            "omfn.id AS originMfnId, omfn.adValoremRate AS originMfnAdValoremRate, " +
+            "omfn.nonAdValorem AS originMfnNonAdValorem, omfn.nonAdValoremText AS originMfnNonAdValoremText, " +
+            "gmfn.id AS generalMfnId, gmfn.adValoremRate AS generalMfnAdValoremRate, " +
+            "gmfn.nonAdValorem AS generalMfnNonAdValorem, gmfn.nonAdValoremText AS generalMfnNonAdValoremText, " +
+            "pref.id AS prefId, pref.adValoremRate AS prefAdValoremRate, pref.nonAdValorem AS prefNonAdValorem, " +
+            "pref.nonAdValoremText AS prefNonAdValoremText, pref.agreementId AS prefAgreementId, " +
+            "ag.id AS agreementId, ag.name AS agreementName, ag.rvcThreshold AS agreementRvcThreshold " +
+            "FROM Country imp " +
+            "LEFT JOIN Country org ON UPPER(org.iso3) = UPPER(:originIso3) " +
+            "LEFT JOIN HsProduct hp ON hp.destinationIso3 = imp.iso3 AND hp.hsCode = :hsCode " +
+            "LEFT JOIN TariffRate omfn ON omfn.importerIso3 = imp.iso3 AND omfn.originIso3 = org.iso3 " +
+            "AND omfn.hsProductId = hp.id AND omfn.basis = 'MFN' " +
+            "LEFT JOIN TariffRate gmfn ON gmfn.importerIso3 = imp.iso3 " +
+            "AND gmfn.hsProductId = hp.id AND gmfn.basis = 'MFN' AND gmfn.originIso3 IS NULL " +
+            "LEFT JOIN TariffRate pref ON pref.importerIso3 = imp.iso3 AND pref.originIso3 = org.iso3 " +
+            "AND pref.hsProductId = hp.id AND pref.basis = 'PREF' " +
+            "LEFT JOIN Agreement ag ON ag.id = pref.agreementId " +
+            "WHERE UPPER(imp.iso3) = UPPER(:importerIso3) " +
+            "ORDER BY hp.id DESC, omfn.id DESC, gmfn.id DESC, pref.id DESC")
+    List<TariffRateResolution> resolveLookup(@Param("importerIso3") String importerIso3,
+            @Param("originIso3") String originIso3,
+            @Param("hsCode") String hsCode,
+            Pageable pageable);
+
+    // Every rate an importer has for an HS code, with its agreement, for ranking origins in one statement:
+    // (importerIso3, importerName, hsProductId, the findAllSnapshotRows columns, agreementName, rvcThreshold).
+    // No row means the importer is unknown; a null hsProductId means the code is not in its nomenclature.
+    @Query("SELECT imp.iso3, imp.name, hp.id, " +
+            "tr.id, tr.importerIso3, tr.originIso3, tr.hsProductId, tr.basis, tr.agreementId, " +
+            "tr.adValoremRate, tr.nonAdValorem, tr.nonAdValoremText, tr.sourceRef, " +
+            "ag.name, ag.rvcThreshold " +
+            "FROM Country imp " +
+            "LEFT JOIN HsProduct hp ON hp.destinationIso3 = imp.iso3 AND hp.hsCode = :hsCode " +
+            "LEFT JOIN TariffRate tr ON tr.importerIso3 = imp.iso3 AND tr.hsProductId = hp.id " +
+            "LEFT JOIN Agreement ag ON ag.id = tr.agreementId " +
+            "WHERE UPPER(imp.iso3) = UPPER(:importerIso3) " +
+            "ORDER BY hp.id, tr.id")
+    List<Object[]> findSourcingRows(@Param("importerIso3") String importerIso3, @Param("hsCode") String hsCode);
+
+    // Flat rate columns for the in-memory lookup snapshot (avoids loading the eager HS product per row)
+    @Query("SELECT tr.id, tr.importerIso3, tr.originIso3, tr.hsProductId, tr.basis, tr.agreementId, " +
+            "tr.adValoremRate, tr.nonAdValorem, tr.nonAdValoremText, tr.sourceRef " +
+            "FROM TariffRate tr ORDER BY tr.id")
+    List<Object[]> findAllSnapshotRows();
+
+    // Same flat columns for a set of importers and HS products (batch lookups)
+    @Query("SELECT tr.id, tr.importerIso3, tr.originIso3, tr.hsProductId, tr.basis, tr.agreementId, " +
+            "tr.adValoremRate, tr.nonAdValorem, tr.nonAdValoremText, tr.sourceRef " +
+            "FROM TariffRate tr " +
+            "WHERE tr.importerIso3 IN :importerIso3s AND tr.hsProductId IN :hsProductIds ORDER BY tr.id")
+    List<Object[]> findSnapshotRows(@Param("importerIso3s") Collection<String> importerIso3s,
+            @Param("hsProductIds") Collection<Long> hsProductIds);
+
+    // Flat (id, importer, origin, hsProductId) rows for rebuilding the in-memory trade route summary
+    @Query("SELECT tr.id, tr.importerIso3, tr.originIso3, tr.hsProductId FROM TariffRate tr")
+    List<Object[]> findAllRouteRows();
+
+    // One destination's HS products with at least one rate, for the rate-coverage flags of its HS hierarchy
+    @Query("SELECT DISTINCT tr.hsProductId FROM TariffRate tr, HsProduct hp " +
+            "WHERE hp.id = tr.hsProductId AND hp.destinationIso3 = :destinationIso3")
+    List<Long> findRatedHsProductIdsByDestination(@Param("destinationIso3") String destinationIso3);
+
+    // Count distinct trade routes (importer + origin + product combinations);
+    // the dashboard reads TradeRouteSummary#distinctRouteCount once it has loaded
     @Query("SELECT COUNT(DISTINCT CONCAT(tr.importerIso3, '-', COALESCE(tr.originIso3, 'MFN'), '-', tr.hsProductId)) FROM TariffRate tr")
     Long countDistinctTradeRoutes();
 
@@ -32,11 +109,17 @@ public interface TariffRateRepository extends JpaRepository<TariffRate, Long> {
             "ORDER BY COUNT(tr.id) DESC")
     List<Object[]> findDistinctTradeRoutes();
 
+    @Query(LIST_ITEM_SELECT)
+    List<TariffRateListItemDto> findListItems(Pageable pageable);
+
+    // Filter by importer only
+    @Query(LIST_ITEM_SELECT + " WHERE tr.importerIso3 = :importerIso3")
+    List<TariffRateListItemDto> findListItemsByImporter(@Param("importerIso3") String importerIso3,
+            Pageable pageable);
+
     // Filter by country pair (e.g., India → Singapore)
-    @Query("SELECT tr FROM TariffRate tr " +
-            "WHERE tr.importerIso3 = :importerIso3 " +
-            "AND tr.originIso3 = :originIso3")
-    List<TariffRate> findByCountryPair(@Param("importerIso3") String importerIso3,
+    @Query(LIST_ITEM_SELECT + " WHERE tr.importerIso3 = :importerIso3 AND tr.originIso3 = :originIso3")
+    List<TariffRateListItemDto> findListItemsByCountryPair(@Param("importerIso3") String importerIso3,
             @Param("originIso3") String originIso3,
             Pageable pageable);
 
@@ -50,31 +133,6 @@ public interface TariffRateRepository extends JpaRepository<TariffRate, Long> {
             @Param("hsCodePrefix") String hsCodePrefix,
             Pageable pageable);
 
-    // Filter by country pair + multiple HS code prefixes (for categories with
-    // multiple codes)
-    @Query("SELECT tr FROM TariffRate tr " +
-            "WHERE tr.importerIso3 = :importerIso3 " +
-            "AND tr.originIso3 = :originIso3 " +
-            "AND tr.hsProductId IN (SELECT hp.id FROM HsProduct hp WHERE " +
-            "hp.hsCode LIKE CONCAT(:hsPrefix1, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsPrefix2, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsPrefix3, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsPrefix4, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsPrefix5, '%'))")
-    List<TariffRate> findByCountryPairAndMultipleHsCodes(
-            @Param("importerIso3") String importerIso3,
-            @Param("originIso3") String originIso3,
-            @Param("hsPrefix1") String hsPrefix1,
-            @Param("hsPrefix2") String hsPrefix2,
-            @Param("hsPrefix3") String hsPrefix3,
-            @Param("hsPrefix4") String hsPrefix4,
-            @Param("hsPrefix5") String hsPrefix5,
-            Pageable pageable);
-
-    // Filter by importer only
-    @Query("SELECT tr FROM TariffRate tr WHERE tr.importerIso3 = :importerIso3")
-    List<TariffRate> findByImporter(@Param("importerIso3") String importerIso3, Pageable pageable);
-
     // Filter by importer + HS code prefix (using subquery)
     @Query("SELECT tr FROM TariffRate tr " +
             "WHERE tr.importerIso3 = :importerIso3 " +
@@ -83,60 +141,6 @@ public interface TariffRateRepository extends JpaRepository<TariffRate, Long> {
             @Param("hsCodePrefix") String hsCodePrefix,
             Pageable pageable);
 
-    // Filter by country pair + list of HS codes (with prefix matching)
-    @Query("SELECT tr FROM TariffRate tr " +
-            "WHERE tr.importerIso3 = :importerIso3 " +
-            "AND tr.originIso3 = :originIso3 " +
-            "AND tr.hsProductId IN (SELECT hp.id FROM HsProduct hp WHERE " +
-            "hp.hsCode LIKE CONCAT(:hsCode1, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode2, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode3, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode4, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode5, '%'))")
-    List<TariffRate> findByCountryPairAndHsCodes(
-            @Param("importerIso3") String importerIso3,
-            @Param("originIso3") String originIso3,
-            @Param("hsCode1") String hsCode1,
-            @Param("hsCode2") String hsCode2,
-            @Param("hsCode3") String hsCode3,
-            @Param("hsCode4") String hsCode4,
-            @Param("hsCode5") String hsCode5,
-            Pageable pageable);
-
-    // Filter by importer + list of HS codes (with prefix matching)
-    @Query("SELECT tr FROM TariffRate tr " +
-            "WHERE tr.importerIso3 = :importerIso3 " +
-            "AND tr.hsProductId IN (SELECT hp.id FROM HsProduct hp WHERE " +
-            "hp.hsCode LIKE CONCAT(:hsCode1, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode2, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode3, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode4, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode5, '%'))")
-    List<TariffRate> findByImporterAndHsCodes(
-            @Param("importerIso3") String importerIso3,
-            @Param("hsCode1") String hsCode1,
-            @Param("hsCode2") String hsCode2,
-            @Param("hsCode3") String hsCode3,
-            @Param("hsCode4") String hsCode4,
-            @Param("hsCode5") String hsCode5,
-            Pageable pageable);
-
-    // Filter by list of HS codes only (with prefix matching)
-    @Query("SELECT tr FROM TariffRate tr " +
-            "WHERE tr.hsProductId IN (SELECT hp.id FROM HsProduct hp WHERE " +
-            "hp.hsCode LIKE CONCAT(:hsCode1, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode2, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode3, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode4, '%') OR " +
-            "hp.hsCode LIKE CONCAT(:hsCode5, '%'))")
-    List<TariffRate> findByHsCodes(
-            @Param("hsCode1") String hsCode1,
-            @Param("hsCode2") String hsCode2,
-            @Param("hsCode3") String hsCode3,
-            @Param("hsCode4") String hsCode4,
-            @Param("hsCode5") String hsCode5,
-            Pageable pageable);
-
     // Filter by single HS code prefix
     @Query("SELECT tr FROM TariffRate tr " +
             "WHERE tr.hsProductId IN (SELECT hp.id FROM HsProduct hp WHERE hp.hsCode LIKE CONCAT(:hsCodePrefix, '%'))")
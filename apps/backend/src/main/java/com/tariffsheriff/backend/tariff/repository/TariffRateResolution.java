@@ -0,0 +1,52 @@
+package com.tariffsheriff.backend.tariff.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Flat projection of {@link TariffRateRepository#resolveLookup}: the resolved
+ * countries and HS product plus the origin MFN, general MFN and PREF candidate
+ * rows and the PREF agreement. Columns of a candidate that does not exist are
+ * {@code null}.
+ */
+public interface TariffRateResolution {
+
+    String getImporterIso3();
+
+    String getImporterName();
+
+    String getOriginIso3();
+
+    Long getHsProductId();
+
+    Long getOriginMfnId();
+
+    BigDecimal getOriginMfnAdValoremRate();
+
+    Boolean getOriginMfnNonAdValorem();
+
+    String getOriginMfnNonAdValoremText();
+
+    Long getGeneralMfnId();
+
+    BigDecimal getGeneralMfnAdValoremRate();
+
+    Boolean getGeneralMfnNonAdValorem();
+
+    String getGeneralMfnNonAdValoremText();
+
+    Long getPrefId();
+
+    BigDecimal getPrefAdValoremRate();
+
+    Boolean getPrefNonAdValorem();
+
+    String getPrefNonAdValoremText();
+
+    Long getPrefAgreementId();
+
+    Long getAgreementId();
+
+    String getAgreementName();
+
+    BigDecimal getAgreementRvcThreshold();
+}
@@ -20,4 +20,6 @@ public interface AgreementService {
     void deleteAgreement(Long id);
 
     List<Agreement> getAgreementsByCountry(String countryIso3);
+
+    List<Agreement> getCommonAgreements(String firstIso3, String secondIso3);
 }
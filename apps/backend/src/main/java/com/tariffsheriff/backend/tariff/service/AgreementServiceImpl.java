@@ -1,8 +1,12 @@
 package com.tariffsheriff.backend.tariff.service;
 
+import com.tariffsheriff.backend.tariff.index.AgreementPartyIndex;
+import com.tariffsheriff.backend.tariff.index.AgreementPartyIndexHolder;
 import com.tariffsheriff.backend.tariff.model.Agreement;
 import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -13,9 +17,11 @@ import org.springframework.transaction.annotation.Transactional;
 public class AgreementServiceImpl implements AgreementService {
 
     private final AgreementRepository agreementRepository;
+    private final AgreementPartyIndexHolder partyIndex;
 
-    public AgreementServiceImpl(AgreementRepository agreementRepository) {
+    public AgreementServiceImpl(AgreementRepository agreementRepository, AgreementPartyIndexHolder partyIndex) {
         this.agreementRepository = agreementRepository;
+        this.partyIndex = partyIndex;
     }
 
     @Override
@@ -58,6 +64,32 @@ public class AgreementServiceImpl implements AgreementService {
 
     @Override
     public List<Agreement> getAgreementsByCountry(String countryIso3) {
-        return agreementRepository.findAgreementsByCountryIso3(countryIso3);
+        AgreementPartyIndex index = partyIndex.current();
+        if (index.isEmpty()) {
+            // Not loaded yet
+            return agreementRepository.findAgreementsByCountryIso3(countryIso3);
+        }
+        return index.agreementsOf(trim(countryIso3));
+    }
+
+    @Override
+    public List<Agreement> getCommonAgreements(String firstIso3, String secondIso3) {
+        if (firstIso3 == null || firstIso3.isBlank() || secondIso3 == null || secondIso3.isBlank()) {
+            throw new IllegalArgumentException("Both country ISO3 codes are required");
+        }
+        AgreementPartyIndex index = partyIndex.current();
+        if (!index.isEmpty()) {
+            return index.commonAgreements(firstIso3.trim(), secondIso3.trim());
+        }
+        Set<Long> secondIds = agreementRepository.findAgreementsByCountryIso3(secondIso3.trim()).stream()
+                .map(Agreement::getId)
+                .collect(Collectors.toSet());
+        return agreementRepository.findAgreementsByCountryIso3(firstIso3.trim()).stream()
+                .filter(agreement -> secondIds.contains(agreement.getId()))
+                .toList();
+    }
+
+    private static String trim(String iso3) {
+        return iso3 == null ? null : iso3.trim();
     }
 }
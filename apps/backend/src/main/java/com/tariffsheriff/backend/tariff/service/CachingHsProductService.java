@@ -0,0 +1,61 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.index.HsProductMatch;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Puts the {@link HsSearchCache} in front of whichever description search the
+ * {@code hs.search.mode} selected. It is the primary {@link HsProductService},
+ * so controllers and the chatbot get cached results. Spring skips a bean when
+ * resolving its own dependencies, so {@code delegate} is the mode-specific
+ * service.
+ */
+@Service
+@Primary
+public class CachingHsProductService implements HsProductService {
+
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+
+    private final HsProductService delegate;
+    private final HsSearchCache searchCache;
+
+    public CachingHsProductService(HsProductService delegate, HsSearchCache searchCache) {
+        this.delegate = delegate;
+        this.searchCache = searchCache;
+    }
+
+    @Override
+    public List<HsProduct> searchByDescription(String description, int limit) {
+        return searchByDescription(description, null, limit);
+    }
+
+    @Override
+    public List<HsProduct> searchByDescription(String description, String destinationIso3, int limit) {
+        return searchCache.get(HsSearchCache.descriptionKey(description, destinationIso3, limit),
+                HsSearchCache::productWeight,
+                () -> delegate.searchByDescription(description, destinationIso3, limit));
+    }
+
+    @Override
+    public List<HsProduct> searchByDescription(String description) {
+        return searchByDescription(description, DEFAULT_SEARCH_LIMIT);
+    }
+
+    /**
+     * Not cached: batch classification sends each description once, and would
+     * only push the interactive searches out of the cache.
+     */
+    @Override
+    public List<HsProductMatch> rankByDescription(String description, String destinationIso3, int limit) {
+        return delegate.rankByDescription(description, destinationIso3, limit);
+    }
+
+    @Override
+    public HsProduct getByHsCode(String hsCode) {
+        return delegate.getByHsCode(hsCode);
+    }
+}
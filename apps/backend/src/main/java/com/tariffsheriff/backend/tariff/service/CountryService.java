@@ -1,9 +1,12 @@
 package com.tariffsheriff.backend.tariff.service;
 
+import com.tariffsheriff.backend.tariff.index.CountryRegistry;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
 import com.tariffsheriff.backend.tariff.model.Country;
 import com.tariffsheriff.backend.tariff.repository.CountryRepository;
 import jakarta.transaction.Transactional;
 import java.util.List;
+import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -13,9 +16,12 @@ import org.springframework.stereotype.Service;
 public class CountryService {
 
     private final CountryRepository countryRepository;
+    private final CountryRegistryHolder countryRegistry;
 
-    public CountryService(CountryRepository countryRepository) {
+    // Writes below reach the registry through the entity listener on Country: it reloads once they commit
+    public CountryService(CountryRepository countryRepository, CountryRegistryHolder countryRegistry) {
         this.countryRepository = countryRepository;
+        this.countryRegistry = countryRegistry;
     }
 
     public Page<Country> searchByName(String query, Pageable pageable) {
@@ -28,6 +34,19 @@ public class CountryService {
             .orElseThrow(() -> new IllegalArgumentException("Country not found: " + id));
     }
 
+    /**
+     * Country for an ISO3 code in any letter case, served from the in-memory
+     * registry; the repository is only queried until the registry has loaded.
+     */
+    public Optional<Country> findByIso3(String iso3) {
+        String code = iso3 == null ? null : iso3.trim();
+        CountryRegistry registry = countryRegistry.current();
+        if (registry.isEmpty()) {
+            return countryRepository.findByIso3IgnoreCase(code);
+        }
+        return Optional.ofNullable(registry.find(code));
+    }
+
     public Country create(Country country) {
         return countryRepository.save(country);
     }
@@ -0,0 +1,294 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads product catalog rows (sku, description, destination) one at a time
+ * from CSV with a header row or from NDJSON, so a catalog of any size is
+ * never held in memory.
+ *
+ * CSV follows RFC 4180 (quoted fields may contain commas, doubled quotes and
+ * line breaks); the header names the columns in any order. Destination may be
+ * called {@code destinationIso3} or {@code importerIso3} as well. A row that
+ * cannot be read (bad JSON, no description) still comes back, with an error,
+ * so every input row gets exactly one result. That includes a row longer than
+ * {@code maxRowChars}, which is read to its end without being held, so a line
+ * without an end or an unterminated quote never buffers the rest of the input.
+ */
+final class HsCatalogReader implements Closeable {
+
+    enum Format {
+        CSV, NDJSON;
+
+        /**
+         * The format for a content type or format name, or {@code null}.
+         */
+        static Format of(String value) {
+            if (value == null) {
+                return null;
+            }
+            String v = value.toLowerCase(Locale.ROOT);
+            if (v.contains("csv")) {
+                return CSV;
+            }
+            if (v.contains("ndjson") || v.contains("jsonl") || v.contains("json-seq")) {
+                return NDJSON;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * One catalog row; {@code number} counts data rows from 1 and
+     * {@code error} is set when the row could not be read.
+     */
+    record Row(long number, String sku, String description, String destination, String error) {
+    }
+
+    private static final List<String> DESTINATION_COLUMNS = List.of("destination", "destinationiso3", "importeriso3");
+
+    private final BufferedReader in;
+    private final Format format;
+    private final ObjectMapper mapper;
+    private final int maxRowChars;
+    // Reused for every NDJSON line
+    private final StringBuilder line = new StringBuilder();
+    // Whether the record readRecord() or readLine() just read was too long to keep
+    private boolean overlong;
+    private int skuColumn = -1;
+    private int descriptionColumn = -1;
+    private int destinationColumn = -1;
+    private long rows;
+
+    HsCatalogReader(BufferedReader in, Format format, ObjectMapper mapper, int maxRowChars) throws IOException {
+        this.in = in;
+        this.format = format;
+        this.mapper = mapper;
+        this.maxRowChars = maxRowChars;
+        if (format == Format.CSV) {
+            readHeader();
+        }
+    }
+
+    /**
+     * The next row, or {@code null} at the end of the input. Blank lines are
+     * skipped and not counted.
+     */
+    Row next() throws IOException {
+        return format == Format.CSV ? nextCsv() : nextNdjson();
+    }
+
+    /**
+     * Skips {@code count} rows, for resuming after a checkpoint.
+     */
+    void skip(long count) throws IOException {
+        for (long i = 0; i < count && next() != null; i++) {
+            // rows before the checkpoint already have results
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readHeader() throws IOException {
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV input is empty; expected a header row");
+        }
+        if (overlong) {
+            throw new IllegalArgumentException("CSV header is longer than " + maxRowChars + " characters");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT).replace("_", "");
+            if (name.equals("sku")) {
+                skuColumn = i;
+            } else if (name.equals("description")) {
+                descriptionColumn = i;
+            } else if (DESTINATION_COLUMNS.contains(name)) {
+                destinationColumn = i;
+            }
+        }
+        if (descriptionColumn < 0) {
+            throw new IllegalArgumentException("CSV header has no description column: " + String.join(",", header));
+        }
+    }
+
+    private Row nextCsv() throws IOException {
+        List<String> fields;
+        do {
+            fields = readRecord();
+            if (fields == null) {
+                return null;
+            }
+        } while (!overlong && fields.size() == 1 && fields.get(0).isBlank());
+        long number = ++rows;
+        if (overlong) {
+            return tooLong(number);
+        }
+        return row(number, field(fields, skuColumn), field(fields, descriptionColumn),
+                field(fields, destinationColumn));
+    }
+
+    private Row nextNdjson() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (!overlong && line.isBlank());
+        long number = ++rows;
+        if (overlong) {
+            return tooLong(number);
+        }
+        JsonNode node;
+        try {
+            node = mapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            return new Row(number, null, null, null, "Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            return new Row(number, null, null, null, "Expected a JSON object");
+        }
+        String destination = text(node, "destination");
+        if (destination == null) {
+            destination = text(node, "destinationIso3");
+        }
+        if (destination == null) {
+            destination = text(node, "importerIso3");
+        }
+        return row(number, text(node, "sku"), text(node, "description"), destination);
+    }
+
+    private Row tooLong(long number) {
+        return new Row(number, null, null, null, "Row longer than " + maxRowChars + " characters");
+    }
+
+    private static Row row(long number, String sku, String description, String destination) {
+        String cleanDestination = destination == null || destination.isBlank()
+                ? null
+                : destination.trim().toUpperCase(Locale.ROOT);
+        if (description == null || description.isBlank()) {
+            return new Row(number, sku, null, cleanDestination, "description is required");
+        }
+        return new Row(number, sku, description.trim(), cleanDestination, null);
+    }
+
+    /**
+     * One NDJSON line without its terminator, or {@code null} at the end of
+     * the input. Past {@code maxRowChars} the line is read on to its end but
+     * not kept, and {@link #overlong} is set.
+     */
+    private String readLine() throws IOException {
+        line.setLength(0);
+        overlong = false;
+        int c = in.read();
+        if (c < 0) {
+            return null;
+        }
+        while (c >= 0 && c != '\n') {
+            // One extra character kept for the \r of a \r\n line end
+            if (!overlong && line.length() > maxRowChars) {
+                overlong = true;
+                line.setLength(0);
+            } else if (!overlong) {
+                line.append((char) c);
+            }
+            c = in.read();
+        }
+        if (!overlong && !line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        if (line.length() > maxRowChars) {
+            overlong = true;
+            line.setLength(0);
+        }
+        return line.toString();
+    }
+
+    /**
+     * One CSV record, or {@code null} at the end of the input. Past
+     * {@code maxRowChars} the record is parsed on to its end but its fields
+     * are dropped, and {@link #overlong} is set.
+     */
+    private List<String> readRecord() throws IOException {
+        overlong = false;
+        int c = in.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        // Characters of the current field, counted on after its text is dropped
+        int fieldLength = 0;
+        long length = 0;
+        boolean quoted = false;
+        while (c >= 0) {
+            if (!overlong && c != '\r' && c != '\n' && ++length > maxRowChars) {
+                overlong = true;
+                fields.clear();
+                field.setLength(0);
+            }
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        fieldLength = append(field, fieldLength, '"');
+                    } else {
+                        quoted = false;
+                        if (next >= 0) {
+                            in.reset();
+                        }
+                    }
+                } else {
+                    fieldLength = append(field, fieldLength, c);
+                }
+            } else if (c == '"' && fieldLength == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                if (!overlong) {
+                    fields.add(field.toString());
+                }
+                field.setLength(0);
+                fieldLength = 0;
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                fieldLength = append(field, fieldLength, c);
+            }
+            c = in.read();
+        }
+        if (!overlong) {
+            fields.add(field.toString());
+        }
+        return fields;
+    }
+
+    private int append(StringBuilder field, int fieldLength, int c) {
+        if (!overlong) {
+            field.append((char) c);
+        }
+        return fieldLength + 1;
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    private static String text(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+}
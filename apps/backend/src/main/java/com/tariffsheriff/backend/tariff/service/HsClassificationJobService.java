@@ -0,0 +1,719 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tariffsheriff.backend.tariff.dto.HsClassificationCandidateDto;
+import com.tariffsheriff.backend.tariff.dto.HsClassificationJobDto;
+import com.tariffsheriff.backend.tariff.dto.HsClassificationResultDto;
+import com.tariffsheriff.backend.tariff.exception.ClassificationJobLimitException;
+import com.tariffsheriff.backend.tariff.exception.ClassificationJobNotFoundException;
+import com.tariffsheriff.backend.tariff.exception.ClassificationUploadTooLargeException;
+import com.tariffsheriff.backend.tariff.index.HsProductMatch;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Classifies product catalogs (CSV or NDJSON rows of sku, description and
+ * destination) against the HS nomenclature in the background, returning the
+ * top {@value #CANDIDATES} codes per row with the search engine's scores.
+ *
+ * An upload of at most {@code hs.classification.max-upload-bytes} is spooled
+ * to its own directory under {@code hs.classification.dir} and then read back
+ * a chunk of {@code hs.classification.chunk-size} rows at a time. Each chunk is
+ * classified in parallel on {@code hs.classification.threads} workers (one per
+ * core by default) and appended to the job's NDJSON results in input order, so
+ * memory stays bounded by one chunk whatever the catalog size. A row longer
+ * than {@code hs.classification.max-row-chars} gets an error result instead of
+ * being held. Jobs run one after another.
+ *
+ * After every chunk the job's progress is checkpointed next to its results. A
+ * job that was running when the application stopped is picked up again from its
+ * last checkpoint on the next start, and a failed one can be resumed the same
+ * way; results past the checkpoint are discarded and recomputed, so every row
+ * has exactly one result.
+ *
+ * A job belongs to the user who submitted it: every other call names the
+ * owner, and a job owned by someone else is reported as not found. A user
+ * keeps at most {@code hs.classification.max-jobs-per-owner} jobs, queued or
+ * finished.
+ *
+ * Once a job completes, or fails on input it cannot read, only its results
+ * are served, so its upload is deleted. Finished jobs are deleted
+ * altogether {@code hs.classification.retention} after they finish, by a
+ * sweep that runs in the background and again before jobs are recovered on
+ * startup.
+ */
+@Service
+public class HsClassificationJobService {
+
+    static final int CANDIDATES = 3;
+    static final int DEFAULT_CHUNK_SIZE = 1024;
+    static final long DEFAULT_MAX_UPLOAD_BYTES = 256L * 1024 * 1024;
+    static final int DEFAULT_MAX_ROW_CHARS = 16 * 1024;
+    static final int DEFAULT_MAX_JOBS_PER_OWNER = 20;
+    static final Duration DEFAULT_RETENTION = Duration.ofDays(7);
+
+    // The sweep runs at least this often, and more often for a shorter retention
+    private static final Duration MAX_SWEEP_INTERVAL = Duration.ofHours(1);
+
+    enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(HsClassificationJobService.class);
+
+    private static final String INPUT = "input.";
+    private static final String RESULTS = "results.ndjson";
+    private static final String CHECKPOINT = "job.properties";
+
+    private final HsProductService hsProductService;
+    private final ObjectMapper mapper;
+    private final Path workDir;
+    private final int threads;
+    private final int chunkSize;
+    private final long maxUploadBytes;
+    private final int maxRowChars;
+    private final int maxJobsPerOwner;
+    private final Duration retention;
+    private final ExecutorService workers;
+    private final ExecutorService runner;
+    private final ScheduledExecutorService sweeper;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Held while a job is counted against its owner's limit and registered
+    private final Object submitLock = new Object();
+
+    public HsClassificationJobService(HsProductService hsProductService, ObjectMapper mapper,
+            @Value("${hs.classification.dir:}") String workDir,
+            @Value("${hs.classification.threads:0}") int threads,
+            @Value("${hs.classification.chunk-size:" + DEFAULT_CHUNK_SIZE + "}") int chunkSize,
+            @Value("${hs.classification.max-upload-bytes:" + DEFAULT_MAX_UPLOAD_BYTES + "}") long maxUploadBytes,
+            @Value("${hs.classification.max-row-chars:" + DEFAULT_MAX_ROW_CHARS + "}") int maxRowChars,
+            @Value("${hs.classification.max-jobs-per-owner:" + DEFAULT_MAX_JOBS_PER_OWNER + "}") int maxJobsPerOwner,
+            @Value("${hs.classification.retention:7d}") Duration retention) {
+        this.hsProductService = hsProductService;
+        this.mapper = mapper;
+        this.workDir = workDir == null || workDir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "tariffsheriff-classification")
+                : Paths.get(workDir);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxUploadBytes = maxUploadBytes > 0 ? maxUploadBytes : DEFAULT_MAX_UPLOAD_BYTES;
+        this.maxRowChars = maxRowChars > 0 ? maxRowChars : DEFAULT_MAX_ROW_CHARS;
+        this.maxJobsPerOwner = maxJobsPerOwner > 0 ? maxJobsPerOwner : DEFAULT_MAX_JOBS_PER_OWNER;
+        this.retention = retention != null && !retention.isNegative() ? retention : DEFAULT_RETENTION;
+        this.workers = Executors.newFixedThreadPool(this.threads, daemonThreads("hs-classify-"));
+        this.runner = Executors.newSingleThreadExecutor(daemonThreads("hs-classification-job-"));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(daemonThreads("hs-classification-sweep-"));
+        long sweepMillis = Math.max(1000, Math.min(this.retention.toMillis(), MAX_SWEEP_INTERVAL.toMillis()));
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Spools {@code body} to disk and queues it for classification on behalf
+     * of {@code owner}.
+     *
+     * @param format a content type or format name naming CSV or NDJSON
+     * @throws ClassificationUploadTooLargeException past the upload limit,
+     *         after discarding what was spooled
+     * @throws ClassificationJobLimitException when the owner already has
+     *         {@code hs.classification.max-jobs-per-owner} jobs
+     */
+    public HsClassificationJobDto submit(String owner, InputStream body, String format) {
+        if (owner == null || owner.isBlank()) {
+            throw new IllegalArgumentException("A classification job needs an owner");
+        }
+        HsCatalogReader.Format parsed = HsCatalogReader.Format.of(format);
+        if (parsed == null) {
+            throw new IllegalArgumentException("Send the catalog as text/csv or application/x-ndjson, not " + format);
+        }
+        // Checked before the upload is spooled and again, atomically, before the job is registered
+        checkJobLimit(owner);
+        String id = UUID.randomUUID().toString();
+        Path dir = workDir.resolve(id);
+        try {
+            Files.createDirectories(dir);
+            long size = copyAtMost(body, inputOf(dir, parsed), maxUploadBytes);
+            Job job = new Job(id, owner, dir, parsed, Instant.now(), size);
+            checkpoint(job);
+            synchronized (submitLock) {
+                checkJobLimit(owner);
+                jobs.put(id, job);
+            }
+            runner.execute(() -> run(job));
+            return job.toDto();
+        } catch (IOException e) {
+            deleteQuietly(dir);
+            throw new UncheckedIOException("Could not store catalog upload", e);
+        } catch (RuntimeException e) {
+            deleteQuietly(dir);
+            throw e;
+        }
+    }
+
+    public HsClassificationJobDto status(String owner, String id) {
+        return job(owner, id).toDto();
+    }
+
+    /**
+     * Writes the NDJSON results of rows {@code fromRow} (counted from 1)
+     * onwards that have been checkpointed so far; a client that lost its
+     * connection asks again from the first row it is missing.
+     */
+    public void writeResults(String owner, String id, long fromRow, OutputStream out) throws IOException {
+        Job job = job(owner, id);
+        long limit = job.resultsBytes;
+        Path results = job.dir.resolve(RESULTS);
+        if (limit == 0 || !Files.exists(results)) {
+            return;
+        }
+        long skipLines = Math.max(0, fromRow - 1);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(results, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < limit) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                int start = 0;
+                byte[] bytes = buffer.array();
+                while (skipLines > 0 && start < read) {
+                    if (bytes[start++] == '\n') {
+                        skipLines--;
+                    }
+                }
+                if (start < read) {
+                    out.write(bytes, start, read - start);
+                }
+                position += read;
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Queues a failed job again from its last checkpoint. Other jobs are
+     * left as they are.
+     *
+     * @throws IllegalArgumentException when the job failed on input it cannot
+     *         read, whose upload is already gone
+     */
+    public HsClassificationJobDto resume(String owner, String id) {
+        Job job = job(owner, id);
+        synchronized (job) {
+            if (job.status == Status.FAILED) {
+                if (!Files.exists(inputOf(job.dir, job.format))) {
+                    throw new IllegalArgumentException("Classification job " + id + " cannot be resumed: "
+                            + job.error);
+                }
+                job.status = Status.QUEUED;
+                job.error = null;
+                runner.execute(() -> run(job));
+            }
+        }
+        return job.toDto();
+    }
+
+    /**
+     * Cancels the job and deletes its files; a running job stops after its
+     * current chunk.
+     */
+    public void cancel(String owner, String id) {
+        discard(job(owner, id));
+    }
+
+    /**
+     * Registers the jobs found on disk and queues those that were queued or
+     * running when the application last stopped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!Files.isDirectory(workDir)) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<Job> interrupted = new ArrayList<>();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(workDir, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                Job job = load(dir);
+                if (job != null && isExpired(job, now)) {
+                    deleteQuietly(dir);
+                    continue;
+                }
+                if (job == null || jobs.putIfAbsent(job.id, job) != null) {
+                    continue;
+                }
+                if (job.status == Status.COMPLETED) {
+                    // Written before uploads were dropped on completion
+                    deleteInput(job);
+                }
+                if (job.status == Status.QUEUED || job.status == Status.RUNNING) {
+                    job.status = Status.QUEUED;
+                    interrupted.add(job);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not scan classification jobs in {}", workDir, e);
+        }
+        interrupted.sort(Comparator.comparing(job -> job.createdAt));
+        for (Job job : interrupted) {
+            logger.info("Resuming classification job {} after row {}", job.id, job.rowsProcessed);
+            runner.execute(() -> run(job));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Running jobs stay RUNNING on disk and are resumed by recover() on the next start
+        sweeper.shutdownNow();
+        runner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Deletes the jobs that finished more than {@code hs.classification.retention} ago.
+     */
+    void sweep() {
+        try {
+            sweep(Instant.now());
+        } catch (RuntimeException e) {
+            // A scheduled task that throws is never run again
+            logger.warn("Could not sweep expired classification jobs", e);
+        }
+    }
+
+    void sweep(Instant now) {
+        for (Job job : jobs.values()) {
+            synchronized (job) {
+                // Checked under the job's lock, so a job being resumed is not deleted under it
+                if (isExpired(job, now)) {
+                    logger.info("Deleting classification job {}, finished at {}", job.id, job.finishedAt);
+                    discard(job);
+                }
+            }
+        }
+    }
+
+    private void run(Job job) {
+        synchronized (job) {
+            if (job.cancelled) {
+                return;
+            }
+            job.status = Status.RUNNING;
+            job.runStartedAt = System.nanoTime();
+        }
+        boolean interrupted = false;
+        boolean unreadable = false;
+        try {
+            checkpoint(job);
+            classifyRemaining(job);
+        } catch (InterruptedException | ClosedByInterruptException e) {
+            interrupted = true;
+            Thread.currentThread().interrupt();
+        } catch (IllegalArgumentException e) {
+            unreadable = true;
+            fail(job, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Classification job {} failed after row {}", job.id, job.rowsProcessed, e);
+            fail(job, "Classification stopped after row " + job.rowsProcessed + ": " + e.getMessage());
+        }
+        synchronized (job) {
+            job.activeNanos += System.nanoTime() - job.runStartedAt;
+            job.runStartedAt = 0;
+            if (job.cancelled) {
+                job.status = Status.CANCELLED;
+                deleteQuietly(job.dir);
+                return;
+            }
+            if (interrupted) {
+                return;
+            }
+            if (job.status == Status.RUNNING) {
+                job.status = Status.COMPLETED;
+                job.finishedAt = Instant.now();
+            }
+        }
+        try {
+            checkpoint(job);
+        } catch (IOException e) {
+            logger.warn("Could not checkpoint classification job {}", job.id, e);
+        }
+        // Nothing reads the upload again unless a failed job is resumed, which only helps when it was readable
+        if (job.status == Status.COMPLETED || unreadable) {
+            deleteInput(job);
+        }
+    }
+
+    private void classifyRemaining(Job job) throws IOException, InterruptedException {
+        try (CountingInputStream counted = new CountingInputStream(Files.newInputStream(inputOf(job.dir, job.format)));
+                HsCatalogReader reader = new HsCatalogReader(
+                        new BufferedReader(new InputStreamReader(counted, StandardCharsets.UTF_8)), job.format, mapper,
+                        maxRowChars);
+                FileChannel results = FileChannel.open(job.dir.resolve(RESULTS), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE)) {
+            // Anything past the checkpoint came from a chunk that never completed
+            results.truncate(job.resultsBytes);
+            results.position(job.resultsBytes);
+            reader.skip(job.rowsProcessed);
+
+            List<HsCatalogReader.Row> chunk = new ArrayList<>(chunkSize);
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            while (!job.cancelled) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                chunk.clear();
+                HsCatalogReader.Row row;
+                while (chunk.size() < chunkSize && (row = reader.next()) != null) {
+                    chunk.add(row);
+                }
+                if (chunk.isEmpty()) {
+                    break;
+                }
+
+                HsClassificationResultDto[] classified = classify(chunk);
+                lines.reset();
+                int failed = 0;
+                for (HsClassificationResultDto result : classified) {
+                    if (result.error() != null) {
+                        failed++;
+                    }
+                    mapper.writeValue(lines, result);
+                    lines.write('\n');
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(lines.toByteArray());
+                while (bytes.hasRemaining()) {
+                    results.write(bytes);
+                }
+
+                job.rowsProcessed += chunk.size();
+                job.rowsFailed += failed;
+                job.resultsBytes = results.position();
+                job.bytesRead = counted.count;
+                checkpoint(job);
+            }
+        }
+    }
+
+    /**
+     * Classifies a chunk on the worker pool, one contiguous slice per worker.
+     */
+    private HsClassificationResultDto[] classify(List<HsCatalogReader.Row> chunk) throws InterruptedException {
+        HsClassificationResultDto[] out = new HsClassificationResultDto[chunk.size()];
+        int slices = Math.min(threads, chunk.size());
+        List<Callable<Void>> tasks = new ArrayList<>(slices);
+        for (int s = 0; s < slices; s++) {
+            int from = s * chunk.size() / slices;
+            int to = (s + 1) * chunk.size() / slices;
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    out[i] = classify(chunk.get(i));
+                }
+                return null;
+            });
+        }
+        for (Future<Void> done : workers.invokeAll(tasks)) {
+            try {
+                done.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Classification worker failed", e.getCause());
+            }
+        }
+        return out;
+    }
+
+    private HsClassificationResultDto classify(HsCatalogReader.Row row) {
+        if (row.error() != null) {
+            return HsClassificationResultDto.failure(row.number(), row.sku(), row.destination(), row.error());
+        }
+        try {
+            List<HsProductMatch> matches = hsProductService.rankByDescription(row.description(), row.destination(),
+                    CANDIDATES);
+            List<HsClassificationCandidateDto> candidates = new ArrayList<>(matches.size());
+            for (HsProductMatch match : matches) {
+                candidates.add(new HsClassificationCandidateDto(match.product().getHsCode(),
+                        match.product().getHsLabel(), Math.round(match.score() * 10_000) / 10_000.0));
+            }
+            return HsClassificationResultDto.success(row.number(), row.sku(), row.destination(), candidates);
+        } catch (RuntimeException e) {
+            return HsClassificationResultDto.failure(row.number(), row.sku(), row.destination(),
+                    "Classification failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The job, or not found when it belongs to someone else, so ids of other
+     * users' jobs cannot be probed.
+     */
+    private Job job(String owner, String id) {
+        Job job = id == null ? null : jobs.get(id);
+        if (job == null || owner == null || !Objects.equals(job.owner, owner)) {
+            throw new ClassificationJobNotFoundException(id);
+        }
+        return job;
+    }
+
+    private void checkJobLimit(String owner) {
+        long owned = jobs.values().stream().filter(job -> owner.equals(job.owner)).count();
+        if (owned >= maxJobsPerOwner) {
+            throw new ClassificationJobLimitException(maxJobsPerOwner);
+        }
+    }
+
+    private boolean isExpired(Job job, Instant now) {
+        Instant finishedAt = job.finishedAt;
+        return (job.status == Status.COMPLETED || job.status == Status.FAILED) && finishedAt != null
+                && finishedAt.plus(retention).isBefore(now);
+    }
+
+    /**
+     * Forgets the job and deletes its files; a running job stops after its
+     * current chunk and deletes them itself.
+     */
+    private void discard(Job job) {
+        synchronized (job) {
+            job.cancelled = true;
+            jobs.remove(job.id);
+            if (job.status != Status.RUNNING) {
+                job.status = Status.CANCELLED;
+                deleteQuietly(job.dir);
+            }
+        }
+    }
+
+    private void deleteInput(Job job) {
+        try {
+            Files.deleteIfExists(inputOf(job.dir, job.format));
+        } catch (IOException e) {
+            logger.warn("Could not delete the upload of classification job {}", job.id, e);
+        }
+    }
+
+    private void fail(Job job, String error) {
+        synchronized (job) {
+            job.status = Status.FAILED;
+            job.error = error;
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    /**
+     * Writes the job's progress next to its results, replacing the previous
+     * checkpoint atomically.
+     */
+    private void checkpoint(Job job) throws IOException {
+        Properties properties = new Properties();
+        synchronized (job) {
+            properties.setProperty("owner", job.owner);
+            properties.setProperty("status", job.status.name());
+            properties.setProperty("format", job.format.name());
+            properties.setProperty("createdAt", job.createdAt.toString());
+            properties.setProperty("inputBytes", Long.toString(job.inputBytes));
+            properties.setProperty("bytesRead", Long.toString(job.bytesRead));
+            properties.setProperty("rowsProcessed", Long.toString(job.rowsProcessed));
+            properties.setProperty("rowsFailed", Long.toString(job.rowsFailed));
+            properties.setProperty("resultsBytes", Long.toString(job.resultsBytes));
+            properties.setProperty("activeNanos", Long.toString(job.activeNanos));
+            if (job.finishedAt != null) {
+                properties.setProperty("finishedAt", job.finishedAt.toString());
+            }
+            if (job.error != null) {
+                properties.setProperty("error", job.error);
+            }
+        }
+        Path next = job.dir.resolve(CHECKPOINT + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(next, StandardCharsets.UTF_8)) {
+            properties.store(writer, "HS classification job " + job.id);
+        }
+        Files.move(next, job.dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Job load(Path dir) {
+        Path checkpoint = dir.resolve(CHECKPOINT);
+        if (!Files.exists(checkpoint)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            // A job without an owner stays on disk but is not served to anyone
+            Job job = new Job(dir.getFileName().toString(), properties.getProperty("owner", ""), dir,
+                    HsCatalogReader.Format.valueOf(properties.getProperty("format")),
+                    Instant.parse(properties.getProperty("createdAt")),
+                    Long.parseLong(properties.getProperty("inputBytes", "0")));
+            job.status = Status.valueOf(properties.getProperty("status"));
+            job.bytesRead = Long.parseLong(properties.getProperty("bytesRead", "0"));
+            job.rowsProcessed = Long.parseLong(properties.getProperty("rowsProcessed", "0"));
+            job.rowsFailed = Long.parseLong(properties.getProperty("rowsFailed", "0"));
+            job.resultsBytes = Long.parseLong(properties.getProperty("resultsBytes", "0"));
+            job.activeNanos = Long.parseLong(properties.getProperty("activeNanos", "0"));
+            String finishedAt = properties.getProperty("finishedAt");
+            job.finishedAt = finishedAt == null ? null : Instant.parse(finishedAt);
+            job.error = properties.getProperty("error");
+            return job;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Skipping unreadable classification job in {}", dir, e);
+            return null;
+        }
+    }
+
+    /**
+     * Copies {@code in} to a new file, failing once more than
+     * {@code maxBytes} have arrived instead of filling the disk.
+     */
+    private static long copyAtMost(InputStream in, Path target, long maxBytes) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW)) {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new ClassificationUploadTooLargeException(maxBytes);
+                }
+                out.write(buffer, 0, read);
+            }
+            return total;
+        }
+    }
+
+    private static Path inputOf(Path dir, HsCatalogReader.Format format) {
+        return dir.resolve(INPUT + format.name().toLowerCase(Locale.ROOT));
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Could not delete {}", dir, e);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger next = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + next.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Job {
+        final String id;
+        final String owner;
+        final Path dir;
+        final HsCatalogReader.Format format;
+        final Instant createdAt;
+        final long inputBytes;
+        volatile Status status = Status.QUEUED;
+        volatile boolean cancelled;
+        volatile long bytesRead;
+        volatile long rowsProcessed;
+        volatile long rowsFailed;
+        volatile long resultsBytes;
+        volatile long activeNanos;
+        volatile long runStartedAt;
+        volatile Instant finishedAt;
+        volatile String error;
+
+        Job(String id, String owner, Path dir, HsCatalogReader.Format format, Instant createdAt, long inputBytes) {
+            this.id = id;
+            this.owner = owner;
+            this.dir = dir;
+            this.format = format;
+            this.createdAt = createdAt;
+            this.inputBytes = inputBytes;
+        }
+
+        synchronized HsClassificationJobDto toDto() {
+            long nanos = activeNanos + (runStartedAt == 0 ? 0 : System.nanoTime() - runStartedAt);
+            double rowsPerSecond = nanos == 0 ? 0 : rowsProcessed / (nanos / 1e9);
+            double percent = status == Status.COMPLETED ? 100
+                    : inputBytes == 0 ? 0
+                    : Math.min(100, 100.0 * bytesRead / inputBytes);
+            return new HsClassificationJobDto(id, status.name(), format.name(), rowsProcessed, rowsFailed,
+                    Math.round(percent * 10) / 10.0, Math.round(rowsPerSecond * 10) / 10.0, createdAt, finishedAt,
+                    error);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
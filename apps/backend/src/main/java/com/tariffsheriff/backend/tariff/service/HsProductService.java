@@ -1,6 +1,8 @@
 package com.tariffsheriff.backend.tariff.service;
 
+import com.tariffsheriff.backend.tariff.index.HsProductMatch;
 import com.tariffsheriff.backend.tariff.model.HsProduct;
+import java.util.ArrayList;
 import java.util.List;
 
 public interface HsProductService {
@@ -12,6 +14,16 @@ public interface HsProductService {
      * @return List of matching HS products ordered by relevance
      */
     List<HsProduct> searchByDescription(String description, int limit);
+
+    /**
+     * Search for HS products by description within one destination; the
+     * top {@code limit} is taken among that destination's products only
+     * @param description Product description to search for
+     * @param destinationIso3 Destination to search in, or null for all destinations
+     * @param limit Maximum number of results to return
+     * @return List of matching HS products ordered by relevance
+     */
+    List<HsProduct> searchByDescription(String description, String destinationIso3, int limit);
     
     /**
      * Search for HS products by description with default limit
@@ -19,6 +31,25 @@ public interface HsProductService {
      * @return List of matching HS products ordered by relevance (max 10)
      */
     List<HsProduct> searchByDescription(String description);
+
+    /**
+     * {@link #searchByDescription(String, String, int)} with a relevance score
+     * per product, for callers that rank or threshold the candidates (batch
+     * classification). Engines without a score of their own report
+     * {@code 1 / (rank + 1)}.
+     * @param description Product description to search for
+     * @param destinationIso3 Destination to search in, or null for all destinations
+     * @param limit Maximum number of results to return
+     * @return Matches ordered by relevance, scores from 0 to 1
+     */
+    default List<HsProductMatch> rankByDescription(String description, String destinationIso3, int limit) {
+        List<HsProduct> products = searchByDescription(description, destinationIso3, limit);
+        List<HsProductMatch> matches = new ArrayList<>(products.size());
+        for (int rank = 0; rank < products.size(); rank++) {
+            matches.add(new HsProductMatch(products.get(rank), 1.0 / (rank + 1)));
+        }
+        return matches;
+    }
     
     /**
      * Get HS product by exact HS code
@@ -1,42 +1,75 @@
 package com.tariffsheriff.backend.tariff.service;
 
+import com.tariffsheriff.backend.tariff.index.HsLabelAnalyzer;
+import com.tariffsheriff.backend.tariff.index.HsLabelIndex;
+import com.tariffsheriff.backend.tariff.index.HsLabelIndexHolder;
+import com.tariffsheriff.backend.tariff.index.HsProductMatch;
 import com.tariffsheriff.backend.tariff.model.HsProduct;
 import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Description search over the heap-resident {@link HsLabelIndex}; the default
+ * {@code hs.search.mode}. See {@link PostgresHsProductService} for the
+ * database-resident alternative.
+ */
 @Service
+@ConditionalOnProperty(name = "hs.search.mode", havingValue = "memory", matchIfMissing = true)
 public class HsProductServiceImpl implements HsProductService {
     
     private static final Logger logger = LoggerFactory.getLogger(HsProductServiceImpl.class);
     private static final int DEFAULT_SEARCH_LIMIT = 10;
     
     private final HsProductRepository hsProductRepository;
+    private final HsLabelIndexHolder labelIndex;
     
-    public HsProductServiceImpl(HsProductRepository hsProductRepository) {
+    public HsProductServiceImpl(HsProductRepository hsProductRepository, HsLabelIndexHolder labelIndex) {
         this.hsProductRepository = hsProductRepository;
+        this.labelIndex = labelIndex;
     }
     
     @Override
     public List<HsProduct> searchByDescription(String description, int limit) {
+        return searchByDescription(description, null, limit);
+    }
+    
+    @Override
+    public List<HsProduct> searchByDescription(String description, String destinationIso3, int limit) {
         if (description == null || description.trim().isEmpty()) {
             logger.warn("Empty description provided for HS product search");
             return new ArrayList<>();
         }
         
         String cleanDescription = description.trim();
+        String destination = normalizeDestination(destinationIso3);
         logger.info("Searching for HS products with description: '{}' (limit: {})", cleanDescription, limit);
         
+        // One BM25 traversal of the in-memory label index; the LIKE scans below only serve until it has loaded
+        HsLabelIndex index = labelIndex.current();
+        if (!index.isEmpty()) {
+            List<HsProduct> ranked = index.search(cleanDescription, destination, limit);
+            if (ranked.isEmpty()) {
+                // Nothing matched as typed: retry with misspelled terms corrected against the label vocabulary
+                ranked = index.searchCorrected(cleanDescription, destination, limit);
+            }
+            logger.debug("Found {} ranked matches for description: '{}'", ranked.size(), cleanDescription);
+            return ranked;
+        }
+
         try {
             // First try exact phrase matching
-            List<HsProduct> exactMatches = hsProductRepository.findByHsLabelContainingIgnoreCaseWithLimit(
-                cleanDescription, limit);
+            List<HsProduct> exactMatches = findByLabelContaining(cleanDescription, destination, limit);
             
             if (!exactMatches.isEmpty()) {
                 logger.info("Found {} exact matches for description: '{}'", exactMatches.size(), cleanDescription);
@@ -44,7 +77,7 @@ public class HsProductServiceImpl implements HsProductService {
             }
             
             // If no exact matches, try fuzzy matching with keywords
-            List<HsProduct> fuzzyMatches = performFuzzySearch(cleanDescription, limit);
+            List<HsProduct> fuzzyMatches = performFuzzySearch(cleanDescription, destination, limit);
             
             logger.info("Found {} fuzzy matches for description: '{}'", fuzzyMatches.size(), cleanDescription);
             return fuzzyMatches;
@@ -60,6 +93,18 @@ public class HsProductServiceImpl implements HsProductService {
         return searchByDescription(description, DEFAULT_SEARCH_LIMIT);
     }
     
+    @Override
+    public List<HsProductMatch> rankByDescription(String description, String destinationIso3, int limit) {
+        HsLabelIndex index = labelIndex.current();
+        if (index.isEmpty() || description == null || description.isBlank()) {
+            return HsProductService.super.rankByDescription(description, destinationIso3, limit);
+        }
+        String cleanDescription = description.trim();
+        String destination = normalizeDestination(destinationIso3);
+        List<HsProductMatch> ranked = index.searchScored(cleanDescription, destination, limit);
+        return ranked.isEmpty() ? index.searchCorrectedScored(cleanDescription, destination, limit) : ranked;
+    }
+
     @Override
     public HsProduct getByHsCode(String hsCode) {
         if (hsCode == null || hsCode.trim().isEmpty()) {
@@ -77,7 +122,7 @@ public class HsProductServiceImpl implements HsProductService {
     /**
      * Perform fuzzy search by breaking description into keywords and matching
      */
-    private List<HsProduct> performFuzzySearch(String description, int limit) {
+    private List<HsProduct> performFuzzySearch(String description, String destinationIso3, int limit) {
         // Split description into keywords and clean them
         List<String> keywords = Arrays.stream(description.toLowerCase().split("\\s+"))
             .filter(word -> word.length() > 2) // Filter out very short words
@@ -92,16 +137,16 @@ public class HsProductServiceImpl implements HsProductService {
         
         logger.debug("Extracted keywords for fuzzy search: {}", keywords);
         
-        // Try different combinations of keywords
-        List<HsProduct> results = new ArrayList<>();
+        // Try different combinations of keywords, de-duplicated by id in the order found
+        Map<Long, HsProduct> results = new LinkedHashMap<>();
         
         // Try with all keywords first (most restrictive)
-        if (keywords.size() >= 3) {
-            results.addAll(hsProductRepository.findByMultipleKeywords(
-                keywords.get(0), keywords.get(1), keywords.get(2)));
-        } else if (keywords.size() == 2) {
-            results.addAll(hsProductRepository.findByMultipleKeywords(
-                keywords.get(0), keywords.get(1), null));
+        if (keywords.size() >= 2) {
+            String keyword3 = keywords.size() >= 3 ? keywords.get(2) : null;
+            addAll(results, destinationIso3 == null
+                ? hsProductRepository.findByMultipleKeywords(keywords.get(0), keywords.get(1), keyword3)
+                : hsProductRepository.findByDestinationAndMultipleKeywords(
+                    destinationIso3, keywords.get(0), keywords.get(1), keyword3));
         }
         
         // If we don't have enough results, try individual keywords
@@ -109,35 +154,44 @@ public class HsProductServiceImpl implements HsProductService {
             for (String keyword : keywords) {
                 if (results.size() >= limit) break;
                 
-                List<HsProduct> keywordResults = hsProductRepository.findByHsLabelContainingIgnoreCaseWithLimit(
-                    keyword, limit - results.size());
+                List<HsProduct> keywordResults = findByLabelContaining(keyword, destinationIso3,
+                    limit - results.size());
                 
                 // Add results that aren't already in the list
                 for (HsProduct product : keywordResults) {
                     if (results.size() >= limit) break;
-                    if (results.stream().noneMatch(p -> p.getId().equals(product.getId()))) {
-                        results.add(product);
-                    }
+                    results.putIfAbsent(product.getId(), product);
                 }
             }
         }
         
         // Limit final results
-        return results.stream().limit(limit).collect(Collectors.toList());
+        return results.values().stream().limit(limit).collect(Collectors.toList());
+    }
+    
+    private List<HsProduct> findByLabelContaining(String text, String destinationIso3, int limit) {
+        return destinationIso3 == null
+            ? hsProductRepository.findByHsLabelContainingIgnoreCaseWithLimit(text, limit)
+            : hsProductRepository.findByDestinationAndHsLabelContainingIgnoreCaseWithLimit(
+                destinationIso3, text, limit);
+    }
+    
+    private static String normalizeDestination(String destinationIso3) {
+        return destinationIso3 == null || destinationIso3.isBlank()
+            ? null
+            : destinationIso3.trim().toUpperCase(Locale.ROOT);
+    }
+    
+    private static void addAll(Map<Long, HsProduct> results, List<HsProduct> products) {
+        for (HsProduct product : products) {
+            results.putIfAbsent(product.getId(), product);
+        }
     }
     
     /**
      * Check if a word is a common stop word that should be filtered out
      */
     private boolean isStopWord(String word) {
-        // Common stop words that don't help with product identification
-        String[] stopWords = {"the", "and", "or", "but", "in", "on", "at", "to", "for", "of", "with", "by", "from", "up", "about", "into", "through", "during", "before", "after", "above", "below", "between", "among", "within", "without", "under", "over"};
-        
-        for (String stopWord : stopWords) {
-            if (stopWord.equals(word)) {
-                return true;
-            }
-        }
-        return false;
+        return HsLabelAnalyzer.isStopWord(word);
     }
 }
\ No newline at end of file
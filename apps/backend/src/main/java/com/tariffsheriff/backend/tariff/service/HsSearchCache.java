@@ -0,0 +1,297 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.dto.HsSuggestionDto;
+import com.tariffsheriff.backend.tariff.index.HsLabelAnalyzer;
+import com.tariffsheriff.backend.tariff.index.SnapshotReloadedEvent;
+import com.tariffsheriff.backend.tariff.index.TariffDataChangedEvent;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Results of HS searches, keyed by the normalized query, destination and limit,
+ * so "Battery", " battery " and "the battery" share one description search
+ * entry across users and the chatbot.
+ *
+ * The cache is bounded by an estimate of the bytes its entries hold and evicts
+ * the least recently used entry first. Concurrent misses on the same key wait
+ * for the first caller's result instead of repeating the search. Everything is
+ * dropped when HS products change and again when an index built from them is
+ * reloaded. A result computed across an invalidation is returned but not kept.
+ *
+ * Hits, misses and coalesced misses are counted in
+ * {@code hs.search.cache.requests}, next to gauges for the hit ratio, entry
+ * count and estimated size.
+ */
+@Component
+public class HsSearchCache {
+
+    /**
+     * Cache key. {@code query} is already normalized and
+     * {@code destinationIso3} upper-cased or {@code null}.
+     */
+    public record Key(Kind kind, String query, String destinationIso3, int limit) {
+    }
+
+    public enum Kind {
+        /** {@link HsProductService#searchByDescription} results */
+        DESCRIPTION,
+        /** HS product search box suggestions */
+        SUGGESTION
+    }
+
+    static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+
+    // Rough per-object costs (headers, references, String internals) for the size estimate
+    private static final long ENTRY_OVERHEAD = 160;
+    private static final long PRODUCT_OVERHEAD = 120;
+    private static final long SUGGESTION_OVERHEAD = 56;
+
+    private final long maxBytes;
+
+    // LRU order; guarded by this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weight;
+    private long generation;
+
+    private final Map<Key, CompletableFuture<List<?>>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public HsSearchCache(MeterRegistry meterRegistry,
+            @Value("${hs.search.cache.max-bytes:" + DEFAULT_MAX_BYTES + "}") long maxBytes) {
+        this.maxBytes = maxBytes;
+        registerCounter(meterRegistry, "hit", hits);
+        registerCounter(meterRegistry, "miss", misses);
+        registerCounter(meterRegistry, "coalesced", coalesced);
+        FunctionCounter.builder("hs.search.cache.evictions", evictions, LongAdder::doubleValue)
+                .description("HS search cache entries evicted to stay within the size bound")
+                .register(meterRegistry);
+        Gauge.builder("hs.search.cache.hit.ratio", this, HsSearchCache::hitRate)
+                .description("Share of HS search cache lookups served without a new search")
+                .register(meterRegistry);
+        Gauge.builder("hs.search.cache.entries", this, HsSearchCache::size)
+                .description("HS search cache entries")
+                .register(meterRegistry);
+        Gauge.builder("hs.search.cache.size", this, HsSearchCache::weight)
+                .description("Estimated size of the HS search cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached result for {@code key}, or {@code loader}'s result, which is
+     * then cached. {@code itemWeight} estimates the bytes one result item holds.
+     * A {@code null} key bypasses the cache.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(Key key, ToLongFunction<? super T> itemWeight, Supplier<List<T>> loader) {
+        if (key == null || maxBytes <= 0) {
+            return loader.get();
+        }
+        List<T> cached = (List<T>) lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<List<?>> mine = new CompletableFuture<>();
+        CompletableFuture<List<?>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return (List<T>) await(running);
+        }
+        try {
+            // Another caller may have stored it between the lookup and claiming the key
+            cached = (List<T>) lookup(key);
+            if (cached != null) {
+                hits.increment();
+                mine.complete(cached);
+                return cached;
+            }
+            misses.increment();
+            long startedAt = generation();
+            List<T> values = List.copyOf(loader.get());
+            store(key, values, itemWeight, startedAt);
+            mine.complete(values);
+            return values;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Drops every entry; results still being computed will not be stored.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        entries.clear();
+        weight = 0;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTariffDataChanged(TariffDataChangedEvent event) {
+        if (event.entityType() == HsProduct.class) {
+            invalidate();
+        }
+    }
+
+    @EventListener
+    public void onSnapshotReloaded(SnapshotReloadedEvent event) {
+        if (event.dependsOn(HsProduct.class)) {
+            invalidate();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Hits (coalesced misses included) over all lookups, 0 before the first.
+     */
+    public double hitRate() {
+        long served = hits.sum() + coalesced.sum();
+        long total = served + misses.sum();
+        return total == 0 ? 0 : (double) served / total;
+    }
+
+    /**
+     * Key for description search: the query's words without stop words,
+     * punctuation or case. {@code null} (no caching) when no words are left.
+     */
+    public static Key descriptionKey(String description, String destinationIso3, int limit) {
+        List<String> words = HsLabelAnalyzer.tokens(description);
+        if (words.isEmpty()) {
+            return null;
+        }
+        return new Key(Kind.DESCRIPTION, String.join(" ", words), normalizeDestination(destinationIso3), limit);
+    }
+
+    /**
+     * Key for the search box. Its query is {@link #normalizeSuggestionQuery}'s
+     * form, which is also the query the suggestions must be computed from, so
+     * two queries only share an entry when they would search the same thing.
+     */
+    public static Key suggestionKey(String query, String destinationIso3, int limit) {
+        return new Key(Kind.SUGGESTION, normalizeSuggestionQuery(query), normalizeDestination(destinationIso3), limit);
+    }
+
+    /**
+     * Single spaces and no stop words before the last word, which may still be
+     * a prefix of something longer. Case and punctuation stay, since
+     * "0101.21" and "0101 21" complete differently.
+     */
+    private static String normalizeSuggestionQuery(String query) {
+        String[] words = query == null ? new String[0] : query.trim().split("\\s+");
+        List<String> kept = new ArrayList<>(words.length);
+        for (int i = 0; i < words.length; i++) {
+            if (i == words.length - 1 || !HsLabelAnalyzer.isStopWord(words[i].toLowerCase(Locale.ROOT))) {
+                kept.add(words[i]);
+            }
+        }
+        return String.join(" ", kept);
+    }
+
+    public static long productWeight(HsProduct product) {
+        return PRODUCT_OVERHEAD + 2L * (length(product.getHsCode()) + length(product.getHsLabel())
+                + length(product.getHsVersion()) + length(product.getDestinationIso3()));
+    }
+
+    public static long suggestionWeight(HsSuggestionDto suggestion) {
+        return SUGGESTION_OVERHEAD + 2L * (length(suggestion.hsCode()) + length(suggestion.hsLabel()));
+    }
+
+    private synchronized List<?> lookup(Key key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.values();
+    }
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+    private synchronized <T> void store(Key key, List<T> values, ToLongFunction<? super T> itemWeight,
+            long startedAt) {
+        if (startedAt != generation) {
+            return;
+        }
+        long size = ENTRY_OVERHEAD + 2L * length(key.query());
+        for (T value : values) {
+            size += itemWeight.applyAsLong(value);
+        }
+        if (size > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(values, size));
+        weight += size - (previous == null ? 0 : previous.weight());
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > maxBytes && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static List<?> await(CompletableFuture<List<?>> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String normalizeDestination(String destinationIso3) {
+        return destinationIso3 == null || destinationIso3.isBlank()
+                ? null
+                : destinationIso3.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static void registerCounter(MeterRegistry meterRegistry, String result, LongAdder count) {
+        FunctionCounter.builder("hs.search.cache.requests", count, LongAdder::doubleValue)
+                .description("HS search cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Entry(List<?> values, long weight) {
+    }
+}
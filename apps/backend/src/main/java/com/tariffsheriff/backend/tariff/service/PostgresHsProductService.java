@@ -0,0 +1,107 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.index.HsLabelAnalyzer;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Description search served by PostgreSQL instead of a heap-resident index,
+ * for deployments that set {@code hs.search.mode=postgres}.
+ *
+ * A query becomes an OR of its words over the stored {@code hs_label_tsv}
+ * column, ranked with {@code ts_rank}, so it matches the same documents as the
+ * in-memory BM25 index. When nothing matches (usually a misspelling) the
+ * trigram word-similarity query gets one more try. Both are GIN index scans
+ * from V6; searches within one destination use the composite destination and
+ * {@code tsvector} index from V7.
+ *
+ * In this mode the catalog-wide snapshots (code trie, typeahead, hierarchy and
+ * concordance) are not loaded either: prefixes and suggestions come from the
+ * repository queries, and the tree and resolve endpoints read one
+ * destination's products per call.
+ */
+@Service
+@ConditionalOnProperty(name = "hs.search.mode", havingValue = "postgres")
+public class PostgresHsProductService implements HsProductService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresHsProductService.class);
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+
+    private final HsProductRepository hsProductRepository;
+
+    public PostgresHsProductService(HsProductRepository hsProductRepository) {
+        this.hsProductRepository = hsProductRepository;
+    }
+
+    @Override
+    public List<HsProduct> searchByDescription(String description, int limit) {
+        return searchByDescription(description, null, limit);
+    }
+
+    @Override
+    public List<HsProduct> searchByDescription(String description, String destinationIso3, int limit) {
+        if (description == null || description.trim().isEmpty()) {
+            logger.warn("Empty description provided for HS product search");
+            return new ArrayList<>();
+        }
+
+        String tsquery = toTsQuery(description);
+        if (tsquery.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        String destination = destinationIso3 == null || destinationIso3.isBlank()
+                ? null
+                : destinationIso3.trim().toUpperCase(Locale.ROOT);
+        try {
+            List<HsProduct> ranked = destination == null
+                    ? hsProductRepository.searchByLabelFullText(tsquery, limit)
+                    : hsProductRepository.searchByDestinationAndLabelFullText(destination, tsquery, limit);
+            if (!ranked.isEmpty()) {
+                return ranked;
+            }
+            return destination == null
+                    ? hsProductRepository.searchByLabelSimilarity(description.trim(), limit)
+                    : hsProductRepository.searchByDestinationAndLabelSimilarity(destination, description.trim(), limit);
+        } catch (Exception e) {
+            logger.error("Error searching for HS products with description: '{}'", description.trim(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<HsProduct> searchByDescription(String description) {
+        return searchByDescription(description, DEFAULT_SEARCH_LIMIT);
+    }
+
+    @Override
+    public HsProduct getByHsCode(String hsCode) {
+        if (hsCode == null || hsCode.trim().isEmpty()) {
+            return null;
+        }
+
+        try {
+            return hsProductRepository.findByHsCode(hsCode.trim()).orElse(null);
+        } catch (Exception e) {
+            logger.error("Error retrieving HS product by code: '{}'", hsCode, e);
+            return null;
+        }
+    }
+
+    /**
+     * {@code "Lithium-ion batteries"} becomes {@code "lithium | ion | batteries"};
+     * PostgreSQL does the stemming. Empty when only stop words are left.
+     */
+    static String toTsQuery(String description) {
+        return String.join(" | ", new LinkedHashSet<>(HsLabelAnalyzer.tokens(description)));
+    }
+}
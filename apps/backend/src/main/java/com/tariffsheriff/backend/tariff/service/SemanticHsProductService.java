@@ -0,0 +1,105 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.index.HsProductMatch;
+import com.tariffsheriff.backend.tariff.index.HsSemanticIndex;
+import com.tariffsheriff.backend.tariff.index.HsSemanticIndexHolder;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Description search by meaning rather than shared words, for deployments
+ * that set {@code hs.search.mode=semantic}: "phone charger" finds "static
+ * converters". Labels and queries are embedded in-process (no external model
+ * or API) and searched through the {@link HsSemanticIndex}'s HNSW graphs.
+ * Until the index has loaded, a plain label LIKE answers instead.
+ */
+@Service
+@ConditionalOnProperty(name = "hs.search.mode", havingValue = "semantic")
+public class SemanticHsProductService implements HsProductService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticHsProductService.class);
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+
+    private final HsProductRepository hsProductRepository;
+    private final HsSemanticIndexHolder semanticIndex;
+
+    public SemanticHsProductService(HsProductRepository hsProductRepository, HsSemanticIndexHolder semanticIndex) {
+        this.hsProductRepository = hsProductRepository;
+        this.semanticIndex = semanticIndex;
+    }
+
+    @Override
+    public List<HsProduct> searchByDescription(String description, int limit) {
+        return searchByDescription(description, null, limit);
+    }
+
+    @Override
+    public List<HsProduct> searchByDescription(String description, String destinationIso3, int limit) {
+        if (description == null || description.trim().isEmpty()) {
+            logger.warn("Empty description provided for HS product search");
+            return new ArrayList<>();
+        }
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        String cleanDescription = description.trim();
+        String destination = normalizeDestination(destinationIso3);
+        HsSemanticIndex index = semanticIndex.current();
+        if (!index.isEmpty()) {
+            return index.search(cleanDescription, destination, limit);
+        }
+
+        try {
+            return destination == null
+                    ? hsProductRepository.findByHsLabelContainingIgnoreCaseWithLimit(cleanDescription, limit)
+                    : hsProductRepository.findByDestinationAndHsLabelContainingIgnoreCaseWithLimit(
+                            destination, cleanDescription, limit);
+        } catch (Exception e) {
+            logger.error("Error searching for HS products with description: '{}'", cleanDescription, e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<HsProductMatch> rankByDescription(String description, String destinationIso3, int limit) {
+        HsSemanticIndex index = semanticIndex.current();
+        if (index.isEmpty() || description == null || description.isBlank()) {
+            return HsProductService.super.rankByDescription(description, destinationIso3, limit);
+        }
+        return index.searchScored(description.trim(), normalizeDestination(destinationIso3), limit);
+    }
+
+    @Override
+    public List<HsProduct> searchByDescription(String description) {
+        return searchByDescription(description, DEFAULT_SEARCH_LIMIT);
+    }
+
+    @Override
+    public HsProduct getByHsCode(String hsCode) {
+        if (hsCode == null || hsCode.trim().isEmpty()) {
+            return null;
+        }
+
+        try {
+            return hsProductRepository.findByHsCode(hsCode.trim()).orElse(null);
+        } catch (Exception e) {
+            logger.error("Error retrieving HS product by code: '{}'", hsCode, e);
+            return null;
+        }
+    }
+
+    private static String normalizeDestination(String destinationIso3) {
+        return destinationIso3 == null || destinationIso3.isBlank()
+                ? null
+                : destinationIso3.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,440 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationBatchResultDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Prices a stream of {@link TariffRateRequestDto}s, given as a JSON array or
+ * as one object per line (NDJSON), writing one NDJSON result per item in input
+ * order.
+ *
+ * Items are read {@code tariff.calculation.batch.chunk-size} at a time and each
+ * chunk is validated and calculated with the fixed-point
+ * {@link TariffCalculationKernel} in parallel on
+ * {@code tariff.calculation.batch.threads} workers (one per core by default)
+ * shared by all batches, then written and flushed before the next chunk is
+ * read. Memory therefore stays bounded by one chunk however long the input is,
+ * and results reach the client while the rest of the input is still arriving.
+ *
+ * An item that fails validation or cannot be read gets an error result and the
+ * batch carries on. In NDJSON every line stands alone; a syntax error inside a
+ * JSON array ends the batch after an error for the item being read.
+ *
+ * A batch holds at most {@code tariff.calculation.batch.max-items} items and
+ * an item at most {@code tariff.calculation.batch.max-item-chars} characters.
+ * The response is already streaming when either is exceeded, so the limit is
+ * reported as an error result: an NDJSON line that is too long is skipped
+ * without being buffered, while an oversized array item or one item too many
+ * ends the batch.
+ */
+@Service
+public class TariffCalculationBatchService {
+
+    static final int DEFAULT_CHUNK_SIZE = 512;
+    static final long DEFAULT_MAX_ITEMS = 100_000;
+    static final int DEFAULT_MAX_ITEM_CHARS = 16 * 1024;
+
+    private final ObjectMapper mapper;
+    private final Validator validator;
+    private final int threads;
+    private final int chunkSize;
+    private final long maxItems;
+    private final int maxItemChars;
+    private final ExecutorService workers;
+
+    public TariffCalculationBatchService(ObjectMapper mapper, Validator validator,
+            @Value("${tariff.calculation.batch.threads:0}") int threads,
+            @Value("${tariff.calculation.batch.chunk-size:" + DEFAULT_CHUNK_SIZE + "}") int chunkSize,
+            @Value("${tariff.calculation.batch.max-items:" + DEFAULT_MAX_ITEMS + "}") long maxItems,
+            @Value("${tariff.calculation.batch.max-item-chars:" + DEFAULT_MAX_ITEM_CHARS + "}") int maxItemChars) {
+        this.mapper = mapper;
+        this.validator = validator;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxItems = maxItems > 0 ? maxItems : DEFAULT_MAX_ITEMS;
+        this.maxItemChars = maxItemChars > 0 ? maxItemChars : DEFAULT_MAX_ITEM_CHARS;
+        AtomicInteger next = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.threads, task -> {
+            Thread thread = new Thread(task, "tariff-calculate-" + next.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads requests from {@code in} until it ends and writes their results to
+     * {@code out}, flushing after every chunk.
+     */
+    public void calculate(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (startsWithArray(reader)) {
+            calculateArray(reader, out);
+        } else {
+            calculateLines(reader, out);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void calculateLines(BufferedReader reader, OutputStream out) throws IOException {
+        Chunk chunk = new Chunk(chunkSize);
+        LineReader lines = new LineReader(reader, maxItemChars);
+        long index = 0;
+        while (lines.next()) {
+            if (lines.isBlank()) {
+                continue;
+            }
+            if (index == maxItems) {
+                chunk.add(index, null, tooManyItems());
+                break;
+            }
+            if (lines.truncated) {
+                chunk.add(index, null, "Line longer than " + maxItemChars + " characters");
+            } else {
+                try {
+                    chunk.add(index, mapper.readTree(lines.line.toString()), null);
+                } catch (JsonProcessingException e) {
+                    chunk.add(index, null, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+            index++;
+            if (chunk.isFull()) {
+                flush(chunk, out);
+            }
+        }
+        flush(chunk, out);
+    }
+
+    private void calculateArray(BufferedReader reader, OutputStream out) throws IOException {
+        Chunk chunk = new Chunk(chunkSize);
+        ItemLimitReader limited = new ItemLimitReader(reader, maxItemChars);
+        long index = 0;
+        try (JsonParser parser = mapper.getFactory().createParser(limited)) {
+            parser.nextToken();
+            while (true) {
+                JsonNode node;
+                try {
+                    limited.startItem();
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.END_ARRAY) {
+                        break;
+                    }
+                    if (token == null) {
+                        throw new JsonParseException(parser, "Unexpected end of input: the JSON array is not closed");
+                    }
+                    if (index == maxItems) {
+                        chunk.add(index, null, tooManyItems());
+                        break;
+                    }
+                    node = mapper.readTree(parser);
+                } catch (JsonProcessingException e) {
+                    // The rest of the array cannot be located, so the item being read is the last one
+                    chunk.add(index, null, "Invalid JSON: " + e.getOriginalMessage());
+                    break;
+                } catch (ItemTooLongException e) {
+                    chunk.add(index, null, e.getMessage());
+                    break;
+                }
+                chunk.add(index++, node, null);
+                if (chunk.isFull()) {
+                    flush(chunk, out);
+                }
+            }
+        }
+        flush(chunk, out);
+    }
+
+    private String tooManyItems() {
+        return "A batch accepts at most " + maxItems + " items";
+    }
+
+    /**
+     * Calculates the chunk on the worker pool, one contiguous slice per
+     * worker, and writes its results.
+     */
+    private void flush(Chunk chunk, OutputStream out) throws IOException {
+        int size = chunk.size();
+        if (size == 0) {
+            return;
+        }
+        TariffCalculationBatchResultDto[] results = new TariffCalculationBatchResultDto[size];
+        int slices = Math.min(threads, size);
+        List<Callable<Void>> tasks = new ArrayList<>(slices);
+        for (int s = 0; s < slices; s++) {
+            int from = s * size / slices;
+            int to = (s + 1) * size / slices;
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    results[i] = calculate(chunk.indexes[i], chunk.items[i], chunk.errors[i]);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> done : workers.invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch calculation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch calculation worker failed", e.getCause());
+        }
+
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(size * 160);
+        for (TariffCalculationBatchResultDto result : results) {
+            mapper.writeValue(lines, result);
+            lines.write('\n');
+        }
+        lines.writeTo(out);
+        out.flush();
+        chunk.clear();
+    }
+
+    private TariffCalculationBatchResultDto calculate(long index, JsonNode item, String readError) {
+        if (readError != null) {
+            return TariffCalculationBatchResultDto.failure(index, readError);
+        }
+        if (item == null || !item.isObject()) {
+            return TariffCalculationBatchResultDto.failure(index, "Expected a JSON object");
+        }
+        TariffRateRequestDto request;
+        try {
+            request = mapper.treeToValue(item, TariffRateRequestDto.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            String message = e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+            return TariffCalculationBatchResultDto.failure(index, "Invalid request: " + message);
+        }
+        Set<ConstraintViolation<TariffRateRequestDto>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            Set<String> messages = new TreeSet<>();
+            for (ConstraintViolation<TariffRateRequestDto> violation : violations) {
+                messages.add(violation.getPropertyPath() + ": " + violation.getMessage());
+            }
+            return TariffCalculationBatchResultDto.failure(index, String.join("; ", messages));
+        }
+        try {
+            return TariffCalculationBatchResultDto.success(index, TariffCalculationKernel.calculate(request));
+        } catch (ArithmeticException | IllegalArgumentException e) {
+            return TariffCalculationBatchResultDto.failure(index, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the first non-blank character is {@code [}, leaving the reader
+     * positioned on it.
+     */
+    private static boolean startsWithArray(BufferedReader reader) throws IOException {
+        while (true) {
+            reader.mark(1);
+            int c = reader.read();
+            if (c < 0) {
+                return false;
+            }
+            if (!Character.isWhitespace(c) && c != '\uFEFF') {
+                reader.reset();
+                return c == '[';
+            }
+        }
+    }
+
+    /**
+     * Reads NDJSON lines keeping at most {@code maxChars} of each, so a line
+     * without an end is skipped rather than buffered whole.
+     */
+    private static final class LineReader {
+        final Reader in;
+        final int maxChars;
+        final char[] buffer = new char[8192];
+        final StringBuilder line = new StringBuilder();
+        int position;
+        int limit;
+        boolean truncated;
+
+        LineReader(Reader in, int maxChars) {
+            this.in = in;
+            this.maxChars = maxChars;
+        }
+
+        /**
+         * Reads the next line without its terminator; false at the end of
+         * the input.
+         */
+        boolean next() throws IOException {
+            line.setLength(0);
+            truncated = false;
+            boolean any = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return any;
+                    }
+                }
+                any = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    position++;
+                    if (!truncated && line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                        line.setLength(line.length() - 1);
+                    }
+                    return true;
+                }
+            }
+        }
+
+        boolean isBlank() {
+            if (truncated) {
+                return false;
+            }
+            for (int i = 0; i < line.length(); i++) {
+                if (!Character.isWhitespace(line.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void append(int from, int to) {
+            if (truncated) {
+                return;
+            }
+            // One extra character allowed for the \r of a \r\n line end
+            if (line.length() + (to - from) > maxChars + 1) {
+                truncated = true;
+                line.setLength(0);
+            } else {
+                line.append(buffer, from, to - from);
+            }
+        }
+    }
+
+    /**
+     * Fails once an item has needed more than {@code maxChars} characters
+     * plus {@value #READ_AHEAD} of slack since {@link #startItem}. The parser
+     * reads ahead a buffer at a time, which the slack covers, so an item of up
+     * to {@code maxChars} always gets through.
+     */
+    private static final class ItemLimitReader extends FilterReader {
+        static final int READ_AHEAD = 8192;
+
+        final int maxChars;
+        long read;
+
+        ItemLimitReader(Reader in, int maxChars) {
+            super(in);
+            this.maxChars = maxChars;
+        }
+
+        void startItem() {
+            read = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            count(c < 0 ? 0 : 1);
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            count(Math.max(0, n));
+            return n;
+        }
+
+        private void count(int n) throws ItemTooLongException {
+            read += n;
+            if (read > (long) maxChars + READ_AHEAD) {
+                throw new ItemTooLongException("Item longer than " + maxChars + " characters");
+            }
+        }
+    }
+
+    private static final class ItemTooLongException extends IOException {
+        ItemTooLongException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The items of one chunk, reused from chunk to chunk.
+     */
+    private static final class Chunk {
+        final long[] indexes;
+        final JsonNode[] items;
+        final String[] errors;
+        int size;
+
+        Chunk(int capacity) {
+            indexes = new long[capacity];
+            items = new JsonNode[capacity];
+            errors = new String[capacity];
+        }
+
+        void add(long index, JsonNode item, String error) {
+            indexes[size] = index;
+            items[size] = item;
+            errors[size] = error;
+            size++;
+        }
+
+        boolean isFull() {
+            return size == items.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            Arrays.fill(items, 0, size, null);
+            Arrays.fill(errors, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+
+/**
+ * The duty calculation behind {@code POST /api/tariff-rate/calculate}, in two
+ * forms that give identical results: {@link #calculateDecimal} with
+ * {@link BigDecimal}s, and a fixed-point kernel on {@code long} micro-units
+ * (millionths, the scale the RVC is rounded to) for the paths that calculate
+ * in bulk.
+ *
+ * The kernel's {@code long} methods allocate nothing. They return
+ * {@link #OVERFLOW} for anything they cannot represent exactly (more than six
+ * decimals, more than twelve integer digits, a negative cost sum, a zero FOB, a
+ * product beyond 64 bits), and {@link #calculate} then answers with the
+ * {@code BigDecimal} path instead, so callers never see the difference.
+ */
+public final class TariffCalculationKernel {
+
+    /** Decimal places of a micro-unit, and of the rounded RVC. */
+    public static final int SCALE = 6;
+    public static final long ONE = 1_000_000L;
+
+    /** Returned by the {@code long} methods when the result is not exactly representable. */
+    public static final long OVERFLOW = Long.MIN_VALUE;
+
+    private static final int MAX_INTEGER_DIGITS = 12;
+    private static final long PERCENT = 100;
+    private static final long MAX_RVC_WHOLE = (Long.MAX_VALUE / PERCENT - ONE) / ONE;
+    private static final long[] POW10 = new long[19];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private TariffCalculationKernel() {
+    }
+
+    /**
+     * Calculates with the fixed-point kernel, falling back to
+     * {@link #calculateDecimal} when an input or intermediate does not fit.
+     */
+    public static TariffCalculationResponse calculate(TariffRateRequestDto rq) {
+        TariffCalculationResponse fixed = calculateFixed(rq);
+        return fixed != null ? fixed : calculateDecimal(rq);
+    }
+
+    /**
+     * The reference calculation: RVC is the cost build-up over FOB rounded
+     * {@code HALF_UP} to six places, as a percentage; the preferential rate
+     * applies when given and the RVC meets the threshold.
+     */
+    public static TariffCalculationResponse calculateDecimal(TariffRateRequestDto rq) {
+        BigDecimal mfnRate = rq.getMfnRate();
+        BigDecimal prefRate = rq.getPrefRate();
+        BigDecimal threshold = rq.getRvcThreshold();
+
+        BigDecimal rvc = rq.getMaterialCost()
+                .add(rq.getLabourCost())
+                .add(rq.getOverheadCost())
+                .add(rq.getProfit())
+                .add(rq.getOtherCosts())
+                .divide(rq.getFob(), SCALE, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(PERCENT));
+
+        boolean canApplyPref = prefRate != null && threshold != null && rvc.compareTo(threshold) >= 0;
+        BigDecimal appliedRate = (canApplyPref ? prefRate : mfnRate);
+        String basis = (canApplyPref ? "PREF" : "MFN");
+
+        BigDecimal totalDuty = rq.getTotalValue().multiply(appliedRate);
+
+        return new TariffCalculationResponse(basis, appliedRate, totalDuty, rvc, threshold);
+    }
+
+    /**
+     * The fixed-point calculation, or {@code null} when it cannot be done
+     * exactly in {@code long}s.
+     */
+    static TariffCalculationResponse calculateFixed(TariffRateRequestDto rq) {
+        BigDecimal mfnRate = rq.getMfnRate();
+        BigDecimal prefRate = rq.getPrefRate();
+        BigDecimal threshold = rq.getRvcThreshold();
+        BigDecimal totalValue = rq.getTotalValue();
+        if (mfnRate == null || totalValue == null) {
+            return null;
+        }
+
+        long costs = sum(rq.getMaterialCost(), rq.getLabourCost(), rq.getOverheadCost(), rq.getProfit(),
+                rq.getOtherCosts());
+        long fob = rq.getFob() == null ? OVERFLOW : toMicros(rq.getFob());
+        if (costs == OVERFLOW || fob == OVERFLOW) {
+            return null;
+        }
+        long rvc = rvcMicros(costs, fob);
+        if (rvc == OVERFLOW) {
+            return null;
+        }
+
+        boolean canApplyPref = false;
+        if (prefRate != null && threshold != null) {
+            long thresholdMicros = toMicros(threshold);
+            if (thresholdMicros == OVERFLOW) {
+                return null;
+            }
+            canApplyPref = rvc >= thresholdMicros;
+        }
+        BigDecimal appliedRate = canApplyPref ? prefRate : mfnRate;
+
+        // The product keeps the scales of its factors, exactly as BigDecimal.multiply does
+        long value = unscaled(totalValue);
+        long rate = unscaled(appliedRate);
+        long duty = value == OVERFLOW || rate == OVERFLOW ? OVERFLOW : multiply(value, rate);
+        if (duty == OVERFLOW) {
+            return null;
+        }
+
+        return new TariffCalculationResponse(canApplyPref ? "PREF" : "MFN", appliedRate,
+                BigDecimal.valueOf(duty, totalValue.scale() + appliedRate.scale()), BigDecimal.valueOf(rvc, SCALE),
+                threshold);
+    }
+
+    /**
+     * {@code value} in micro-units, or {@link #OVERFLOW} when it has more
+     * than six decimals or twelve integer digits.
+     */
+    public static long toMicros(BigDecimal value) {
+        int scale = value.scale();
+        if (scale > SCALE || value.precision() - scale > MAX_INTEGER_DIGITS) {
+            return OVERFLOW;
+        }
+        if (scale == 0) {
+            // Whole amounts, the common case, convert without allocating
+            return value.longValue() * ONE;
+        }
+        return value.movePointRight(SCALE).longValue();
+    }
+
+    /**
+     * The RVC percentage in micro-units for a cost build-up and FOB value in
+     * micro-units: {@code costs / fob} rounded {@code HALF_UP} to six places,
+     * times 100. {@link #OVERFLOW} for negative costs, a FOB that is not
+     * positive, or a result beyond 64 bits.
+     */
+    public static long rvcMicros(long costs, long fob) {
+        if (costs < 0 || fob <= 0) {
+            return OVERFLOW;
+        }
+        long whole = costs / fob;
+        long remainder = costs % fob;
+        long fraction;
+        if (remainder <= Long.MAX_VALUE / ONE) {
+            long scaled = remainder * ONE;
+            fraction = scaled / fob;
+            remainder = scaled % fob;
+        } else {
+            // Huge FOB: long division one digit at a time, with 10 * remainder
+            // accumulated modulo fob so that nothing can overflow
+            fraction = 0;
+            for (int digit = 0; digit < SCALE; digit++) {
+                long next = 0;
+                int quotient = 0;
+                for (int i = 0; i < 10; i++) {
+                    if (next >= fob - remainder) {
+                        next -= fob - remainder;
+                        quotient++;
+                    } else {
+                        next += remainder;
+                    }
+                }
+                fraction = fraction * 10 + quotient;
+                remainder = next;
+            }
+        }
+        if (remainder >= fob - remainder) {
+            fraction++;
+        }
+        if (whole > MAX_RVC_WHOLE) {
+            return OVERFLOW;
+        }
+        return (whole * ONE + fraction) * PERCENT;
+    }
+
+    /**
+     * {@code a * b}, or {@link #OVERFLOW} when the product needs more than 64
+     * bits.
+     */
+    public static long multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return low;
+        }
+        return OVERFLOW;
+    }
+
+    private static long sum(BigDecimal... costs) {
+        long total = 0;
+        for (BigDecimal cost : costs) {
+            long micros = cost == null ? OVERFLOW : toMicros(cost);
+            if (micros == OVERFLOW) {
+                return OVERFLOW;
+            }
+            // At most twelve integer digits each, so five of them cannot overflow
+            total += micros;
+        }
+        return total;
+    }
+
+    /**
+     * The unscaled value of {@code value} at its own scale, derived from its
+     * micro-units.
+     */
+    private static long unscaled(BigDecimal value) {
+        long micros = toMicros(value);
+        int shift = SCALE - value.scale();
+        if (micros == OVERFLOW || shift >= POW10.length) {
+            return OVERFLOW;
+        }
+        return micros / POW10[shift];
+    }
+}
@@ -0,0 +1,391 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationBreakEvenDto;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepAxisDto;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepRangeDto;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Evaluates a calculation over a grid of one or two swept inputs and finds
+ * where the preferential rate starts to apply.
+ *
+ * Grid points are split across a fork-join pool of
+ * {@code tariff.calculation.sweep.parallelism} workers (one per core by
+ * default) and calculated with the fixed-point {@link TariffCalculationKernel}
+ * on {@code long} micro-units, so a million-point grid is a few milliseconds of
+ * arithmetic; points the kernel cannot represent fall back to the
+ * {@code BigDecimal} calculation.
+ *
+ * Break-even values are solved from the RVC rule rather than searched for on
+ * the grid. PREF applies when {@code round6(costs / fob) * 100 >= threshold},
+ * which with {@code HALF_UP} rounding is {@code costs / fob >= m} for
+ * {@code m = ceil6(threshold / 100) - 0.0000005}; a cost input therefore
+ * qualifies from {@code fob * m - otherCosts} upwards and FOB up to
+ * {@code costs / m}.
+ */
+@Service
+public class TariffCalculationSweepService {
+
+    static final int MAX_POINTS = 1 << 20;
+
+    private static final int LEAF_POINTS = 8192;
+    private static final BigDecimal HALF_MICRO = new BigDecimal("0.0000005");
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final double MICROS_SQUARED = 1e12;
+
+    /**
+     * The inputs that can be swept, in the order of the kernel's field array.
+     */
+    enum Variable {
+        MATERIAL_COST("materialCost"),
+        LABOUR_COST("labourCost"),
+        OVERHEAD_COST("overheadCost"),
+        PROFIT("profit"),
+        OTHER_COSTS("otherCosts"),
+        FOB("fob"),
+        TOTAL_VALUE("totalValue"),
+        MFN_RATE("mfnRate"),
+        PREF_RATE("prefRate"),
+        RVC_THRESHOLD("rvcThreshold");
+
+        final String field;
+
+        Variable(String field) {
+            this.field = field;
+        }
+
+        boolean isCost() {
+            return ordinal() <= OTHER_COSTS.ordinal();
+        }
+
+        static Variable of(String name) {
+            String wanted = name == null ? "" : name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+            for (Variable variable : values()) {
+                if (variable.field.toLowerCase(Locale.ROOT).equals(wanted)) {
+                    return variable;
+                }
+            }
+            if (wanted.equals("rvc")) {
+                return RVC_THRESHOLD;
+            }
+            throw new IllegalArgumentException("Cannot sweep '" + name + "'; expected one of "
+                    + Arrays.stream(values()).map(variable -> variable.field).toList());
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    public TariffCalculationSweepService(@Value("${tariff.calculation.sweep.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public TariffCalculationSweepResponse sweep(TariffCalculationSweepRequestDto request) {
+        TariffRateRequestDto base = request.getBase();
+        List<TariffCalculationSweepRangeDto> ranges = request.getRanges();
+        if (base == null || ranges == null || ranges.isEmpty() || ranges.size() > 2) {
+            throw new IllegalArgumentException("A sweep needs a base calculation and one or two ranges");
+        }
+
+        Variable[] variables = new Variable[ranges.size()];
+        BigDecimal[][] values = new BigDecimal[ranges.size()][];
+        for (int a = 0; a < ranges.size(); a++) {
+            variables[a] = Variable.of(ranges.get(a).variable());
+            values[a] = axisValues(variables[a], ranges.get(a));
+        }
+        if (variables.length == 2 && variables[0] == variables[1]) {
+            throw new IllegalArgumentException("Both ranges sweep " + variables[0].field);
+        }
+        List<Variable> swept = Arrays.asList(variables);
+        for (Variable variable : Variable.values()) {
+            boolean optional = variable == Variable.PREF_RATE || variable == Variable.RVC_THRESHOLD;
+            if (!optional && !swept.contains(variable) && get(base, variable) == null) {
+                throw new IllegalArgumentException("base." + variable.field + " is required");
+            }
+        }
+        int rows = values[0].length;
+        int columns = variables.length == 2 ? values[1].length : 1;
+        if ((long) rows * columns > MAX_POINTS) {
+            throw new IllegalArgumentException("A sweep covers at most " + MAX_POINTS + " points, not "
+                    + (long) rows * columns);
+        }
+
+        Grid grid = new Grid(base, variables, values, rows, columns);
+        pool.invoke(new SweepTask(grid, 0, rows * columns));
+
+        List<TariffCalculationSweepAxisDto> axes = new ArrayList<>(variables.length);
+        for (int a = 0; a < variables.length; a++) {
+            axes.add(new TariffCalculationSweepAxisDto(variables[a].field, Arrays.asList(values[a])));
+        }
+        return new TariffCalculationSweepResponse(axes, grid.duty, grid.preferential,
+                breakEvens(grid.fields, variables, values));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static BigDecimal[] axisValues(Variable variable, TariffCalculationSweepRangeDto range) {
+        if (range.from() == null || range.to() == null || range.steps() == null || range.steps() < 1) {
+            throw new IllegalArgumentException("Range for " + variable.field + " needs from, to and steps >= 1");
+        }
+        int steps = range.steps();
+        BigDecimal span = range.to().subtract(range.from());
+        BigDecimal[] values = new BigDecimal[steps];
+        for (int i = 0; i < steps; i++) {
+            BigDecimal value = steps == 1
+                    ? range.from()
+                    : range.from().add(span.multiply(BigDecimal.valueOf(i))
+                            .divide(BigDecimal.valueOf(steps - 1), MathContext.DECIMAL128));
+            values[i] = value.setScale(TariffCalculationKernel.SCALE, RoundingMode.HALF_UP);
+        }
+        BigDecimal low = values[0].min(values[steps - 1]);
+        if (variable == Variable.FOB && low.signum() <= 0) {
+            throw new IllegalArgumentException("fob must stay positive across the range");
+        }
+        if (variable != Variable.RVC_THRESHOLD && low.signum() < 0) {
+            throw new IllegalArgumentException(variable.field + " must not be negative across the range");
+        }
+        return values;
+    }
+
+    /**
+     * Where PREF starts to apply along each swept input, for every value of
+     * the other one.
+     */
+    private static List<TariffCalculationBreakEvenDto> breakEvens(BigDecimal[] base, Variable[] variables,
+            BigDecimal[][] values) {
+        List<TariffCalculationBreakEvenDto> breakEvens = new ArrayList<>();
+        if (variables.length == 1) {
+            breakEvens.add(breakEven(variables[0], base, null, null));
+            return breakEvens;
+        }
+        for (int a = 0; a < 2; a++) {
+            Variable fixed = variables[1 - a];
+            BigDecimal[] fields = base.clone();
+            for (BigDecimal fixedValue : values[1 - a]) {
+                fields[fixed.ordinal()] = fixedValue;
+                breakEvens.add(breakEven(variables[a], fields, fixed.field, fixedValue));
+            }
+        }
+        return breakEvens;
+    }
+
+    static TariffCalculationBreakEvenDto breakEven(Variable variable, BigDecimal[] fields, String fixedVariable,
+            BigDecimal fixedValue) {
+        boolean hasPref = variable == Variable.PREF_RATE || fields[Variable.PREF_RATE.ordinal()] != null;
+        BigDecimal threshold = fields[Variable.RVC_THRESHOLD.ordinal()];
+        if (!hasPref || (threshold == null && variable != Variable.RVC_THRESHOLD)) {
+            return new TariffCalculationBreakEvenDto(variable.field, fixedVariable, fixedValue, null, "NEVER");
+        }
+
+        BigDecimal costs = BigDecimal.ZERO;
+        for (Variable cost : Variable.values()) {
+            if (cost.isCost() && cost != variable) {
+                costs = costs.add(fields[cost.ordinal()]);
+            }
+        }
+        BigDecimal fob = fields[Variable.FOB.ordinal()];
+
+        BigDecimal value = null;
+        String preferential;
+        if (variable.isCost()) {
+            value = fob.multiply(minimumRatio(threshold)).subtract(costs)
+                    .setScale(TariffCalculationKernel.SCALE, RoundingMode.CEILING);
+            preferential = value.signum() <= 0 ? "ALWAYS" : "AT_OR_ABOVE";
+        } else if (variable == Variable.FOB) {
+            BigDecimal ratio = minimumRatio(threshold);
+            if (ratio.signum() <= 0) {
+                preferential = "ALWAYS";
+            } else {
+                value = costs.divide(ratio, TariffCalculationKernel.SCALE, RoundingMode.FLOOR);
+                preferential = value.signum() <= 0 ? "NEVER" : "AT_OR_BELOW";
+            }
+        } else {
+            BigDecimal rvc = costs.divide(fob, TariffCalculationKernel.SCALE, RoundingMode.HALF_UP).multiply(HUNDRED);
+            if (variable == Variable.RVC_THRESHOLD) {
+                value = rvc;
+                preferential = "AT_OR_BELOW";
+            } else {
+                preferential = rvc.compareTo(threshold) >= 0 ? "ALWAYS" : "NEVER";
+            }
+        }
+        if (!preferential.startsWith("AT_")) {
+            value = null;
+        }
+        return new TariffCalculationBreakEvenDto(variable.field, fixedVariable, fixedValue, value, preferential);
+    }
+
+    /**
+     * The smallest {@code costs / fob} ratio whose RVC meets {@code threshold}.
+     */
+    private static BigDecimal minimumRatio(BigDecimal threshold) {
+        return threshold.movePointLeft(2).setScale(TariffCalculationKernel.SCALE, RoundingMode.CEILING)
+                .subtract(HALF_MICRO);
+    }
+
+    private static BigDecimal get(TariffRateRequestDto rq, Variable variable) {
+        return switch (variable) {
+            case MATERIAL_COST -> rq.getMaterialCost();
+            case LABOUR_COST -> rq.getLabourCost();
+            case OVERHEAD_COST -> rq.getOverheadCost();
+            case PROFIT -> rq.getProfit();
+            case OTHER_COSTS -> rq.getOtherCosts();
+            case FOB -> rq.getFob();
+            case TOTAL_VALUE -> rq.getTotalValue();
+            case MFN_RATE -> rq.getMfnRate();
+            case PREF_RATE -> rq.getPrefRate();
+            case RVC_THRESHOLD -> rq.getRvcThreshold();
+        };
+    }
+
+    private static TariffRateRequestDto request(BigDecimal[] fields) {
+        TariffRateRequestDto rq = new TariffRateRequestDto();
+        rq.setMaterialCost(fields[Variable.MATERIAL_COST.ordinal()]);
+        rq.setLabourCost(fields[Variable.LABOUR_COST.ordinal()]);
+        rq.setOverheadCost(fields[Variable.OVERHEAD_COST.ordinal()]);
+        rq.setProfit(fields[Variable.PROFIT.ordinal()]);
+        rq.setOtherCosts(fields[Variable.OTHER_COSTS.ordinal()]);
+        rq.setFob(fields[Variable.FOB.ordinal()]);
+        rq.setTotalValue(fields[Variable.TOTAL_VALUE.ordinal()]);
+        rq.setMfnRate(fields[Variable.MFN_RATE.ordinal()]);
+        rq.setPrefRate(fields[Variable.PREF_RATE.ordinal()]);
+        rq.setRvcThreshold(fields[Variable.RVC_THRESHOLD.ordinal()]);
+        return rq;
+    }
+
+    /**
+     * The inputs of a sweep, as {@code BigDecimal}s and as micro-units, and
+     * the surface being filled in.
+     */
+    private static final class Grid {
+        final BigDecimal[] fields;
+        final Variable[] variables;
+        final BigDecimal[][] values;
+        final int columns;
+        final long[] micros;
+        final long[][] axisMicros;
+        final boolean exact;
+        final boolean hasPref;
+        final boolean hasThreshold;
+        final double[][] duty;
+        final boolean[][] preferential;
+
+        Grid(TariffRateRequestDto base, Variable[] variables, BigDecimal[][] values, int rows, int columns) {
+            this.variables = variables;
+            this.values = values;
+            this.columns = columns;
+            Variable[] all = Variable.values();
+            fields = new BigDecimal[all.length];
+            micros = new long[all.length];
+            boolean exact = true;
+            for (Variable variable : all) {
+                BigDecimal value = get(base, variable);
+                fields[variable.ordinal()] = value;
+                micros[variable.ordinal()] = value == null ? 0 : TariffCalculationKernel.toMicros(value);
+                exact &= micros[variable.ordinal()] != TariffCalculationKernel.OVERFLOW;
+            }
+            axisMicros = new long[values.length][];
+            for (int a = 0; a < values.length; a++) {
+                axisMicros[a] = new long[values[a].length];
+                for (int i = 0; i < values[a].length; i++) {
+                    axisMicros[a][i] = TariffCalculationKernel.toMicros(values[a][i]);
+                    exact &= axisMicros[a][i] != TariffCalculationKernel.OVERFLOW;
+                }
+            }
+            this.exact = exact;
+            List<Variable> swept = Arrays.asList(variables);
+            hasPref = fields[Variable.PREF_RATE.ordinal()] != null || swept.contains(Variable.PREF_RATE);
+            hasThreshold = fields[Variable.RVC_THRESHOLD.ordinal()] != null
+                    || swept.contains(Variable.RVC_THRESHOLD);
+            duty = new double[rows][columns];
+            preferential = new boolean[rows][columns];
+        }
+
+        /**
+         * Fills in points {@code from} (inclusive) to {@code to}.
+         */
+        void evaluate(int from, int to) {
+            long[] point = micros.clone();
+            for (int p = from; p < to; p++) {
+                int row = p / columns;
+                int column = p % columns;
+                if (!exact || !evaluateFixed(point, row, column)) {
+                    evaluateDecimal(row, column);
+                }
+            }
+        }
+
+        private boolean evaluateFixed(long[] point, int row, int column) {
+            point[variables[0].ordinal()] = axisMicros[0][row];
+            if (variables.length == 2) {
+                point[variables[1].ordinal()] = axisMicros[1][column];
+            }
+            long costs = point[0] + point[1] + point[2] + point[3] + point[4];
+            long rvc = TariffCalculationKernel.rvcMicros(costs, point[Variable.FOB.ordinal()]);
+            if (rvc == TariffCalculationKernel.OVERFLOW) {
+                return false;
+            }
+            boolean pref = hasPref && hasThreshold && rvc >= point[Variable.RVC_THRESHOLD.ordinal()];
+            long value = point[Variable.TOTAL_VALUE.ordinal()];
+            long rate = point[pref ? Variable.PREF_RATE.ordinal() : Variable.MFN_RATE.ordinal()];
+            long product = TariffCalculationKernel.multiply(value, rate);
+            duty[row][column] = product != TariffCalculationKernel.OVERFLOW
+                    ? product / MICROS_SQUARED
+                    : (double) value * (double) rate / MICROS_SQUARED;
+            preferential[row][column] = pref;
+            return true;
+        }
+
+        private void evaluateDecimal(int row, int column) {
+            BigDecimal[] point = fields.clone();
+            point[variables[0].ordinal()] = values[0][row];
+            if (variables.length == 2) {
+                point[variables[1].ordinal()] = values[1][column];
+            }
+            TariffCalculationResponse result = TariffCalculationKernel.calculateDecimal(request(point));
+            duty[row][column] = result.totalDuty().doubleValue();
+            preferential[row][column] = "PREF".equals(result.basis());
+        }
+    }
+
+    private static final class SweepTask extends RecursiveAction {
+        private final Grid grid;
+        private final int from;
+        private final int to;
+
+        SweepTask(Grid grid, int from, int to) {
+            this.grid = grid;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_POINTS) {
+                grid.evaluate(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask(grid, from, middle), new SweepTask(grid, middle, to));
+        }
+    }
+}
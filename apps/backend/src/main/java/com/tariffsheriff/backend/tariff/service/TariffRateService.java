@@ -2,33 +2,46 @@ package com.tariffsheriff.backend.tariff.service;
 
 import java.util.List;
 
+import com.tariffsheriff.backend.tariff.dto.TariffRateBatchLookupResultDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateLookupDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateLookupRequestDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
 import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingResponse;
 import com.tariffsheriff.backend.tariff.model.TariffRate;
 
 public interface TariffRateService {
-    List<TariffRate> listTariffRates(int limit);
+    List<TariffRateListItemDto> listTariffRates(int limit);
 
-    List<TariffRate> findByCountryPair(String importerIso3, String originIso3, String hsCodePrefix, int limit);
+    List<TariffRateListItemDto> findByCountryPair(String importerIso3, String originIso3, String hsCodePrefix, int limit);
 
-    List<TariffRate> findByCountryPairAndHsCodes(String importerIso3, String originIso3, List<String> hsCodes,
+    List<TariffRateListItemDto> findByCountryPairAndHsCodes(String importerIso3, String originIso3, List<String> hsCodes,
             int limit);
 
-    List<TariffRate> findByImporter(String importerIso3, String hsCodePrefix, int limit);
+    List<TariffRateListItemDto> findByImporter(String importerIso3, String hsCodePrefix, int limit);
 
-    List<TariffRate> findByImporterAndHsCodes(String importerIso3, List<String> hsCodes, int limit);
+    List<TariffRateListItemDto> findByImporterAndHsCodes(String importerIso3, List<String> hsCodes, int limit);
 
-    List<TariffRate> findByHsCodes(List<String> hsCodes, int limit);
+    List<TariffRateListItemDto> findByHsCodes(List<String> hsCodes, int limit);
 
-    List<TariffRate> findByHsCodePrefix(String hsCodePrefix, int limit);
+    List<TariffRateListItemDto> findByHsCodePrefix(String hsCodePrefix, int limit);
 
     TariffRate getTariffRateById(Long id);
 
     TariffRateLookupDto getTariffRateWithAgreement(String importerIso3, String originIso3, String hsCode);
 
+    // Same lookup read straight from the database, for callers that must see a write the
+    // in-memory snapshot has not caught up with yet
+    TariffRateLookupDto getCommittedTariffRateWithAgreement(String importerIso3, String originIso3, String hsCode);
+
+    List<TariffRateBatchLookupResultDto> getTariffRatesWithAgreement(List<TariffRateLookupRequestDto> requests);
+
     TariffCalculationResponse calculateTariffRate(TariffRateRequestDto tariffCalculationData);
 
+    TariffSourcingResponse rankOrigins(TariffSourcingRequestDto sourcing);
+
     List<TariffRateLookupDto> getSubcategories(
             String importerIso3,
             String originIso3,
@@ -3,18 +3,42 @@ package com.tariffsheriff.backend.tariff.service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffRateBatchLookupResultDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateLookupDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateLookupRequestDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateOptionDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingOptionDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingResponse;
+import com.tariffsheriff.backend.tariff.exception.HsCodeSplitException;
 import com.tariffsheriff.backend.tariff.exception.TariffRateNotFoundException;
+import com.tariffsheriff.backend.tariff.index.CountryRegistry;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndex;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndex;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndexHolder;
+import com.tariffsheriff.backend.tariff.index.HsCodeRange;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshot;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshotHolder;
 import com.tariffsheriff.backend.tariff.model.Agreement;
 import com.tariffsheriff.backend.tariff.model.Country;
 import com.tariffsheriff.backend.tariff.model.HsProduct;
@@ -23,82 +47,80 @@ import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
 import com.tariffsheriff.backend.tariff.repository.CountryRepository;
 import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
 import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+import com.tariffsheriff.backend.tariff.repository.TariffRateResolution;
 
 @Service
 public class TariffRateServiceImpl implements TariffRateService {
+    private static final int MAX_BATCH_LOOKUPS = 10_000;
+
     private final TariffRateRepository tariffRates;
     private final AgreementRepository agreements;
     private final CountryRepository countries;
     private final HsProductRepository hsProducts;
+    private final TariffRateSnapshotHolder snapshots;
+    private final HsCodeIndexHolder hsCodeIndex;
+    private final CountryRegistryHolder countryRegistry;
+    private final HsConcordanceIndexHolder concordance;
 
     public TariffRateServiceImpl(TariffRateRepository tariffRates, AgreementRepository agreements,
-            CountryRepository countries, HsProductRepository hsProducts) {
+            CountryRepository countries, HsProductRepository hsProducts, TariffRateSnapshotHolder snapshots,
+            HsCodeIndexHolder hsCodeIndex, CountryRegistryHolder countryRegistry,
+            HsConcordanceIndexHolder concordance) {
         this.tariffRates = tariffRates;
         this.agreements = agreements;
         this.countries = countries;
         this.hsProducts = hsProducts;
+        this.snapshots = snapshots;
+        this.hsCodeIndex = hsCodeIndex;
+        this.countryRegistry = countryRegistry;
+        this.concordance = concordance;
     }
 
     @Override
-    public List<TariffRate> listTariffRates(int limit) {
+    public List<TariffRateListItemDto> listTariffRates(int limit) {
         // Use pagination to limit database query - MUCH faster!
-        return tariffRates.findAll(PageRequest.of(0, limit)).getContent();
+        return tariffRates.findListItems(PageRequest.of(0, limit));
     }
 
     @Override
-    public List<TariffRate> findByCountryPair(String importerIso3, String originIso3, String hsCodePrefix, int limit) {
+    public List<TariffRateListItemDto> findByCountryPair(String importerIso3, String originIso3, String hsCodePrefix,
+            int limit) {
         if (hsCodePrefix != null && !hsCodePrefix.isBlank()) {
-            return tariffRates.findByCountryPairAndHsCode(importerIso3, originIso3, hsCodePrefix,
+            return tariffRates.findListItemsByHsCodePrefixes(importerIso3, originIso3, List.of(hsCodePrefix),
                     PageRequest.of(0, limit));
         }
-        return tariffRates.findByCountryPair(importerIso3, originIso3, PageRequest.of(0, limit));
+        return tariffRates.findListItemsByCountryPair(importerIso3, originIso3, PageRequest.of(0, limit));
     }
 
     @Override
-    public List<TariffRate> findByCountryPairAndHsCodes(String importerIso3, String originIso3, List<String> hsCodes,
-            int limit) {
-        // Pad list to 5 elements (use empty string for unused slots)
-        String code1 = hsCodes.size() > 0 ? hsCodes.get(0) : "";
-        String code2 = hsCodes.size() > 1 ? hsCodes.get(1) : "";
-        String code3 = hsCodes.size() > 2 ? hsCodes.get(2) : "";
-        String code4 = hsCodes.size() > 3 ? hsCodes.get(3) : "";
-        String code5 = hsCodes.size() > 4 ? hsCodes.get(4) : "";
-        return tariffRates.findByCountryPairAndHsCodes(importerIso3, originIso3, code1, code2, code3, code4, code5,
-                PageRequest.of(0, limit));
+    public List<TariffRateListItemDto> findByCountryPairAndHsCodes(String importerIso3, String originIso3,
+            List<String> hsCodes, int limit) {
+        return tariffRates.findListItemsByHsCodePrefixes(importerIso3, originIso3, hsCodes, PageRequest.of(0, limit));
     }
 
     @Override
-    public List<TariffRate> findByImporter(String importerIso3, String hsCodePrefix, int limit) {
+    public List<TariffRateListItemDto> findByImporter(String importerIso3, String hsCodePrefix, int limit) {
         if (hsCodePrefix != null && !hsCodePrefix.isBlank()) {
-            return tariffRates.findByImporterAndHsCode(importerIso3, hsCodePrefix, PageRequest.of(0, limit));
+            return tariffRates.findListItemsByHsCodePrefixes(importerIso3, null, List.of(hsCodePrefix),
+                    PageRequest.of(0, limit));
         }
-        return tariffRates.findByImporter(importerIso3, PageRequest.of(0, limit));
+        return tariffRates.findListItemsByImporter(importerIso3, PageRequest.of(0, limit));
     }
 
     @Override
-    public List<TariffRate> findByImporterAndHsCodes(String importerIso3, List<String> hsCodes, int limit) {
-        String code1 = hsCodes.size() > 0 ? hsCodes.get(0) : "";
-        String code2 = hsCodes.size() > 1 ? hsCodes.get(1) : "";
-        String code3 = hsCodes.size() > 2 ? hsCodes.get(2) : "";
-        String code4 = hsCodes.size() > 3 ? hsCodes.get(3) : "";
-        String code5 = hsCodes.size() > 4 ? hsCodes.get(4) : "";
-        return tariffRates.findByImporterAndHsCodes(importerIso3, code1, code2, code3, code4, code5,
-                PageRequest.of(0, limit));
+    public List<TariffRateListItemDto> findByImporterAndHsCodes(String importerIso3, List<String> hsCodes, int limit) {
+        return tariffRates.findListItemsByHsCodePrefixes(importerIso3, null, hsCodes, PageRequest.of(0, limit));
     }
 
     @Override
-    public List<TariffRate> findByHsCodes(List<String> hsCodes, int limit) {
-        String code1 = hsCodes.size() > 0 ? hsCodes.get(0) : "";
-        String code2 = hsCodes.size() > 1 ? hsCodes.get(1) : "";
-        String code3 = hsCodes.size() > 2 ? hsCodes.get(2) : "";
-        String code4 = hsCodes.size() > 3 ? hsCodes.get(3) : "";
-        String code5 = hsCodes.size() > 4 ? hsCodes.get(4) : "";
-        return tariffRates.findByHsCodes(code1, code2, code3, code4, code5, PageRequest.of(0, limit));
+    public List<TariffRateListItemDto> findByHsCodes(List<String> hsCodes, int limit) {
+        return tariffRates.findListItemsByHsCodePrefixes(null, null, hsCodes, PageRequest.of(0, limit));
     }
 
     @Override
-    public List<TariffRate> findByHsCodePrefix(String hsCodePrefix, int limit) {
-        return tariffRates.findByHsCodePrefix(hsCodePrefix, PageRequest.of(0, limit));
+    public List<TariffRateListItemDto> findByHsCodePrefix(String hsCodePrefix, int limit) {
+        return tariffRates.findListItemsByHsCodePrefixes(null, null, Arrays.asList(hsCodePrefix),
+                PageRequest.of(0, limit));
     }
 
     @Override
@@ -123,76 +145,314 @@ public class TariffRateServiceImpl implements TariffRateService {
             throw new IllegalArgumentException("hsCode must be provided");
         }
 
-        Country importer = countries.findByIso3IgnoreCase(importerIso3)
+        // Serve from the in-memory snapshot when it knows the product, or when the HS
+        // concordance maps a code from another version onto one it knows. A miss (not loaded
+        // yet, or a row added since the last rebuild) resolves everything in one statement
+        TariffRateSnapshot snapshot = snapshots.current();
+        if (snapshot.findHsProductId(importerIso3, hsCode) == TariffRateSnapshot.NOT_FOUND) {
+            String currentCode = resolveAcrossVersions(snapshot, concordance.forDestination(importerIso3),
+                    importerIso3, hsCode);
+            if (currentCode == null) {
+                return lookupInRepositories(importerIso3, originIso3, hsCode);
+            }
+            hsCode = currentCode;
+        }
+
+        Country importer = findCountry(importerIso3)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown importer ISO3: " + importerIso3));
 
         Country origin = null;
         if (originIso3 != null && !originIso3.isBlank()) {
-            origin = countries.findByIso3IgnoreCase(originIso3)
+            origin = findCountry(originIso3)
                     .orElseThrow(() -> new IllegalArgumentException("Unknown origin ISO3: " + originIso3));
         }
 
+        return lookupInSnapshot(snapshot, importer, origin, hsCode);
+    }
+
+    @Override
+    public TariffRateLookupDto getCommittedTariffRateWithAgreement(String importerIso3, String originIso3,
+            String hsCode) {
+        if (hsCode == null || hsCode.isBlank()) {
+            throw new IllegalArgumentException("hsCode must be provided");
+        }
+        return lookupInRepositories(importerIso3, originIso3, hsCode);
+    }
+
+    @Override
+    public List<TariffRateBatchLookupResultDto> getTariffRatesWithAgreement(
+            List<TariffRateLookupRequestDto> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return List.of();
+        }
+        if (requests.size() > MAX_BATCH_LOOKUPS) {
+            throw new IllegalArgumentException("A batch lookup accepts at most " + MAX_BATCH_LOOKUPS + " items");
+        }
+
+        // Countries come from the registry; before it has loaded, one query covers the whole batch
+        CountryRegistry registry = countryRegistry.current();
+        Map<String, Country> countryByIso3 = registry.isEmpty() ? loadBatchCountries(requests) : Map.of();
+
+        int size = requests.size();
+        TariffRateBatchLookupResultDto[] results = new TariffRateBatchLookupResultDto[size];
+        Country[] importers = new Country[size];
+        Country[] origins = new Country[size];
+        List<Integer> misses = new ArrayList<>();
+
+        TariffRateSnapshot snapshot = snapshots.current();
+        // Read once per importer; without a resident index each one is built from the database
+        Map<String, HsConcordanceIndex> concordanceByImporter = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            TariffRateLookupRequestDto request = requests.get(i);
+            try {
+                if (request == null) {
+                    throw new IllegalArgumentException("Lookup item must not be null");
+                }
+                if (request.hsCode() == null || request.hsCode().isBlank()) {
+                    throw new IllegalArgumentException("hsCode must be provided");
+                }
+                importers[i] = batchCountry(registry, countryByIso3, request.importerIso3(), "importer");
+                if (StringUtils.hasText(request.originIso3())) {
+                    origins[i] = batchCountry(registry, countryByIso3, request.originIso3(), "origin");
+                }
+                TariffRateLookupDto lookup = lookupInSnapshot(snapshot, importers[i], origins[i], request.hsCode());
+                if (lookup == null) {
+                    String importerCode = importers[i].getIso3();
+                    String currentCode = resolveAcrossVersions(snapshot,
+                            concordanceByImporter.computeIfAbsent(importerCode, concordance::forDestination),
+                            importerCode, request.hsCode());
+                    if (currentCode != null) {
+                        lookup = lookupInSnapshot(snapshot, importers[i], origins[i], currentCode);
+                    }
+                }
+                if (lookup != null) {
+                    results[i] = TariffRateBatchLookupResultDto.success(i, lookup);
+                } else if (TariffRateSnapshot.isIndexable(request.hsCode())) {
+                    misses.add(i);
+                } else {
+                    // Codes the packed index cannot key are rare enough to resolve one by one
+                    results[i] = TariffRateBatchLookupResultDto.success(i, lookupInRepositories(
+                            importers[i].getIso3(), origins[i] != null ? origins[i].getIso3() : null,
+                            request.hsCode()));
+                }
+            } catch (IllegalArgumentException | TariffRateNotFoundException e) {
+                results[i] = TariffRateBatchLookupResultDto.failure(i, e.getMessage());
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            TariffRateSnapshot loaded = loadBatchSnapshot(requests, importers, misses);
+            for (int i : misses) {
+                String hsCode = requests.get(i).hsCode();
+                TariffRateLookupDto lookup = lookupInSnapshot(loaded, importers[i], origins[i], hsCode);
+                results[i] = lookup != null
+                        ? TariffRateBatchLookupResultDto.success(i, lookup)
+                        : TariffRateBatchLookupResultDto.failure(i, "No HS product found for importer "
+                                + importers[i].getIso3() + " and code " + hsCode);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private Map<String, Country> loadBatchCountries(List<TariffRateLookupRequestDto> requests) {
+        Set<String> isoCodes = new HashSet<>();
+        for (TariffRateLookupRequestDto request : requests) {
+            if (request == null) {
+                continue;
+            }
+            if (StringUtils.hasText(request.importerIso3())) {
+                isoCodes.add(normalizeIso3(request.importerIso3()));
+            }
+            if (StringUtils.hasText(request.originIso3())) {
+                isoCodes.add(normalizeIso3(request.originIso3()));
+            }
+        }
+        Map<String, Country> countryByIso3 = new HashMap<>();
+        if (!isoCodes.isEmpty()) {
+            for (Country country : countries.findByIso3InIgnoreCase(isoCodes)) {
+                countryByIso3.put(normalizeIso3(country.getIso3()), country);
+            }
+        }
+        return countryByIso3;
+    }
+
+    private Country batchCountry(CountryRegistry registry, Map<String, Country> countryByIso3, String iso3,
+            String role) {
+        Country country = null;
+        if (StringUtils.hasText(iso3)) {
+            country = registry.isEmpty() ? countryByIso3.get(normalizeIso3(iso3)) : registry.find(iso3.trim());
+        }
+        if (country == null) {
+            throw new IllegalArgumentException("Unknown " + role + " ISO3: " + iso3);
+        }
+        return country;
+    }
+
+    /**
+     * Loads the products, rates and agreements for the batch items the shared
+     * snapshot missed with three set-based queries, into a throwaway snapshot so
+     * they resolve exactly like snapshot hits.
+     */
+    private TariffRateSnapshot loadBatchSnapshot(List<TariffRateLookupRequestDto> requests, Country[] importers,
+            List<Integer> misses) {
+        Set<String> importerCodes = new HashSet<>();
+        Set<String> hsCodes = new HashSet<>();
+        for (int i : misses) {
+            importerCodes.add(importers[i].getIso3());
+            hsCodes.add(requests.get(i).hsCode());
+        }
+
+        List<Object[]> productRows = hsProducts.findLookupKeys(importerCodes, hsCodes);
+        TariffRateSnapshot.Builder builder = TariffRateSnapshot.builder().addProductRows(productRows);
+        if (productRows.isEmpty()) {
+            return builder.build();
+        }
+
+        Set<Long> productIds = new HashSet<>();
+        for (Object[] row : productRows) {
+            productIds.add(((Number) row[0]).longValue());
+        }
+        List<Object[]> rateRows = tariffRates.findSnapshotRows(importerCodes, productIds);
+        builder.addRateRows(rateRows);
+
+        Set<Long> agreementIds = new HashSet<>();
+        for (Object[] row : rateRows) {
+            if (row[5] != null) {
+                agreementIds.add(((Number) row[5]).longValue());
+            }
+        }
+        if (!agreementIds.isEmpty()) {
+            agreements.findAllById(agreementIds).forEach(builder::addAgreement);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The importer's current-version code for {@code hsCode} when the HS
+     * concordance maps it onto exactly one line {@code snapshot} knows, or
+     * {@code null}. A code split across several current lines has no single
+     * rate, so the lookup fails listing them rather than as a plain miss.
+     */
+    private String resolveAcrossVersions(TariffRateSnapshot snapshot, HsConcordanceIndex index, String importerIso3,
+            String hsCode) {
+        List<HsProduct> lines = index.resolve(importerIso3, null, hsCode);
+        if (lines.size() > 1) {
+            List<String> candidates = new ArrayList<>(lines.size());
+            for (HsProduct line : lines) {
+                candidates.add(line.getHsCode());
+            }
+            throw new HsCodeSplitException(normalizeIso3(importerIso3), hsCode, index.currentVersion(importerIso3),
+                    candidates);
+        }
+        if (lines.size() == 1
+                && snapshot.findHsProductId(importerIso3, lines.get(0).getHsCode()) != TariffRateSnapshot.NOT_FOUND) {
+            return lines.get(0).getHsCode();
+        }
+        return null;
+    }
+
+    /**
+     * Resolves a lookup entirely from {@code snapshot}, or returns {@code null}
+     * when the snapshot does not know the HS product.
+     */
+    private TariffRateLookupDto lookupInSnapshot(TariffRateSnapshot snapshot, Country importer, Country origin,
+            String hsCode) {
         String importerCode = importer.getIso3();
         String originCode = origin != null ? origin.getIso3() : null;
 
-        HsProduct product = hsProducts
-                .findByDestinationIso3IgnoreCaseAndHsCode(importerCode, hsCode)
-                .orElseThrow(() -> new TariffRateNotFoundException(
-                        "No HS product found for importer " + importerCode + " and code " + hsCode));
-
-        Long hsProductId = product.getId();
+        long hsProductId = snapshot.findHsProductId(importerCode, hsCode);
+        if (hsProductId == TariffRateSnapshot.NOT_FOUND) {
+            return null;
+        }
 
-        // Determine MFN: prefer origin-specific MFN when origin provided; otherwise
-        // fall back to general MFN
         TariffRate tariffRateMfn = null;
+        TariffRate tariffRatePref = null;
         if (origin != null) {
-            tariffRateMfn = tariffRates
-                    .findByImporterIso3AndOriginIso3AndHsProductIdAndBasis(importerCode, originCode, hsProductId, "MFN")
-                    .orElse(null);
+            tariffRateMfn = snapshot.findRate(importerCode, originCode, hsProductId, "MFN");
+            tariffRatePref = snapshot.findRate(importerCode, originCode, hsProductId, "PREF");
+        }
+        if (tariffRateMfn == null) {
+            tariffRateMfn = snapshot.findGeneralMfn(importerCode, hsProductId);
         }
         if (tariffRateMfn == null) {
-            tariffRateMfn = tariffRates
-                    .findByImporterIso3AndHsProductIdAndBasis(importerCode, hsProductId, "MFN")
-                    .orElse(null);
+            tariffRateMfn = fallbackMfn(importerCode, importer.getName(), originCode, hsProductId);
         }
 
-        // Fallback MFN: when no MFN row found, synthesize an MFN rate based on importer name hash
+        Agreement agreement = tariffRatePref != null ? snapshot.findAgreement(tariffRatePref.getAgreementId()) : null;
+        return buildLookupDto(importerCode, originCode, hsCode, tariffRateMfn, tariffRatePref, agreement);
+    }
+
+    /**
+     * Resolves a lookup with the single {@code resolveLookup} statement, keeping
+     * the origin MFN, then general MFN, then synthetic MFN order.
+     */
+    private TariffRateLookupDto lookupInRepositories(String importerIso3, String originIso3, String hsCode) {
+        String requestedOrigin = StringUtils.hasText(originIso3) ? originIso3 : null;
+        TariffRateResolution row = tariffRates
+                .resolveLookup(importerIso3, requestedOrigin, hsCode, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown importer ISO3: " + importerIso3));
+        if (requestedOrigin != null && row.getOriginIso3() == null) {
+            throw new IllegalArgumentException("Unknown origin ISO3: " + originIso3);
+        }
+
+        String importerCode = row.getImporterIso3();
+        String originCode = row.getOriginIso3();
+        if (row.getHsProductId() == null) {
+            throw new TariffRateNotFoundException(
+                    "No HS product found for importer " + importerCode + " and code " + hsCode);
+        }
+        Long hsProductId = row.getHsProductId();
+
+        TariffRate tariffRateMfn = resolvedRate(row.getOriginMfnId(), importerCode, originCode, hsProductId, "MFN",
+                null, row.getOriginMfnAdValoremRate(), row.getOriginMfnNonAdValorem(),
+                row.getOriginMfnNonAdValoremText());
         if (tariffRateMfn == null) {
-            int[] fallbackPercents = new int[] { 10, 15, 20 };
-            String countryName = importer.getName() != null ? importer.getName() : importerCode;
-            int idx = Math.floorMod(countryName.hashCode(), fallbackPercents.length);
-            BigDecimal fallbackRate = BigDecimal.valueOf(fallbackPercents[idx])
-                    .divide(BigDecimal.valueOf(100), 6, RoundingMode.HALF_UP);
-
-            TariffRate synthetic = new TariffRate();
-            synthetic.setId(-1L);
-            synthetic.setImporterIso3(importerCode);
-            synthetic.setOriginIso3(originCode);
-            synthetic.setHsProductId(hsProductId);
-            synthetic.setBasis("MFN");
-            synthetic.setAgreementId(null);
-            synthetic.setAdValoremRate(fallbackRate);
-            synthetic.setNonAdValorem(false);
-            synthetic.setNonAdValoremText(null);
-            synthetic.setSourceRef("FALLBACK");
-            tariffRateMfn = synthetic;
-        }
-
-        // Determine preferential rate: only when origin provided and there is a
-        // matching origin-specific PREF
-        TariffRate tariffRatePref = null;
-        if (origin != null) {
-            tariffRatePref = tariffRates
-                    .findByImporterIso3AndOriginIso3AndHsProductIdAndBasis(importerCode, originCode, hsProductId,
-                            "PREF")
-                    .orElse(null);
+            tariffRateMfn = resolvedRate(row.getGeneralMfnId(), importerCode, null, hsProductId, "MFN", null,
+                    row.getGeneralMfnAdValoremRate(), row.getGeneralMfnNonAdValorem(),
+                    row.getGeneralMfnNonAdValoremText());
         }
+        if (tariffRateMfn == null) {
+            tariffRateMfn = fallbackMfn(importerCode, row.getImporterName(), originCode, hsProductId);
+        }
+
+        TariffRate tariffRatePref = resolvedRate(row.getPrefId(), importerCode, originCode, hsProductId, "PREF",
+                row.getPrefAgreementId(), row.getPrefAdValoremRate(), row.getPrefNonAdValorem(),
+                row.getPrefNonAdValoremText());
 
         Agreement agreement = null;
-        if (tariffRatePref != null && tariffRatePref.getAgreementId() != null) {
-            agreement = agreements.findById(tariffRatePref.getAgreementId()).orElse(null);
+        if (row.getAgreementId() != null) {
+            agreement = Agreement.builder()
+                    .id(row.getAgreementId())
+                    .name(row.getAgreementName())
+                    .rvcThreshold(row.getAgreementRvcThreshold())
+                    .build();
         }
 
+        return buildLookupDto(importerCode, originCode, hsCode, tariffRateMfn, tariffRatePref, agreement);
+    }
+
+    private static TariffRate resolvedRate(Long id, String importerCode, String originCode, Long hsProductId,
+            String basis, Long agreementId, BigDecimal adValoremRate, Boolean nonAdValorem, String nonAdValoremText) {
+        if (id == null) {
+            return null;
+        }
+        TariffRate rate = new TariffRate();
+        rate.setId(id);
+        rate.setImporterIso3(importerCode);
+        rate.setOriginIso3(originCode);
+        rate.setHsProductId(hsProductId);
+        rate.setBasis(basis);
+        rate.setAgreementId(agreementId);
+        rate.setAdValoremRate(adValoremRate);
+        rate.setNonAdValorem(Boolean.TRUE.equals(nonAdValorem));
+        rate.setNonAdValoremText(nonAdValoremText);
+        return rate;
+    }
+
+    private TariffRateLookupDto buildLookupDto(String importerCode, String originCode, String hsCode,
+            TariffRate tariffRateMfn, TariffRate tariffRatePref, Agreement agreement) {
         List<TariffRateOptionDto> options = new ArrayList<>();
         options.add(toOptionDto(tariffRateMfn, null));
 
@@ -207,31 +467,180 @@ public class TariffRateServiceImpl implements TariffRateService {
                 options);
     }
 
+    // Fallback MFN: when no MFN row found, synthesize an MFN rate based on importer name hash
+    private TariffRate fallbackMfn(String importerCode, String importerName, String originCode, Long hsProductId) {
+        int[] fallbackPercents = new int[] { 10, 15, 20 };
+        String countryName = importerName != null ? importerName : importerCode;
+        int idx = Math.floorMod(countryName.hashCode(), fallbackPercents.length);
+        BigDecimal fallbackRate = BigDecimal.valueOf(fallbackPercents[idx])
+                .divide(BigDecimal.valueOf(100), 6, RoundingMode.HALF_UP);
+
+        TariffRate synthetic = new TariffRate();
+        synthetic.setId(-1L);
+        synthetic.setImporterIso3(importerCode);
+        synthetic.setOriginIso3(originCode);
+        synthetic.setHsProductId(hsProductId);
+        synthetic.setBasis("MFN");
+        synthetic.setAgreementId(null);
+        synthetic.setAdValoremRate(fallbackRate);
+        synthetic.setNonAdValorem(false);
+        synthetic.setNonAdValoremText(null);
+        synthetic.setSourceRef("FALLBACK");
+        return synthetic;
+    }
+
     public com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse calculateTariffRate(TariffRateRequestDto rq) {
-        BigDecimal mfnRate = rq.getMfnRate();
-        BigDecimal prefRate = rq.getPrefRate();
-        BigDecimal threshold = rq.getRvcThreshold();
+        return TariffCalculationKernel.calculateDecimal(rq);
+    }
+
+    @Override
+    public TariffSourcingResponse rankOrigins(TariffSourcingRequestDto sourcing) {
+        if (!StringUtils.hasText(sourcing.getImporterIso3())) {
+            throw new IllegalArgumentException("importerIso3 must be provided");
+        }
+        if (sourcing.getHsCode() == null || sourcing.getHsCode().isBlank()) {
+            throw new IllegalArgumentException("hsCode must be provided");
+        }
+        String importerIso3 = normalizeIso3(sourcing.getImporterIso3());
+        String hsCode = sourcing.getHsCode().trim();
+
+        // Same resolution order as single lookups: the snapshot, the HS concordance, then one statement
+        TariffRateSnapshot snapshot = snapshots.current();
+        long hsProductId = snapshot.findHsProductId(importerIso3, hsCode);
+        if (hsProductId == TariffRateSnapshot.NOT_FOUND) {
+            String currentCode = resolveAcrossVersions(snapshot, concordance.forDestination(importerIso3),
+                    importerIso3, hsCode);
+            if (currentCode == null) {
+                return rankOriginsFromRepositories(importerIso3, hsCode, sourcing);
+            }
+            hsCode = currentCode;
+            hsProductId = snapshot.findHsProductId(importerIso3, hsCode);
+        }
+        Country importer = findCountry(importerIso3)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown importer ISO3: " + importerIso3));
+        return rankOrigins(snapshot, importer.getIso3(), importer.getName(), hsCode, hsProductId, sourcing);
+    }
 
-        BigDecimal rvc = rq.getMaterialCost()
-                .add(rq.getLabourCost())
-                .add(rq.getOverheadCost())
-                .add(rq.getProfit())
-                .add(rq.getOtherCosts())
-                .divide(rq.getFob(), 6, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
+    /**
+     * Ranks origins from the rows of {@code findSourcingRows}, loaded into a
+     * throwaway snapshot so they rank exactly like snapshot hits.
+     */
+    private TariffSourcingResponse rankOriginsFromRepositories(String importerIso3, String hsCode,
+            TariffSourcingRequestDto sourcing) {
+        List<Object[]> rows = tariffRates.findSourcingRows(importerIso3, hsCode);
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Unknown importer ISO3: " + importerIso3);
+        }
+        Object[] last = rows.get(rows.size() - 1);
+        String importerCode = (String) last[0];
+        if (last[2] == null) {
+            throw new TariffRateNotFoundException(
+                    "No HS product found for importer " + importerCode + " and code " + hsCode);
+        }
+        // Rows come ordered by product id; like the snapshot, the highest HS version wins
+        long hsProductId = ((Number) last[2]).longValue();
+
+        TariffRateSnapshot.Builder builder = TariffRateSnapshot.builder();
+        List<Object[]> rateRows = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            if (row[3] == null || hsProductId != ((Number) row[2]).longValue()) {
+                continue;
+            }
+            rateRows.add(Arrays.copyOfRange(row, 3, 13));
+            if (row[8] != null) {
+                builder.addAgreement(Agreement.builder()
+                        .id(((Number) row[8]).longValue())
+                        .name((String) row[13])
+                        .rvcThreshold((BigDecimal) row[14])
+                        .build());
+            }
+        }
+        TariffRateSnapshot loaded = builder.addRateRows(rateRows).build();
+        return rankOrigins(loaded, importerCode, (String) last[1], hsCode, hsProductId, sourcing);
+    }
 
-        boolean canApplyPref = prefRate != null && threshold != null && rvc.compareTo(threshold) >= 0;
-        BigDecimal appliedRate = (canApplyPref ? prefRate : mfnRate);
-        String basis = (canApplyPref ? "PREF" : "MFN");
+    /**
+     * Prices the MFN baseline and every origin the importer has its own rates
+     * for, in one pass over the product's rates, and sorts them by total duty.
+     * Each origin's preference applies when the cost structure meets the RVC
+     * threshold of its agreement.
+     */
+    private TariffSourcingResponse rankOrigins(TariffRateSnapshot snapshot, String importerCode,
+            String importerName, String hsCode, long hsProductId, TariffSourcingRequestDto sourcing) {
+        TariffRate baselineMfn = null;
+        // origin -> { MFN, PREF }; later rows (higher ids) win, as in the snapshot keys
+        Map<String, TariffRate[]> ratesByOrigin = new TreeMap<>();
+        for (TariffRate rate : snapshot.findRatesForProduct(hsProductId)) {
+            if (!importerCode.equalsIgnoreCase(rate.getImporterIso3())) {
+                continue;
+            }
+            boolean pref = "PREF".equals(rate.getBasis());
+            if (rate.getOriginIso3() == null) {
+                if (!pref) {
+                    baselineMfn = rate;
+                }
+                continue;
+            }
+            ratesByOrigin.computeIfAbsent(rate.getOriginIso3(), origin -> new TariffRate[2])[pref ? 1 : 0] = rate;
+        }
+        if (baselineMfn == null) {
+            baselineMfn = snapshot.findGeneralMfn(importerCode, hsProductId);
+        }
+        if (baselineMfn == null) {
+            baselineMfn = fallbackMfn(importerCode, importerName, null, hsProductId);
+        }
 
-        BigDecimal totalDuty = rq.getTotalValue().multiply(appliedRate);
+        TariffRateRequestDto costs = new TariffRateRequestDto();
+        costs.setTotalValue(sourcing.getTotalValue());
+        costs.setMaterialCost(sourcing.getMaterialCost());
+        costs.setLabourCost(sourcing.getLabourCost());
+        costs.setOverheadCost(sourcing.getOverheadCost());
+        costs.setProfit(sourcing.getProfit());
+        costs.setOtherCosts(sourcing.getOtherCosts());
+        costs.setFob(sourcing.getFob());
+
+        List<TariffSourcingOptionDto> options = new ArrayList<>(ratesByOrigin.size() + 1);
+        options.add(priceOrigin(costs, null, baselineMfn, null, null));
+        for (Map.Entry<String, TariffRate[]> entry : ratesByOrigin.entrySet()) {
+            TariffRate mfn = entry.getValue()[0] != null ? entry.getValue()[0] : baselineMfn;
+            TariffRate pref = entry.getValue()[1];
+            Agreement agreement = pref != null ? snapshot.findAgreement(pref.getAgreementId()) : null;
+            options.add(priceOrigin(costs, entry.getKey(), mfn, pref, agreement));
+        }
+        // Stable, so ties keep the baseline first and origins in ISO3 order
+        options.sort(Comparator.comparing(TariffSourcingOptionDto::totalDuty,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return new TariffSourcingResponse(importerCode, hsCode, options);
+    }
 
-        return new com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse(
-                basis,
-                appliedRate,
-                totalDuty,
-                rvc,
-                threshold);
+    private static TariffSourcingOptionDto priceOrigin(TariffRateRequestDto costs, String originCode, TariffRate mfn,
+            TariffRate pref, Agreement agreement) {
+        BigDecimal mfnRate = mfn.getAdValoremRate();
+        BigDecimal prefRate = pref != null ? pref.getAdValoremRate() : null;
+        BigDecimal threshold = agreement != null ? agreement.getRvcThreshold() : null;
+
+        costs.setMfnRate(mfnRate != null ? mfnRate : BigDecimal.ZERO);
+        costs.setPrefRate(prefRate);
+        costs.setRvcThreshold(threshold);
+        TariffCalculationResponse result = TariffCalculationKernel.calculate(costs);
+
+        boolean preferential = "PREF".equals(result.basis());
+        TariffRate applied = preferential ? pref : mfn;
+        // A purely specific MFN duty has no value-based total, so the option ranks last
+        boolean priced = preferential || mfnRate != null;
+        return new TariffSourcingOptionDto(
+                originCode,
+                result.basis(),
+                priced ? result.appliedRate() : null,
+                priced ? result.totalDuty() : null,
+                mfnRate,
+                prefRate,
+                pref != null ? pref.getAgreementId() : null,
+                agreement != null ? agreement.getName() : null,
+                result.rvc(),
+                threshold,
+                applied.isNonAdValorem(),
+                applied.getNonAdValoremText());
     }
 
     private TariffRateOptionDto toOptionDto(TariffRate rate, Agreement agreement) {
@@ -256,15 +665,13 @@ public class TariffRateServiceImpl implements TariffRateService {
         if (!StringUtils.hasText(importerIso3)) {
             throw new IllegalArgumentException("importerIso3 is required for HS subcategory lookups");
         }
-        String importerCode = normalizeIso3(importerIso3);
-        importerCode = countries.findByIso3IgnoreCase(importerCode)
+        String importerCode = findCountry(normalizeIso3(importerIso3))
                 .map(Country::getIso3)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown importer ISO3: " + importerIso3));
 
         String originCode = null;
         if (StringUtils.hasText(originIso3)) {
-            originCode = normalizeIso3(originIso3);
-            originCode = countries.findByIso3IgnoreCase(originCode)
+            originCode = findCountry(normalizeIso3(originIso3))
                     .map(Country::getIso3)
                     .orElseThrow(() -> new IllegalArgumentException("Unknown origin ISO3: " + originIso3));
         }
@@ -272,6 +679,12 @@ public class TariffRateServiceImpl implements TariffRateService {
         String prefix = sanitizeHsPrefix(hsCodePrefix);
         int cappedLimit = Math.max(1, Math.min(limit, 500));
 
+        HsCodeIndex index = hsCodeIndex.current();
+        TariffRateSnapshot snapshot = snapshots.current();
+        if (!index.isEmpty() && !snapshot.isEmpty()) {
+            return subcategoriesFromIndex(index, snapshot, importerCode, originCode, prefix, cappedLimit);
+        }
+
         List<TariffRate> rates = fetchRatesForPrefix(importerCode, originCode, prefix, cappedLimit);
         if (rates.isEmpty() && originCode != null) {
             // Gracefully fall back to importer-only MFN data so the caller still gets detail
@@ -286,12 +699,50 @@ public class TariffRateServiceImpl implements TariffRateService {
                         (map, rate) -> map.computeIfAbsent(rate.getHsProductId(), key -> new ArrayList<>()).add(rate),
                         LinkedHashMap::putAll);
 
-        Map<Long, Agreement> agreementCache = new java.util.HashMap<>();
+        Map<Long, Agreement> agreementCache = new HashMap<>();
         return grouped.values().stream()
                 .map(list -> toLookupDto(list, responseImporterIso3, responseOriginIso3, agreementCache))
                 .toList();
     }
 
+    /**
+     * Walks the importer's HS codes under the prefix in code order and takes
+     * their rates from the snapshot, so no SQL runs once both are loaded.
+     */
+    private List<TariffRateLookupDto> subcategoriesFromIndex(HsCodeIndex index, TariffRateSnapshot snapshot,
+            String importerIso3, String originIso3, String prefix, int limit) {
+        HsCodeRange range = index.range(importerIso3, prefix);
+        List<TariffRateLookupDto> results = collectSubcategories(range, snapshot, importerIso3, originIso3, limit);
+        if (results.isEmpty() && originIso3 != null) {
+            // Same importer-only fallback as the SQL path
+            results = collectSubcategories(range, snapshot, importerIso3, null, limit);
+        }
+        return results;
+    }
+
+    private List<TariffRateLookupDto> collectSubcategories(HsCodeRange range, TariffRateSnapshot snapshot,
+            String importerIso3, String originIso3, int limit) {
+        List<TariffRateLookupDto> results = new ArrayList<>();
+        int remaining = limit;
+        for (int i = 0; i < range.size() && remaining > 0; i++) {
+            List<TariffRateOptionDto> options = new ArrayList<>();
+            for (TariffRate rate : snapshot.findRatesForProduct(range.productId(i))) {
+                if (!importerIso3.equals(rate.getImporterIso3())
+                        || (originIso3 != null && !originIso3.equals(rate.getOriginIso3()))) {
+                    continue;
+                }
+                options.add(toOptionDto(rate, snapshot.findAgreement(rate.getAgreementId())));
+                if (--remaining == 0) {
+                    break;
+                }
+            }
+            if (!options.isEmpty()) {
+                results.add(new TariffRateLookupDto(importerIso3, originIso3, range.product(i).getHsCode(), options));
+            }
+        }
+        return results;
+    }
+
     private List<TariffRate> fetchRatesForPrefix(String importerIso3, String originIso3, String prefix, int limit) {
         PageRequest page = PageRequest.of(0, limit);
         if (originIso3 != null) {
@@ -319,6 +770,18 @@ public class TariffRateServiceImpl implements TariffRateService {
         return cache.computeIfAbsent(id, key -> agreements.findById(key).orElse(null));
     }
 
+    /**
+     * Resolves a country from the in-memory registry, or from the repository
+     * while the registry has not loaded yet.
+     */
+    private Optional<Country> findCountry(String iso3) {
+        CountryRegistry registry = countryRegistry.current();
+        if (registry.isEmpty()) {
+            return countries.findByIso3IgnoreCase(iso3);
+        }
+        return Optional.ofNullable(registry.find(iso3));
+    }
+
     private String normalizeIso3(String iso3) {
         return iso3 == null ? null : iso3.trim().toUpperCase();
     }
@@ -6,12 +6,14 @@ import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
 import com.tariffsheriff.backend.tariffcalculation.dto.*;
 import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
 import com.tariffsheriff.backend.tariffcalculation.entity.TariffCalculation;
+import com.tariffsheriff.backend.tariffcalculation.service.TariffCalculationRepricingService;
 import com.tariffsheriff.backend.tariffcalculation.service.TariffCalculationService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
@@ -31,13 +33,16 @@ public class TariffCalculationController {
     private final TariffCalculationService service;
     private final UserRepository userRepository;
     private final AgreementRepository agreements;
+    private final TariffCalculationRepricingService repricing;
 
     public TariffCalculationController(TariffCalculationService service,
                                        UserRepository userRepository,
-                                       AgreementRepository agreements) {
+                                       AgreementRepository agreements,
+                                       TariffCalculationRepricingService repricing) {
         this.service = service;
         this.userRepository = userRepository;
         this.agreements = agreements;
+        this.repricing = repricing;
     }
 
     private User requireUserFromJwt(Jwt jwt) {
@@ -121,6 +126,17 @@ public class TariffCalculationController {
                        : org.springframework.http.ResponseEntity.notFound().build();
     }
 
+    // Rate changes reprice saved calculations automatically; this queues a route by hand,
+    // e.g. after rates were changed with SQL. No origin means every origin
+    @PostMapping("/repricing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> reprice(@RequestParam String importerIso3,
+                                        @RequestParam(required = false) String originIso3,
+                                        @RequestParam String hsCode) {
+        repricing.requestRepricing(importerIso3, originIso3, hsCode);
+        return ResponseEntity.accepted().build();
+    }
+
     private TariffCalculationSummary toSummary(TariffCalculation tc) {
         // Resolve agreement name (may be null)
         String agreementName = null;
@@ -151,7 +167,11 @@ public class TariffCalculationController {
             tc.getHsCode(),
             tc.getImporterIso3(),
             tc.getOriginIso3(),
-            agreementName
+            agreementName,
+            tc.getPreviousRateUsed(),
+            tc.getPreviousAppliedRate(),
+            tc.getPreviousTotalTariff(),
+            tc.getRepricedAt()
         );
     }
 
@@ -178,6 +198,16 @@ public class TariffCalculationController {
             tc.getTotalTariff()
         );
 
+        CalculationResult previousResult = null;
+        if (tc.getRepricedAt() != null) {
+            previousResult = new CalculationResult(
+                null,
+                tc.getPreviousRateUsed(),
+                tc.getPreviousAppliedRate(),
+                tc.getPreviousTotalTariff()
+            );
+        }
+
         return new TariffCalculationDetail(
             tc.getId(),
             input,
@@ -187,7 +217,9 @@ public class TariffCalculationController {
             tc.getHsCode(),
             tc.getImporterIso3(),
             tc.getOriginIso3(),
-            tc.getCreatedAt()
+            tc.getCreatedAt(),
+            previousResult,
+            tc.getRepricedAt()
         );
     }
 }
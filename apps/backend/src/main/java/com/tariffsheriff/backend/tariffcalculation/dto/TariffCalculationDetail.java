@@ -21,5 +21,7 @@ public class TariffCalculationDetail {
     private String importerIso3;
     private String originIso3;
     private LocalDateTime createdAt;
+    private CalculationResult previousResult; // before the latest repricing, if any
+    private LocalDateTime repricedAt;
 }
 
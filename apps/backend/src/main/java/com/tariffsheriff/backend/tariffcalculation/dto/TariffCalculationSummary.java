@@ -26,4 +26,10 @@ public class TariffCalculationSummary {
     private String importerIso3;
     private String originIso3;
     private String agreementName;
+
+    // Set when the calculation was repriced after a tariff rate change
+    private String previousRateUsed;
+    private BigDecimal previousAppliedRate;
+    private BigDecimal previousTotalTariff;
+    private LocalDateTime repricedAt;
 }
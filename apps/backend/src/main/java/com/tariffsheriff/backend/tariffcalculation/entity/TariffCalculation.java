@@ -94,6 +94,19 @@ public class TariffCalculation {
     @Column(name = "total_tariff", precision = 18, scale = 2)
     private BigDecimal totalTariff;
 
+    // Results before the latest server-side repricing (null if never repriced)
+    @Column(name = "previous_rate_used", length = 8)
+    private String previousRateUsed;
+
+    @Column(name = "previous_applied_rate", precision = 18, scale = 6)
+    private BigDecimal previousAppliedRate;
+
+    @Column(name = "previous_total_tariff", precision = 18, scale = 2)
+    private BigDecimal previousTotalTariff;
+
+    @Column(name = "repriced_at")
+    private LocalDateTime repricedAt;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,410 @@
+package com.tariffsheriff.backend.tariffcalculation.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffRateLookupDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateOptionDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+import com.tariffsheriff.backend.tariff.exception.TariffRateNotFoundException;
+import com.tariffsheriff.backend.tariff.index.TariffRateChangedEvent;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import com.tariffsheriff.backend.tariff.service.TariffCalculationKernel;
+import com.tariffsheriff.backend.tariff.service.TariffRateService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Reprices saved calculations when a tariff rate they were priced with
+ * changes. {@code saveForUser} stores the results the calculator computed, so
+ * without this they would keep showing the old duty.
+ *
+ * Every committed {@link TariffRateChangedEvent} queues its route: the rate's
+ * importer, HS code and origin, or every origin for an origin-less MFN rate.
+ * Jobs run one at a time in the background, and a route changed again while
+ * it is still queued is only repriced once. A job reads the current rates
+ * from the database (not the snapshot, which catches up asynchronously), then
+ * walks the route's {@code tariff_calculation} rows in id order,
+ * {@code tariff.calculation.repricing.chunk-size} at a time, one spelling of
+ * the HS code after the other. Each chunk is priced with the
+ * {@link TariffCalculationKernel} and written with one JDBC batch update on
+ * {@code tariff.calculation.repricing.threads} workers, with at most one
+ * chunk per worker in flight. Memory therefore stays bounded by a few chunks
+ * however many rows a route has.
+ *
+ * Only rows whose result changes are written. They keep the rate used,
+ * applied rate and total they had before in the {@code previous_*} columns,
+ * with the time of the repricing. Rows that cannot be priced (missing costs,
+ * a zero FOB, no ad valorem rate) are left as they are.
+ */
+@Service
+public class TariffCalculationRepricingService {
+
+    static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(TariffCalculationRepricingService.class);
+
+    private static final String SELECT_ROUTE = "SELECT id, origin_iso3, total_value, material_cost, labour_cost, "
+            + "overhead_cost, profit, other_costs, fob, rate_used, applied_rate, total_tariff "
+            + "FROM tariff_calculation WHERE importer_iso3 = ? AND hs_code = ? AND id > ?";
+
+    private static final String UPDATE_REPRICED = "UPDATE tariff_calculation SET "
+            + "previous_rate_used = rate_used, previous_applied_rate = applied_rate, "
+            + "previous_total_tariff = total_tariff, repriced_at = ?, "
+            + "mfn_rate = ?, pref_rate = ?, rvc = ?, agreement_id = ?, "
+            + "rvc_computed = ?, rate_used = ?, applied_rate = ?, total_tariff = ? "
+            + "WHERE id = ?";
+
+    /**
+     * A changed route. {@code originIso3} is {@code null} for every origin;
+     * the HS code is given directly or resolved from {@code hsProductId}.
+     */
+    record Route(String importerIso3, String originIso3, Long hsProductId, String hsCode) {
+    }
+
+    /**
+     * Rows of a route that were read, rewritten with a new result, already
+     * current, and left alone because they could not be priced.
+     */
+    public record RepricingResult(long scanned, long repriced, long unchanged, long skipped) {
+    }
+
+    /**
+     * The columns of a saved calculation that repricing reads.
+     */
+    record SavedCalculation(long id, String originIso3, BigDecimal totalValue, BigDecimal materialCost,
+            BigDecimal labourCost, BigDecimal overheadCost, BigDecimal profit, BigDecimal otherCosts,
+            BigDecimal fob, String rateUsed, BigDecimal appliedRate, BigDecimal totalTariff) {
+    }
+
+    /**
+     * The rates a route prices with now.
+     */
+    record CurrentRates(BigDecimal mfnRate, BigDecimal prefRate, BigDecimal rvcThreshold, Long agreementId) {
+    }
+
+    /**
+     * New values for one row.
+     */
+    record Repriced(long id, CurrentRates rates, TariffCalculationResponse result, BigDecimal totalTariff) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TariffRateService tariffRates;
+    private final HsProductRepository hsProducts;
+    private final int threads;
+    private final int chunkSize;
+    private final ExecutorService workers;
+    private final ExecutorService runner;
+    private final Set<Route> pending = ConcurrentHashMap.newKeySet();
+
+    public TariffCalculationRepricingService(JdbcTemplate jdbc, TariffRateService tariffRates,
+            HsProductRepository hsProducts,
+            @Value("${tariff.calculation.repricing.threads:0}") int threads,
+            @Value("${tariff.calculation.repricing.chunk-size:" + DEFAULT_CHUNK_SIZE + "}") int chunkSize) {
+        this.jdbc = jdbc;
+        this.tariffRates = tariffRates;
+        this.hsProducts = hsProducts;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = Math.max(1, chunkSize);
+        this.workers = Executors.newFixedThreadPool(this.threads, daemonThreads("tariff-reprice-"));
+        this.runner = Executors.newSingleThreadExecutor(daemonThreads("tariff-reprice-job-"));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTariffRateChanged(TariffRateChangedEvent event) {
+        if (event.importerIso3() == null || event.hsProductId() == null) {
+            return;
+        }
+        // The HS code is looked up on the job thread, keeping the committing thread free
+        queue(new Route(event.importerIso3(), event.originIso3(), event.hsProductId(), null));
+    }
+
+    /**
+     * Queues the saved calculations of a route for repricing, e.g. after
+     * rates were changed with SQL that bypassed the entity listener.
+     *
+     * @param originIso3 the origin, or {@code null} for every origin
+     */
+    public void requestRepricing(String importerIso3, String originIso3, String hsCode) {
+        if (importerIso3 == null || importerIso3.isBlank()) {
+            throw new IllegalArgumentException("importerIso3 must be provided");
+        }
+        if (hsCode == null || hsCode.isBlank()) {
+            throw new IllegalArgumentException("hsCode must be provided");
+        }
+        String origin = originIso3 == null || originIso3.isBlank() ? null : originIso3.trim().toUpperCase();
+        queue(new Route(importerIso3.trim().toUpperCase(), origin, null, hsCode.trim()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Queued routes are lost; an interrupted job has written whole chunks only
+        runner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void queue(Route route) {
+        if (pending.add(route)) {
+            runner.execute(() -> {
+                // Removed before running, so a change committed meanwhile queues the route again
+                pending.remove(route);
+                run(route);
+            });
+        }
+    }
+
+    private void run(Route route) {
+        String hsCode = route.hsCode();
+        if (hsCode == null) {
+            hsCode = hsProducts.findById(route.hsProductId()).map(HsProduct::getHsCode).orElse(null);
+            if (hsCode == null) {
+                return;
+            }
+        }
+        try {
+            long startedAt = System.currentTimeMillis();
+            RepricingResult result = reprice(route.importerIso3(), route.originIso3(), hsCode);
+            if (result.scanned() > 0) {
+                logger.info("Repriced saved calculations for {} {} from {}: {} in {} ms", route.importerIso3(),
+                        hsCode, route.originIso3() != null ? route.originIso3() : "any origin", result,
+                        System.currentTimeMillis() - startedAt);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to reprice saved calculations for {} {}", route.importerIso3(), hsCode, e);
+        }
+    }
+
+    /**
+     * Reprices the saved calculations of one route on the calling thread and
+     * the workers, returning once every chunk is written.
+     *
+     * @param originIso3 the origin, or {@code null} for every origin
+     */
+    public RepricingResult reprice(String importerIso3, String originIso3, String hsCode) {
+        // The calculator saves HS codes without dots; match both spellings. Each gets its own cursor: with an IN
+        // list on hs_code the index could not return rows in id order, so every chunk would re-read the route
+        String savedCode = hsCode.replace(".", "");
+        List<String> spellings = savedCode.equals(hsCode) ? List.of(hsCode) : List.of(hsCode, savedCode);
+        String sql = SELECT_ROUTE + (originIso3 != null ? " AND origin_iso3 = ?" : "") + " ORDER BY id LIMIT ?";
+        LocalDateTime repricedAt = LocalDateTime.now();
+
+        // One lookup per origin for the whole job; a general MFN change touches many origins
+        Map<String, Optional<CurrentRates>> ratesByOrigin = new ConcurrentHashMap<>();
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong repriced = new AtomicLong();
+        AtomicLong unchanged = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        List<RuntimeException> failures = new ArrayList<>();
+
+        Semaphore inFlight = new Semaphore(threads);
+        int spelling = 0;
+        long afterId = 0;
+        try {
+            while (spelling < spellings.size()) {
+                String code = spellings.get(spelling);
+                Object[] args = originIso3 != null
+                        ? new Object[] { importerIso3, code, afterId, originIso3, chunkSize }
+                        : new Object[] { importerIso3, code, afterId, chunkSize };
+                List<SavedCalculation> chunk = jdbc.query(sql, TariffCalculationRepricingService::savedCalculation,
+                        args);
+                if (chunk.isEmpty()) {
+                    spelling++;
+                    afterId = 0;
+                    continue;
+                }
+                scanned.addAndGet(chunk.size());
+                afterId = chunk.get(chunk.size() - 1).id();
+
+                inFlight.acquire();
+                try {
+                    workers.execute(() -> {
+                        try {
+                            List<Repriced> updates = new ArrayList<>(chunk.size());
+                            for (SavedCalculation saved : chunk) {
+                                CurrentRates rates = ratesByOrigin
+                                        .computeIfAbsent(originKey(saved.originIso3()),
+                                                origin -> lookup(importerIso3, saved.originIso3(), hsCode))
+                                        .orElse(null);
+                                Repriced next = rates != null ? reprice(saved, rates) : null;
+                                if (next == null) {
+                                    skipped.incrementAndGet();
+                                } else if (isUnchanged(saved, next)) {
+                                    unchanged.incrementAndGet();
+                                } else {
+                                    updates.add(next);
+                                }
+                            }
+                            write(updates, repricedAt);
+                            repriced.addAndGet(updates.size());
+                        } catch (RuntimeException e) {
+                            synchronized (failures) {
+                                failures.add(e);
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                if (chunk.size() < chunkSize) {
+                    spelling++;
+                    afterId = 0;
+                }
+            }
+            // Every permit back means every chunk has been written
+            inFlight.acquire(threads);
+            inFlight.release(threads);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Repricing was interrupted", e);
+        }
+        if (!failures.isEmpty()) {
+            RuntimeException failure = failures.get(0);
+            failures.stream().skip(1).forEach(failure::addSuppressed);
+            throw failure;
+        }
+        return new RepricingResult(scanned.get(), repriced.get(), unchanged.get(), skipped.get());
+    }
+
+    /**
+     * Prices a saved calculation's costs with the current rates, or returns
+     * {@code null} when it cannot be priced.
+     */
+    static Repriced reprice(SavedCalculation saved, CurrentRates rates) {
+        if (rates.mfnRate() == null || saved.totalValue() == null || saved.materialCost() == null
+                || saved.labourCost() == null || saved.overheadCost() == null || saved.profit() == null
+                || saved.otherCosts() == null || saved.fob() == null || saved.fob().signum() <= 0) {
+            return null;
+        }
+        TariffRateRequestDto rq = new TariffRateRequestDto();
+        rq.setMfnRate(rates.mfnRate());
+        rq.setPrefRate(rates.prefRate());
+        rq.setRvcThreshold(rates.rvcThreshold());
+        rq.setTotalValue(saved.totalValue());
+        rq.setMaterialCost(saved.materialCost());
+        rq.setLabourCost(saved.labourCost());
+        rq.setOverheadCost(saved.overheadCost());
+        rq.setProfit(saved.profit());
+        rq.setOtherCosts(saved.otherCosts());
+        rq.setFob(saved.fob());
+        TariffCalculationResponse result = TariffCalculationKernel.calculate(rq);
+        // Like the calculator, the saved total is the landed cost: goods value plus duty
+        BigDecimal totalTariff = saved.totalValue().add(result.totalDuty()).setScale(2, RoundingMode.HALF_UP);
+        return new Repriced(saved.id(), rates, result, totalTariff);
+    }
+
+    static boolean isUnchanged(SavedCalculation saved, Repriced next) {
+        return next.result().basis().equals(saved.rateUsed())
+                && sameValue(next.result().appliedRate(), saved.appliedRate())
+                && sameValue(next.totalTariff(), saved.totalTariff());
+    }
+
+    /**
+     * The route's rates from the database, or empty when the route no longer
+     * resolves (unknown country or HS code) or its rate has no ad valorem part.
+     */
+    private Optional<CurrentRates> lookup(String importerIso3, String originIso3, String hsCode) {
+        TariffRateLookupDto lookup;
+        try {
+            lookup = tariffRates.getCommittedTariffRateWithAgreement(importerIso3, originIso3, hsCode);
+        } catch (IllegalArgumentException | TariffRateNotFoundException e) {
+            return Optional.empty();
+        }
+        TariffRateOptionDto mfn = null;
+        TariffRateOptionDto pref = null;
+        for (TariffRateOptionDto option : lookup.rates()) {
+            if ("PREF".equals(option.basis())) {
+                pref = option;
+            } else if (mfn == null) {
+                mfn = option;
+            }
+        }
+        if (mfn == null || mfn.adValoremRate() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new CurrentRates(mfn.adValoremRate(),
+                pref != null ? pref.adValoremRate() : null,
+                pref != null ? pref.rvcThreshold() : null,
+                pref != null ? pref.agreementId() : null));
+    }
+
+    private void write(List<Repriced> updates, LocalDateTime repricedAt) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        Timestamp at = Timestamp.valueOf(repricedAt);
+        jdbc.batchUpdate(UPDATE_REPRICED, updates, updates.size(), (ps, next) -> {
+            CurrentRates rates = next.rates();
+            TariffCalculationResponse result = next.result();
+            ps.setTimestamp(1, at);
+            ps.setBigDecimal(2, rates.mfnRate());
+            ps.setBigDecimal(3, rates.prefRate());
+            ps.setBigDecimal(4, rates.rvcThreshold());
+            if (rates.agreementId() != null) {
+                ps.setLong(5, rates.agreementId());
+            } else {
+                ps.setNull(5, Types.BIGINT);
+            }
+            ps.setBigDecimal(6, result.rvc());
+            ps.setString(7, result.basis());
+            ps.setBigDecimal(8, result.appliedRate());
+            ps.setBigDecimal(9, next.totalTariff());
+            ps.setLong(10, next.id());
+        });
+    }
+
+    private static SavedCalculation savedCalculation(ResultSet rs, int row) throws SQLException {
+        return new SavedCalculation(rs.getLong("id"), rs.getString("origin_iso3"),
+                rs.getBigDecimal("total_value"), rs.getBigDecimal("material_cost"),
+                rs.getBigDecimal("labour_cost"), rs.getBigDecimal("overhead_cost"), rs.getBigDecimal("profit"),
+                rs.getBigDecimal("other_costs"), rs.getBigDecimal("fob"), rs.getString("rate_used"),
+                rs.getBigDecimal("applied_rate"), rs.getBigDecimal("total_tariff"));
+    }
+
+    private static String originKey(String originIso3) {
+        return originIso3 != null ? originIso3 : "";
+    }
+
+    private static boolean sameValue(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger next = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + next.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
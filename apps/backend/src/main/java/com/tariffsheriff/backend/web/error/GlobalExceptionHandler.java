@@ -2,6 +2,10 @@ package com.tariffsheriff.backend.web.error;
 
 import com.tariffsheriff.backend.news.exception.InvalidQueryException;
 import com.tariffsheriff.backend.news.exception.NewsProcessingException;
+import com.tariffsheriff.backend.tariff.exception.ClassificationJobLimitException;
+import com.tariffsheriff.backend.tariff.exception.ClassificationJobNotFoundException;
+import com.tariffsheriff.backend.tariff.exception.ClassificationUploadTooLargeException;
+import com.tariffsheriff.backend.tariff.exception.HsNodeNotFoundException;
 import com.tariffsheriff.backend.tariff.exception.TariffRateNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
@@ -25,6 +29,33 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
     }
 
+    @ExceptionHandler(HsNodeNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleHsNodeNotFound(HsNodeNotFoundException ex, HttpServletRequest req) {
+        ErrorResponse body = build(HttpStatus.NOT_FOUND, ex.getMessage(), req.getRequestURI());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+    }
+
+    @ExceptionHandler(ClassificationJobNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleClassificationJobNotFound(ClassificationJobNotFoundException ex,
+            HttpServletRequest req) {
+        ErrorResponse body = build(HttpStatus.NOT_FOUND, ex.getMessage(), req.getRequestURI());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+    }
+
+    @ExceptionHandler(ClassificationJobLimitException.class)
+    public ResponseEntity<ErrorResponse> handleClassificationJobLimit(ClassificationJobLimitException ex,
+            HttpServletRequest req) {
+        ErrorResponse body = build(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), req.getRequestURI());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(body);
+    }
+
+    @ExceptionHandler(ClassificationUploadTooLargeException.class)
+    public ResponseEntity<ErrorResponse> handleClassificationUploadTooLarge(ClassificationUploadTooLargeException ex,
+            HttpServletRequest req) {
+        ErrorResponse body = build(HttpStatus.PAYLOAD_TOO_LARGE, ex.getMessage(), req.getRequestURI());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(body);
+    }
+
     // News-specific exception handlers
     
     /**
@@ -0,0 +1,5 @@
+-- The HS code prefix ranges from V5 only match LIKE under code point ordering, and the
+-- database default is usually a linguistic collation that ignores punctuation. The
+-- queries compare hs_code COLLATE ucs_basic on PostgreSQL; this index serves them.
+-- idx_hs_product_hs_code stays for plain hs_code equality lookups.
+CREATE INDEX IF NOT EXISTS idx_hs_product_hs_code_ucs ON hs_product (hs_code COLLATE ucs_basic);
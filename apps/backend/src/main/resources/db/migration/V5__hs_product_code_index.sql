@@ -0,0 +1,4 @@
+-- Backs the HS code prefix filters on tariff_rate: each prefix becomes the range
+-- hs_code >= 'p' AND hs_code < 'p+1', which is a plain btree range scan here.
+-- uq_hs_product leads with destination_iso3, so it cannot serve code-only ranges.
+CREATE INDEX IF NOT EXISTS idx_hs_product_hs_code ON hs_product (hs_code);
@@ -0,0 +1,11 @@
+-- Database-resident HS label search (hs.search.mode=postgres): a stored English
+-- tsvector with a GIN index for ranked full-text matches, and a trigram GIN index
+-- on the raw label for the word-similarity fallback on misspelled queries.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE hs_product
+    ADD COLUMN IF NOT EXISTS hs_label_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', hs_label)) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_hs_product_label_tsv ON hs_product USING gin (hs_label_tsv);
+CREATE INDEX IF NOT EXISTS idx_hs_product_label_trgm ON hs_product USING gin (hs_label gin_trgm_ops);
@@ -0,0 +1,7 @@
+-- Destination-scoped HS label search (hs.search.mode=postgres): with btree_gin the
+-- destination equality and the tsvector match are answered by one GIN index, so
+-- ranking only ever sees the requested destination's rows.
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+CREATE INDEX IF NOT EXISTS idx_hs_product_destination_label_tsv
+    ON hs_product USING gin (destination_iso3, hs_label_tsv);
@@ -0,0 +1,14 @@
+-- Correlation between HS nomenclature versions (e.g. HS2017 850760 -> HS2022 850760).
+-- Rows are directed from the older version to the newer one; a code that changed
+-- in a revision has one row per counterpart (splits and merges), and codes missing
+-- here carried over unchanged. The in-memory concordance index walks it both ways.
+CREATE TABLE IF NOT EXISTS hs_concordance (
+    id           BIGSERIAL PRIMARY KEY,
+    from_version VARCHAR(20) NOT NULL,
+    from_code    VARCHAR(12) NOT NULL,
+    to_version   VARCHAR(20) NOT NULL,
+    to_code      VARCHAR(12) NOT NULL,
+    CONSTRAINT uq_hs_concordance UNIQUE (from_version, from_code, to_version, to_code)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hs_concordance_to ON hs_concordance (to_version, to_code);
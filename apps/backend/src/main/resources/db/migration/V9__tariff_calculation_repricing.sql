@@ -0,0 +1,9 @@
+-- Saved calculations are repriced server-side when a tariff rate they depend on changes.
+-- The values a row had before its latest repricing are kept so the user can compare.
+ALTER TABLE tariff_calculation ADD COLUMN IF NOT EXISTS previous_rate_used VARCHAR(8);
+ALTER TABLE tariff_calculation ADD COLUMN IF NOT EXISTS previous_applied_rate NUMERIC(18,6);
+ALTER TABLE tariff_calculation ADD COLUMN IF NOT EXISTS previous_total_tariff NUMERIC(18,2);
+ALTER TABLE tariff_calculation ADD COLUMN IF NOT EXISTS repriced_at TIMESTAMP;
+
+-- Finds the rows of a changed (importer, hsCode) route and walks them in id order
+CREATE INDEX IF NOT EXISTS idx_tariff_calc_route ON tariff_calculation(importer_iso3, hs_code, id);
@@ -101,4 +101,17 @@ class AgreementControllerTest {
         assertEquals(new BigDecimal("60.00"), result.get(0).getRvcThreshold());
         verify(agreementService).getAgreementsByCountry(countryIso3);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCommon_returnsAgreementsCoveringBothCountries() {
+        // Given
+        when(agreementService.getCommonAgreements("SGP", "IND")).thenReturn(List.of(sampleAgreement));
+
+        // When
+        List<Agreement> result = controller.getCommon("SGP", "IND");
+
+        // Then
+        assertEquals(List.of(sampleAgreement), result);
+        verify(agreementService).getCommonAgreements("SGP", "IND");
+    }
+}
@@ -1,8 +1,23 @@
 package com.tariffsheriff.backend.tariff.controller;
 
+import com.tariffsheriff.backend.tariff.dto.HsCodeResolutionDto;
+import com.tariffsheriff.backend.tariff.dto.HsSuggestionDto;
+import com.tariffsheriff.backend.tariff.dto.HsTreeDto;
+import com.tariffsheriff.backend.tariff.dto.HsTreeNodeDto;
+import com.tariffsheriff.backend.tariff.exception.HsNodeNotFoundException;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndex;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndexHolder;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndex;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.HsHierarchy;
+import com.tariffsheriff.backend.tariff.index.HsHierarchyHolder;
+import com.tariffsheriff.backend.tariff.index.HsTypeahead;
+import com.tariffsheriff.backend.tariff.index.HsTypeaheadHolder;
 import com.tariffsheriff.backend.tariff.model.HsProduct;
 import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
 import com.tariffsheriff.backend.tariff.service.HsProductService;
+import com.tariffsheriff.backend.tariff.service.HsSearchCache;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -11,7 +26,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -28,17 +44,42 @@ class HsProductControllerTest {
     @Mock
     private HsProductRepository hsProductRepository;
 
+    @Mock
+    private HsCodeIndexHolder hsCodeIndex;
+
+    @Mock
+    private HsTypeaheadHolder typeahead;
+
+    @Mock
+    private HsSearchCache searchCache;
+
+    @Mock
+    private HsHierarchyHolder hierarchy;
+
+    @Mock
+    private HsConcordanceIndexHolder concordance;
+
     @InjectMocks
     private HsProductController controller;
 
+    @BeforeEach
+    void emptyIndex() {
+        // Until the index loads, code prefixes go through the repository
+        lenient().when(hsCodeIndex.current()).thenReturn(HsCodeIndex.EMPTY);
+        lenient().when(typeahead.current()).thenReturn(HsTypeahead.EMPTY);
+        // Every lookup is a miss, so each test sees the search itself
+        lenient().when(searchCache.get(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+    }
+
     // --- Test Cases ---
 
     @Test
     void search_withEmptyQuery_returnsEmptyList() {
         // --- Act ---
-        List<Map<String, Object>> result1 = controller.search("", 10, null);
-        List<Map<String, Object>> result2 = controller.search("   ", 10, null);
-        List<Map<String, Object>> result3 = controller.search(null, 10, null);
+        List<HsSuggestionDto> result1 = controller.search("", 10, null);
+        List<HsSuggestionDto> result2 = controller.search("   ", 10, null);
+        List<HsSuggestionDto> result3 = controller.search(null, 10, null);
 
         // --- Assert ---
         assertTrue(result1.isEmpty());
@@ -62,12 +103,12 @@ class HsProductControllerTest {
         when(hsProductRepository.findByHsCodePrefix(query, limit)).thenReturn(codeResults);
 
         // --- Act ---
-        List<Map<String, Object>> result = controller.search(query, limit, null);
+        List<HsSuggestionDto> result = controller.search(query, limit, null);
 
         // --- Assert ---
         assertEquals(2, result.size());
-        assertEquals("010110", result.get(0).get("hsCode"));
-        assertEquals("010120", result.get(1).get("hsCode"));
+        assertEquals("010110", result.get(0).hsCode());
+        assertEquals("010120", result.get(1).hsCode());
 
         // --- Verify ---
         verify(hsProductRepository).findByHsCodePrefix(query, limit);
@@ -87,11 +128,11 @@ class HsProductControllerTest {
         when(hsProductService.searchByDescription(query, limit)).thenReturn(descResults);
 
         // --- Act ---
-        List<Map<String, Object>> result = controller.search(query, limit, null);
+        List<HsSuggestionDto> result = controller.search(query, limit, null);
 
         // --- Assert ---
         assertEquals(1, result.size());
-        assertEquals("080810", result.get(0).get("hsCode"));
+        assertEquals("080810", result.get(0).hsCode());
 
         // --- Verify ---
         // Crucially, the code prefix search is never called
@@ -118,22 +159,50 @@ class HsProductControllerTest {
         when(hsProductService.searchByDescription(query, limit)).thenReturn(descResults);
 
         // --- Act ---
-        List<Map<String, Object>> result = controller.search(query, limit, null);
+        List<HsSuggestionDto> result = controller.search(query, limit, null);
 
         // --- Assert ---
         // We expect 3 unique results: prod1_code, prod2_common, and prod3_desc
         assertEquals(3, result.size());
         
         // Check that the order is preserved (code results first)
-        assertEquals("010100", result.get(0).get("hsCode")); // prod1_code
-        assertEquals("010200", result.get(1).get("hsCode")); // prod2_common
-        assertEquals("030300", result.get(2).get("hsCode")); // prod3_desc (the de-duped item)
+        assertEquals("010100", result.get(0).hsCode()); // prod1_code
+        assertEquals("010200", result.get(1).hsCode()); // prod2_common
+        assertEquals("030300", result.get(2).hsCode()); // prod3_desc (the de-duped item)
 
         // --- Verify ---
         verify(hsProductRepository).findByHsCodePrefix(query, limit);
         verify(hsProductService).searchByDescription(query, limit);
     }
 
+    @Test
+    void search_withTextQueryAndDestination_searchesWithinDestination() {
+        // --- Arrange ---
+        HsProduct apples = createProduct(1L, "0808.10", "Apples, fresh");
+        apples.setDestinationIso3("USA");
+        when(hsProductService.searchByDescription("apples", "USA", 5)).thenReturn(List.of(apples));
+
+        // --- Act ---
+        List<HsSuggestionDto> result = controller.search("apples", 5, "usa");
+
+        // --- Assert ---
+        assertEquals(List.of(new HsSuggestionDto("0808.10", "Apples, fresh")), result);
+
+        // --- Verify ---
+        // The destination is part of the search, not a filter over global results
+        verify(hsProductService, never()).searchByDescription(any(), anyInt());
+    }
+
+    @Test
+    void search_computesFromTheSameNormalizedQueryTheCacheKeyHolds() {
+        when(hsProductService.searchByDescription(any(), anyInt())).thenReturn(List.of());
+
+        controller.search("  the  lithium   battery ", 5, null);
+
+        verify(searchCache).get(eq(HsSearchCache.suggestionKey("lithium battery", null, 5)), any(), any());
+        verify(hsProductService).searchByDescription("lithium battery", 5);
+    }
+
     @Test
     void search_limitIsCapped_aboveMax() {
         // --- Arrange ---
@@ -183,20 +252,150 @@ class HsProductControllerTest {
         when(hsProductRepository.findByHsCodePrefix(any(), anyInt())).thenReturn(List.of(product));
 
         // --- Act ---
-        List<Map<String, Object>> result = controller.search(query, 5, null);
+        List<HsSuggestionDto> result = controller.search(query, 5, null);
 
         // --- Assert ---
-        assertEquals(1, result.size());
-        Map<String, Object> map = result.get(0);
-        
         // This assertion is the point of the test:
-        // Check that only the two specified fields are in the map
-        assertEquals(2, map.size());
-        assertTrue(map.containsKey("hsCode"));
-        assertTrue(map.containsKey("hsLabel"));
-        
-        assertEquals("010110", map.get("hsCode"));
-        assertEquals("Live Horses", map.get("hsLabel"));
+        // only the code and label are carried over
+        assertEquals(List.of(new HsSuggestionDto("010110", "Live Horses")), result);
+    }
+
+    @Test
+    void search_withNumericQueryAndDestination_usesIndexOnceLoaded() {
+        // --- Arrange ---
+        HsProduct horses = createProduct(1L, "0101.21", "Pure-bred horses");
+        horses.setDestinationIso3("USA");
+        HsProduct asses = createProduct(2L, "0101.30", "Asses");
+        asses.setDestinationIso3("USA");
+        HsProduct otherDestination = createProduct(3L, "010121", "Pure-bred horses");
+        otherDestination.setDestinationIso3("GBR");
+        when(hsCodeIndex.current()).thenReturn(new HsCodeIndex(List.of(asses, otherDestination, horses)));
+
+        // --- Act ---
+        List<HsSuggestionDto> result = controller.search("01012", 10, "usa");
+
+        // --- Assert ---
+        assertEquals(1, result.size());
+        assertEquals("0101.21", result.get(0).hsCode());
+
+        // --- Verify ---
+        verifyNoInteractions(hsProductService, hsProductRepository);
+    }
+
+    @Test
+    void search_withTypeaheadLoaded_answersWithoutRepositoryOrDescriptionSearch() {
+        // --- Arrange ---
+        HsProduct horses = createProduct(1L, "0101.21", "Pure-bred horses");
+        horses.setDestinationIso3("USA");
+        HsProduct asses = createProduct(2L, "0101.30", "Asses");
+        asses.setDestinationIso3("USA");
+        HsProduct otherDestination = createProduct(3L, "0101.21", "Pure-bred horses");
+        otherDestination.setDestinationIso3("GBR");
+        when(typeahead.current()).thenReturn(new HsTypeahead(List.of(asses, otherDestination, horses)));
+
+        // --- Act ---
+        List<HsSuggestionDto> byCode = controller.search("0101.2", 10, "usa");
+        List<HsSuggestionDto> byWord = controller.search("hor", 10, null);
+        List<HsSuggestionDto> initial = controller.search("", 10, "USA");
+
+        // --- Assert ---
+        assertEquals(List.of(new HsSuggestionDto("0101.21", "Pure-bred horses")), byCode);
+        assertEquals(2, byWord.size());
+        assertEquals(List.of("0101.21", "0101.30"), initial.stream().map(HsSuggestionDto::hsCode).toList());
+
+        // --- Verify ---
+        verifyNoInteractions(hsProductService, hsProductRepository, hsCodeIndex);
+    }
+
+    @Test
+    void search_withTypeaheadLoaded_fallsBackToDescriptionSearch_whenNothingCompletes() {
+        // --- Arrange ---
+        HsProduct horses = createProduct(1L, "0101.21", "Pure-bred horses");
+        when(typeahead.current()).thenReturn(new HsTypeahead(List.of(horses)));
+        when(hsProductService.searchByDescription("hroses", 10)).thenReturn(List.of(horses));
+
+        // --- Act ---
+        List<HsSuggestionDto> result = controller.search("hroses", 10, null);
+
+        // --- Assert ---
+        assertEquals(List.of(new HsSuggestionDto("0101.21", "Pure-bred horses")), result);
+    }
+
+    @Test
+    void search_goesThroughCacheWithNormalizedKey() {
+        // --- Arrange ---
+        List<HsSuggestionDto> cached = List.of(new HsSuggestionDto("8507.60", "Lithium-ion batteries"));
+        doReturn(cached).when(searchCache)
+                .get(eq(new HsSearchCache.Key(HsSearchCache.Kind.SUGGESTION, "lithium batt", "USA", 10)), any(), any());
+
+        // --- Act ---
+        List<HsSuggestionDto> result = controller.search("  Lithium  of Batt ", 10, "usa");
+
+        // --- Assert ---
+        assertSame(cached, result);
+
+        // --- Verify ---
+        verifyNoInteractions(hsProductService, hsProductRepository, hsCodeIndex, typeahead);
+    }
+
+    @Test
+    void tree_returnsNodeWithItsChildren() {
+        // --- Arrange ---
+        HsProduct heading = createProduct(1L, "8507", "Electric accumulators");
+        HsProduct lithium = createProduct(2L, "8507.60", "Lithium-ion");
+        HsProduct leadAcid = createProduct(3L, "8507.10", "Lead-acid");
+        for (HsProduct product : List.of(heading, lithium, leadAcid)) {
+            product.setDestinationIso3("USA");
+            product.setHsVersion("HS2022");
+        }
+        when(hierarchy.forDestination(any()))
+                .thenReturn(new HsHierarchy(List.of(heading, lithium, leadAcid), Set.of(2L)));
+
+        // --- Act ---
+        HsTreeDto result = controller.tree("usa", "8507", null);
+
+        // --- Assert ---
+        assertEquals("USA", result.destinationIso3());
+        assertEquals("HS2022", result.hsVersion());
+        assertEquals(new HsTreeNodeDto("8507", "8507", "Electric accumulators", 2, true, true), result.node());
+        assertEquals(List.of(
+                new HsTreeNodeDto("850710", "8507.10", "Lead-acid", 0, false, false),
+                new HsTreeNodeDto("850760", "8507.60", "Lithium-ion", 0, true, false)), result.children());
+
+        // --- Verify ---
+        verifyNoInteractions(hsProductService, hsProductRepository, hsCodeIndex, typeahead, searchCache);
+    }
+
+    @Test
+    void tree_unknownNode_throwsNotFound() {
+        // --- Arrange ---
+        when(hierarchy.forDestination(any())).thenReturn(HsHierarchy.EMPTY);
+
+        // --- Act & Assert ---
+        HsNodeNotFoundException ex = assertThrows(HsNodeNotFoundException.class,
+                () -> controller.tree("USA", "9999", null));
+        assertEquals("No HS code 9999 for USA", ex.getMessage());
+    }
+
+    @Test
+    void resolve_mapsOlderVersionCodeToCurrentLines() {
+        // --- Arrange ---
+        HsProduct drones = createProduct(1L, "8806.21", "Unmanned aircraft, for remote flight");
+        drones.setDestinationIso3("USA");
+        drones.setHsVersion("HS2022");
+        when(concordance.forDestination(any())).thenReturn(new HsConcordanceIndex(List.of(drones),
+                List.of(new HsConcordanceIndex.Link("HS2017", "8802.21", "HS2022", "8806.21"))));
+
+        // --- Act ---
+        HsCodeResolutionDto result = controller.resolve("usa", "8802.21", "HS2017");
+
+        // --- Assert ---
+        assertEquals("USA", result.destinationIso3());
+        assertEquals("HS2022", result.currentVersion());
+        assertEquals(List.of(new HsSuggestionDto("8806.21", "Unmanned aircraft, for remote flight")), result.lines());
+
+        // --- Verify ---
+        verifyNoInteractions(hsProductService, hsProductRepository, hsCodeIndex, typeahead, searchCache);
     }
 
     // --- Helper Methods ---
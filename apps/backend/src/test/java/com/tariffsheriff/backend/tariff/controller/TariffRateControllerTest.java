@@ -1,12 +1,23 @@
 package com.tariffsheriff.backend.tariff.controller;
 
 import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepResponse;
 import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateBatchLookupResultDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateLookupDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateLookupRequestDto;
 import com.tariffsheriff.backend.tariff.dto.TariffRateOptionDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingResponse;
+import com.tariffsheriff.backend.tariff.index.TradeRoute;
+import com.tariffsheriff.backend.tariff.index.TradeRouteSummary;
 import com.tariffsheriff.backend.tariff.model.TariffRate;
 // Import the repository
 import com.tariffsheriff.backend.tariff.repository.TariffRateRepository; 
+import com.tariffsheriff.backend.tariff.service.TariffCalculationBatchService;
+import com.tariffsheriff.backend.tariff.service.TariffCalculationSweepService;
 import com.tariffsheriff.backend.tariff.service.TariffRateService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,6 +26,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map; // Import for new test
@@ -34,11 +48,21 @@ class TariffRateControllerTest {
     @Mock // <-- THIS MOCK WAS MISSING
     TariffRateRepository tariffRateRepository;
 
+    @Mock
+    TradeRouteSummary tradeRouteSummary;
+
+    @Mock
+    TariffCalculationBatchService calculationBatchService;
+
+    @Mock
+    TariffCalculationSweepService calculationSweepService;
+
     @InjectMocks
     TariffRateController controller;
 
     private TariffRateRequestDto validRequest;
     private TariffRate sampleRate;
+    private TariffRateListItemDto sampleItem;
     private TariffRateLookupDto sampleLookup;
 
     @BeforeEach
@@ -50,6 +74,8 @@ class TariffRateControllerTest {
         sampleRate.setAdValoremRate(new BigDecimal("0.10"));
         sampleRate.setImporterIso3("GBR");
         sampleRate.setHsProductId(123L);
+        sampleItem = new TariffRateListItemDto(1L, "GBR", null, 123L, "0101", "Live horses", "MFN", null,
+                new BigDecimal("0.10"), false, null, null);
 
         // Setup sample calculation request
         validRequest = new TariffRateRequestDto();
@@ -80,14 +106,14 @@ class TariffRateControllerTest {
         int limit = 20;
         
         when(service.findByCountryPairAndHsCodes(importer, origin, hsCodes, limit))
-                .thenReturn(List.of(sampleRate));
+                .thenReturn(List.of(sampleItem));
 
         // --- Act ---
         var result = controller.getTariffRates(importer, origin, hsCodes, limit);
         
         // --- Assert ---
         assertEquals(1, result.size()); 
-        assertEquals(1L, result.get(0).getId());
+        assertEquals(1L, result.get(0).id());
         
         // Verify the correct service method was called
         verify(service).findByCountryPairAndHsCodes(importer, origin, hsCodes, limit);
@@ -116,6 +142,41 @@ class TariffRateControllerTest {
         verify(service).calculateTariffRate(validRequest);
     }
 
+    @Test
+    void calculateBatch_streamsTheBodyThroughTheBatchService() throws Exception {
+        InputStream body = new ByteArrayInputStream("{}\n".getBytes());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        var response = controller.calculateTariffRates(body);
+        verifyNoInteractions(calculationBatchService);
+        response.getBody().writeTo(out);
+
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        verify(calculationBatchService).calculate(body, out);
+    }
+
+    @Test
+    void sweep_delegatesToSweepService() {
+        TariffCalculationSweepRequestDto sweep = new TariffCalculationSweepRequestDto();
+        sweep.setBase(validRequest);
+        TariffCalculationSweepResponse expected = new TariffCalculationSweepResponse(List.of(),
+                new double[0][0], new boolean[0][0], List.of());
+        when(calculationSweepService.sweep(sweep)).thenReturn(expected);
+
+        assertSame(expected, controller.sweepTariffRate(sweep));
+    }
+
+    @Test
+    void rankOrigins_delegatesToService() {
+        TariffSourcingRequestDto sourcing = new TariffSourcingRequestDto();
+        sourcing.setImporterIso3("USA");
+        sourcing.setHsCode("850760");
+        TariffSourcingResponse expected = new TariffSourcingResponse("USA", "850760", List.of());
+        when(service.rankOrigins(sourcing)).thenReturn(expected);
+
+        assertSame(expected, controller.rankOrigins(sourcing));
+    }
+
     @Test
     void lookup_delegatesToService() {
         when(service.getTariffRateWithAgreement("GBR", "CHN", "0101"))
@@ -152,7 +213,7 @@ class TariffRateControllerTest {
         
         // Test the branch: importerIso3 != null && originIso3 != null
         when(service.findByCountryPair(importer, origin, null, limit))
-                .thenReturn(List.of(sampleRate));
+                .thenReturn(List.of(sampleItem));
 
         // --- Act ---
         var result = controller.getTariffRates(importer, origin, null, limit);
@@ -172,7 +233,7 @@ class TariffRateControllerTest {
         
         // Test the branch: importerIso3 != null && hsCodes != null
         when(service.findByImporterAndHsCodes(importer, hsCodes, limit))
-                .thenReturn(List.of(sampleRate));
+                .thenReturn(List.of(sampleItem));
 
         // --- Act ---
         var result = controller.getTariffRates(importer, null, hsCodes, limit);
@@ -191,7 +252,7 @@ class TariffRateControllerTest {
         
         // Test the branch: importerIso3 != null
         when(service.findByImporter(importer, null, limit))
-                .thenReturn(List.of(sampleRate));
+                .thenReturn(List.of(sampleItem));
 
         // --- Act ---
         var result = controller.getTariffRates(importer, null, null, limit);
@@ -210,7 +271,7 @@ class TariffRateControllerTest {
         
         // Test the branch: hsCodes != null
         when(service.findByHsCodes(hsCodes, limit))
-                .thenReturn(List.of(sampleRate));
+                .thenReturn(List.of(sampleItem));
 
         // --- Act ---
         var result = controller.getTariffRates(null, null, hsCodes, limit);
@@ -228,7 +289,7 @@ class TariffRateControllerTest {
         
         // Test the final else branch (no params)
         when(service.listTariffRates(limit))
-                .thenReturn(List.of(sampleRate));
+                .thenReturn(List.of(sampleItem));
 
         // --- Act ---
         var result = controller.getTariffRates(null, null, null, limit);
@@ -238,6 +299,30 @@ class TariffRateControllerTest {
         verify(service).listTariffRates(limit);
     }
 
+    @Test
+    void getTradeRoutes_servesLoadedSummaryWithoutQuerying() {
+        when(tradeRouteSummary.isLoaded()).thenReturn(true);
+        when(tradeRouteSummary.routes()).thenReturn(List.of(
+                new TradeRoute("USA", "CHN", 150L),
+                new TradeRoute("GBR", "FRA", 75L)));
+
+        List<Map<String, Object>> result = controller.getTradeRoutes();
+
+        assertEquals(2, result.size());
+        assertEquals("USA", result.get(0).get("importerIso3"));
+        assertEquals("CHN", result.get(0).get("originIso3"));
+        assertEquals(150L, result.get(0).get("count"));
+        assertEquals("FRA", result.get(1).get("originIso3"));
+        verifyNoInteractions(tariffRateRepository);
+    }
+
+    @Test
+    void rebuildTradeRoutes_reportsRouteCount() {
+        when(tradeRouteSummary.rebuild()).thenReturn(42);
+
+        assertEquals(Map.of("routes", 42), controller.rebuildTradeRoutes());
+    }
+
     @Test
     void getTradeRoutes_delegatesToRepository_andMapsCorrectly() {
         // --- Arrange ---
@@ -270,4 +355,20 @@ class TariffRateControllerTest {
         assertEquals("FR", map2.get("originIso3"));
         assertEquals(75L, map2.get("count"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getTariffRatesAndAgreements_delegatesBatchToService() {
+        List<TariffRateLookupRequestDto> lookups = List.of(
+                new TariffRateLookupRequestDto("GBR", "CHN", "0101"),
+                new TariffRateLookupRequestDto("GBR", null, "bad"));
+        List<TariffRateBatchLookupResultDto> expected = List.of(
+                TariffRateBatchLookupResultDto.success(0, sampleLookup),
+                TariffRateBatchLookupResultDto.failure(1, "No HS product found"));
+        when(service.getTariffRatesWithAgreement(lookups)).thenReturn(expected);
+
+        List<TariffRateBatchLookupResultDto> result = controller.getTariffRatesAndAgreements(lookups);
+
+        assertSame(expected, result);
+        verify(service).getTariffRatesWithAgreement(lookups);
+    }
+}
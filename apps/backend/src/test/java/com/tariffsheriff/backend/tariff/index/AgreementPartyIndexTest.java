@@ -0,0 +1,77 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgreementPartyIndexTest {
+
+    @Test
+    void agreementsOf_andCommonAgreements_followPartyRows() {
+        Agreement cptpp = agreement(3L, "CPTPP");
+        Agreement aisfta = agreement(1L, "AISFTA");
+        Agreement rcep = agreement(2L, "RCEP");
+        AgreementPartyIndex index = new AgreementPartyIndex(List.of(cptpp, aisfta, rcep), List.of(
+                row(3L, "SGP"), row(3L, "JPN"),
+                row(1L, "SGP"), row(1L, "IND"),
+                row(2L, "sgp"), row(2L, "JPN"), row(2L, "IND ")));
+
+        assertEquals(List.of(aisfta, rcep, cptpp), index.agreementsOf("SGP"));
+        assertEquals(List.of(aisfta, rcep), index.commonAgreements("sgp", "IND"));
+        assertEquals(List.of(rcep, cptpp), index.commonAgreements("JPN", "SGP"));
+        assertEquals(List.of(rcep), index.commonAgreements("JPN", "IND"));
+        assertTrue(index.commonAgreements("SGP", "USA").isEmpty());
+        assertTrue(index.agreementsOf("XX").isEmpty());
+        assertTrue(index.covers(3L, "JPN", "SGP"));
+        assertFalse(index.covers(3L, "JPN", "IND"));
+        assertFalse(index.covers(99L, "JPN", "SGP"));
+        assertFalse(index.covers(null, "JPN", "SGP"));
+    }
+
+    @Test
+    void rowsForUnknownAgreementsOrCodes_areSkipped() {
+        AgreementPartyIndex index = new AgreementPartyIndex(List.of(agreement(1L, "A")), List.of(
+                row(1L, "SGP"), row(9L, "SGP"), row(1L, "S1P"), new Object[] { null, "SGP" }));
+
+        assertEquals(1, index.agreementsOf("SGP").size());
+        assertEquals(1, index.agreementCount());
+        assertTrue(AgreementPartyIndex.EMPTY.isEmpty());
+        assertTrue(AgreementPartyIndex.EMPTY.agreementsOf("SGP").isEmpty());
+    }
+
+    @Test
+    void intersection_spansSeveralWords() {
+        List<Agreement> agreements = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            agreements.add(agreement(id, "A" + id));
+            if (id % 2 == 0) {
+                rows.add(row(id, "SGP"));
+            }
+            if (id % 3 == 0) {
+                rows.add(row(id, "IND"));
+            }
+        }
+        AgreementPartyIndex index = new AgreementPartyIndex(agreements, rows);
+
+        List<Agreement> common = index.commonAgreements("SGP", "IND");
+
+        assertEquals(33, common.size());
+        assertEquals(6L, common.get(0).getId());
+        assertEquals(198L, common.get(common.size() - 1).getId());
+        assertEquals(100, index.agreementsOf("SGP").size());
+    }
+
+    private static Agreement agreement(Long id, String name) {
+        return new Agreement(id, name, new BigDecimal("40"));
+    }
+
+    private static Object[] row(Long agreementId, String iso3) {
+        return new Object[] { agreementId, iso3 };
+    }
+}
@@ -0,0 +1,52 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.Country;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountryRegistryTest {
+
+    @Test
+    void find_isCaseInsensitiveAndCanonicalizes() {
+        CountryRegistry registry = new CountryRegistry(List.of(
+                new Country(1L, "SGP", "Singapore"),
+                new Country(2L, "usa", "United States")));
+
+        assertEquals("Singapore", registry.find("sgp").getName());
+        assertEquals(1L, registry.find("SgP").getId());
+        assertEquals("USA", registry.canonicalIso3("Usa"));
+        assertTrue(registry.contains("USA"));
+        assertNull(registry.find("GBR"));
+        assertNull(registry.find("SG"));
+        assertNull(registry.find("S1P"));
+        assertNull(registry.canonicalIso3(null));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void registry_skipsMalformedCodesAndCountsDuplicatesOnce() {
+        CountryRegistry registry = new CountryRegistry(List.of(
+                new Country(1L, "SGP", "Singapore"),
+                new Country(2L, "SGP ", "Singapore (renamed)"),
+                new Country(3L, "XX", "Broken"),
+                new Country(4L, null, "Missing")));
+
+        assertEquals(1, registry.size());
+        assertEquals("Singapore (renamed)", registry.find("sgp").getName());
+        assertTrue(CountryRegistry.EMPTY.isEmpty());
+        assertNull(CountryRegistry.EMPTY.find("SGP"));
+    }
+
+    @Test
+    void registry_holdsDetachedCopies() {
+        Country singapore = new Country(1L, "SGP", "Singapore");
+        CountryRegistry registry = new CountryRegistry(List.of(singapore));
+
+        singapore.setName("Changed");
+
+        assertEquals("Singapore", registry.find("SGP").getName());
+    }
+}
@@ -0,0 +1,94 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswGraphTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @Test
+    void search_matchesExactScanOnSmallGraphs() {
+        List<float[]> vectors = randomVectors(50, new Random(1));
+        HnswGraph graph = new HnswGraph(vectors, DIMENSIONS);
+        float[] query = randomVectors(1, new Random(2)).get(0);
+
+        assertEquals(nodes(graph.exact(query, 10)), nodes(graph.search(query, 10, HsSemanticIndex.EF_SEARCH)));
+        assertEquals(7, graph.search(vectors.get(7), 1, HsSemanticIndex.EF_SEARCH).get(0).node());
+    }
+
+    @Test
+    void search_recallsNearlyAllTrueNeighboursOnLargerGraphs() {
+        Random random = new Random(3);
+        List<float[]> centres = randomVectors(40, random);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            vectors.add(near(centres.get(i % centres.size()), random));
+        }
+        HnswGraph graph = new HnswGraph(vectors, DIMENSIONS);
+
+        int found = 0;
+        int expected = 0;
+        for (int q = 0; q < 100; q++) {
+            float[] query = near(centres.get(random.nextInt(centres.size())), random);
+            Set<Integer> truth = new HashSet<>(nodes(graph.exact(query, 10)));
+            for (int node : nodes(graph.search(query, 10, HsSemanticIndex.EF_SEARCH))) {
+                if (truth.contains(node)) {
+                    found++;
+                }
+            }
+            expected += truth.size();
+        }
+        assertTrue(found >= 0.95 * expected, "recall@10 was " + (double) found / expected);
+    }
+
+    @Test
+    void search_onEmptyGraphFindsNothing() {
+        HnswGraph graph = new HnswGraph(List.of(), DIMENSIONS);
+
+        assertTrue(graph.search(new float[DIMENSIONS], 10, HsSemanticIndex.EF_SEARCH).isEmpty());
+        assertTrue(graph.exact(new float[DIMENSIONS], 10).isEmpty());
+    }
+
+    private static List<Integer> nodes(List<HnswGraph.Hit> hits) {
+        return hits.stream().map(HnswGraph.Hit::node).toList();
+    }
+
+    private static List<float[]> randomVectors(int count, Random random) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+            vectors.add(normalize(vector));
+        }
+        return vectors;
+    }
+
+    private static float[] near(float[] centre, Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = centre[d] + 0.3f * (float) random.nextGaussian();
+        }
+        return normalize(vector);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,113 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsConcordanceRepository;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HsCatalogSnapshotHolderTest {
+
+    private static final List<Object[]> USA_ROWS = List.<Object[]>of(
+            new Object[]{1L, "USA", "HS2022", "8507.60", "Lithium-ion accumulators"},
+            new Object[]{2L, "USA", "HS2022", "8806.21", "Unmanned aircraft"});
+
+    private HsProductRepository hsProducts;
+    private TariffRateRepository tariffRates;
+    private HsConcordanceRepository concordance;
+
+    @BeforeEach
+    void setUp() {
+        hsProducts = mock(HsProductRepository.class);
+        tariffRates = mock(TariffRateRepository.class);
+        concordance = mock(HsConcordanceRepository.class);
+    }
+
+    @Test
+    void memoryMode_loadsTheWholeCatalogAndServesTheResidentCopy() {
+        when(hsProducts.findAllIndexRows()).thenReturn(USA_ROWS);
+        when(tariffRates.findAllRouteRows()).thenReturn(List.<Object[]>of(new Object[]{100L, "USA", null, 1L}));
+        HsHierarchyHolder hierarchy = new HsHierarchyHolder(hsProducts, tariffRates);
+        hierarchy.setSearchMode("memory");
+
+        hierarchy.loadOnStartup();
+
+        assertFalse(hierarchy.current().isEmpty());
+        assertSame(hierarchy.current(), hierarchy.forDestination("USA"));
+        verify(hsProducts, never()).findIndexRowsByDestination(any());
+    }
+
+    @Test
+    void postgresMode_neverLoadsTheCatalogAndReadsOneDestinationPerCall() {
+        when(hsProducts.findIndexRowsByDestination("USA")).thenReturn(USA_ROWS);
+        when(tariffRates.findRatedHsProductIdsByDestination("USA")).thenReturn(List.of(1L));
+        when(concordance.findAllLinkRows()).thenReturn(List.<Object[]>of(
+                new Object[]{"HS2017", "8802.21", "HS2022", "8806.21"}));
+        HsHierarchyHolder hierarchy = new HsHierarchyHolder(hsProducts, tariffRates);
+        HsConcordanceIndexHolder concordanceIndex = new HsConcordanceIndexHolder(hsProducts, concordance);
+        HsCodeIndexHolder codeIndex = new HsCodeIndexHolder(hsProducts);
+        HsTypeaheadHolder typeahead = new HsTypeaheadHolder(hsProducts);
+        hierarchy.setSearchMode("postgres");
+        concordanceIndex.setSearchMode("postgres");
+        codeIndex.setSearchMode("postgres");
+        typeahead.setSearchMode("postgres");
+
+        hierarchy.loadOnStartup();
+        concordanceIndex.loadOnStartup();
+        codeIndex.loadOnStartup();
+        typeahead.loadOnStartup();
+        hierarchy.onTariffDataChanged(new TariffDataChangedEvent(HsProduct.class));
+
+        assertTrue(hierarchy.current().isEmpty());
+        assertTrue(concordanceIndex.current().isEmpty());
+        assertTrue(codeIndex.current().isEmpty());
+        assertTrue(typeahead.current().isEmpty());
+        verify(hsProducts, never()).findAllIndexRows();
+        verify(tariffRates, never()).findAllRouteRows();
+
+        HsHierarchy.Node lithium = hierarchy.forDestination(" usa ").node("USA", "HS2022", "850760");
+        assertNotNull(lithium);
+        assertTrue(lithium.hasRates());
+        assertEquals("8806.21", concordanceIndex.forDestination("usa").resolve("USA", "HS2017", "8802.21")
+                .get(0).getHsCode());
+        assertTrue(concordanceIndex.forDestination(" ").isEmpty());
+    }
+
+    @Test
+    void reload_waitsForARebuildInProgressSoTheNewerLoadPublishesLast() throws Exception {
+        CompletableFuture<Void> firstScanning = new CompletableFuture<>();
+        CompletableFuture<Void> releaseFirst = new CompletableFuture<>();
+        AtomicInteger scans = new AtomicInteger();
+        when(hsProducts.findAllIndexRows()).thenAnswer(invocation -> {
+            if (scans.incrementAndGet() == 1) {
+                firstScanning.complete(null);
+                releaseFirst.get(5, TimeUnit.SECONDS);
+                return List.<Object[]>of(USA_ROWS.get(0));
+            }
+            return USA_ROWS;
+        });
+        HsCodeIndexHolder codeIndex = new HsCodeIndexHolder(hsProducts);
+
+        CompletableFuture<HsCodeIndex> older = CompletableFuture.supplyAsync(codeIndex::reload);
+        firstScanning.get(5, TimeUnit.SECONDS);
+        CompletableFuture<HsCodeIndex> newer = CompletableFuture.supplyAsync(codeIndex::reload);
+        Thread.sleep(100);
+        assertEquals(1, scans.get());
+        assertFalse(newer.isDone());
+
+        releaseFirst.complete(null);
+        older.get(5, TimeUnit.SECONDS);
+        assertSame(newer.get(5, TimeUnit.SECONDS), codeIndex.current());
+        assertEquals(2, scans.get());
+        codeIndex.shutdown();
+    }
+}
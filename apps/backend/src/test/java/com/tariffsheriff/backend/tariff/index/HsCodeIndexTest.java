@@ -0,0 +1,84 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsCodeIndexTest {
+
+    @Test
+    void range_isDotInsensitiveAndOrderedByCode() {
+        HsCodeIndex index = new HsCodeIndex(List.of(
+                product(1L, "SGP", "8507.60"),
+                product(2L, "SGP", "850710"),
+                product(3L, "SGP", "0101.21"),
+                product(4L, "SGP", "85076000"),
+                product(5L, "USA", "850760")));
+
+        assertEquals(List.of("850710", "8507.60", "85076000"), codes(index.findByPrefix("SGP", "8507", 10)));
+        assertEquals(List.of("8507.60", "85076000"), codes(index.findByPrefix("sgp", "850760", 10)));
+        assertEquals(List.of("85076000"), codes(index.findByPrefix("SGP", "8507600", 10)));
+        assertEquals(List.of("8507.60"), codes(index.findByPrefix("SGP", "8507.6", 1)));
+        assertEquals(4, index.range("SGP", "").size());
+        assertTrue(index.range("SGP", "9").isEmpty());
+        assertTrue(index.range("SGP", "850761").isEmpty());
+        assertTrue(index.range("GBR", "8507").isEmpty());
+        assertTrue(index.range("XX", "8507").isEmpty());
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void findByPrefix_withoutDestination_mergesTriesInCodeOrder() {
+        HsCodeIndex index = new HsCodeIndex(List.of(
+                product(1L, "USA", "850760"),
+                product(2L, "SGP", "850710"),
+                product(3L, "GBR", "850760"),
+                product(4L, "SGP", "0101")));
+
+        List<HsProduct> matches = index.findByPrefix("8507", 2);
+
+        assertEquals(List.of(2L, 1L), matches.stream().map(HsProduct::getId).collect(Collectors.toList()));
+        assertEquals(3, index.findByPrefix("8507", 10).size());
+    }
+
+    @Test
+    void range_agreesWithLinearScan() {
+        List<HsProduct> products = new ArrayList<>();
+        long id = 1;
+        for (int chapter = 1; chapter <= 20; chapter++) {
+            for (int heading = 0; heading < 12; heading += 3) {
+                for (int sub = 0; sub < 100; sub += 37) {
+                    products.add(product(id++, "SGP",
+                            String.format("%02d%02d.%02d", chapter, heading, sub)));
+                }
+            }
+        }
+        HsCodeIndex index = new HsCodeIndex(products);
+
+        for (String prefix : List.of("", "0", "01", "010", "0103", "01033", "010337", "1", "19", "1909", "2", "99")) {
+            List<Long> expected = products.stream()
+                    .filter(p -> p.getHsCode().replace(".", "").startsWith(prefix))
+                    .map(HsProduct::getId)
+                    .sorted()
+                    .collect(Collectors.toList());
+            List<Long> actual = index.findByPrefix("SGP", prefix, Integer.MAX_VALUE).stream()
+                    .map(HsProduct::getId)
+                    .sorted()
+                    .collect(Collectors.toList());
+            assertEquals(expected, actual, "prefix " + prefix);
+        }
+    }
+
+    private static List<String> codes(List<HsProduct> products) {
+        return products.stream().map(HsProduct::getHsCode).collect(Collectors.toList());
+    }
+
+    private static HsProduct product(Long id, String destination, String hsCode) {
+        return new HsProduct(id, destination, null, "HS2022", hsCode, "label " + hsCode);
+    }
+}
@@ -0,0 +1,71 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsConcordanceIndexTest {
+
+    private final HsConcordanceIndex index = new HsConcordanceIndex(List.of(
+            product(1L, "USA", "HS2022", "8541.42", "Photovoltaic cells, not in modules"),
+            product(2L, "USA", "HS2022", "8541.43", "Photovoltaic cells assembled in modules"),
+            product(3L, "USA", "HS2022", "8541.49", "Other photosensitive devices"),
+            product(4L, "USA", "HS2022", "8507.60", "Lithium-ion accumulators"),
+            product(5L, "USA", "HS2022", "8507.60.0010", "Lithium-ion, for vehicles"),
+            product(6L, "USA", "HS2022", "8507.60.0020", "Lithium-ion, other"),
+            product(7L, "USA", "HS2022", "8806.21", "Unmanned aircraft, for remote flight"),
+            product(8L, "USA", "HS2017", "8541.40", "Photosensitive semiconductor devices"),
+            product(9L, "CAN", "HS2017", "8541.40", "Photosensitive semiconductor devices")),
+            List.of(
+                    new HsConcordanceIndex.Link("HS2017", "8541.40", "HS2022", "8541.42"),
+                    new HsConcordanceIndex.Link("HS2017", "8541.40", "HS2022", "8541.43"),
+                    new HsConcordanceIndex.Link("HS2017", "8541.40", "HS2022", "8541.49"),
+                    new HsConcordanceIndex.Link("HS2017", "8507.80", "HS2022", "8507.60"),
+                    new HsConcordanceIndex.Link("HS2012", "8802.20", "HS2017", "8802.21"),
+                    new HsConcordanceIndex.Link("HS2017", "8802.21", "HS2022", "8806.21")));
+
+    @Test
+    void resolve_mapsOlderCodesOntoTheCurrentVersion() {
+        assertEquals("HS2022", index.currentVersion("usa"));
+        assertEquals(List.of("8541.42", "8541.43", "8541.49"), codes(index.resolve("USA", "HS2017", "854140")));
+        // Without a version, every version's mapping for the code counts
+        assertEquals(List.of("8541.42", "8541.43", "8541.49"), codes(index.resolve("USA", null, "8541.40")));
+        // Through HS2017 to HS2022
+        assertEquals(List.of("8806.21"), codes(index.resolve("USA", "HS2012", "880220")));
+        // Backwards for a destination still on HS2017
+        assertEquals(List.of("8541.40"), codes(index.resolve("CAN", "HS2022", "854143")));
+    }
+
+    @Test
+    void resolve_keepsNationalSuffixesAndCarriesUnchangedCodesOver() {
+        assertEquals(List.of("8507.60.0020"), codes(index.resolve("USA", "HS2017", "8507.80.0020")));
+        assertEquals(List.of("8507.60", "8507.60.0010", "8507.60.0020"),
+                codes(index.resolve("USA", "HS2017", "850780")));
+        // No concordance row, so HS2017 8507.60.0010 is still 8507.60.0010
+        assertEquals(List.of("8507.60.0010"), codes(index.resolve("USA", "HS2017", "8507600010")));
+    }
+
+    @Test
+    void resolve_currentCodeIsItselfAndUnknownCodesResolveToNothing() {
+        assertEquals(List.of(5L), ids(index.resolve("USA", null, "8507.60.0010")));
+        assertEquals(List.of(5L), ids(index.resolve("USA", "HS2022", "8507600010")));
+        assertTrue(index.resolve("USA", null, "9999").isEmpty());
+        assertTrue(index.resolve("FRA", "HS2017", "854140").isEmpty());
+        assertTrue(HsConcordanceIndex.EMPTY.resolve("USA", null, "854140").isEmpty());
+    }
+
+    private static HsProduct product(Long id, String destination, String version, String code, String label) {
+        return new HsProduct(id, destination, null, version, code, label);
+    }
+
+    private static List<String> codes(List<HsProduct> products) {
+        return products.stream().map(HsProduct::getHsCode).toList();
+    }
+
+    private static List<Long> ids(List<HsProduct> products) {
+        return products.stream().map(HsProduct::getId).toList();
+    }
+}
@@ -0,0 +1,98 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HsHierarchyHolderTest {
+
+    private HsProductRepository hsProducts;
+    private TariffRateRepository tariffRates;
+    private HsHierarchyHolder holder;
+
+    @BeforeEach
+    void setUp() {
+        hsProducts = mock(HsProductRepository.class);
+        tariffRates = mock(TariffRateRepository.class);
+        when(hsProducts.findAllIndexRows()).thenReturn(List.<Object[]>of(
+                new Object[]{1L, "USA", "HS2022", "8507.10", "Lead-acid"},
+                new Object[]{2L, "USA", "HS2022", "8507.60", "Lithium-ion"},
+                new Object[]{3L, "USA", "HS2022", "0101.21", "Pure-bred breeding horses"}));
+        when(tariffRates.findAllRouteRows()).thenReturn(List.<Object[]>of(
+                new Object[]{10L, "USA", null, 2L},
+                new Object[]{11L, "USA", "CHN", 2L}));
+        holder = new HsHierarchyHolder(hsProducts, tariffRates);
+        holder.loadOnStartup();
+    }
+
+    @Test
+    void rateChanges_moveCoverageFlagsWithoutReloadingTheTree() {
+        HsHierarchy tree = holder.current();
+        assertTrue(hasRates("8507"));
+        assertFalse(hasRates("850710"));
+        assertFalse(hasRates("01"));
+
+        holder.onTariffDataChanged(new TariffDataChangedEvent(TariffRate.class));
+        holder.onTariffRateChanged(new TariffRateChangedEvent(12L, "USA", null, 3L, false));
+        holder.onTariffRateChanged(new TariffRateChangedEvent(12L, "USA", null, 3L, false));
+        assertTrue(hasRates("010121"));
+        assertTrue(hasRates(""));
+
+        // Moving one of lithium's two rates keeps it rated; removing the other one does not
+        holder.onTariffRateChanged(new TariffRateChangedEvent(11L, "USA", "CHN", 1L, false));
+        assertTrue(hasRates("850760"));
+        assertTrue(hasRates("850710"));
+        holder.onTariffRateChanged(new TariffRateChangedEvent(10L, "USA", null, 2L, true));
+        assertFalse(hasRates("850760"));
+        assertTrue(hasRates("8507"));
+
+        holder.onTariffRateChanged(new TariffRateChangedEvent(12L, "USA", null, 3L, true));
+        assertFalse(hasRates("01"));
+        holder.onTariffRateChanged(new TariffRateChangedEvent(99L, "USA", null, null, true));
+
+        assertSame(tree, holder.current());
+        verify(hsProducts, times(1)).findAllIndexRows();
+        verify(tariffRates, times(1)).findAllRouteRows();
+    }
+
+    @Test
+    void reload_rebuildsTheTreeOnProductChangesAndReplaysRatesCommittedMeanwhile() throws Exception {
+        CompletableFuture<Void> scanning = new CompletableFuture<>();
+        CompletableFuture<Void> proceed = new CompletableFuture<>();
+        when(tariffRates.findAllRouteRows()).thenAnswer(invocation -> {
+            scanning.complete(null);
+            proceed.get(5, TimeUnit.SECONDS);
+            return List.<Object[]>of(new Object[]{10L, "USA", null, 2L}, new Object[]{11L, "USA", "CHN", 2L});
+        });
+
+        CompletableFuture<HsHierarchy> reload = CompletableFuture.supplyAsync(holder::reload);
+        scanning.get(5, TimeUnit.SECONDS);
+        // Committed while the rows are read: the scan may or may not have seen it
+        holder.onTariffRateChanged(new TariffRateChangedEvent(12L, "USA", null, 1L, false));
+        assertTrue(hasRates("850710"));
+        proceed.complete(null);
+        HsHierarchy reloaded = reload.get(5, TimeUnit.SECONDS);
+
+        assertSame(reloaded, holder.current());
+        assertTrue(hasRates("850710"));
+        assertTrue(hasRates("850760"));
+        assertFalse(hasRates("01"));
+
+        holder.onTariffDataChanged(new TariffDataChangedEvent(HsProduct.class));
+        verify(hsProducts, timeout(5000).times(3)).findAllIndexRows();
+    }
+
+    private boolean hasRates(String code) {
+        return holder.current().node("USA", "HS2022", code).hasRates();
+    }
+}
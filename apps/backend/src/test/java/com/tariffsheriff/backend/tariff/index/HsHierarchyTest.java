@@ -0,0 +1,77 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsHierarchyTest {
+
+    private final HsHierarchy hierarchy = new HsHierarchy(List.of(
+            product(1L, "USA", "HS2022", "8507", "Electric accumulators"),
+            product(2L, "USA", "HS2022", "8507.10", "Lead-acid, for starting engines"),
+            product(3L, "USA", "HS2022", "8507.60", "Lithium-ion"),
+            product(4L, "USA", "HS2022", "8507.60.0010", "Lithium-ion, for vehicles"),
+            product(5L, "USA", "HS2022", "8507.60.0020", "Lithium-ion, other"),
+            product(6L, "USA", "HS2022", "0101.21", "Pure-bred breeding horses"),
+            product(7L, "USA", "HS2017", "8507.60", "Lithium-ion accumulators"),
+            product(8L, "GBR", "HS2022", "8507.60", "Lithium-ion accumulators")),
+            Set.of(4L, 8L));
+
+    @Test
+    void node_listsChildrenOneLevelDown() {
+        HsHierarchy.Node root = hierarchy.node("USA", "HS2022", "");
+        assertEquals(List.of("01", "85"), codes(root.children()));
+        assertEquals(6, root.descendants());
+
+        HsHierarchy.Node heading = hierarchy.node("USA", "HS2022", "8507");
+        assertEquals("Electric accumulators", heading.label());
+        assertEquals(List.of("850710", "850760"), codes(heading.children()));
+        assertEquals(List.of("85076000"), codes(hierarchy.node("USA", "HS2022", "8507.60").children()));
+        assertEquals(List.of("8507600010", "8507600020"), codes(hierarchy.node("usa", "HS2022", "85076000").children()));
+    }
+
+    @Test
+    void node_countsDescendantsAndFlagsRateCoverage() {
+        HsHierarchy.Node chapter = hierarchy.node("USA", "HS2022", "85");
+        assertNull(chapter.hsCode());
+        assertEquals(5, chapter.descendants());
+        assertTrue(chapter.hasRates());
+
+        HsHierarchy.Node subheading = hierarchy.node("USA", "HS2022", "850760");
+        assertEquals(3L, subheading.productId());
+        assertEquals(2, subheading.descendants());
+        assertTrue(subheading.hasRates());
+
+        HsHierarchy.Node leadAcid = hierarchy.node("USA", "HS2022", "850710");
+        assertEquals(0, leadAcid.descendants());
+        assertFalse(leadAcid.hasRates());
+        assertFalse(hierarchy.node("USA", "HS2022", "01").hasRates());
+    }
+
+    @Test
+    void node_keepsDestinationsAndVersionsApart() {
+        assertEquals(List.of("HS2017", "HS2022"), hierarchy.versions("USA"));
+        assertEquals("HS2022", hierarchy.latestVersion("USA"));
+        assertEquals(6, hierarchy.node("USA", null, "").descendants());
+        assertEquals("Lithium-ion accumulators", hierarchy.node("USA", "HS2017", "850760").label());
+        assertFalse(hierarchy.node("USA", "HS2017", "85").hasRates());
+        assertTrue(hierarchy.node("GBR", null, "85").hasRates());
+
+        assertNull(hierarchy.node("GBR", null, "0101"));
+        assertNull(hierarchy.node("USA", "HS2012", ""));
+        assertNull(hierarchy.node("XXX", null, ""));
+        assertNull(HsHierarchy.EMPTY.node("USA", null, ""));
+    }
+
+    private static List<String> codes(List<HsHierarchy.Node> nodes) {
+        return nodes.stream().map(HsHierarchy.Node::code).toList();
+    }
+
+    private static HsProduct product(Long id, String destination, String version, String code, String label) {
+        return new HsProduct(id, destination, null, version, code, label);
+    }
+}
@@ -0,0 +1,98 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsLabelIndexTest {
+
+    private static final HsProduct HORSES = product(1L, "0101", "Live horses, asses, mules and hinnies");
+    private static final HsProduct BATTERIES = product(2L, "850760", "Lithium-ion batteries");
+    private static final HsProduct ACCUMULATORS = product(3L, "8507", "Electric accumulators, including separators");
+    private static final HsProduct LEAD_ACID = product(4L, "850710", "Lead-acid battery, of a kind used for starting engines");
+    private static final HsProduct BOXES = product(5L, "4819", "Cartons, boxes and cases of paper");
+
+    private final HsLabelIndex index = new HsLabelIndex(List.of(HORSES, BATTERIES, ACCUMULATORS, LEAD_ACID, BOXES));
+
+    @Test
+    void search_matchesStemmedTermsAndRanksByBm25() {
+        // "battery" hits both battery labels; "lithium" only the shorter, more specific one
+        assertEquals(List.of(BATTERIES, LEAD_ACID), index.search("lithium battery", 10));
+        assertEquals(List.of(HORSES), index.search("horse", 10));
+        assertEquals(List.of(BOXES), index.search("box", 10));
+    }
+
+    @Test
+    void search_ignoresStopWordsCaseAndUnknownTerms() {
+        assertEquals(List.of(HORSES), index.search("THE Horses of", 10));
+        assertTrue(index.search("the and of", 10).isEmpty());
+        assertTrue(index.search("submarine", 10).isEmpty());
+        assertTrue(index.search(null, 10).isEmpty());
+    }
+
+    @Test
+    void search_keepsOnlyTheTopLimitWithCodeOrderOnTies() {
+        HsLabelIndex ties = new HsLabelIndex(List.of(
+                product(10L, "0303", "Frozen fish"),
+                product(11L, "0302", "Fresh fish"),
+                product(12L, "0301", "Live fish")));
+
+        assertEquals(List.of(12L, 11L), ties.search("fish", 2).stream().map(HsProduct::getId).toList());
+        assertTrue(ties.search("fish", 0).isEmpty());
+    }
+
+    @Test
+    void searchCorrected_replacesUnknownTermsWithTheirNearestSpelling() {
+        assertTrue(index.search("lithum batery", 10).isEmpty());
+        assertEquals(List.of(BATTERIES, LEAD_ACID), index.searchCorrected("lithum batery", 10));
+        // transposed letters count as one edit
+        assertEquals(List.of(HORSES), index.searchCorrected("hosre", 10));
+        // terms that already match are not the fallback's business
+        assertTrue(index.searchCorrected("horses", 10).isEmpty());
+        assertTrue(index.searchCorrected("submarine", 10).isEmpty());
+    }
+
+    @Test
+    void search_withDestination_takesTopLimitWithinThatDestination() {
+        HsProduct usaCells = new HsProduct(20L, "USA", null, "HS2022", "8507600010", "Lithium-ion batteries for vehicles");
+        HsProduct usaHorses = new HsProduct(21L, "usa", null, "HS2022", "0101210010", "Horses, pure-bred breeding");
+        HsLabelIndex mixed = new HsLabelIndex(List.of(usaCells, HORSES, BATTERIES, usaHorses, LEAD_ACID));
+
+        assertEquals(List.of(BATTERIES), mixed.search("lithium battery", 1));
+        assertEquals(List.of(usaCells), mixed.search("lithium battery", "USA", 1));
+        assertEquals(List.of(BATTERIES, LEAD_ACID), mixed.search("battery", "gbr", 10));
+        assertEquals(List.of(usaHorses), mixed.search("horse", "USA", 10));
+        assertEquals(List.of(usaCells), mixed.searchCorrected("lithum", "USA", 10));
+        assertTrue(mixed.search("horse", "FRA", 10).isEmpty());
+        assertEquals(2, mixed.search("horse", null, 10).size());
+    }
+
+    @Test
+    void index_reportsSizeAndSkipsRowsWithoutId() {
+        HsLabelIndex partial = new HsLabelIndex(List.of(HORSES, product(null, "0102", "Live bovine animals")));
+
+        assertEquals(1, partial.size());
+        assertTrue(partial.search("bovine", 5).isEmpty());
+        assertTrue(HsLabelIndex.EMPTY.isEmpty());
+        assertTrue(index.termCount() > 0);
+    }
+
+    @Test
+    void analyzer_conflatesCommonEnglishEndings() {
+        assertEquals(List.of("battery", "lithium", "ion"), HsLabelAnalyzer.analyze("Batteries; lithium-ion"));
+        assertEquals(HsLabelAnalyzer.stem("horse"), HsLabelAnalyzer.stem("horses"));
+        assertEquals(HsLabelAnalyzer.stem("prepare"), HsLabelAnalyzer.stem("prepared"));
+        assertEquals("knit", HsLabelAnalyzer.stem("knitted"));
+        assertEquals("dry", HsLabelAnalyzer.stem("dried"));
+        assertEquals("string", HsLabelAnalyzer.stem("string"));
+        assertEquals("glass", HsLabelAnalyzer.stem("glass"));
+        assertEquals(List.of("8507"), HsLabelAnalyzer.analyze("8507 a"));
+    }
+
+    private static HsProduct product(Long id, String code, String label) {
+        return new HsProduct(id, "GBR", null, "HS2022", code, label);
+    }
+}
@@ -0,0 +1,61 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsSemanticIndexTest {
+
+    private final HsSemanticIndex index = new HsSemanticIndex(List.of(
+            product(1L, "GBR", "850440", "Static converters"),
+            product(2L, "GBR", "851712", "Telephones for cellular networks or for other wireless networks"),
+            product(3L, "GBR", "847130", "Portable automatic data processing machines, weighing not more than 10 kg"),
+            product(4L, "GBR", "850760", "Lithium-ion batteries"),
+            product(5L, "GBR", "850710", "Lead-acid battery, of a kind used for starting piston engines"),
+            product(6L, "GBR", "8507", "Electric accumulators, including separators therefor"),
+            product(7L, "GBR", "010121", "Pure-bred breeding horses"),
+            product(8L, "GBR", "7317", "Nails, tacks, drawing pins, of iron or steel"),
+            product(9L, "USA", "850440", "Static converters")),
+            HsTextEmbedder.withBundledLexicon());
+
+    @Test
+    void search_findsParaphrasesThroughTheBundledLexicon() {
+        assertEquals(List.of("850440", "851712").stream().sorted().toList(),
+                codes(index.search("phone charger", "GBR", 10)).stream().sorted().toList());
+        assertEquals(List.of("847130"), codes(index.search("laptop", "GBR", 10)));
+        assertTrue(codes(index.search("battery", "GBR", 10)).containsAll(List.of("850760", "850710", "8507")));
+    }
+
+    @Test
+    void search_ranksSharedStemsFirst() {
+        assertEquals("850760", codes(index.search("lithium battery", "GBR", 10)).get(0));
+        assertEquals(List.of("010121"), codes(index.search("horse", null, 10)));
+    }
+
+    @Test
+    void search_staysWithinTheDestinationAndDropsUnrelatedLabels() {
+        assertEquals(List.of(9L), index.search("static converter", "usa", 10).stream().map(HsProduct::getId).toList());
+        assertEquals(2, index.search("static converter", null, 10).size());
+        assertTrue(index.search("zzqx", null, 10).isEmpty());
+        assertTrue(index.search("the and of", null, 10).isEmpty());
+        assertTrue(index.search("horse", "XXX", 10).isEmpty());
+        assertTrue(HsSemanticIndex.EMPTY.search("horse", null, 10).isEmpty());
+    }
+
+    @Test
+    void search_respectsLimitAndMatchesTheExactScan() {
+        assertEquals(1, index.search("battery", "GBR", 1).size());
+        assertEquals(codes(index.searchExact("battery", "GBR", 3)), codes(index.search("battery", "GBR", 3)));
+    }
+
+    private static List<String> codes(List<HsProduct> products) {
+        return products.stream().map(HsProduct::getHsCode).toList();
+    }
+
+    private static HsProduct product(Long id, String destination, String code, String label) {
+        return new HsProduct(id, destination, null, "HS2022", code, label);
+    }
+}
@@ -0,0 +1,146 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import com.tariffsheriff.backend.tariff.service.HsProductService;
+import com.tariffsheriff.backend.tariff.service.HsProductServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recall@10 and latency of the semantic index (HNSW graph and exhaustive
+ * scan) against the LIKE-based search the in-memory mode falls back to, over
+ * 2000 synthetic labels. Every query paraphrases one label ("charger" for
+ * "static converters"), so recall is the share of queries whose label is in
+ * the top 10. The recall checks always run; the timing loop only runs with
+ * {@code -Dbenchmark=true} and prints recall and latency per query.
+ */
+@DataJpaTest
+class HsSemanticSearchBenchmarkTest {
+
+    // Nomenclature wording and an everyday word for it from hs-search-lexicon.txt
+    private static final String[][] CONCEPTS = {
+            {"Static converters", "charger"},
+            {"Telephones for cellular networks", "phone"},
+            {"Portable automatic data processing machines", "laptop"},
+            {"Footwear with outer soles of rubber", "shoe"},
+            {"Refrigerators, household type", "fridge"},
+            {"Bicycles and other cycles, not motorised", "bike"},
+            {"Medicaments put up in measured doses", "medicine"},
+            {"Television reception apparatus", "tv"},
+            {"Photovoltaic cells assembled in modules", "solar"},
+            {"Insulated wire and cable conductors", "cable"}};
+    private static final String[] VARIANTS = {"red", "blue", "green", "black", "white", "grey", "yellow", "orange",
+            "purple", "brown", "silver", "golden", "small", "large", "compact", "heavy", "light", "rugged", "deluxe",
+            "basic"};
+    private static final int MODELS = 10;
+    private static final int K = 10;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    HsProductRepository hsProducts;
+
+    HsSemanticIndex semantic;
+    HsProductService like;
+    List<String> queries;
+    List<Long> targets;
+
+    @BeforeEach
+    void setUp() {
+        queries = new ArrayList<>();
+        targets = new ArrayList<>();
+        int code = 100000;
+        for (String[] concept : CONCEPTS) {
+            for (String variant : VARIANTS) {
+                for (int model = 0; model < MODELS; model++) {
+                    String suffix = variant + " model " + (100 + model);
+                    HsProduct product = entityManager.persist(new HsProduct(null, "GBR", null, "HS2022",
+                            String.valueOf(code++), concept[0] + ", " + suffix));
+                    if (model % 5 == 0) {
+                        queries.add(concept[1] + " " + suffix);
+                        targets.add(product.getId());
+                    }
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        HsSemanticIndexHolder semanticIndex = new HsSemanticIndexHolder(hsProducts);
+        semantic = semanticIndex.reload();
+        // A label index that never loads, so description search takes the LIKE path
+        like = new HsProductServiceImpl(hsProducts, new HsLabelIndexHolder(hsProducts));
+    }
+
+    @Test
+    void semanticSearch_recallsParaphrasedLabelsThatLikeMisses() {
+        double graph = recall(query -> semantic.search(query, "GBR", K));
+        double exact = recall(query -> semantic.searchExact(query, "GBR", K));
+        double labelLike = recall(query -> like.searchByDescription(query, "GBR", K));
+
+        assertTrue(graph >= 0.9, "semantic recall@10 was " + graph);
+        assertTrue(graph >= exact - 0.05, "graph recall " + graph + " trails the exhaustive scan's " + exact);
+        assertTrue(graph > labelLike, "semantic recall " + graph + " should beat LIKE's " + labelLike);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark_recallAgainstLatency() {
+        Measurement graph = measure(query -> semantic.search(query, "GBR", K));
+        Measurement exact = measure(query -> semantic.searchExact(query, "GBR", K));
+        Measurement labelLike = measure(query -> like.searchByDescription(query, "GBR", K));
+
+        System.out.printf("HS description search over %d labels, %d paraphrased queries:%n",
+                CONCEPTS.length * VARIANTS.length * MODELS, queries.size());
+        System.out.printf("  semantic HNSW  recall@10 %.3f  %.3f ms/query%n", graph.recall, graph.millis);
+        System.out.printf("  semantic scan  recall@10 %.3f  %.3f ms/query%n", exact.recall, exact.millis);
+        System.out.printf("  LIKE           recall@10 %.3f  %.3f ms/query%n", labelLike.recall, labelLike.millis);
+    }
+
+    private double recall(Function<String, List<HsProduct>> search) {
+        int hits = 0;
+        for (int q = 0; q < queries.size(); q++) {
+            Set<Long> found = new HashSet<>();
+            for (HsProduct product : search.apply(queries.get(q))) {
+                found.add(product.getId());
+            }
+            if (found.contains(targets.get(q))) {
+                hits++;
+            }
+        }
+        return (double) hits / queries.size();
+    }
+
+    private Measurement measure(Function<String, List<HsProduct>> search) {
+        for (int i = 0; i < 3; i++) {
+            recall(search);
+            entityManager.clear();
+        }
+        int iterations = 10;
+        double recall = 0;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            recall = recall(search);
+            entityManager.clear();
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        return new Measurement(recall, elapsed / 1_000_000.0 / iterations / queries.size());
+    }
+
+    private record Measurement(double recall, double millis) {
+    }
+}
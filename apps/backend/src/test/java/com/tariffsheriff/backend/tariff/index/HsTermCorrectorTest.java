@@ -0,0 +1,46 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsTermCorrectorTest {
+
+    private final HsTermCorrector corrector = new HsTermCorrector(
+            List.of("lithium", "battery", "battle", "cattle", "horse", "house", "ion"),
+            new int[] { 1, 4, 1, 6, 3, 2, 1 });
+
+    @Test
+    void correct_findsTermsWithinOneOrTwoEdits() {
+        assertEquals(List.of("lithium"), corrector.correct("lithum"));
+        assertEquals(List.of("battery"), corrector.correct("batery"));
+        assertEquals(List.of("battery"), corrector.correct("bsttwry"));
+        assertEquals(List.of("horse"), corrector.correct("hrose"));
+    }
+
+    @Test
+    void correct_prefersTheCloserThenTheMoreCommonTerm() {
+        // "hoise" is one edit from both; "horse" is in more labels
+        assertEquals(List.of("horse", "house"), corrector.correct("hoise"));
+        assertEquals(List.of("cattle", "battle"), corrector.correct("aattle"));
+    }
+
+    @Test
+    void correct_leavesKnownShortAndUnreachableTermsAlone() {
+        assertTrue(corrector.correct("battery").isEmpty());
+        assertTrue(corrector.correct("ino").isEmpty());
+        // six letters only get one edit
+        assertTrue(corrector.correct("hxrsex").isEmpty());
+        assertTrue(corrector.correct("submarine").isEmpty());
+    }
+
+    @Test
+    void distance_countsTranspositionsAsOneEditAndStopsAtTheLimit() {
+        assertEquals(1, HsTermCorrector.distance("hrose", "horse", 3));
+        assertEquals(2, HsTermCorrector.distance("batle", "cattle", 3));
+        assertEquals(3, HsTermCorrector.distance("submarine", "horse", 3));
+        assertEquals(0, HsTermCorrector.distance("ion", "ion", 1));
+    }
+}
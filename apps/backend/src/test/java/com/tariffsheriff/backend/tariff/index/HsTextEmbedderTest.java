@@ -0,0 +1,55 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsTextEmbedderTest {
+
+    @Test
+    void parseLexicon_analyzesBothSidesAndSkipsComments() throws IOException {
+        Map<String, List<String>> lexicon = HsTextEmbedder.parseLexicon(new BufferedReader(new StringReader(
+                "# comment\n\nChargers: static converters, power supply\nnot a mapping\nphone: telephone\n")));
+
+        assertEquals(Map.of("charger", List.of("static", "converter", "power", "supply"),
+                "phon", List.of("telephon")), lexicon);
+    }
+
+    @Test
+    void embeddings_areUnitVectorsAndCloserForSharedStems() {
+        HsTextEmbedder embedder = new HsTextEmbedder(Map.of());
+        float[] batteries = embedder.embedLabel("Lithium-ion batteries");
+        float[] battery = embedder.embedQuery("lithium battery");
+        float[] horses = embedder.embedLabel("Live horses");
+
+        assertEquals(1.0, dot(batteries, batteries), 1e-4);
+        assertTrue(dot(battery, batteries) > 0.75);
+        assertTrue(dot(battery, horses) < 0.15);
+        assertEquals(0.0, dot(embedder.embedQuery("of the"), batteries));
+    }
+
+    @Test
+    void embedQuery_mixesInLexiconExpansions() {
+        HsTextEmbedder plain = new HsTextEmbedder(Map.of());
+        HsTextEmbedder expanding = new HsTextEmbedder(Map.of("charger", List.of("static", "converter")));
+        float[] converters = plain.embedLabel("Static converters");
+
+        assertTrue(dot(plain.embedQuery("charger"), converters) < 0.15);
+        assertTrue(dot(expanding.embedQuery("charger"), converters) > 0.5);
+        assertTrue(HsTextEmbedder.withBundledLexicon().lexiconSize() > 0);
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+}
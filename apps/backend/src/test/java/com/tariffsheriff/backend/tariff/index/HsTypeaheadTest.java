@@ -0,0 +1,97 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.dto.HsSuggestionDto;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsTypeaheadTest {
+
+    private final HsTypeahead typeahead = new HsTypeahead(List.of(
+            product(1L, "GBR", "0101.21", "Pure-bred breeding horses"),
+            product(2L, "GBR", "0101.29", "Other live horses"),
+            product(3L, "GBR", "0102.21", "Pure-bred breeding cattle"),
+            product(4L, "USA", "0101.21", "Pure-bred breeding horses"),
+            product(5L, "USA", "8507.60", "Lithium-ion batteries"),
+            product(6L, "USA", "8507.10", "Lead-acid battery, of a kind used for starting engines")));
+
+    @Test
+    void complete_digitsFollowCodeOrderWithinTheDestination() {
+        assertEquals(List.of("0101.21", "0101.29"), codes(typeahead.complete("GBR", "0101", 10)));
+        assertEquals(List.of("0101.21", "0101.29"), codes(typeahead.complete("GBR", "0101.2", 10)));
+        assertEquals(List.of("0101.21"), codes(typeahead.complete("USA", "010121", 10)));
+        assertEquals(List.of("0101.21", "0101.21", "0101.29"), codes(typeahead.complete(null, "0101", 10)));
+        assertEquals(List.of("0101.21", "0101.29", "0102.21"), codes(typeahead.complete("GBR", "", 10)));
+        assertTrue(typeahead.complete("GBR", "85", 10).isEmpty());
+    }
+
+    @Test
+    void complete_wordPrefixesRankLeadingWordThenShorterLabel() {
+        HsTypeahead fish = new HsTypeahead(List.of(
+                product(10L, "GBR", "0301", "Live fish"),
+                product(11L, "GBR", "0302", "Fish, fresh or chilled, excluding fillets"),
+                product(12L, "GBR", "0303", "Frozen fish")));
+        assertEquals(List.of("0302", "0301", "0303"), codes(fish.complete("GBR", "fis", 10)));
+        assertEquals(List.of("8507.60", "8507.10"), codes(typeahead.complete("USA", "bat", 10)));
+        assertEquals(List.of("0101.29", "0101.21"), codes(typeahead.complete("GBR", "hors", 10)));
+        assertEquals(List.of("0101.21"), codes(typeahead.complete("GBR", "breeding h", 10)));
+        assertEquals(List.of("0101.21"), codes(typeahead.complete("GBR", "Horses, pure", 10)));
+        assertTrue(typeahead.complete("GBR", "horses bat", 10).isEmpty());
+        assertTrue(typeahead.complete("GBR", "submarine", 10).isEmpty());
+    }
+
+    @Test
+    void complete_capsAtLimitAndIgnoresUnknownDestinations() {
+        List<HsProduct> many = new ArrayList<>();
+        for (int i = 0; i < HsTypeahead.MAX_COMPLETIONS + 50; i++) {
+            many.add(product((long) i, "GBR", String.format("01%04d", i), "Live fish " + i));
+        }
+        HsTypeahead large = new HsTypeahead(many);
+
+        assertEquals(HsTypeahead.MAX_COMPLETIONS, large.complete("GBR", "01", 1000).size());
+        assertEquals(List.of("010000", "010001"), codes(large.complete("GBR", "fish", 2)));
+        assertEquals(3, typeahead.complete(null, "pure", 3).size());
+        assertTrue(typeahead.complete("XXX", "0101", 10).isEmpty());
+        assertTrue(typeahead.complete("not-a-code", "0101", 10).isEmpty());
+        assertTrue(HsTypeahead.EMPTY.complete(null, "0101", 10).isEmpty());
+    }
+
+    @Test
+    void complete_sharesOneSuggestionPerProduct() {
+        HsSuggestionDto byCode = typeahead.complete("USA", "850760", 1).get(0);
+        HsSuggestionDto byWord = typeahead.complete("USA", "lithium", 1).get(0);
+
+        assertSame(byCode, byWord);
+        assertEquals(new HsSuggestionDto("8507.60", "Lithium-ion batteries"), byCode);
+    }
+
+    @Test
+    void complete_digitsTopUpWithLabelMatchesWithoutRepeatingCodeMatches() {
+        HsTypeahead parts = new HsTypeahead(List.of(
+                product(20L, "USA", "8507.60", "Lithium-ion batteries"),
+                product(21L, "USA", "8507.90", "Parts of heading 8507"),
+                product(22L, "USA", "8548.00", "Waste of accumulators of heading 8507")));
+
+        assertEquals(List.of("8507.60", "8507.90", "8548.00"), codes(parts.complete("USA", "8507", 10)));
+        assertEquals(List.of("8507.60", "8507.90"), codes(parts.complete("USA", "8507", 2)));
+    }
+
+    @Test
+    void queryWords_keepsTheWordBeingTypedEvenIfShortOrAStopWord() {
+        assertEquals(List.of("live", "o"), HsTypeahead.queryWords("live o"));
+        assertEquals(List.of("horses", "of"), HsTypeahead.queryWords("horses of"));
+        assertEquals(List.of("horses", "live"), HsTypeahead.queryWords("horses of live"));
+    }
+
+    private static List<String> codes(List<HsSuggestionDto> suggestions) {
+        return suggestions.stream().map(HsSuggestionDto::hsCode).toList();
+    }
+
+    private static HsProduct product(Long id, String destination, String code, String label) {
+        return new HsProduct(id, destination, null, "HS2022", code, label);
+    }
+}
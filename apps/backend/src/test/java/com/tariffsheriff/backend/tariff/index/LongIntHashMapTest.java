@@ -0,0 +1,38 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntHashMapTest {
+
+    @Test
+    void putAndGet_surviveResizes() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 1; i <= 10_000; i++) {
+            map.put(i * 7919L, i);
+        }
+        assertEquals(10_000, map.size());
+        for (int i = 1; i <= 10_000; i++) {
+            assertEquals(i, map.get(i * 7919L));
+        }
+        assertEquals(LongIntHashMap.MISSING, map.get(3L));
+    }
+
+    @Test
+    void put_replacesExistingValue() {
+        LongIntHashMap map = new LongIntHashMap(8);
+        map.put(42L, 1);
+        map.put(42L, 2);
+        assertEquals(1, map.size());
+        assertEquals(2, map.get(42L));
+        assertTrue(map.containsKey(42L));
+    }
+
+    @Test
+    void zeroKey_isReserved() {
+        LongIntHashMap map = new LongIntHashMap(8);
+        assertThrows(IllegalArgumentException.class, () -> map.put(0L, 1));
+        assertEquals(LongIntHashMap.MISSING, map.get(0L));
+    }
+}
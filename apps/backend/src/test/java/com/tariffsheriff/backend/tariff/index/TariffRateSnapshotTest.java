@@ -0,0 +1,127 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffRateSnapshotTest {
+
+    @Test
+    void iso3Codes_packCaseInsensitivelyAndRoundTrip() {
+        assertEquals(Iso3Codes.pack("SGP"), Iso3Codes.pack("sgp"));
+        assertEquals("SGP", Iso3Codes.unpack(Iso3Codes.pack("sGp")));
+        assertEquals(1, Iso3Codes.pack("AAA"));
+        assertEquals(Iso3Codes.CARDINALITY - 1, Iso3Codes.pack("ZZZ"));
+        assertEquals(Iso3Codes.INVALID, Iso3Codes.pack("SG"));
+        assertEquals(Iso3Codes.INVALID, Iso3Codes.pack("S1P"));
+        assertEquals(Iso3Codes.INVALID, Iso3Codes.pack(null));
+    }
+
+    @Test
+    void findHsProductId_matchesExactCodeAndDestination() {
+        TariffRateSnapshot snapshot = TariffRateSnapshot.builder()
+                .addProduct(1L, "SGP", "850760")
+                .addProduct(2L, "SGP", "0850760")
+                .addProduct(3L, "USA", "850760")
+                .addProduct(4L, "SGP", "8507.60")
+                .build();
+
+        assertEquals(1L, snapshot.findHsProductId("sgp", "850760"));
+        assertEquals(2L, snapshot.findHsProductId("SGP", "0850760"));
+        assertEquals(3L, snapshot.findHsProductId("USA", "850760"));
+        assertEquals(4L, snapshot.findHsProductId("SGP", "8507.60"));
+        assertEquals(TariffRateSnapshot.NOT_FOUND, snapshot.findHsProductId("SGP", "8507"));
+        assertEquals(TariffRateSnapshot.NOT_FOUND, snapshot.findHsProductId("SGP", "8507x60"));
+        assertEquals(TariffRateSnapshot.NOT_FOUND, snapshot.findHsProductId("XX", "850760"));
+    }
+
+    @Test
+    void findRate_separatesBasisOriginAndGeneralMfn() {
+        TariffRate mfn = rate(10L, "SGP", null, 1L, "MFN", null);
+        TariffRate pref = rate(11L, "SGP", "IND", 1L, "PREF", 5L);
+        TariffRate otherProduct = rate(12L, "SGP", "IND", 2L, "PREF", 5L);
+        TariffRateSnapshot snapshot = TariffRateSnapshot.builder()
+                .addRate(mfn)
+                .addRate(pref)
+                .addRate(otherProduct)
+                .addAgreement(Agreement.builder().id(5L).name("AISFTA").rvcThreshold(new BigDecimal("40")).build())
+                .build();
+
+        assertSame(mfn, snapshot.findGeneralMfn("SGP", 1L));
+        assertSame(mfn, snapshot.findRate("SGP", null, 1L, "MFN"));
+        assertNull(snapshot.findRate("SGP", "IND", 1L, "MFN"));
+        assertSame(pref, snapshot.findRate("sgp", "ind", 1L, "PREF"));
+        assertSame(otherProduct, snapshot.findRate("SGP", "IND", 2L, "PREF"));
+        assertNull(snapshot.findGeneralMfn("SGP", 2L));
+        assertNull(snapshot.findRate("IND", "SGP", 1L, "PREF"));
+        assertEquals("AISFTA", snapshot.findAgreement(5L).getName());
+        assertNull(snapshot.findAgreement(6L));
+        assertNull(snapshot.findAgreement(null));
+        assertEquals(3, snapshot.rateCount());
+    }
+
+    @Test
+    void findGeneralMfn_ignoresOriginSpecificMfnRows() {
+        TariffRate general = rate(10L, "SGP", null, 1L, "MFN", null);
+        TariffRate china = rate(11L, "SGP", "CHN", 1L, "MFN", null);
+        TariffRate onlyOrigin = rate(12L, "SGP", "CHN", 2L, "MFN", null);
+        TariffRateSnapshot snapshot = TariffRateSnapshot.builder()
+                .addRate(general)
+                .addRate(china)
+                .addRate(onlyOrigin)
+                .build();
+
+        // China's own MFN, added later, must not become every other origin's baseline
+        assertSame(general, snapshot.findGeneralMfn("SGP", 1L));
+        assertSame(china, snapshot.findRate("SGP", "CHN", 1L, "MFN"));
+        assertNull(snapshot.findGeneralMfn("SGP", 2L));
+        assertSame(onlyOrigin, snapshot.findRate("SGP", "CHN", 2L, "MFN"));
+    }
+
+    @Test
+    void findRatesForProduct_groupsEveryRateOfAProductInInsertionOrder() {
+        TariffRateSnapshot snapshot = TariffRateSnapshot.builder()
+                .addRate(rate(1L, "SGP", null, 10L, "MFN", null))
+                .addRate(rate(2L, "USA", null, 20L, "MFN", null))
+                .addRate(rate(3L, "SGP", "CHN", 10L, "PREF", 7L))
+                .addRate(rate(4L, "SGP", "CHN", 10L, "MFN", null))
+                .build();
+
+        assertEquals(List.of(1L, 3L, 4L),
+                snapshot.findRatesForProduct(10L).stream().map(TariffRate::getId).toList());
+        assertEquals(List.of(2L), snapshot.findRatesForProduct(20L).stream().map(TariffRate::getId).toList());
+        assertTrue(snapshot.findRatesForProduct(30L).isEmpty());
+        assertTrue(TariffRateSnapshot.EMPTY.findRatesForProduct(10L).isEmpty());
+    }
+
+    @Test
+    void unpackableRows_areLeftToTheDatabase() {
+        TariffRateSnapshot snapshot = TariffRateSnapshot.builder()
+                .addProduct(1L, "SGP", "8507600000000")
+                .addRate(rate(1L, "SGP", null, 1L << 33, "MFN", null))
+                .addRate(rate(2L, "SGP", null, 1L, "OTHER", null))
+                .build();
+
+        assertEquals(0, snapshot.productCount());
+        assertEquals(0, snapshot.rateCount());
+        assertEquals(TariffRateSnapshot.NOT_FOUND, TariffRateSnapshot.EMPTY.findHsProductId("SGP", "850760"));
+    }
+
+    private static TariffRate rate(Long id, String importer, String origin, Long productId, String basis,
+            Long agreementId) {
+        TariffRate rate = new TariffRate();
+        rate.setId(id);
+        rate.setImporterIso3(importer);
+        rate.setOriginIso3(origin);
+        rate.setHsProductId(productId);
+        rate.setBasis(basis);
+        rate.setAgreementId(agreementId);
+        rate.setAdValoremRate(new BigDecimal("0.05"));
+        return rate;
+    }
+}
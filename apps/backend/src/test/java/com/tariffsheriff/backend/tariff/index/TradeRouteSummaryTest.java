@@ -0,0 +1,122 @@
+package com.tariffsheriff.backend.tariff.index;
+
+import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TradeRouteSummaryTest {
+
+    private TariffRateRepository repository;
+    private TradeRouteSummary summary;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TariffRateRepository.class);
+        when(repository.findAllRouteRows()).thenReturn(List.of(
+                new Object[]{1L, "USA", "CHN", 10L},
+                new Object[]{2L, "USA", "CHN", 11L},
+                new Object[]{3L, "GBR", "FRA", 10L},
+                new Object[]{4L, "USA", null, 10L},
+                new Object[]{6L, "USA", null, 10L}));
+        summary = new TradeRouteSummary(repository);
+    }
+
+    @Test
+    void rebuild_countsRoutesWithAnOriginBusiestFirst() {
+        assertFalse(summary.isLoaded());
+
+        assertEquals(2, summary.rebuild());
+
+        assertTrue(summary.isLoaded());
+        assertEquals(List.of(
+                new TradeRoute("USA", "CHN", 2),
+                new TradeRoute("GBR", "FRA", 1)), summary.routes());
+    }
+
+    @Test
+    void events_moveAndRemoveRatesIdempotently() {
+        summary.rebuild();
+
+        summary.onTariffRateChanged(new TariffRateChangedEvent(5L, "GBR", "FRA", 9L, false));
+        summary.onTariffRateChanged(new TariffRateChangedEvent(5L, "GBR", "FRA", 9L, false));
+        assertEquals(new TradeRoute("GBR", "FRA", 2), summary.routes().get(0));
+
+        // Rate 1 moves from USA-CHN to GBR-FRA, rate 2 is deleted twice
+        summary.onTariffRateChanged(new TariffRateChangedEvent(1L, "GBR", "FRA", 9L, false));
+        summary.onTariffRateChanged(new TariffRateChangedEvent(2L, "USA", "CHN", 9L, true));
+        summary.onTariffRateChanged(new TariffRateChangedEvent(2L, "USA", "CHN", 9L, true));
+
+        assertEquals(List.of(new TradeRoute("GBR", "FRA", 3)), summary.routes());
+    }
+
+    @Test
+    void events_beforeRebuildAreSupersededByIt() {
+        summary.onTariffRateChanged(new TariffRateChangedEvent(99L, "SGP", "IND", 1L, false));
+
+        summary.rebuild();
+
+        assertTrue(summary.routes().stream().noneMatch(r -> r.importerIso3().equals("SGP")));
+    }
+
+    @Test
+    void rebuild_scansWithoutTheLockAndReplaysEventsCommittedMeanwhile() {
+        summary.rebuild();
+        when(repository.findAllRouteRows()).thenAnswer(invocation -> {
+            // Another thread can still read and apply changes while the scan runs
+            assertEquals(2, CompletableFuture.supplyAsync(summary::routes).get(5, TimeUnit.SECONDS).size());
+            CompletableFuture.runAsync(() -> {
+                summary.onTariffRateChanged(new TariffRateChangedEvent(8L, "GBR", "FRA", 10L, false));
+                summary.onTariffRateChanged(new TariffRateChangedEvent(1L, "USA", "CHN", 10L, true));
+            }).get(5, TimeUnit.SECONDS);
+            // The scan started before those commits, so it still sees the old rows
+            return List.of(
+                    new Object[]{1L, "USA", "CHN", 10L},
+                    new Object[]{2L, "USA", "CHN", 11L},
+                    new Object[]{3L, "GBR", "FRA", 10L});
+        });
+
+        summary.rebuild();
+
+        assertEquals(List.of(
+                new TradeRoute("GBR", "FRA", 2),
+                new TradeRoute("USA", "CHN", 1)), summary.routes());
+        assertEquals(2L, summary.distinctRouteCount());
+    }
+
+    @Test
+    void distinctRouteCount_tracksImporterOriginProductTriples() {
+        assertEquals(-1L, summary.distinctRouteCount());
+
+        summary.rebuild();
+        // USA-CHN-10, USA-CHN-11, GBR-FRA-10 and USA-MFN-10 (rates 4 and 6 share it)
+        assertEquals(4L, summary.distinctRouteCount());
+
+        summary.onTariffRateChanged(new TariffRateChangedEvent(4L, "USA", null, 10L, true));
+        assertEquals(4L, summary.distinctRouteCount());
+        summary.onTariffRateChanged(new TariffRateChangedEvent(6L, "USA", null, 10L, true));
+        assertEquals(3L, summary.distinctRouteCount());
+
+        // Moving rate 2 onto an existing triple removes one, a new product adds one
+        summary.onTariffRateChanged(new TariffRateChangedEvent(2L, "USA", "CHN", 10L, false));
+        assertEquals(2L, summary.distinctRouteCount());
+        summary.onTariffRateChanged(new TariffRateChangedEvent(7L, "GBR", "FRA", 12L, false));
+        assertEquals(3L, summary.distinctRouteCount());
+    }
+
+    @Test
+    void routeKey_rejectsMalformedImporterOrOrigin() {
+        assertTrue(TradeRouteSummary.routeKey("USA", null) > 0);
+        assertEquals(-1, TradeRouteSummary.routeKey("US", "CHN"));
+        assertEquals(-1, TradeRouteSummary.routeKey("USA", "C1N"));
+        assertEquals(-1L, TradeRouteSummary.productRouteKey(-1, 10L));
+        assertTrue(TradeRouteSummary.productRouteKey(TradeRouteSummary.routeKey("USA", null), null) > 0);
+    }
+}
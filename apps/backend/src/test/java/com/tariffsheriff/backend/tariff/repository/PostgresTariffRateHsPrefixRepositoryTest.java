@@ -0,0 +1,82 @@
+package com.tariffsheriff.backend.tariff.repository;
+
+import com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the prefix filter checks on a real PostgreSQL with a linguistic
+ * default collation, where a plain string range would not match LIKE.
+ * Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Sql("classpath:db/migration/V10__hs_product_code_point_index.sql")
+class PostgresTariffRateHsPrefixRepositoryTest extends TariffRateHsPrefixRepositoryTest {
+
+    // The Debian image (glibc), not alpine: musl compares code points whatever the locale says
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16")
+            .withEnv("POSTGRES_INITDB_ARGS", "--locale=en_US.UTF-8");
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driverClassName", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @BeforeEach
+    void addPunctuatedCodes() {
+        for (String code : List.of("850940", "8509.40", "851010", "8507.10", "85071")) {
+            Long productId = entityManager.persist(new HsProduct(null, "USA", null, "HS2022", code, "label " + code))
+                    .getId();
+            TariffRate rate = new TariffRate();
+            rate.setImporterIso3("USA");
+            rate.setHsProductId(productId);
+            rate.setBasis("MFN");
+            rate.setAdValoremRate(new BigDecimal("0.050000"));
+            entityManager.persist(rate);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findByHsCodePrefixes_matchesHeadingsEndingInNine() {
+        assertEquals(List.of("8509.40", "850940"), codes(List.of("8509")));
+    }
+
+    @Test
+    void findByHsCodePrefixes_keepsDotsSignificant() {
+        assertEquals(List.of("8507.10"), codes(List.of("8507.")));
+        assertEquals(List.of("85071"), codes(List.of("85071")));
+        assertEquals(List.of("8507.10", "85071"), codes(List.of("8507")));
+    }
+
+    private List<String> codes(List<String> prefixes) {
+        return tariffRates.findListItemsByHsCodePrefixes("USA", null, prefixes, PageRequest.of(0, 100)).stream()
+                .map(TariffRateListItemDto::hsCode)
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,108 @@
+package com.tariffsheriff.backend.tariff.repository;
+
+import com.tariffsheriff.backend.tariff.model.Country;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class TariffRateHsPrefixRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    TariffRateRepository tariffRates;
+
+    @BeforeEach
+    void setUp() {
+        entityManager.persist(new Country(null, "GBR", "United Kingdom"));
+        entityManager.persist(new Country(null, "CHN", "China"));
+        // Headings 0101..0130 plus a dotted code and a chapter 85 code
+        List<String> codes = new ArrayList<>();
+        for (int heading = 1; heading <= 30; heading++) {
+            codes.add(String.format("01%02d10", heading));
+        }
+        codes.add("0201.10");
+        codes.add("850760");
+        for (String code : codes) {
+            Long productId = entityManager.persist(new HsProduct(null, "GBR", null, "HS2022", code, "label " + code))
+                    .getId();
+            entityManager.persist(rate("GBR", null, productId, "MFN"));
+            entityManager.persist(rate("GBR", "CHN", productId, "MFN"));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findByHsCodePrefixes_acceptsMoreThanFivePrefixes() {
+        List<String> prefixes = new ArrayList<>();
+        for (int heading = 1; heading <= 24; heading++) {
+            prefixes.add(String.format("01%02d", heading));
+        }
+
+        List<TariffRate> rates = tariffRates.findByHsCodePrefixes("GBR", "CHN", prefixes, PageRequest.of(0, 1000));
+
+        assertEquals(24, rates.size());
+        assertTrue(rates.stream().allMatch(rate -> "CHN".equals(rate.getOriginIso3())));
+    }
+
+    @Test
+    void findByHsCodePrefixes_matchesLikePrefixSemantics() {
+        assertEquals(2, tariffRates.findByHsCodePrefixes("GBR", null, List.of("0201"), PageRequest.of(0, 10)).size());
+        assertEquals(2, tariffRates.findByHsCodePrefixes("GBR", null, List.of("0201.1"), PageRequest.of(0, 10)).size());
+        assertEquals(2, tariffRates.findByHsCodePrefixes(null, null, List.of("8507", "85076"), PageRequest.of(0, 10))
+                .size());
+        assertTrue(tariffRates.findByHsCodePrefixes(null, null, List.of("0131", "8508"), PageRequest.of(0, 10))
+                .isEmpty());
+        assertEquals(3, tariffRates.findByHsCodePrefixes(null, null, List.of("01"), PageRequest.of(0, 3)).size());
+    }
+
+    @Test
+    void findByHsCodePrefixes_blankPrefixesNoLongerMatchEverything() {
+        List<TariffRate> rates = tariffRates.findByHsCodePrefixes("GBR", "CHN", Arrays.asList("8507", "", " ", null),
+                PageRequest.of(0, 100));
+
+        assertEquals(1, rates.size());
+    }
+
+    @Test
+    void normalizePrefixes_dropsBlankDuplicateAndCoveredPrefixes() {
+        assertEquals(List.of("01", "8507"),
+                TariffRateHsPrefixRepositoryImpl.normalizePrefixes(Arrays.asList("0101", " 01", "8507", "01", "", null)));
+        assertEquals(List.of("0102", "0201"), TariffRateHsPrefixRepositoryImpl.normalizePrefixes(List.of("0201", "0102")));
+        assertTrue(TariffRateHsPrefixRepositoryImpl.normalizePrefixes(null).isEmpty());
+    }
+
+    @Test
+    void upperBound_incrementsTheLastCharacter() {
+        assertEquals("0102", TariffRateHsPrefixRepositoryImpl.upperBound("0101"));
+        assertEquals("010:", TariffRateHsPrefixRepositoryImpl.upperBound("0109"));
+        assertEquals("0101/", TariffRateHsPrefixRepositoryImpl.upperBound("0101."));
+        assertEquals("b", TariffRateHsPrefixRepositoryImpl.upperBound("a" + Character.MAX_VALUE));
+        assertNull(TariffRateHsPrefixRepositoryImpl.upperBound(String.valueOf(Character.MAX_VALUE)));
+    }
+
+    private static TariffRate rate(String importer, String origin, Long hsProductId, String basis) {
+        TariffRate rate = new TariffRate();
+        rate.setImporterIso3(importer);
+        rate.setOriginIso3(origin);
+        rate.setHsProductId(hsProductId);
+        rate.setBasis(basis);
+        rate.setAdValoremRate(new BigDecimal("0.050000"));
+        return rate;
+    }
+}
@@ -0,0 +1,130 @@
+package com.tariffsheriff.backend.tariff.repository;
+
+import com.tariffsheriff.backend.tariff.dto.TariffRateListItemDto;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the entity listing ({@code findAll} with the eager HS product) with
+ * the {@link TariffRateListItemDto} projection over 1000 rows. The statement
+ * and hydration checks always run; the timing loop only runs with
+ * {@code -Dbenchmark=true} and prints latency and allocation per 1000 rows.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TariffRateListingBenchmarkTest {
+
+    private static final int ROWS = 1000;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    TariffRateRepository tariffRates;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ROWS; i++) {
+            String code = String.format("%06d", 10000 + i);
+            Long productId = entityManager.persist(new HsProduct(null, "GBR", null, "HS2022", code, "label " + code))
+                    .getId();
+            TariffRate rate = new TariffRate();
+            rate.setImporterIso3("GBR");
+            rate.setOriginIso3(i % 2 == 0 ? "CHN" : null);
+            rate.setHsProductId(productId);
+            rate.setBasis("MFN");
+            rate.setAdValoremRate(new BigDecimal("0.050000"));
+            entityManager.persist(rate);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listItems_selectInOneStatementWithoutHydratingEntities() {
+        List<TariffRateListItemDto> items = tariffRates.findListItems(PageRequest.of(0, ROWS));
+
+        assertEquals(ROWS, items.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(items.stream().allMatch(item -> item.hsCode() != null && item.description() != null));
+    }
+
+    @Test
+    void listItems_matchTheEntityFilters() {
+        List<TariffRateListItemDto> pair = tariffRates.findListItemsByCountryPair("GBR", "CHN", PageRequest.of(0, ROWS));
+        List<TariffRateListItemDto> importer = tariffRates.findListItemsByImporter("GBR", PageRequest.of(0, ROWS));
+        List<TariffRateListItemDto> prefixed = tariffRates.findListItemsByHsCodePrefixes("GBR", "CHN",
+                List.of("0100", "0101"), PageRequest.of(0, ROWS));
+
+        assertEquals(ROWS / 2, pair.size());
+        assertEquals(ROWS, importer.size());
+        // 010000..010199, half of them with an origin
+        assertEquals(100, prefixed.size());
+        assertTrue(prefixed.stream().allMatch(item -> item.hsCode().startsWith("010") && "CHN".equals(item.originIso3())));
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark_entitiesVersusListItems() {
+        Measurement entities = measure(() -> {
+            List<TariffRate> rates = tariffRates.findAll(PageRequest.of(0, ROWS)).getContent();
+            // Touch the product like Jackson does when it writes hsCode/description
+            rates.forEach(TariffRate::getDescription);
+            return rates.size();
+        });
+        Measurement items = measure(() -> tariffRates.findListItems(PageRequest.of(0, ROWS)).size());
+
+        System.out.printf("tariff rate listing per %d rows: entities %.2f ms / %d KB, list items %.2f ms / %d KB%n",
+                ROWS, entities.millis, entities.bytes / 1024, items.millis, items.bytes / 1024);
+        assertTrue(items.bytes < entities.bytes, "projection should allocate less than entity hydration");
+    }
+
+    private Measurement measure(Supplier<Integer> listing) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 20; i++) {
+            assertEquals(ROWS, listing.get());
+            entityManager.clear();
+        }
+        int iterations = 50;
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            listing.get();
+            entityManager.clear();
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return new Measurement(elapsed / 1_000_000.0 / iterations, bytes / iterations);
+    }
+
+    private record Measurement(double millis, long bytes) {
+    }
+}
@@ -0,0 +1,179 @@
+package com.tariffsheriff.backend.tariff.repository;
+
+import com.tariffsheriff.backend.tariff.dto.TariffRateLookupDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingResponse;
+import com.tariffsheriff.backend.tariff.exception.TariffRateNotFoundException;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndexHolder;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshotHolder;
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import com.tariffsheriff.backend.tariff.model.Country;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import com.tariffsheriff.backend.tariff.service.TariffRateServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the SQL statements a tariff lookup issues when the in-memory snapshot
+ * is empty, i.e. on the {@code resolveLookup} path.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TariffRateLookupStatementCountTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    TariffRateRepository tariffRates;
+
+    @Autowired
+    AgreementRepository agreements;
+
+    @Autowired
+    CountryRepository countries;
+
+    @Autowired
+    HsProductRepository hsProducts;
+
+    @Autowired
+    HsConcordanceRepository concordance;
+
+    TariffRateServiceImpl svc;
+    Statistics statistics;
+    Long batteryId;
+    Long horseId;
+
+    @BeforeEach
+    void setUp() {
+        // The holders are never loaded here, so every lookup misses the snapshot
+        svc = new TariffRateServiceImpl(tariffRates, agreements, countries, hsProducts,
+                new TariffRateSnapshotHolder(tariffRates, hsProducts, agreements), new HsCodeIndexHolder(hsProducts),
+                new CountryRegistryHolder(countries), new HsConcordanceIndexHolder(hsProducts, concordance));
+
+        entityManager.persist(new Country(null, "GBR", "United Kingdom"));
+        entityManager.persist(new Country(null, "CHN", "China"));
+        entityManager.persist(new Country(null, "USA", "United States"));
+        batteryId = entityManager.persist(new HsProduct(null, "GBR", null, "HS2022", "850760", "Lithium-ion"))
+                .getId();
+        horseId = entityManager.persist(new HsProduct(null, "GBR", null, "HS2022", "0101", "Live horses")).getId();
+        Agreement agreement = entityManager.persist(
+                Agreement.builder().name("UK-CN").rvcThreshold(new BigDecimal("40.00")).build());
+
+        entityManager.persist(rate("GBR", null, batteryId, "MFN", null, "0.040000"));
+        entityManager.persist(rate("GBR", "CHN", batteryId, "PREF", agreement.getId(), "0.010000"));
+        entityManager.persist(rate("GBR", null, horseId, "MFN", null, "0.020000"));
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void lookupWithMfnPrefAndAgreement_isOneStatement() {
+        TariffRateLookupDto lookup = svc.getTariffRateWithAgreement("gbr", "chn", "850760");
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals("GBR", lookup.importerIso3());
+        assertEquals("CHN", lookup.originIso3());
+        assertEquals(2, lookup.rates().size());
+        assertEquals(0, new BigDecimal("0.04").compareTo(lookup.rates().get(0).adValoremRate()));
+        assertEquals("UK-CN", lookup.rates().get(1).agreementName());
+        assertEquals(0, new BigDecimal("40").compareTo(lookup.rates().get(1).rvcThreshold()));
+    }
+
+    @Test
+    void lookupWithoutPref_fallsBackToGeneralMfn_inOneStatement() {
+        TariffRateLookupDto lookup = svc.getTariffRateWithAgreement("GBR", "USA", "0101");
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, lookup.rates().size());
+        assertEquals("MFN", lookup.rates().get(0).basis());
+        assertEquals(0, new BigDecimal("0.02").compareTo(lookup.rates().get(0).adValoremRate()));
+    }
+
+    @Test
+    void generalMfnFallback_ignoresAnotherOriginsMfn() {
+        // A newer China-specific MFN must not become the baseline for the US
+        entityManager.persist(rate("GBR", "CHN", horseId, "MFN", null, "0.090000"));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        TariffRateLookupDto us = svc.getTariffRateWithAgreement("GBR", "USA", "0101");
+        TariffRateLookupDto china = svc.getTariffRateWithAgreement("GBR", "CHN", "0101");
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, new BigDecimal("0.02").compareTo(us.rates().get(0).adValoremRate()));
+        assertEquals(0, new BigDecimal("0.09").compareTo(china.rates().get(0).adValoremRate()));
+    }
+
+    @Test
+    void errors_areDetectedFromTheSameStatement() {
+        IllegalArgumentException unknownOrigin = assertThrows(IllegalArgumentException.class,
+                () -> svc.getTariffRateWithAgreement("GBR", "XXX", "0101"));
+        assertEquals("Unknown origin ISO3: XXX", unknownOrigin.getMessage());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        assertThrows(TariffRateNotFoundException.class, () -> svc.getTariffRateWithAgreement("GBR", null, "9999"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        assertThrows(IllegalArgumentException.class, () -> svc.getTariffRateWithAgreement("XXX", null, "0101"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void rankOrigins_isOneStatement() {
+        TariffSourcingRequestDto sourcing = new TariffSourcingRequestDto();
+        sourcing.setImporterIso3("gbr");
+        sourcing.setHsCode("850760");
+        sourcing.setTotalValue(new BigDecimal("1000"));
+        sourcing.setMaterialCost(new BigDecimal("500"));
+        sourcing.setLabourCost(BigDecimal.ZERO);
+        sourcing.setOverheadCost(BigDecimal.ZERO);
+        sourcing.setProfit(BigDecimal.ZERO);
+        sourcing.setOtherCosts(BigDecimal.ZERO);
+        sourcing.setFob(new BigDecimal("1000"));
+
+        TariffSourcingResponse ranking = svc.rankOrigins(sourcing);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals("GBR", ranking.importerIso3());
+        assertEquals(2, ranking.origins().size());
+        assertEquals("CHN", ranking.origins().get(0).originIso3());
+        assertEquals("UK-CN", ranking.origins().get(0).agreementName());
+        assertEquals(0, new BigDecimal("10").compareTo(ranking.origins().get(0).totalDuty()));
+        assertNull(ranking.origins().get(1).originIso3());
+        assertEquals(0, new BigDecimal("40").compareTo(ranking.origins().get(1).totalDuty()));
+    }
+
+    private static TariffRate rate(String importer, String origin, Long hsProductId, String basis, Long agreementId,
+            String adValorem) {
+        TariffRate rate = new TariffRate();
+        rate.setImporterIso3(importer);
+        rate.setOriginIso3(origin);
+        rate.setHsProductId(hsProductId);
+        rate.setBasis(basis);
+        rate.setAgreementId(agreementId);
+        rate.setAdValoremRate(new BigDecimal(adValorem));
+        return rate;
+    }
+}
@@ -1,7 +1,10 @@
 package com.tariffsheriff.backend.tariff.service;
 
+import com.tariffsheriff.backend.tariff.index.AgreementPartyIndex;
+import com.tariffsheriff.backend.tariff.index.AgreementPartyIndexHolder;
 import com.tariffsheriff.backend.tariff.model.Agreement;
 import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -24,9 +27,18 @@ class AgreementServiceImplTest {
     @Mock
     AgreementRepository agreementRepository;
 
+    @Mock
+    AgreementPartyIndexHolder partyIndex;
+
     @InjectMocks
     AgreementServiceImpl svc;
 
+    @BeforeEach
+    void emptyIndex() {
+        // Until the party index loads, country queries go to the repository
+        lenient().when(partyIndex.current()).thenReturn(AgreementPartyIndex.EMPTY);
+    }
+
     @Test
     void list_delegatesToRepository() {
         Page<Agreement> page = new PageImpl<>(List.of(new Agreement(1L, "A", BigDecimal.ZERO)));
@@ -87,4 +99,29 @@ class AgreementServiceImplTest {
         var out = svc.getAgreementsByCountry("GBR");
         assertNotNull(out);
     }
+
+    @Test
+    void getAgreementsByCountry_andCommon_areServedFromPartyIndex() {
+        Agreement cptpp = new Agreement(1L, "CPTPP", new BigDecimal("40"));
+        Agreement aisfta = new Agreement(2L, "AISFTA", new BigDecimal("35"));
+        when(partyIndex.current()).thenReturn(new AgreementPartyIndex(List.of(cptpp, aisfta), List.of(
+                new Object[] { 1L, "SGP" }, new Object[] { 1L, "JPN" },
+                new Object[] { 2L, "SGP" }, new Object[] { 2L, "IND" })));
+
+        assertEquals(List.of(cptpp, aisfta), svc.getAgreementsByCountry("sgp"));
+        assertEquals(List.of(aisfta), svc.getCommonAgreements("SGP", " ind "));
+        assertTrue(svc.getCommonAgreements("JPN", "IND").isEmpty());
+        verifyNoInteractions(agreementRepository);
+    }
+
+    @Test
+    void getCommonAgreements_intersectsRepositoryResults_beforeIndexLoads() {
+        Agreement cptpp = new Agreement(1L, "CPTPP", new BigDecimal("40"));
+        Agreement aisfta = new Agreement(2L, "AISFTA", new BigDecimal("35"));
+        when(agreementRepository.findAgreementsByCountryIso3("SGP")).thenReturn(List.of(cptpp, aisfta));
+        when(agreementRepository.findAgreementsByCountryIso3("IND")).thenReturn(List.of(aisfta));
+
+        assertEquals(List.of(aisfta), svc.getCommonAgreements("SGP", "IND"));
+        assertThrows(IllegalArgumentException.class, () -> svc.getCommonAgreements("SGP", " "));
+    }
 }
@@ -1,5 +1,7 @@
 package com.tariffsheriff.backend.tariff.service;
 
+import com.tariffsheriff.backend.tariff.index.CountryRegistry;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
 import com.tariffsheriff.backend.tariff.model.Country;
 import com.tariffsheriff.backend.tariff.repository.CountryRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,6 +31,9 @@ class CountryServiceTest {
     @Mock
     private CountryRepository countryRepository;
 
+    @Mock
+    private CountryRegistryHolder countryRegistry;
+
     @InjectMocks
     private CountryService countryService;
 
@@ -154,4 +159,30 @@ class CountryServiceTest {
         assertThat(result).hasSize(2)
                          .containsExactly(usa, canada);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findByIso3_ShouldUseRegistry_WhenLoaded() {
+        // Arrange
+        when(countryRegistry.current()).thenReturn(new CountryRegistry(List.of(usa, canada)));
+
+        // Act / Assert
+        assertThat(countryService.findByIso3(" usa ").orElseThrow().getName()).isEqualTo("United States");
+        assertThat(countryService.findByIso3("Can").orElseThrow().getIso3()).isEqualTo("CAN");
+        assertThat(countryService.findByIso3("MEX")).isEmpty();
+        assertThat(countryService.findByIso3(null)).isEmpty();
+        verifyNoInteractions(countryRepository);
+    }
+
+    @Test
+    void findByIso3_ShouldFallBackToRepository_BeforeRegistryLoads() {
+        // Arrange
+        when(countryRegistry.current()).thenReturn(CountryRegistry.EMPTY);
+        when(countryRepository.findByIso3IgnoreCase("usa")).thenReturn(Optional.of(usa));
+
+        // Act
+        Optional<Country> result = countryService.findByIso3("usa");
+
+        // Assert
+        assertThat(result).contains(usa);
+    }
+}
@@ -0,0 +1,397 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tariffsheriff.backend.tariff.dto.HsClassificationJobDto;
+import com.tariffsheriff.backend.tariff.exception.ClassificationJobLimitException;
+import com.tariffsheriff.backend.tariff.exception.ClassificationJobNotFoundException;
+import com.tariffsheriff.backend.tariff.exception.ClassificationUploadTooLargeException;
+import com.tariffsheriff.backend.tariff.index.HsLabelIndex;
+import com.tariffsheriff.backend.tariff.index.HsLabelIndexHolder;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Catalog classification jobs end to end against the in-memory label index,
+ * including resuming from a checkpoint after a restart. The throughput
+ * benchmark only runs with {@code -Dbenchmark=true}.
+ */
+class HsClassificationJobServiceTest {
+
+    private static final String OWNER = "auth0|owner";
+
+    private static final List<HsProduct> CATALOG = List.of(
+            product(1L, "USA", "8507.60", "Lithium-ion accumulators"),
+            product(2L, "USA", "8507.80", "Other electric accumulators"),
+            product(3L, "USA", "0101.21", "Live horses, pure-bred breeding animals"),
+            product(4L, "USA", "8541.43", "Photovoltaic cells assembled in modules or made up into panels"),
+            product(5L, "USA", "6403.91", "Footwear with outer soles of rubber, covering the ankle"),
+            product(6L, "GBR", "8507.60", "Lithium-ion accumulators"));
+
+    @TempDir
+    Path workDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private HsProductService hsProductService;
+    private HsClassificationJobService jobs;
+
+    @BeforeEach
+    void setUp() {
+        HsLabelIndexHolder labelIndex = new HsLabelIndexHolder(null) {
+            @Override
+            protected HsLabelIndex load() {
+                return new HsLabelIndex(CATALOG);
+            }
+        };
+        labelIndex.reload();
+        hsProductService = new HsProductServiceImpl(null, labelIndex);
+        jobs = newService(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobs.shutdown();
+    }
+
+    @Test
+    void csvJob_classifiesEveryRowInInputOrder() throws Exception {
+        String csv = "SKU,Description,Destination\r\n"
+                + "B-1,\"Lithium-ion accumulators, 48V, for e-bikes\",usa\r\n"
+                + "B-2,,USA\r\n"
+                + "B-3,\"Solar panel, \"\"mono\"\" cells\",USA\r\n"
+                + "\r\n"
+                + "B-4,live horses,USA\r\n"
+                + "B-5,rubber boots covering the ankle,USA\r\n";
+
+        HsClassificationJobDto job = awaitDone(jobs.submit(OWNER, stream(csv), "text/csv").id());
+
+        assertEquals("COMPLETED", job.status());
+        assertEquals(5, job.rowsProcessed());
+        assertEquals(1, job.rowsFailed());
+        assertEquals(100.0, job.percentComplete());
+
+        List<JsonNode> results = results(job.id(), 1);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), results.stream().map(r -> r.get("row").asLong()).toList());
+        assertEquals("B-1", results.get(0).get("sku").asText());
+        assertEquals("USA", results.get(0).get("destinationIso3").asText());
+        assertEquals("8507.60", topCode(results.get(0)));
+        assertEquals("description is required", results.get(1).get("error").asText());
+        assertEquals("8541.43", topCode(results.get(2)));
+        assertEquals("0101.21", topCode(results.get(3)));
+        assertEquals("6403.91", topCode(results.get(4)));
+
+        for (JsonNode result : results) {
+            JsonNode candidates = result.get("candidates");
+            if (candidates == null || candidates.isNull()) {
+                continue;
+            }
+            assertTrue(candidates.size() <= HsClassificationJobService.CANDIDATES);
+            double previous = 1;
+            for (JsonNode candidate : candidates) {
+                double score = candidate.get("score").asDouble();
+                assertTrue(score > 0 && score <= previous, "scores should be in (0, 1] and descending");
+                previous = score;
+            }
+        }
+    }
+
+    @Test
+    void ndjsonJob_reportsUnreadableLinesAndServesResultsFromAnyRow() throws Exception {
+        String ndjson = "{\"sku\":\"N-1\",\"description\":\"lithium ion battery\",\"importerIso3\":\"GBR\"}\n"
+                + "{not json\n"
+                + "[1, 2]\n"
+                + "{\"sku\":\"N-4\",\"description\":\"horses\",\"destination\":\"USA\"}\n";
+
+        HsClassificationJobDto job = awaitDone(jobs.submit(OWNER, stream(ndjson), "application/x-ndjson").id());
+
+        assertEquals("COMPLETED", job.status());
+        assertEquals(4, job.rowsProcessed());
+        assertEquals(2, job.rowsFailed());
+        List<JsonNode> all = results(job.id(), 1);
+        assertEquals("GBR", all.get(0).get("destinationIso3").asText());
+        assertEquals("8507.60", topCode(all.get(0)));
+        assertTrue(all.get(1).get("error").asText().startsWith("Invalid JSON"));
+        assertEquals("Expected a JSON object", all.get(2).get("error").asText());
+
+        List<JsonNode> fromThird = results(job.id(), 3);
+        assertEquals(List.of(3L, 4L), fromThird.stream().map(r -> r.get("row").asLong()).toList());
+        assertTrue(results(job.id(), 9).isEmpty());
+    }
+
+    @Test
+    void recover_resumesAnInterruptedJobFromItsCheckpoint() throws Exception {
+        StringBuilder csv = new StringBuilder("sku,description,destination\n");
+        for (int i = 1; i <= 9; i++) {
+            csv.append("R-").append(i).append(",").append(i % 2 == 0 ? "live horses" : "lithium-ion battery")
+                    .append(",USA\n");
+        }
+        String id = awaitDone(jobs.submit(OWNER, stream(csv.toString()), "csv").id()).id();
+        String expected = resultsText(id, 1);
+        jobs.shutdown();
+
+        // As if the application stopped after the second chunk of a running job,
+        // part way through writing the third
+        Path dir = workDir.resolve(id);
+        Path checkpoint = dir.resolve("job.properties");
+        String firstFour = expected.lines().limit(4).map(line -> line + "\n").reduce("", String::concat);
+        String properties = Files.readString(checkpoint)
+                .replaceAll("(?m)^status=.*$", "status=RUNNING")
+                .replaceAll("(?m)^rowsProcessed=.*$", "rowsProcessed=4")
+                .replaceAll("(?m)^rowsFailed=.*$", "rowsFailed=0")
+                .replaceAll("(?m)^resultsBytes=.*$",
+                        "resultsBytes=" + firstFour.getBytes(StandardCharsets.UTF_8).length)
+                .replaceAll("(?m)^finishedAt=.*$", "");
+        Files.writeString(checkpoint, properties);
+        Files.writeString(dir.resolve("results.ndjson"), firstFour + "{\"row\":5,\"sku\":\"partial",
+                StandardOpenOption.TRUNCATE_EXISTING);
+        // A job that never finished still has its upload
+        Files.writeString(dir.resolve("input.csv"), csv);
+
+        jobs = newService(3);
+        jobs.recover();
+        HsClassificationJobDto resumed = awaitDone(id);
+
+        assertEquals("COMPLETED", resumed.status());
+        assertEquals(9, resumed.rowsProcessed());
+        assertEquals(expected, resultsText(id, 1));
+    }
+
+    @Test
+    void unknownJobsAndFormatsAreRejected() {
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.status(OWNER, "missing"));
+        assertThrows(IllegalArgumentException.class, () -> jobs.submit(OWNER, stream("a,b\n"), "application/pdf"));
+
+        HsClassificationJobDto job = jobs.submit(OWNER, stream("sku,name\nX,thing\n"), "text/csv");
+        HsClassificationJobDto failed = awaitDone(job.id());
+        assertEquals("FAILED", failed.status());
+        assertTrue(failed.error().contains("no description column"));
+
+        jobs.cancel(OWNER, job.id());
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.status(OWNER, job.id()));
+        assertFalse(Files.exists(workDir.resolve(job.id())));
+    }
+
+    @Test
+    void jobsAreOnlyVisibleToTheirOwner() throws Exception {
+        HsClassificationJobDto job = awaitDone(jobs.submit(OWNER, stream("sku,name\nX,thing\n"), "text/csv").id());
+        String other = "auth0|someone-else";
+
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.status(other, job.id()));
+        assertThrows(ClassificationJobNotFoundException.class,
+                () -> jobs.writeResults(other, job.id(), 1, new ByteArrayOutputStream()));
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.resume(other, job.id()));
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.cancel(other, job.id()));
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.status(null, job.id()));
+        assertThrows(IllegalArgumentException.class, () -> jobs.submit(null, stream("sku\n"), "text/csv"));
+        assertEquals("FAILED", jobs.status(OWNER, job.id()).status());
+
+        // The owner survives a restart with the rest of the checkpoint
+        jobs.shutdown();
+        jobs = newService(2);
+        jobs.recover();
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.status(other, job.id()));
+        assertEquals("FAILED", jobs.status(OWNER, job.id()).status());
+    }
+
+    @Test
+    void uploadsOverTheLimitAreRejectedAndDiscarded() throws Exception {
+        StringBuilder csv = new StringBuilder("sku,description,destination\n");
+        while (csv.length() <= 4096) {
+            csv.append("B-1,lithium-ion battery,USA\n");
+        }
+
+        assertThrows(ClassificationUploadTooLargeException.class,
+                () -> jobs.submit(OWNER, stream(csv.toString()), "text/csv"));
+
+        try (var dirs = Files.list(workDir)) {
+            assertEquals(0, dirs.count());
+        }
+    }
+
+    @Test
+    void rowsOverTheLimitGetAnErrorWithoutBeingBuffered() throws Exception {
+        String longDescription = "lithium-ion battery ".repeat(10);
+        String ndjson = "{\"sku\":\"N-1\",\"description\":\"" + longDescription + "\"}\n"
+                + "{\"sku\":\"N-2\",\"description\":\"horses\",\"destination\":\"USA\"}\r\n"
+                + "x".repeat(1000);
+
+        HsClassificationJobDto lines = awaitDone(jobs.submit(OWNER, stream(ndjson), "application/x-ndjson").id());
+
+        assertEquals("COMPLETED", lines.status());
+        assertEquals(3, lines.rowsProcessed());
+        List<JsonNode> lineResults = results(lines.id(), 1);
+        assertEquals("Row longer than 128 characters", lineResults.get(0).get("error").asText());
+        assertEquals("0101.21", topCode(lineResults.get(1)));
+        assertEquals("Row longer than 128 characters", lineResults.get(2).get("error").asText());
+
+        // A quote that is never closed swallows the rest of the input as one row
+        String csv = "sku,description,destination\n"
+                + "C-1,horses,USA\n"
+                + "C-2,\"" + longDescription + ",USA\n"
+                + "C-3,lithium-ion battery,USA\n";
+
+        HsClassificationJobDto records = awaitDone(jobs.submit(OWNER, stream(csv), "text/csv").id());
+
+        assertEquals("COMPLETED", records.status());
+        assertEquals(2, records.rowsProcessed());
+        List<JsonNode> recordResults = results(records.id(), 1);
+        assertEquals("0101.21", topCode(recordResults.get(0)));
+        assertEquals("Row longer than 128 characters", recordResults.get(1).get("error").asText());
+    }
+
+    @Test
+    void finishedJobsDropTheirUploadAndAreDeletedAfterTheRetention() throws Exception {
+        HsClassificationJobDto completed = awaitDone(
+                jobs.submit(OWNER, stream("sku,description\nX,live horses\n"), "text/csv").id());
+        HsClassificationJobDto unreadable = awaitDone(
+                jobs.submit(OWNER, stream("sku,name\nX,thing\n"), "text/csv").id());
+        Path completedDir = workDir.resolve(completed.id());
+
+        // Only the results are served once a job is done; the upload goes right after the final checkpoint
+        awaitDeleted(completedDir.resolve("input.csv"));
+        awaitDeleted(workDir.resolve(unreadable.id()).resolve("input.csv"));
+        assertEquals(1, results(completed.id(), 1).size());
+        assertThrows(IllegalArgumentException.class, () -> jobs.resume(OWNER, unreadable.id()));
+
+        jobs.sweep(Instant.now().plus(Duration.ofHours(23)));
+        assertEquals("COMPLETED", jobs.status(OWNER, completed.id()).status());
+
+        jobs.sweep(Instant.now().plus(Duration.ofDays(2)));
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.status(OWNER, completed.id()));
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.status(OWNER, unreadable.id()));
+        try (var dirs = Files.list(workDir)) {
+            assertEquals(0, dirs.count());
+        }
+    }
+
+    @Test
+    void recover_deletesJobsThatFinishedBeforeTheRetention() throws Exception {
+        String id = awaitDone(jobs.submit(OWNER, stream("sku,description\nX,live horses\n"), "text/csv").id()).id();
+        jobs.shutdown();
+        Path checkpoint = workDir.resolve(id).resolve("job.properties");
+        Files.writeString(checkpoint, Files.readString(checkpoint)
+                .replaceAll("(?m)^finishedAt=.*$", "finishedAt=" + Instant.now().minus(Duration.ofDays(3))));
+
+        jobs = newService(2);
+        jobs.recover();
+
+        assertThrows(ClassificationJobNotFoundException.class, () -> jobs.status(OWNER, id));
+        assertFalse(Files.exists(workDir.resolve(id)));
+    }
+
+    @Test
+    void ownersAreLimitedInTheJobsTheyKeep() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(jobs.submit(OWNER, stream("sku,description\nX,live horses\n"), "text/csv").id());
+        }
+
+        assertThrows(ClassificationJobLimitException.class,
+                () -> jobs.submit(OWNER, stream("sku,description\nX,live horses\n"), "text/csv"));
+        assertNotNull(jobs.submit("auth0|someone-else", stream("sku,description\nX,horses\n"), "text/csv").id());
+
+        jobs.cancel(OWNER, ids.get(0));
+        assertNotNull(jobs.submit(OWNER, stream("sku,description\nX,live horses\n"), "text/csv").id());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark_rowsPerSecondPerCore() throws Exception {
+        String[] descriptions = {"lithium-ion battery pack", "live horses for breeding", "solar panel modules",
+                "rubber ankle boots", "electric accumulators, other"};
+        StringBuilder csv = new StringBuilder("sku,description,destination\n");
+        int rows = 200_000;
+        for (int i = 0; i < rows; i++) {
+            csv.append("SKU-").append(i).append(",\"").append(descriptions[i % descriptions.length])
+                    .append(" model ").append(i % 977).append("\",USA\n");
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        jobs.shutdown();
+        jobs = new HsClassificationJobService(hsProductService, mapper, workDir.toString(), cores,
+                HsClassificationJobService.DEFAULT_CHUNK_SIZE, HsClassificationJobService.DEFAULT_MAX_UPLOAD_BYTES,
+                HsClassificationJobService.DEFAULT_MAX_ROW_CHARS, HsClassificationJobService.DEFAULT_MAX_JOBS_PER_OWNER,
+                HsClassificationJobService.DEFAULT_RETENTION);
+
+        HsClassificationJobDto job = awaitDone(jobs.submit(OWNER, stream(csv.toString()), "text/csv").id());
+
+        assertEquals(rows, job.rowsProcessed());
+        System.out.printf("HS classification of %d catalog rows on %d workers: %.0f rows/s, %.0f rows/s/core%n",
+                rows, cores, job.rowsPerSecond(), job.rowsPerSecond() / cores);
+    }
+
+    private HsClassificationJobService newService(int threads) {
+        return new HsClassificationJobService(hsProductService, mapper, workDir.toString(), threads, 2, 4096, 128,
+                3, Duration.ofDays(1));
+    }
+
+    private HsClassificationJobDto awaitDone(String id) {
+        long deadline = System.currentTimeMillis() + 120_000;
+        while (true) {
+            HsClassificationJobDto job = jobs.status(OWNER, id);
+            if (!job.status().equals("QUEUED") && !job.status().equals("RUNNING")) {
+                return job;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "job " + id + " did not finish");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    private String resultsText(String id, long from) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jobs.writeResults(OWNER, id, from, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void awaitDeleted(Path path) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (Files.exists(path) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(Files.exists(path), path + " was not deleted");
+    }
+
+    private List<JsonNode> results(String id, long from) throws IOException {
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : resultsText(id, from).split("\n")) {
+            if (!line.isBlank()) {
+                results.add(mapper.readTree(line));
+            }
+        }
+        return results;
+    }
+
+    private static String topCode(JsonNode result) {
+        return result.get("candidates").get(0).get("hsCode").asText();
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HsProduct product(Long id, String destination, String code, String label) {
+        return new HsProduct(id, destination, null, "HS2022", code, label);
+    }
+}
@@ -0,0 +1,101 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Result-quality expectations every {@link HsProductService} search mode has
+ * to meet over the same small catalog. Subclasses load the catalog into their
+ * backend and hand back the service to test.
+ */
+abstract class HsDescriptionSearchQualityTest {
+
+    static final List<HsProduct> CATALOG = List.of(
+            product("850760", "Lithium-ion batteries"),
+            product("850710", "Lead-acid battery, of a kind used for starting piston engines"),
+            product("8507", "Electric accumulators, including separators therefor"),
+            product("0101", "Live horses, asses, mules and hinnies"),
+            product("010121", "Pure-bred breeding horses"),
+            product("4819", "Cartons, boxes and cases of paper or paperboard"),
+            product("7318", "Screws, bolts, nuts, of iron or steel"),
+            product("7317", "Nails, tacks, drawing pins, of iron or steel"),
+            product("USA", "8507600010", "Lithium-ion batteries for vehicles"));
+
+    /**
+     * Loads {@link #CATALOG} (destined for GBR, plus one USA line) and returns
+     * the service under test.
+     */
+    abstract HsProductService serviceFor(List<HsProduct> catalog);
+
+    private HsProductService service;
+
+    @BeforeEach
+    void loadCatalog() {
+        service = serviceFor(CATALOG);
+    }
+
+    @Test
+    void labelMatchingEveryWordRanksFirst() {
+        List<String> codes = search("lithium battery", 10);
+
+        assertEquals("850760", codes.get(0));
+        assertTrue(codes.contains("850710"));
+        assertFalse(codes.contains("8507"));
+    }
+
+    @Test
+    void singularAndPluralMeet() {
+        assertTrue(search("battery", 10).containsAll(List.of("850760", "850710")));
+        assertEquals(List.of("010121", "0101").stream().sorted().toList(),
+                search("horse", 10).stream().sorted().toList());
+    }
+
+    @Test
+    void moreSpecificWordDecidesBetweenSimilarLabels() {
+        assertEquals("7317", search("steel nails", 10).get(0));
+        assertEquals("7318", search("steel screws", 10).get(0));
+    }
+
+    @Test
+    void stopWordsAloneAndUnknownWordsFindNothing() {
+        assertTrue(search("the and of", 10).isEmpty());
+        assertTrue(search("zzqx", 10).isEmpty());
+        assertTrue(search("   ", 10).isEmpty());
+    }
+
+    @Test
+    void limitIsRespected() {
+        assertEquals(1, search("steel", 1).size());
+        assertEquals(2, search("steel", 10).size());
+    }
+
+    @Test
+    void destinationSearchRanksWithinThatDestination() {
+        // the GBR label is the better global match, but USA still gets its own top result
+        assertEquals(List.of("850760"), search("lithium battery", 1));
+        assertEquals(List.of("8507600010"), search("lithium battery", "USA", 1));
+        assertFalse(search("battery", "GBR", 10).contains("8507600010"));
+        assertTrue(search("horse", "USA", 10).isEmpty());
+    }
+
+    private List<String> search(String query, int limit) {
+        return service.searchByDescription(query, limit).stream().map(HsProduct::getHsCode).toList();
+    }
+
+    private List<String> search(String query, String destinationIso3, int limit) {
+        return service.searchByDescription(query, destinationIso3, limit).stream().map(HsProduct::getHsCode).toList();
+    }
+
+    private static HsProduct product(String code, String label) {
+        return product("GBR", code, label);
+    }
+
+    private static HsProduct product(String destinationIso3, String code, String label) {
+        return new HsProduct(null, destinationIso3, null, "HS2022", code, label);
+    }
+}
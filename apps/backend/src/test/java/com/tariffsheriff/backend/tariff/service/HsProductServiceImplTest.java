@@ -1,7 +1,10 @@
 package com.tariffsheriff.backend.tariff.service;
 
+import com.tariffsheriff.backend.tariff.index.HsLabelIndex;
+import com.tariffsheriff.backend.tariff.index.HsLabelIndexHolder;
 import com.tariffsheriff.backend.tariff.model.HsProduct;
 import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -20,9 +23,42 @@ class HsProductServiceImplTest {
     @Mock
     HsProductRepository hsProductRepository;
 
+    @Mock
+    HsLabelIndexHolder labelIndex;
+
     @InjectMocks
     HsProductServiceImpl svc;
 
+    @BeforeEach
+    void emptyIndex() {
+        // Until the label index loads, description search goes through the repository
+        lenient().when(labelIndex.current()).thenReturn(HsLabelIndex.EMPTY);
+    }
+
+    @Test
+    void searchByDescription_usesLoadedIndexWithoutQuerying() {
+        HsProduct cells = new HsProduct(1L, "GBR", null, "HS2022", "850760", "Lithium-ion batteries");
+        HsProduct horses = new HsProduct(2L, "GBR", null, "HS2022", "0101", "Live horses");
+        when(labelIndex.current()).thenReturn(new HsLabelIndex(List.of(cells, horses)));
+
+        var out = svc.searchByDescription("lithium battery", 10);
+
+        assertEquals(List.of(cells), out);
+        verifyNoInteractions(hsProductRepository);
+    }
+
+    @Test
+    void searchByDescription_correctsMisspellings_whenNothingMatchesAsTyped() {
+        HsProduct cells = new HsProduct(1L, "GBR", null, "HS2022", "850760", "Lithium-ion batteries");
+        HsProduct horses = new HsProduct(2L, "GBR", null, "HS2022", "0101", "Live horses");
+        when(labelIndex.current()).thenReturn(new HsLabelIndex(List.of(cells, horses)));
+
+        var out = svc.searchByDescription("lithum batery", 10);
+
+        assertEquals(List.of(cells), out);
+        verifyNoInteractions(hsProductRepository);
+    }
+
     @Test
     void searchByDescription_returnsEmpty_onNullOrBlank() {
         assertTrue(svc.searchByDescription(null).isEmpty());
@@ -59,6 +95,33 @@ class HsProductServiceImplTest {
         assertTrue(out.stream().anyMatch(x -> x.getId().equals(2L)) || out.stream().anyMatch(x -> x.getId().equals(3L)));
     }
 
+    @Test
+    void searchByDescription_withDestination_ranksWithinThatDestinationOnly() {
+        HsProduct gbrCells = new HsProduct(1L, "GBR", null, "HS2022", "850760", "Lithium-ion batteries");
+        HsProduct usaCells = new HsProduct(2L, "USA", null, "HS2022", "8507600010", "Lithium-ion batteries for vehicles");
+        when(labelIndex.current()).thenReturn(new HsLabelIndex(List.of(gbrCells, usaCells)));
+
+        // globally the shorter GBR label wins the single slot
+        assertEquals(List.of(gbrCells), svc.searchByDescription("lithium battery", 1));
+        assertEquals(List.of(usaCells), svc.searchByDescription("lithium battery", "usa", 1));
+        assertEquals(List.of(usaCells), svc.searchByDescription("lithum", "USA", 1));
+        assertTrue(svc.searchByDescription("lithium battery", "FRA", 1).isEmpty());
+        verifyNoInteractions(hsProductRepository);
+    }
+
+    @Test
+    void searchByDescription_withDestination_pushesDestinationIntoRepositoryFallback() {
+        HsProduct p = new HsProduct();
+        p.setId(1L);
+        when(hsProductRepository.findByDestinationAndHsLabelContainingIgnoreCaseWithLimit("USA", "hammer", 10))
+                .thenReturn(List.of(p));
+
+        var out = svc.searchByDescription("hammer", " usa ", 10);
+
+        assertEquals(List.of(p), out);
+        verify(hsProductRepository, never()).findByHsLabelContainingIgnoreCaseWithLimit(any(), anyInt());
+    }
+
     @Test
     void getByHsCode_returnsNull_whenBlankOrNotFound() {
         assertNull(svc.getByHsCode(null));
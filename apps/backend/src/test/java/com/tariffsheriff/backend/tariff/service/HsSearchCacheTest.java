@@ -0,0 +1,171 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.index.HsTypeaheadHolder;
+import com.tariffsheriff.backend.tariff.index.SnapshotReloadedEvent;
+import com.tariffsheriff.backend.tariff.index.TariffDataChangedEvent;
+import com.tariffsheriff.backend.tariff.model.Country;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsSearchCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HsSearchCache cache = new HsSearchCache(meterRegistry, HsSearchCache.DEFAULT_MAX_BYTES);
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @Test
+    void keys_normalizeCaseSpacingAndStopWords() {
+        assertEquals(HsSearchCache.descriptionKey("Battery", null, 10),
+                HsSearchCache.descriptionKey("  the battery ", " ", 10));
+        assertEquals(HsSearchCache.descriptionKey("lithium-ion", "usa", 10),
+                HsSearchCache.descriptionKey("Lithium ion", "USA", 10));
+        assertNotEquals(HsSearchCache.descriptionKey("battery", null, 10),
+                HsSearchCache.descriptionKey("battery", null, 5));
+        assertNotEquals(HsSearchCache.descriptionKey("battery", null, 10),
+                HsSearchCache.descriptionKey("battery", "GBR", 10));
+        assertNull(HsSearchCache.descriptionKey("the of", null, 10));
+
+        assertEquals(HsSearchCache.suggestionKey("Horses  of Live", null, 10),
+                HsSearchCache.suggestionKey("Horses Live ", null, 10));
+        assertEquals("battery in", HsSearchCache.suggestionKey("battery in ", null, 10).query());
+        // the key holds the query the suggestions are computed from, case included
+        assertNotEquals(HsSearchCache.suggestionKey("Horses", null, 10),
+                HsSearchCache.suggestionKey("horses", null, 10));
+        // the word being typed may still become something else
+        assertNotEquals(HsSearchCache.suggestionKey("horses of", null, 10),
+                HsSearchCache.suggestionKey("horses", null, 10));
+        assertNotEquals(HsSearchCache.suggestionKey("0101.21", null, 10),
+                HsSearchCache.suggestionKey("0101 21", null, 10));
+    }
+
+    @Test
+    void get_servesRepeatedQueriesWithoutSearchingAgain() {
+        List<String> first = cache.get(HsSearchCache.descriptionKey("Battery", null, 10), this::weight,
+                () -> search("850760"));
+        List<String> second = cache.get(HsSearchCache.descriptionKey("the battery", null, 10), this::weight,
+                () -> search("other"));
+
+        assertEquals(List.of("850760"), first);
+        assertSame(first, second);
+        assertEquals(1, searches.get());
+        assertEquals(0.5, cache.hitRate());
+        assertEquals(0.5, meterRegistry.get("hs.search.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void get_coalescesConcurrentMissesIntoOneSearch() throws Exception {
+        HsSearchCache.Key key = HsSearchCache.descriptionKey("steel", null, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<String>> leader = CompletableFuture.supplyAsync(() -> cache.get(key, this::weight, () -> {
+            started.countDown();
+            await(release);
+            return search("7318");
+        }));
+        await(started);
+        CompletableFuture<List<String>> follower = CompletableFuture.supplyAsync(
+                () -> cache.get(key, this::weight, () -> search("never")));
+        // the follower has joined the leader once it counts as served
+        while (cache.hitRate() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertEquals(List.of("7318"), leader.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("7318"), follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    void invalidate_onHsProductChangesAndIndexReloads() {
+        HsSearchCache.Key key = HsSearchCache.descriptionKey("steel", null, 10);
+        cache.get(key, this::weight, () -> search("7318"));
+
+        cache.onTariffDataChanged(new TariffDataChangedEvent(Country.class));
+        assertEquals(1, cache.size());
+
+        cache.onTariffDataChanged(new TariffDataChangedEvent(HsProduct.class));
+        assertEquals(0, cache.size());
+
+        cache.get(key, this::weight, () -> search("7318"));
+        cache.onSnapshotReloaded(new SnapshotReloadedEvent(new HsTypeaheadHolder(null)));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+    }
+
+    @Test
+    void get_doesNotKeepResultsComputedAcrossAnInvalidation() {
+        HsSearchCache.Key key = HsSearchCache.descriptionKey("steel", null, 10);
+
+        List<String> stale = cache.get(key, this::weight, () -> {
+            cache.invalidate();
+            return search("7318");
+        });
+
+        assertEquals(List.of("7318"), stale);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsedBeyondTheSizeBound() {
+        // each entry below weighs a little under 400 bytes
+        HsSearchCache small = new HsSearchCache(new SimpleMeterRegistry(), 1000);
+        HsSearchCache.Key nails = HsSearchCache.descriptionKey("nails", null, 10);
+        HsSearchCache.Key screws = HsSearchCache.descriptionKey("screw", null, 10);
+        HsSearchCache.Key bolts = HsSearchCache.descriptionKey("bolts", null, 10);
+        small.get(nails, this::weight, () -> search("7317", "7317.00"));
+        small.get(screws, this::weight, () -> search("7318", "7318.15"));
+        small.get(nails, this::weight, () -> search("never"));
+        small.get(bolts, this::weight, () -> search("7318", "7318.16"));
+
+        assertEquals(2, small.size());
+        assertTrue(small.weight() <= 1000);
+        int before = searches.get();
+        small.get(nails, this::weight, () -> search("never"));
+        assertEquals(before, searches.get());
+        small.get(screws, this::weight, () -> search("7318"));
+        assertEquals(before + 1, searches.get());
+    }
+
+    @Test
+    void get_neitherCachesFailuresNorAnythingWhenDisabled() {
+        HsSearchCache.Key key = HsSearchCache.descriptionKey("steel", null, 10);
+        assertThrows(IllegalStateException.class, () -> cache.get(key, this::weight, () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertEquals(List.of("7318"), cache.get(key, this::weight, () -> search("7318")));
+
+        HsSearchCache disabled = new HsSearchCache(new SimpleMeterRegistry(), 0);
+        disabled.get(key, this::weight, () -> search("7318"));
+        disabled.get(key, this::weight, () -> search("7318"));
+        assertEquals(3, searches.get());
+        assertEquals(0, disabled.size());
+    }
+
+    private List<String> search(String... codes) {
+        searches.incrementAndGet();
+        return List.of(codes);
+    }
+
+    private long weight(String code) {
+        return 100;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
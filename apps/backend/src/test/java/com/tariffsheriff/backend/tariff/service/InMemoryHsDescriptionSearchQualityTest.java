@@ -0,0 +1,29 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.index.HsLabelIndexHolder;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InMemoryHsDescriptionSearchQualityTest extends HsDescriptionSearchQualityTest {
+
+    @Override
+    HsProductService serviceFor(List<HsProduct> catalog) {
+        List<Object[]> rows = new ArrayList<>();
+        long id = 1;
+        for (HsProduct product : catalog) {
+            rows.add(new Object[]{id++, product.getDestinationIso3(), product.getHsVersion(), product.getHsCode(),
+                    product.getHsLabel()});
+        }
+        HsProductRepository repository = mock(HsProductRepository.class);
+        when(repository.findAllIndexRows()).thenReturn(rows);
+        HsLabelIndexHolder labelIndex = new HsLabelIndexHolder(repository);
+        labelIndex.reload();
+        return new HsProductServiceImpl(repository, labelIndex);
+    }
+}
@@ -0,0 +1,61 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.model.Country;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+/**
+ * Runs the shared quality checks against {@link PostgresHsProductService} on a
+ * real PostgreSQL, with the V6 and V7 search columns and indexes applied on
+ * top of the Hibernate-generated schema. Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Sql({"classpath:db/migration/V6__hs_label_search.sql",
+      "classpath:db/migration/V7__hs_label_search_by_destination.sql"})
+class PostgresHsDescriptionSearchQualityTest extends HsDescriptionSearchQualityTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driverClassName", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    HsProductRepository hsProducts;
+
+    @Override
+    HsProductService serviceFor(List<HsProduct> catalog) {
+        entityManager.persist(new Country(null, "GBR", "United Kingdom"));
+        entityManager.persist(new Country(null, "USA", "United States"));
+        for (HsProduct product : catalog) {
+            entityManager.persist(new HsProduct(null, product.getDestinationIso3(), null, product.getHsVersion(),
+                    product.getHsCode(), product.getHsLabel()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return new PostgresHsProductService(hsProducts);
+    }
+}
@@ -0,0 +1,196 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffCalculationBatchServiceTest {
+
+    private static final String VALID = "{\"mfnRate\":0.1,\"prefRate\":0.02,\"rvcThreshold\":40,\"totalValue\":1000,"
+            + "\"materialCost\":500,\"labourCost\":200,\"overheadCost\":100,\"profit\":100,\"otherCosts\":100,"
+            + "\"fob\":1000}";
+    private static final String BELOW_THRESHOLD = "{\"mfnRate\":0.1,\"prefRate\":0.02,\"rvc\":95,"
+            + "\"totalValue\":250.5,\"materialCost\":300,\"labourCost\":10,\"overheadCost\":0,\"profit\":0,"
+            + "\"otherCosts\":0,\"fob\":700}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ValidatorFactory validation = Validation.buildDefaultValidatorFactory();
+    private final TariffCalculationBatchService batch = new TariffCalculationBatchService(mapper,
+            validation.getValidator(), 2, 3, TariffCalculationBatchService.DEFAULT_MAX_ITEMS,
+            TariffCalculationBatchService.DEFAULT_MAX_ITEM_CHARS);
+
+    @AfterEach
+    void tearDown() {
+        batch.shutdown();
+        validation.close();
+    }
+
+    @Test
+    void ndjson_reportsErrorsPerLineAndKeepsInputOrder() throws Exception {
+        String ndjson = VALID + "\n"
+                + "\n"
+                + "{\"mfnRate\":0.1,\"totalValue\":1000}\n"
+                + "{\"mfnRate\":-1" + VALID.substring(VALID.indexOf(",\"prefRate\"")) + "\n"
+                + "{oops\n"
+                + "{\"mfnRate\":\"ten percent\"}\n"
+                + "42\n"
+                + BELOW_THRESHOLD + "\r\n";
+
+        List<JsonNode> results = run(ndjson);
+
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L), results.stream().map(r -> r.get("index").asLong()).toList());
+        assertResult(results.get(0), VALID);
+        assertEquals("PREF", results.get(0).get("result").get("basis").asText());
+        assertEquals("fob: must not be null; labourCost: must not be null; materialCost: must not be null; "
+                + "otherCosts: must not be null; overheadCost: must not be null; profit: must not be null",
+                error(results.get(1)));
+        assertTrue(error(results.get(2)).startsWith("mfnRate: must be greater than or equal to"));
+        assertTrue(error(results.get(3)).startsWith("Invalid JSON"));
+        assertTrue(error(results.get(4)).startsWith("Invalid request"));
+        assertEquals("Expected a JSON object", error(results.get(5)));
+        assertResult(results.get(6), BELOW_THRESHOLD);
+        assertEquals("MFN", results.get(6).get("result").get("basis").asText());
+    }
+
+    @Test
+    void jsonArray_givesTheSameResultsAsNdjson() throws Exception {
+        String[] items = {VALID, "{\"fob\":0}", BELOW_THRESHOLD, "null", VALID};
+
+        List<JsonNode> fromArray = run("  [" + String.join(",\n", items) + "]  ");
+        List<JsonNode> fromLines = run(String.join("\n", items));
+
+        assertEquals(5, fromArray.size());
+        assertEquals(fromLines, fromArray);
+        assertTrue(error(fromArray.get(1)).contains("fob: must be greater than 0"));
+        assertEquals("Expected a JSON object", error(fromArray.get(3)));
+        assertTrue(run("[]").isEmpty());
+        assertTrue(run("").isEmpty());
+    }
+
+    @Test
+    void jsonArray_endsWithAnErrorWhenTheArrayIsBroken() throws Exception {
+        List<JsonNode> results = run("[" + VALID + "," + BELOW_THRESHOLD + ",{\"mfnRate\":");
+
+        assertEquals(3, results.size());
+        assertResult(results.get(0), VALID);
+        assertResult(results.get(1), BELOW_THRESHOLD);
+        assertEquals(2, results.get(2).get("index").asLong());
+        assertTrue(error(results.get(2)).startsWith("Invalid JSON"));
+    }
+
+    @Test
+    void largeInput_isWrittenChunkByChunk() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        int items = 10_000;
+        for (int i = 0; i < items; i++) {
+            ndjson.append(VALID.replace("\"totalValue\":1000", "\"totalValue\":" + i)).append('\n');
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int[] flushes = {0};
+        batch.calculate(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)),
+                new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                        out.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() {
+                        flushes[0]++;
+                    }
+                });
+
+        List<JsonNode> results = parse(out);
+        assertEquals(items, results.size());
+        assertEquals((items + 2) / 3, flushes[0]);
+        for (int i = 0; i < items; i++) {
+            assertEquals(i, results.get(i).get("index").asLong());
+            assertEquals(0, new BigDecimal("0.02").multiply(BigDecimal.valueOf(i))
+                    .compareTo(results.get(i).get("result").get("totalDuty").decimalValue()));
+        }
+    }
+
+    @Test
+    void limits_endTheBatchAfterTooManyItemsAndSkipOverlongLines() throws Exception {
+        TariffCalculationBatchService limited = new TariffCalculationBatchService(mapper, validation.getValidator(),
+                2, 3, 4, VALID.length());
+        try {
+            String overlong = "{\"note\":\"" + "x".repeat(100_000) + "\"}";
+            List<JsonNode> lines = parse(run(limited,
+                    VALID + "\r\n" + overlong + "\n\n" + BELOW_THRESHOLD + "\n" + VALID + "\n" + VALID + "\n" + VALID));
+
+            assertEquals(List.of(0L, 1L, 2L, 3L, 4L), lines.stream().map(r -> r.get("index").asLong()).toList());
+            assertResult(lines.get(0), VALID);
+            assertEquals("Line longer than " + VALID.length() + " characters", error(lines.get(1)));
+            assertResult(lines.get(2), BELOW_THRESHOLD);
+            assertResult(lines.get(3), VALID);
+            assertEquals("A batch accepts at most 4 items", error(lines.get(4)));
+
+            List<JsonNode> array = parse(run(limited, "[" + VALID + "," + overlong + "," + VALID + "]"));
+            assertEquals(2, array.size());
+            assertResult(array.get(0), VALID);
+            assertEquals("Item longer than " + VALID.length() + " characters", error(array.get(1)));
+
+            List<JsonNode> tooMany = parse(run(limited, "[" + String.join(",", List.of(VALID, VALID, VALID, VALID,
+                    VALID)) + "]"));
+            assertEquals(5, tooMany.size());
+            assertResult(tooMany.get(3), VALID);
+            assertEquals("A batch accepts at most 4 items", error(tooMany.get(4)));
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    private void assertResult(JsonNode actual, String request) throws IOException {
+        TariffCalculationResponse expected = TariffCalculationKernel.calculateDecimal(
+                mapper.readValue(request, TariffRateRequestDto.class));
+        assertTrue(actual.get("error").isNull());
+        assertEquals(mapper.readTree(mapper.writeValueAsString(expected)), actual.get("result"));
+    }
+
+    private static String error(JsonNode result) {
+        return result.get("error").asText();
+    }
+
+    private List<JsonNode> run(String input) throws IOException {
+        return parse(run(batch, input));
+    }
+
+    private static ByteArrayOutputStream run(TariffCalculationBatchService service, String input)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.calculate(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+        return out;
+    }
+
+    private List<JsonNode> parse(ByteArrayOutputStream out) throws IOException {
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                results.add(mapper.readTree(line));
+            }
+        }
+        return results;
+    }
+}
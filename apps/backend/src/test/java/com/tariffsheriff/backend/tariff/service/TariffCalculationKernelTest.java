@@ -0,0 +1,226 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests of the fixed-point kernel against the BigDecimal
+ * calculation: every result, scale included, must be identical. The
+ * throughput and allocation benchmark only runs with {@code -Dbenchmark=true}.
+ */
+class TariffCalculationKernelTest {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    @Test
+    void rvcMicros_matchesBigDecimalRoundingExhaustively() {
+        // Every cost/FOB pair up to 0.001 in micro-units, and the same pairs a million times larger
+        for (long costs = 0; costs <= 1000; costs++) {
+            for (long fob = 1; fob <= 1000; fob++) {
+                assertRvc(costs, fob);
+                assertRvc(costs * 1_000_000, fob * 1_000_000 + 1);
+            }
+        }
+    }
+
+    @Test
+    void rvcMicros_matchesBigDecimalAtTiesAndExtremes() {
+        long[] fobs = {1, 2, 3, 7, 8, 64, 999_999, 1_000_000, 1_000_001, 2_000_000, 1L << 40, 999_999_999_999_999L,
+                1_000_000_000_000_000_000L, Long.MAX_VALUE / 10, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long fob : fobs) {
+            for (long costs : new long[]{0, 1, fob / 2, fob / 2 + 1, fob - 1, fob, fob + fob / 2, fob * 3 / 7,
+                    Long.MAX_VALUE / 2, Long.MAX_VALUE / 100, Long.MAX_VALUE / 101, Long.MAX_VALUE - 1}) {
+                if (costs >= 0) {
+                    assertRvc(costs, fob);
+                }
+            }
+        }
+        assertEquals(TariffCalculationKernel.OVERFLOW, TariffCalculationKernel.rvcMicros(1, 0));
+        assertEquals(TariffCalculationKernel.OVERFLOW, TariffCalculationKernel.rvcMicros(-1, 5));
+    }
+
+    @Test
+    void calculate_matchesTheDecimalPathOverAGridOfScalesAndMagnitudes() {
+        String[] costs = {"0", "0.5", "1", "2.25", "3.333333", "99.99", "100.000000", "1234.5"};
+        String[] fobs = {"0.000001", "1", "3", "7.5", "1000", "4000.00", "999999999999"};
+        String[] thresholds = {null, "0", "35", "40.0", "45.5", "66.666667", "100", "40.0000001"};
+        String[] prefRates = {null, "0", "0.025"};
+        String[] mfnRates = {"0.1", "0.0425", "5", "0.12345678"};
+        String[] totalValues = {"0", "1000", "250.55", "1E+3", "999999999999.999999"};
+
+        int fixed = 0;
+        int compared = 0;
+        for (String material : costs) {
+            for (String labour : costs) {
+                for (String fob : fobs) {
+                    for (String threshold : thresholds) {
+                        for (String prefRate : prefRates) {
+                            for (String mfnRate : mfnRates) {
+                                for (String totalValue : totalValues) {
+                                    TariffRateRequestDto rq = request(mfnRate, prefRate, threshold, totalValue,
+                                            material, labour, "10.10", "0", "5", fob);
+                                    if (TariffCalculationKernel.calculateFixed(rq) != null) {
+                                        fixed++;
+                                    }
+                                    assertMatchesDecimal(rq);
+                                    compared++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        // The grid includes values meant to fall back; everything else goes through the kernel
+        assertTrue(fixed > compared / 2, fixed + " of " + compared + " took the fixed-point path");
+    }
+
+    @Test
+    void calculate_matchesTheDecimalPathForRandomRequests() {
+        Random random = new Random(20_24_10_16L);
+        for (int i = 0; i < 200_000; i++) {
+            TariffRateRequestDto rq = request(randomDecimal(random), random.nextInt(4) == 0 ? null
+                    : randomDecimal(random), random.nextInt(4) == 0 ? null : randomDecimal(random),
+                    randomDecimal(random), randomDecimal(random), randomDecimal(random), randomDecimal(random),
+                    randomDecimal(random), randomDecimal(random), randomDecimal(random));
+            if (rq.getFob().signum() == 0) {
+                rq.setFob(BigDecimal.ONE);
+            }
+            assertMatchesDecimal(rq);
+        }
+    }
+
+    @Test
+    void calculate_fallsBackToBigDecimalWhenLongsCannotHoldTheValues() {
+        TariffRateRequestDto tooPrecise = request("0.1", "0.02", "40", "1000", "500.0000001", "200", "100", "100",
+                "100", "1000");
+        TariffRateRequestDto tooLarge = request("0.1", null, null, "12345678901234567890", "5", "0", "0", "0", "0",
+                "7");
+        TariffRateRequestDto productTooLarge = request("0.123456", null, null, "999999999999.999999", "5", "0",
+                "0", "0", "0", "7");
+
+        for (TariffRateRequestDto rq : List.of(tooPrecise, tooLarge, productTooLarge)) {
+            assertNull(TariffCalculationKernel.calculateFixed(rq));
+            assertMatchesDecimal(rq);
+        }
+        TariffRateRequestDto zeroFob = request("0.1", null, null, "1", "1", "0", "0", "0", "0", "0");
+        assertThrows(ArithmeticException.class, () -> TariffCalculationKernel.calculate(zeroFob));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark_calculationsPerSecondAndBytesPerCalculation() {
+        List<TariffRateRequestDto> requests = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 4096; i++) {
+            requests.add(request("0.1", "0.02", "40", BigDecimal.valueOf(random.nextInt(1_000_000), 2).toString(),
+                    BigDecimal.valueOf(random.nextInt(50_000), 2).toString(), "200", "100", "100", "100",
+                    BigDecimal.valueOf(100_000 + random.nextInt(100_000), 2).toString()));
+        }
+        long[] costs = new long[requests.size()];
+        long[] fobs = new long[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            TariffRateRequestDto rq = requests.get(i);
+            costs[i] = TariffCalculationKernel.toMicros(rq.getMaterialCost().add(rq.getLabourCost())
+                    .add(rq.getOverheadCost()).add(rq.getProfit()).add(rq.getOtherCosts()));
+            fobs[i] = TariffCalculationKernel.toMicros(rq.getFob());
+        }
+
+        Measurement decimal = measure(requests.size(), i -> TariffCalculationKernel.calculateDecimal(
+                requests.get(i)).rvc().signum());
+        Measurement fixed = measure(requests.size(), i -> TariffCalculationKernel.calculate(
+                requests.get(i)).rvc().signum());
+        Measurement kernel = measure(requests.size(), i -> TariffCalculationKernel.rvcMicros(costs[i], fobs[i]));
+
+        System.out.printf("Tariff calculation, %d requests per round:%n", requests.size());
+        System.out.printf("  BigDecimal        %,12.0f calcs/s  %6.1f bytes/calc%n", decimal.perSecond, decimal.bytes);
+        System.out.printf("  fixed-point (DTO) %,12.0f calcs/s  %6.1f bytes/calc%n", fixed.perSecond, fixed.bytes);
+        System.out.printf("  fixed-point longs %,12.0f calcs/s  %6.1f bytes/calc%n", kernel.perSecond, kernel.bytes);
+        assertTrue(kernel.bytes < 1, "the long kernel should not allocate");
+    }
+
+    private static void assertRvc(long costs, long fob) {
+        BigDecimal expected = BigDecimal.valueOf(costs, 6)
+                .divide(BigDecimal.valueOf(fob, 6), 6, RoundingMode.HALF_UP)
+                .multiply(HUNDRED);
+        long actual = TariffCalculationKernel.rvcMicros(costs, fob);
+        if (actual == TariffCalculationKernel.OVERFLOW) {
+            // Only allowed when the result really does not fit
+            assertTrue(expected.unscaledValue().bitLength() > 62, costs + "/" + fob + " overflowed needlessly");
+            return;
+        }
+        assertEquals(expected, BigDecimal.valueOf(actual, 6), costs + "/" + fob);
+    }
+
+    private static void assertMatchesDecimal(TariffRateRequestDto rq) {
+        TariffCalculationResponse expected = TariffCalculationKernel.calculateDecimal(rq);
+        TariffCalculationResponse actual = TariffCalculationKernel.calculate(rq);
+        // Record equality compares BigDecimals with equals, so scales must match too
+        assertEquals(expected, actual, rq::toString);
+    }
+
+    private static String randomDecimal(Random random) {
+        int scale = random.nextInt(10) - 2;
+        long unscaled = switch (random.nextInt(4)) {
+            case 0 -> random.nextInt(10);
+            case 1 -> random.nextInt(1_000_000);
+            case 2 -> random.nextLong() & Long.MAX_VALUE;
+            default -> (random.nextLong() & Long.MAX_VALUE) >>> random.nextInt(63);
+        };
+        return BigDecimal.valueOf(unscaled, scale).toString();
+    }
+
+    private static TariffRateRequestDto request(String mfnRate, String prefRate, String threshold, String totalValue,
+            String material, String labour, String overhead, String profit, String other, String fob) {
+        TariffRateRequestDto rq = new TariffRateRequestDto();
+        rq.setMfnRate(new BigDecimal(mfnRate));
+        rq.setPrefRate(prefRate == null ? null : new BigDecimal(prefRate));
+        rq.setRvcThreshold(threshold == null ? null : new BigDecimal(threshold));
+        rq.setTotalValue(new BigDecimal(totalValue));
+        rq.setMaterialCost(new BigDecimal(material));
+        rq.setLabourCost(new BigDecimal(labour));
+        rq.setOverheadCost(new BigDecimal(overhead));
+        rq.setProfit(new BigDecimal(profit));
+        rq.setOtherCosts(new BigDecimal(other));
+        rq.setFob(new BigDecimal(fob));
+        return rq;
+    }
+
+    private static Measurement measure(int size, java.util.function.IntToLongFunction calculation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long sink = 0;
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < size; i++) {
+                sink += calculation.applyAsLong(i);
+            }
+        }
+        int rounds = 500;
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long startedAt = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < size; i++) {
+                sink += calculation.applyAsLong(i);
+            }
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        long calculations = (long) rounds * size;
+        assertNotEquals(42, sink);
+        return new Measurement(calculations / (elapsed / 1e9), (double) allocated / calculations);
+    }
+
+    private record Measurement(double perSecond, double bytes) {
+    }
+}
@@ -0,0 +1,246 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationBreakEvenDto;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepRangeDto;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffCalculationSweepResponse;
+import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffCalculationSweepServiceTest {
+
+    private static final BigDecimal MICRO = new BigDecimal("0.000001");
+    private static final Map<String, BiConsumer<TariffRateRequestDto, BigDecimal>> SETTERS = Map.of(
+            "materialCost", TariffRateRequestDto::setMaterialCost,
+            "labourCost", TariffRateRequestDto::setLabourCost,
+            "overheadCost", TariffRateRequestDto::setOverheadCost,
+            "profit", TariffRateRequestDto::setProfit,
+            "otherCosts", TariffRateRequestDto::setOtherCosts,
+            "fob", TariffRateRequestDto::setFob,
+            "totalValue", TariffRateRequestDto::setTotalValue,
+            "mfnRate", TariffRateRequestDto::setMfnRate,
+            "prefRate", TariffRateRequestDto::setPrefRate,
+            "rvcThreshold", TariffRateRequestDto::setRvcThreshold);
+
+    private final TariffCalculationSweepService sweeps = new TariffCalculationSweepService(4);
+
+    @AfterEach
+    void tearDown() {
+        sweeps.shutdown();
+    }
+
+    @Test
+    void oneRange_matchesSingleCalculationsAndFindsTheExactBreakEven() {
+        TariffRateRequestDto base = base();
+        base.setRvcThreshold(new BigDecimal("50"));
+        TariffCalculationSweepResponse sweep = sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("materialCost", BigDecimal.ZERO, new BigDecimal("1000"), 101)));
+
+        List<BigDecimal> values = sweep.axes().get(0).values();
+        assertEquals(101, values.size());
+        assertEquals(0, new BigDecimal("10").compareTo(values.get(1)));
+        for (int i = 0; i < values.size(); i++) {
+            TariffCalculationResponse expected = at(base, "materialCost", values.get(i));
+            assertEquals(expected.totalDuty().doubleValue(), sweep.totalDuty()[i][0], 1e-9);
+            assertEquals("PREF".equals(expected.basis()), sweep.preferential()[i][0]);
+        }
+
+        TariffCalculationBreakEvenDto breakEven = sweep.breakEvens().get(0);
+        // 50% of a 1000 FOB is 500 of costs, 400 of which are not material; 0.4999995 rounds up to 50%
+        assertEquals("AT_OR_ABOVE", breakEven.preferential());
+        assertEquals(new BigDecimal("99.999500"), breakEven.value());
+        assertNull(breakEven.fixedVariable());
+        assertBreakEven(base, breakEven);
+    }
+
+    @Test
+    void twoRanges_millionPointSurfaceMatchesTheDecimalPathWithBreakEvensPerRow() {
+        TariffRateRequestDto base = base();
+        base.setRvcThreshold(new BigDecimal("45.5"));
+        long startedAt = System.nanoTime();
+        TariffCalculationSweepResponse sweep = sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("labourCost", BigDecimal.ZERO, new BigDecimal("999.9"), 1000),
+                new TariffCalculationSweepRangeDto("fob", new BigDecimal("500"), new BigDecimal("3000"), 1000)));
+        long millis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        assertEquals(1000, sweep.totalDuty().length);
+        assertEquals(1000, sweep.totalDuty()[0].length);
+        if (Boolean.getBoolean("benchmark")) {
+            System.out.printf("1000 x 1000 sweep with 2000 break-evens: %d ms%n", millis);
+        }
+
+        List<BigDecimal> labour = sweep.axes().get(0).values();
+        List<BigDecimal> fob = sweep.axes().get(1).values();
+        Random random = new Random(42);
+        for (int n = 0; n < 5000; n++) {
+            int i = random.nextInt(1000);
+            int j = random.nextInt(1000);
+            TariffRateRequestDto point = copy(base);
+            point.setLabourCost(labour.get(i));
+            point.setFob(fob.get(j));
+            TariffCalculationResponse expected = TariffCalculationKernel.calculateDecimal(point);
+            assertEquals(expected.totalDuty().doubleValue(), sweep.totalDuty()[i][j], 1e-9);
+            assertEquals("PREF".equals(expected.basis()), sweep.preferential()[i][j], "at " + i + "," + j);
+        }
+
+        assertEquals(2000, sweep.breakEvens().size());
+        for (TariffCalculationBreakEvenDto breakEven : sweep.breakEvens()) {
+            assertBreakEven(base, breakEven);
+        }
+        // Along each row, the surface flips from PREF to MFN exactly at the FOB break-even
+        for (int i = 0; i < 1000; i += 37) {
+            TariffCalculationBreakEvenDto breakEven = sweep.breakEvens().get(1000 + i);
+            assertEquals("fob", breakEven.variable());
+            assertEquals(labour.get(i), breakEven.fixedValue());
+            for (int j = 0; j < 1000; j++) {
+                boolean qualifies = breakEven.preferential().equals("ALWAYS")
+                        || (breakEven.preferential().equals("AT_OR_BELOW")
+                                && fob.get(j).compareTo(breakEven.value()) <= 0);
+                assertEquals(qualifies, sweep.preferential()[i][j]);
+            }
+        }
+    }
+
+    @Test
+    void breakEvens_forThresholdRatesAndMissingPreference() {
+        TariffRateRequestDto base = base();
+
+        TariffCalculationBreakEvenDto threshold = sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("rvc_threshold", BigDecimal.ZERO, new BigDecimal("100"), 11)))
+                .breakEvens().get(0);
+        assertEquals("rvcThreshold", threshold.variable());
+        assertEquals("AT_OR_BELOW", threshold.preferential());
+        assertEquals(new BigDecimal("90.000000"), threshold.value());
+        assertBreakEven(base, threshold);
+
+        assertEquals("ALWAYS", sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("totalValue", BigDecimal.ZERO, BigDecimal.TEN, 3)))
+                .breakEvens().get(0).preferential());
+
+        base.setRvcThreshold(new BigDecimal("95"));
+        TariffCalculationSweepResponse mfnOnly = sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("mfnRate", BigDecimal.ZERO, BigDecimal.ONE, 5)));
+        assertEquals("NEVER", mfnOnly.breakEvens().get(0).preferential());
+        assertEquals(0.25 * 1000, mfnOnly.totalDuty()[1][0], 1e-9);
+
+        base.setPrefRate(null);
+        assertEquals("NEVER", sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("profit", BigDecimal.ZERO, new BigDecimal("5000"), 2)))
+                .breakEvens().get(0).preferential());
+
+        // Thresholds at or below zero are met by any FOB
+        base.setPrefRate(new BigDecimal("0.02"));
+        base.setRvcThreshold(BigDecimal.ZERO);
+        assertEquals("ALWAYS", sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("fob", BigDecimal.ONE, BigDecimal.TEN, 2)))
+                .breakEvens().get(0).preferential());
+    }
+
+    @Test
+    void sweep_fallsBackToBigDecimalForValuesTheKernelCannotHold() {
+        TariffRateRequestDto base = base();
+        base.setMfnRate(new BigDecimal("0.123456789"));
+        base.setRvcThreshold(new BigDecimal("95"));
+        TariffCalculationSweepResponse sweep = sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("totalValue", BigDecimal.ZERO, new BigDecimal("100"), 3)));
+
+        assertEquals(50 * 0.123456789, sweep.totalDuty()[1][0], 1e-12);
+        assertFalse(sweep.preferential()[1][0]);
+    }
+
+    @Test
+    void sweep_rejectsUnknownDuplicateOversizedAndInvalidRanges() {
+        TariffRateRequestDto base = base();
+        assertThrows(IllegalArgumentException.class, () -> sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("weight", BigDecimal.ZERO, BigDecimal.ONE, 2))));
+        assertThrows(IllegalArgumentException.class, () -> sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("fob", BigDecimal.ONE, BigDecimal.TEN, 2),
+                new TariffCalculationSweepRangeDto("FOB", BigDecimal.ONE, BigDecimal.TEN, 2))));
+        assertThrows(IllegalArgumentException.class, () -> sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("fob", BigDecimal.ONE, BigDecimal.TEN, 2000),
+                new TariffCalculationSweepRangeDto("profit", BigDecimal.ONE, BigDecimal.TEN, 2000))));
+        assertThrows(IllegalArgumentException.class, () -> sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("fob", BigDecimal.ZERO, BigDecimal.TEN, 5))));
+        assertThrows(IllegalArgumentException.class, () -> sweeps.sweep(request(base,
+                new TariffCalculationSweepRangeDto("profit", new BigDecimal("-1"), BigDecimal.TEN, 5))));
+    }
+
+    /**
+     * The break-even value qualifies and the next micro-unit past it does not.
+     */
+    private static void assertBreakEven(TariffRateRequestDto base, TariffCalculationBreakEvenDto breakEven) {
+        TariffRateRequestDto fixed = copy(base);
+        if (breakEven.fixedVariable() != null) {
+            SETTERS.get(breakEven.fixedVariable()).accept(fixed, breakEven.fixedValue());
+        }
+        String variable = breakEven.variable();
+        switch (breakEven.preferential()) {
+            case "AT_OR_ABOVE" -> {
+                assertEquals("PREF", at(fixed, variable, breakEven.value()).basis(), breakEven.toString());
+                assertEquals("MFN", at(fixed, variable, breakEven.value().subtract(MICRO)).basis(),
+                        breakEven.toString());
+            }
+            case "AT_OR_BELOW" -> {
+                assertEquals("PREF", at(fixed, variable, breakEven.value()).basis(), breakEven.toString());
+                assertEquals("MFN", at(fixed, variable, breakEven.value().add(MICRO)).basis(),
+                        breakEven.toString());
+            }
+            case "ALWAYS" -> assertEquals("PREF", TariffCalculationKernel.calculateDecimal(fixed).basis());
+            default -> assertEquals("MFN", TariffCalculationKernel.calculateDecimal(fixed).basis());
+        }
+    }
+
+    private static TariffCalculationResponse at(TariffRateRequestDto base, String variable, BigDecimal value) {
+        TariffRateRequestDto point = copy(base);
+        SETTERS.get(variable).accept(point, value);
+        return TariffCalculationKernel.calculateDecimal(point);
+    }
+
+    private static TariffCalculationSweepRequestDto request(TariffRateRequestDto base,
+            TariffCalculationSweepRangeDto... ranges) {
+        TariffCalculationSweepRequestDto request = new TariffCalculationSweepRequestDto();
+        request.setBase(base);
+        request.setRanges(List.of(ranges));
+        return request;
+    }
+
+    private static TariffRateRequestDto base() {
+        TariffRateRequestDto rq = new TariffRateRequestDto();
+        rq.setMfnRate(new BigDecimal("0.1"));
+        rq.setPrefRate(new BigDecimal("0.02"));
+        rq.setRvcThreshold(new BigDecimal("40"));
+        rq.setTotalValue(new BigDecimal("1000"));
+        rq.setMaterialCost(new BigDecimal("500"));
+        rq.setLabourCost(new BigDecimal("200"));
+        rq.setOverheadCost(new BigDecimal("100"));
+        rq.setProfit(new BigDecimal("100"));
+        rq.setOtherCosts(new BigDecimal("0"));
+        rq.setFob(new BigDecimal("1000"));
+        return rq;
+    }
+
+    private static TariffRateRequestDto copy(TariffRateRequestDto rq) {
+        TariffRateRequestDto copy = new TariffRateRequestDto();
+        copy.setMfnRate(rq.getMfnRate());
+        copy.setPrefRate(rq.getPrefRate());
+        copy.setRvcThreshold(rq.getRvcThreshold());
+        copy.setTotalValue(rq.getTotalValue());
+        copy.setMaterialCost(rq.getMaterialCost());
+        copy.setLabourCost(rq.getLabourCost());
+        copy.setOverheadCost(rq.getOverheadCost());
+        copy.setProfit(rq.getProfit());
+        copy.setOtherCosts(rq.getOtherCosts());
+        copy.setFob(rq.getFob());
+        return copy;
+    }
+}
@@ -0,0 +1,155 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import com.tariffsheriff.backend.tariff.repository.TariffRateResolution;
+
+import java.math.BigDecimal;
+
+/**
+ * Hand-built {@link TariffRateResolution} rows for stubbing
+ * {@code TariffRateRepository.resolveLookup} in service tests.
+ */
+final class TariffRateResolutionFixture implements TariffRateResolution {
+
+    private final String importerIso3;
+    private final String originIso3;
+    private final Long hsProductId;
+    private String importerName;
+    private TariffRate originMfn;
+    private TariffRate generalMfn;
+    private TariffRate pref;
+    private Agreement agreement;
+
+    private TariffRateResolutionFixture(String importerIso3, String originIso3, Long hsProductId) {
+        this.importerIso3 = importerIso3;
+        this.originIso3 = originIso3;
+        this.hsProductId = hsProductId;
+    }
+
+    /** Importer (and origin, when not null) resolved; {@code hsProductId} null means no product. */
+    static TariffRateResolutionFixture resolved(String importerIso3, String originIso3, Long hsProductId) {
+        return new TariffRateResolutionFixture(importerIso3, originIso3, hsProductId);
+    }
+
+    TariffRateResolutionFixture importerName(String name) {
+        this.importerName = name;
+        return this;
+    }
+
+    TariffRateResolutionFixture originMfn(TariffRate rate) {
+        this.originMfn = rate;
+        return this;
+    }
+
+    TariffRateResolutionFixture generalMfn(TariffRate rate) {
+        this.generalMfn = rate;
+        return this;
+    }
+
+    TariffRateResolutionFixture pref(TariffRate rate, Agreement agreement) {
+        this.pref = rate;
+        this.agreement = agreement;
+        return this;
+    }
+
+    @Override
+    public String getImporterIso3() {
+        return importerIso3;
+    }
+
+    @Override
+    public String getImporterName() {
+        return importerName;
+    }
+
+    @Override
+    public String getOriginIso3() {
+        return originIso3;
+    }
+
+    @Override
+    public Long getHsProductId() {
+        return hsProductId;
+    }
+
+    @Override
+    public Long getOriginMfnId() {
+        return originMfn != null ? originMfn.getId() : null;
+    }
+
+    @Override
+    public BigDecimal getOriginMfnAdValoremRate() {
+        return originMfn != null ? originMfn.getAdValoremRate() : null;
+    }
+
+    @Override
+    public Boolean getOriginMfnNonAdValorem() {
+        return originMfn != null ? originMfn.isNonAdValorem() : null;
+    }
+
+    @Override
+    public String getOriginMfnNonAdValoremText() {
+        return originMfn != null ? originMfn.getNonAdValoremText() : null;
+    }
+
+    @Override
+    public Long getGeneralMfnId() {
+        return generalMfn != null ? generalMfn.getId() : null;
+    }
+
+    @Override
+    public BigDecimal getGeneralMfnAdValoremRate() {
+        return generalMfn != null ? generalMfn.getAdValoremRate() : null;
+    }
+
+    @Override
+    public Boolean getGeneralMfnNonAdValorem() {
+        return generalMfn != null ? generalMfn.isNonAdValorem() : null;
+    }
+
+    @Override
+    public String getGeneralMfnNonAdValoremText() {
+        return generalMfn != null ? generalMfn.getNonAdValoremText() : null;
+    }
+
+    @Override
+    public Long getPrefId() {
+        return pref != null ? pref.getId() : null;
+    }
+
+    @Override
+    public BigDecimal getPrefAdValoremRate() {
+        return pref != null ? pref.getAdValoremRate() : null;
+    }
+
+    @Override
+    public Boolean getPrefNonAdValorem() {
+        return pref != null ? pref.isNonAdValorem() : null;
+    }
+
+    @Override
+    public String getPrefNonAdValoremText() {
+        return pref != null ? pref.getNonAdValoremText() : null;
+    }
+
+    @Override
+    public Long getPrefAgreementId() {
+        return pref != null ? pref.getAgreementId() : null;
+    }
+
+    @Override
+    public Long getAgreementId() {
+        return agreement != null ? agreement.getId() : null;
+    }
+
+    @Override
+    public String getAgreementName() {
+        return agreement != null ? agreement.getName() : null;
+    }
+
+    @Override
+    public BigDecimal getAgreementRvcThreshold() {
+        return agreement != null ? agreement.getRvcThreshold() : null;
+    }
+}
@@ -3,14 +3,19 @@ package com.tariffsheriff.backend.tariff.service;
 import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
 import com.tariffsheriff.backend.tariff.dto.TariffRateLookupDto;
 import com.tariffsheriff.backend.tariff.model.Agreement;
-import com.tariffsheriff.backend.tariff.model.HsProduct;
 import com.tariffsheriff.backend.tariff.model.TariffRate;
-import com.tariffsheriff.backend.tariff.model.Country;
+import com.tariffsheriff.backend.tariff.index.CountryRegistry;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndex;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshot;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshotHolder;
 import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
 import com.tariffsheriff.backend.tariff.repository.CountryRepository;
 import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
 import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
 import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -18,9 +23,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,9 +46,26 @@ class TariffRateServiceImplAdditionalTest {
     @Mock
     HsProductRepository hsProducts;
 
+    @Mock
+    TariffRateSnapshotHolder snapshots;
+
+    @Mock
+    CountryRegistryHolder countryRegistry;
+
+    @Mock
+    HsConcordanceIndexHolder concordance;
+
     @InjectMocks
     TariffRateServiceImpl svc;
 
+    @BeforeEach
+    void emptySnapshot() {
+        // An empty snapshot makes every lookup take the repository path exercised below
+        lenient().when(snapshots.current()).thenReturn(TariffRateSnapshot.EMPTY);
+        lenient().when(countryRegistry.current()).thenReturn(CountryRegistry.EMPTY);
+        lenient().when(concordance.forDestination(any())).thenReturn(HsConcordanceIndex.EMPTY);
+    }
+
     @Test
     void calculateTariffRate_appliesPref_whenRvcAboveThreshold() {
         TariffRateRequestDto rq = new TariffRateRequestDto();
@@ -84,18 +109,6 @@ class TariffRateServiceImplAdditionalTest {
 
     @Test
     void getTariffRateWithAgreement_happyPath_includesPrefAndAgreement() {
-        Country importer = new Country();
-        importer.setIso3("GBR");
-        when(countries.findByIso3IgnoreCase("GBR")).thenReturn(Optional.of(importer));
-
-        Country origin = new Country();
-        origin.setIso3("CHN");
-        when(countries.findByIso3IgnoreCase("CHN")).thenReturn(Optional.of(origin));
-
-        HsProduct product = new HsProduct();
-        product.setId(77L);
-        when(hsProducts.findByDestinationIso3IgnoreCaseAndHsCode("GBR", "0101")).thenReturn(Optional.of(product));
-
         TariffRate mfn = new TariffRate();
         mfn.setId(1L);
         mfn.setBasis("MFN");
@@ -107,14 +120,13 @@ class TariffRateServiceImplAdditionalTest {
         pref.setAdValoremRate(new BigDecimal("0.02"));
         pref.setAgreementId(5L);
 
-    when(tariffRates.findByImporterIso3AndOriginIso3AndHsProductIdAndBasis("GBR", "CHN", 77L, "MFN")).thenReturn(Optional.of(mfn));
-        when(tariffRates.findByImporterIso3AndOriginIso3AndHsProductIdAndBasis("GBR", "CHN", 77L, "PREF")).thenReturn(Optional.of(pref));
-
         Agreement ag = new Agreement();
         ag.setId(5L);
         ag.setName("FTA");
         ag.setRvcThreshold(new BigDecimal("10"));
-        when(agreements.findById(5L)).thenReturn(Optional.of(ag));
+
+        when(tariffRates.resolveLookup(eq("GBR"), eq("CHN"), eq("0101"), any())).thenReturn(List.of(
+                TariffRateResolutionFixture.resolved("GBR", "CHN", 77L).originMfn(mfn).pref(pref, ag)));
 
         TariffRateLookupDto lookup = svc.getTariffRateWithAgreement("GBR", "CHN", "0101");
     assertEquals("GBR", lookup.importerIso3());
@@ -0,0 +1,184 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.dto.TariffRateBatchLookupResultDto;
+import com.tariffsheriff.backend.tariff.dto.TariffRateLookupRequestDto;
+import com.tariffsheriff.backend.tariff.index.CountryRegistry;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndex;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshot;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshotHolder;
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import com.tariffsheriff.backend.tariff.model.Country;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
+import com.tariffsheriff.backend.tariff.repository.CountryRepository;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TariffRateServiceImplBatchLookupTest {
+
+    @Mock
+    TariffRateRepository tariffRates;
+
+    @Mock
+    AgreementRepository agreements;
+
+    @Mock
+    CountryRepository countries;
+
+    @Mock
+    HsProductRepository hsProducts;
+
+    @Mock
+    TariffRateSnapshotHolder snapshots;
+
+    @Mock
+    CountryRegistryHolder countryRegistry;
+
+    @Mock
+    HsConcordanceIndexHolder concordance;
+
+    @InjectMocks
+    TariffRateServiceImpl svc;
+
+    @BeforeEach
+    void emptyRegistry() {
+        // Until the registry loads, the batch resolves its countries with one query
+        lenient().when(countryRegistry.current()).thenReturn(CountryRegistry.EMPTY);
+        lenient().when(concordance.forDestination(any())).thenReturn(HsConcordanceIndex.EMPTY);
+    }
+
+    @Test
+    void batch_servesSnapshotHitsAndReportsErrorsInline() {
+        when(countries.findByIso3InIgnoreCase(anyCollection())).thenReturn(List.of(country("SGP"), country("IND")));
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.builder()
+                .addProduct(1L, "SGP", "850760")
+                .addRate(rate(10L, "SGP", null, 1L, "MFN", null, "0.05"))
+                .addRate(rate(11L, "SGP", "IND", 1L, "PREF", 7L, "0.00"))
+                .addAgreement(Agreement.builder().id(7L).name("AISFTA").rvcThreshold(new BigDecimal("40")).build())
+                .build());
+
+        List<TariffRateBatchLookupResultDto> results = svc.getTariffRatesWithAgreement(List.of(
+                new TariffRateLookupRequestDto("sgp", "ind", "850760"),
+                new TariffRateLookupRequestDto("XXX", null, "850760"),
+                new TariffRateLookupRequestDto("SGP", null, " "),
+                new TariffRateLookupRequestDto("SGP", null, "850760")));
+
+        assertEquals(4, results.size());
+        assertEquals(2, results.get(0).lookup().rates().size());
+        assertEquals("AISFTA", results.get(0).lookup().rates().get(1).agreementName());
+        assertEquals("Unknown importer ISO3: XXX", results.get(1).error());
+        assertNull(results.get(1).lookup());
+        assertEquals("hsCode must be provided", results.get(2).error());
+        assertEquals(1, results.get(3).lookup().rates().size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).index());
+        }
+        verify(countries, times(1)).findByIso3InIgnoreCase(anyCollection());
+        verifyNoInteractions(hsProducts, tariffRates, agreements);
+    }
+
+    @Test
+    void batch_resolvesSnapshotMissesWithSetBasedQueries() {
+        when(countries.findByIso3InIgnoreCase(anyCollection())).thenReturn(List.of(country("SGP"), country("IND")));
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.EMPTY);
+
+        List<Object[]> productRows = new ArrayList<>();
+        productRows.add(new Object[] { 1L, "SGP", "850760" });
+        productRows.add(new Object[] { 2L, "SGP", "870380" });
+        when(hsProducts.findLookupKeys(anyCollection(), anyCollection())).thenReturn(productRows);
+
+        List<Object[]> rateRows = new ArrayList<>();
+        rateRows.add(new Object[] { 10L, "SGP", null, 1L, "MFN", null, new BigDecimal("0.05"), false, null, null });
+        rateRows.add(new Object[] { 11L, "SGP", "IND", 1L, "PREF", 7L, new BigDecimal("0.00"), false, null, null });
+        when(tariffRates.findSnapshotRows(anyCollection(), anyCollection())).thenReturn(rateRows);
+        when(agreements.findAllById(anyCollection()))
+                .thenReturn(List.of(Agreement.builder().id(7L).name("AISFTA").build()));
+
+        List<TariffRateLookupRequestDto> requests = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            requests.add(new TariffRateLookupRequestDto("SGP", "IND", "850760"));
+            requests.add(new TariffRateLookupRequestDto("SGP", null, "870380"));
+            requests.add(new TariffRateLookupRequestDto("SGP", null, "999999"));
+        }
+
+        List<TariffRateBatchLookupResultDto> results = svc.getTariffRatesWithAgreement(requests);
+
+        assertEquals(1500, results.size());
+        assertEquals(new BigDecimal("0.00"), results.get(0).lookup().rates().get(1).adValoremRate());
+        assertEquals("AISFTA", results.get(0).lookup().rates().get(1).agreementName());
+        // No MFN row for the second product: synthetic fallback, as for single lookups
+        assertEquals(-1L, results.get(1).lookup().rates().get(0).id());
+        assertEquals("No HS product found for importer SGP and code 999999", results.get(2).error());
+
+        verify(countries, times(1)).findByIso3InIgnoreCase(anyCollection());
+        verify(hsProducts, times(1)).findLookupKeys(anyCollection(), anyCollection());
+        verify(tariffRates, times(1)).findSnapshotRows(anyCollection(), anyCollection());
+        verify(agreements, times(1)).findAllById(anyCollection());
+        verifyNoMoreInteractions(hsProducts, tariffRates, agreements);
+    }
+
+    @Test
+    void batch_rejectsOversizedRequests() {
+        List<TariffRateLookupRequestDto> requests = new ArrayList<>();
+        for (int i = 0; i <= 10_000; i++) {
+            requests.add(new TariffRateLookupRequestDto("SGP", null, "850760"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> svc.getTariffRatesWithAgreement(requests));
+        assertTrue(svc.getTariffRatesWithAgreement(List.of()).isEmpty());
+    }
+
+    @Test
+    void batch_resolvesCountriesFromTheRegistryWithoutQueries() {
+        when(countryRegistry.current()).thenReturn(new CountryRegistry(List.of(country("SGP"), country("IND"))));
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.builder()
+                .addProduct(1L, "SGP", "850760")
+                .addRate(rate(10L, "SGP", null, 1L, "MFN", null, "0.05"))
+                .build());
+
+        List<TariffRateBatchLookupResultDto> results = svc.getTariffRatesWithAgreement(List.of(
+                new TariffRateLookupRequestDto(" sgp", "Ind", "850760"),
+                new TariffRateLookupRequestDto("SGP", "XXX", "850760")));
+
+        assertEquals("SGP", results.get(0).lookup().importerIso3());
+        assertEquals("IND", results.get(0).lookup().originIso3());
+        assertEquals("Unknown origin ISO3: XXX", results.get(1).error());
+        verifyNoInteractions(countries, tariffRates, hsProducts, agreements);
+    }
+
+    private static Country country(String iso3) {
+        Country country = new Country();
+        country.setIso3(iso3);
+        country.setName(iso3);
+        return country;
+    }
+
+    private static TariffRate rate(Long id, String importer, String origin, Long productId, String basis,
+            Long agreementId, String adValorem) {
+        TariffRate rate = new TariffRate();
+        rate.setId(id);
+        rate.setImporterIso3(importer);
+        rate.setOriginIso3(origin);
+        rate.setHsProductId(productId);
+        rate.setBasis(basis);
+        rate.setAgreementId(agreementId);
+        rate.setAdValoremRate(new BigDecimal(adValorem));
+        return rate;
+    }
+}
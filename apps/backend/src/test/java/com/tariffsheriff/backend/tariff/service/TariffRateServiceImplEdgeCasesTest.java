@@ -1,15 +1,19 @@
 package com.tariffsheriff.backend.tariff.service;
 
 import com.tariffsheriff.backend.tariff.dto.TariffCalculationResponse;
-import com.tariffsheriff.backend.tariff.model.Agreement;
-import com.tariffsheriff.backend.tariff.model.Country;
-import com.tariffsheriff.backend.tariff.model.HsProduct;
 import com.tariffsheriff.backend.tariff.model.TariffRate;
+import com.tariffsheriff.backend.tariff.index.CountryRegistry;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndex;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshot;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshotHolder;
 import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
 import com.tariffsheriff.backend.tariff.repository.CountryRepository;
 import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
 import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
 import com.tariffsheriff.backend.tariff.dto.TariffRateRequestDto;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -17,9 +21,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,9 +45,26 @@ class TariffRateServiceImplEdgeCasesTest {
     @Mock
     HsProductRepository hsProducts;
 
+    @Mock
+    TariffRateSnapshotHolder snapshots;
+
+    @Mock
+    CountryRegistryHolder countryRegistry;
+
+    @Mock
+    HsConcordanceIndexHolder concordance;
+
     @InjectMocks
     TariffRateServiceImpl svc;
 
+    @BeforeEach
+    void emptySnapshot() {
+        // An empty snapshot makes every lookup take the repository path exercised below
+        lenient().when(snapshots.current()).thenReturn(TariffRateSnapshot.EMPTY);
+        lenient().when(countryRegistry.current()).thenReturn(CountryRegistry.EMPTY);
+        lenient().when(concordance.forDestination(any())).thenReturn(HsConcordanceIndex.EMPTY);
+    }
+
     @Test
     void getTariffRateWithAgreement_throwsWhenHsCodeBlank() {
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
@@ -49,7 +74,7 @@ class TariffRateServiceImplEdgeCasesTest {
 
     @Test
     void getTariffRateWithAgreement_throwsOnUnknownImporter() {
-        when(countries.findByIso3IgnoreCase("XXX")).thenReturn(Optional.empty());
+        when(tariffRates.resolveLookup(eq("XXX"), eq("CHN"), eq("0101"), any())).thenReturn(List.of());
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
             () -> svc.getTariffRateWithAgreement("XXX", "CHN", "0101"));
         assertTrue(ex.getMessage().toLowerCase().contains("unknown importer") || ex.getMessage().contains("XXX"));
@@ -57,20 +82,13 @@ class TariffRateServiceImplEdgeCasesTest {
 
     @Test
     void getTariffRateWithAgreement_originNull_returnsMfnOnly() {
-        Country importer = new Country();
-        importer.setIso3("GBR");
-        when(countries.findByIso3IgnoreCase("GBR")).thenReturn(Optional.of(importer));
-
-        HsProduct product = new HsProduct();
-        product.setId(11L);
-        when(hsProducts.findByDestinationIso3IgnoreCaseAndHsCode("GBR", "0101")).thenReturn(Optional.of(product));
-
         TariffRate mfn = new TariffRate();
         mfn.setId(9L);
         mfn.setBasis("MFN");
         mfn.setAdValoremRate(new BigDecimal("0.08"));
 
-        when(tariffRates.findByImporterIso3AndHsProductIdAndBasis("GBR", 11L, "MFN")).thenReturn(Optional.of(mfn));
+        when(tariffRates.resolveLookup(eq("GBR"), isNull(), eq("0101"), any())).thenReturn(List.of(
+                TariffRateResolutionFixture.resolved("GBR", null, 11L).generalMfn(mfn)));
 
         var dto = svc.getTariffRateWithAgreement("GBR", null, "0101");
         assertEquals("GBR", dto.importerIso3());
@@ -81,26 +99,14 @@ class TariffRateServiceImplEdgeCasesTest {
 
     @Test
     void getTariffRateWithAgreement_fallsBackToGeneralMfn_whenOriginSpecificMissing() {
-        Country importer = new Country();
-        importer.setIso3("GBR");
-        when(countries.findByIso3IgnoreCase("GBR")).thenReturn(Optional.of(importer));
-
-        Country origin = new Country();
-        origin.setIso3("CHN");
-        when(countries.findByIso3IgnoreCase("CHN")).thenReturn(Optional.of(origin));
-
-        HsProduct product = new HsProduct();
-        product.setId(77L);
-        when(hsProducts.findByDestinationIso3IgnoreCaseAndHsCode("GBR", "0101")).thenReturn(Optional.of(product));
-
         TariffRate mfnGeneral = new TariffRate();
         mfnGeneral.setId(101L);
         mfnGeneral.setBasis("MFN");
         mfnGeneral.setAdValoremRate(new BigDecimal("0.12"));
 
-        when(tariffRates.findByImporterIso3AndOriginIso3AndHsProductIdAndBasis("GBR", "CHN", 77L, "MFN")).thenReturn(Optional.empty());
-        when(tariffRates.findByImporterIso3AndHsProductIdAndBasis("GBR", 77L, "MFN")).thenReturn(Optional.of(mfnGeneral));
-        when(tariffRates.findByImporterIso3AndOriginIso3AndHsProductIdAndBasis("GBR", "CHN", 77L, "PREF")).thenReturn(Optional.empty());
+        // No origin-specific MFN and no PREF in the resolved row
+        when(tariffRates.resolveLookup(eq("GBR"), eq("CHN"), eq("0101"), any())).thenReturn(List.of(
+                TariffRateResolutionFixture.resolved("GBR", "CHN", 77L).generalMfn(mfnGeneral)));
 
         var dto = svc.getTariffRateWithAgreement("GBR", "CHN", "0101");
         assertEquals(1, dto.rates().size());
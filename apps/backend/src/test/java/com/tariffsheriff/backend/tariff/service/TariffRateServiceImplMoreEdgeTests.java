@@ -1,14 +1,25 @@
 package com.tariffsheriff.backend.tariff.service;
 
 import com.tariffsheriff.backend.tariff.dto.TariffRateLookupDto;
+import com.tariffsheriff.backend.tariff.exception.HsCodeSplitException;
 import com.tariffsheriff.backend.tariff.exception.TariffRateNotFoundException;
+import com.tariffsheriff.backend.tariff.model.Agreement;
 import com.tariffsheriff.backend.tariff.model.Country;
 import com.tariffsheriff.backend.tariff.model.HsProduct;
 import com.tariffsheriff.backend.tariff.model.TariffRate;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndex;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndexHolder;
+import com.tariffsheriff.backend.tariff.index.CountryRegistry;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndex;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshot;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshotHolder;
 import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
 import com.tariffsheriff.backend.tariff.repository.CountryRepository;
 import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
 import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -16,9 +27,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,23 +52,31 @@ class TariffRateServiceImplMoreEdgeTests {
     @Mock
     HsProductRepository hsProducts;
 
+    @Mock
+    TariffRateSnapshotHolder snapshots;
+
+    @Mock
+    HsCodeIndexHolder hsCodeIndex;
+
+    @Mock
+    CountryRegistryHolder countryRegistry;
+
+    @Mock
+    HsConcordanceIndexHolder concordance;
+
     @InjectMocks
     TariffRateServiceImpl svc;
 
+    @BeforeEach
+    void emptySnapshot() {
+        // An empty snapshot makes every lookup take the repository path exercised below
+        lenient().when(snapshots.current()).thenReturn(TariffRateSnapshot.EMPTY);
+        lenient().when(countryRegistry.current()).thenReturn(CountryRegistry.EMPTY);
+        lenient().when(concordance.forDestination(any())).thenReturn(HsConcordanceIndex.EMPTY);
+    }
+
     @Test
     void getTariffRateWithAgreement_prefExists_butAgreementMissing_usesRateAgreementId_andNoAgreementNameOrThreshold() {
-        Country importer = new Country();
-        importer.setIso3("GBR");
-        when(countries.findByIso3IgnoreCase("GBR")).thenReturn(Optional.of(importer));
-
-        Country origin = new Country();
-        origin.setIso3("CHN");
-        when(countries.findByIso3IgnoreCase("CHN")).thenReturn(Optional.of(origin));
-
-        HsProduct product = new HsProduct();
-        product.setId(77L);
-        when(hsProducts.findByDestinationIso3IgnoreCaseAndHsCode("GBR", "0101")).thenReturn(Optional.of(product));
-
         TariffRate mfn = new TariffRate();
         mfn.setId(1L);
         mfn.setBasis("MFN");
@@ -65,11 +89,9 @@ class TariffRateServiceImplMoreEdgeTests {
         // rate has an agreement id, but repository will not return an Agreement
         pref.setAgreementId(5L);
 
-        when(tariffRates.findByImporterIso3AndOriginIso3AndHsProductIdAndBasis("GBR", "CHN", 77L, "MFN")).thenReturn(Optional.of(mfn));
-        when(tariffRates.findByImporterIso3AndOriginIso3AndHsProductIdAndBasis("GBR", "CHN", 77L, "PREF")).thenReturn(Optional.of(pref));
-
-        // agreements.findById returns empty -> agreement stays null
-        when(agreements.findById(5L)).thenReturn(Optional.empty());
+        // the agreement join finds nothing -> agreement stays null
+        when(tariffRates.resolveLookup(eq("GBR"), eq("CHN"), eq("0101"), any())).thenReturn(List.of(
+                TariffRateResolutionFixture.resolved("GBR", "CHN", 77L).originMfn(mfn).pref(pref, null)));
 
         TariffRateLookupDto lookup = svc.getTariffRateWithAgreement("GBR", "CHN", "0101");
         assertNotNull(lookup);
@@ -83,18 +105,164 @@ class TariffRateServiceImplMoreEdgeTests {
 
     @Test
     void getTariffRateWithAgreement_throwsWhenHsProductNotFound() {
+        // importer and origin resolve, so the failure comes from the missing HS product
+        when(tariffRates.resolveLookup(eq("GBR"), eq("CHN"), eq("9999"), any())).thenReturn(List.of(
+                TariffRateResolutionFixture.resolved("GBR", "CHN", null)));
+
+        assertThrows(TariffRateNotFoundException.class,
+            () -> svc.getTariffRateWithAgreement("GBR", "CHN", "9999"));
+    }
+
+    @Test
+    void getTariffRateWithAgreement_servesFromSnapshotWithoutRepositories() {
         Country importer = new Country();
         importer.setIso3("GBR");
         when(countries.findByIso3IgnoreCase("GBR")).thenReturn(Optional.of(importer));
+        Country origin = new Country();
+        origin.setIso3("CHN");
+        when(countries.findByIso3IgnoreCase("CHN")).thenReturn(Optional.of(origin));
+
+        TariffRate mfn = new TariffRate();
+        mfn.setId(1L);
+        mfn.setImporterIso3("GBR");
+        mfn.setHsProductId(77L);
+        mfn.setBasis("MFN");
+        mfn.setAdValoremRate(new BigDecimal("0.10"));
+
+        TariffRate pref = new TariffRate();
+        pref.setId(2L);
+        pref.setImporterIso3("GBR");
+        pref.setOriginIso3("CHN");
+        pref.setHsProductId(77L);
+        pref.setBasis("PREF");
+        pref.setAgreementId(5L);
+        pref.setAdValoremRate(new BigDecimal("0.02"));
+
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.builder()
+                .addProduct(77L, "GBR", "0101")
+                .addRate(mfn)
+                .addRate(pref)
+                .addAgreement(Agreement.builder().id(5L).name("UK-CN").rvcThreshold(new BigDecimal("40")).build())
+                .build());
+
+        TariffRateLookupDto lookup = svc.getTariffRateWithAgreement("GBR", "CHN", "0101");
 
-        // also ensure origin lookup does not fail before HS product lookup
+        assertEquals(2, lookup.rates().size());
+        assertEquals(new BigDecimal("0.10"), lookup.rates().get(0).adValoremRate());
+        assertEquals("UK-CN", lookup.rates().get(1).agreementName());
+        assertEquals(new BigDecimal("40"), lookup.rates().get(1).rvcThreshold());
+        verifyNoInteractions(hsProducts, tariffRates, agreements);
+    }
+
+    @Test
+    void getTariffRateWithAgreement_mapsCodeFromOlderHsVersionThroughConcordance() {
+        Country importer = new Country();
+        importer.setIso3("USA");
+        when(countries.findByIso3IgnoreCase("USA")).thenReturn(Optional.of(importer));
+
+        TariffRate mfn = new TariffRate();
+        mfn.setId(1L);
+        mfn.setImporterIso3("USA");
+        mfn.setHsProductId(21L);
+        mfn.setBasis("MFN");
+        mfn.setAdValoremRate(new BigDecimal("0.034"));
+
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.builder()
+                .addProduct(21L, "USA", "8806.21")
+                .addRate(mfn)
+                .build());
+        // HS2017 8802.21 became HS2022 8806.21
+        when(concordance.forDestination(any())).thenReturn(new HsConcordanceIndex(
+                List.of(new HsProduct(21L, "USA", null, "HS2022", "8806.21", "Unmanned aircraft")),
+                List.of(new HsConcordanceIndex.Link("HS2017", "8802.21", "HS2022", "8806.21"))));
+
+        TariffRateLookupDto lookup = svc.getTariffRateWithAgreement("USA", null, "8802.21");
+
+        assertEquals("8806.21", lookup.hsCode());
+        assertEquals(new BigDecimal("0.034"), lookup.rates().get(0).adValoremRate());
+        verifyNoInteractions(hsProducts, tariffRates, agreements);
+    }
+
+    @Test
+    void getTariffRateWithAgreement_splitCodeFailsWithItsCurrentLines() {
+        when(concordance.forDestination(any())).thenReturn(new HsConcordanceIndex(
+                List.of(new HsProduct(1L, "USA", null, "HS2022", "8541.42", "Cells, not in modules"),
+                        new HsProduct(2L, "USA", null, "HS2022", "8541.43", "Cells in modules")),
+                List.of(new HsConcordanceIndex.Link("HS2017", "8541.40", "HS2022", "8541.42"),
+                        new HsConcordanceIndex.Link("HS2017", "8541.40", "HS2022", "8541.43"))));
+
+        HsCodeSplitException split = assertThrows(HsCodeSplitException.class,
+                () -> svc.getTariffRateWithAgreement("USA", null, "854140"));
+        assertEquals(List.of("8541.42", "8541.43"), split.getCandidates());
+        verifyNoInteractions(tariffRates);
+    }
+
+    @Test
+    void getSubcategories_walksIndexAndSnapshotWithoutRepositories() {
+        Country importer = new Country();
+        importer.setIso3("GBR");
+        when(countries.findByIso3IgnoreCase("GBR")).thenReturn(Optional.of(importer));
         Country origin = new Country();
         origin.setIso3("CHN");
         when(countries.findByIso3IgnoreCase("CHN")).thenReturn(Optional.of(origin));
 
-        when(hsProducts.findByDestinationIso3IgnoreCaseAndHsCode("GBR", "9999")).thenReturn(Optional.empty());
+        HsProduct horses = new HsProduct(10L, "GBR", null, "HS2022", "0101.21", "Pure-bred horses");
+        HsProduct asses = new HsProduct(11L, "GBR", null, "HS2022", "0101.30", "Asses");
+        HsProduct cattle = new HsProduct(12L, "GBR", null, "HS2022", "0102.21", "Cattle");
+        when(hsCodeIndex.current()).thenReturn(new HsCodeIndex(List.of(cattle, asses, horses)));
 
-        assertThrows(TariffRateNotFoundException.class,
-            () -> svc.getTariffRateWithAgreement("GBR", "CHN", "9999"));
+        TariffRate horsesMfn = new TariffRate();
+        horsesMfn.setId(1L);
+        horsesMfn.setImporterIso3("GBR");
+        horsesMfn.setHsProductId(10L);
+        horsesMfn.setBasis("MFN");
+        horsesMfn.setAdValoremRate(new BigDecimal("0.05"));
+
+        TariffRate horsesPref = new TariffRate();
+        horsesPref.setId(2L);
+        horsesPref.setImporterIso3("GBR");
+        horsesPref.setOriginIso3("CHN");
+        horsesPref.setHsProductId(10L);
+        horsesPref.setBasis("PREF");
+        horsesPref.setAgreementId(5L);
+        horsesPref.setAdValoremRate(BigDecimal.ZERO);
+
+        TariffRate assesMfn = new TariffRate();
+        assesMfn.setId(3L);
+        assesMfn.setImporterIso3("GBR");
+        assesMfn.setHsProductId(11L);
+        assesMfn.setBasis("MFN");
+        assesMfn.setAdValoremRate(new BigDecimal("0.02"));
+
+        TariffRate cattleMfn = new TariffRate();
+        cattleMfn.setId(4L);
+        cattleMfn.setImporterIso3("GBR");
+        cattleMfn.setHsProductId(12L);
+        cattleMfn.setBasis("MFN");
+        cattleMfn.setAdValoremRate(new BigDecimal("0.08"));
+
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.builder()
+                .addProduct(10L, "GBR", "0101.21")
+                .addProduct(11L, "GBR", "0101.30")
+                .addProduct(12L, "GBR", "0102.21")
+                .addRate(cattleMfn)
+                .addRate(assesMfn)
+                .addRate(horsesMfn)
+                .addRate(horsesPref)
+                .addAgreement(Agreement.builder().id(5L).name("UK-CN").rvcThreshold(new BigDecimal("40")).build())
+                .build());
+
+        // Origin-specific rates exist, so only the PREF row matches the pair
+        List<TariffRateLookupDto> pair = svc.getSubcategories("GBR", "CHN", "0101", 10);
+        assertEquals(1, pair.size());
+        assertEquals("0101.21", pair.get(0).hsCode());
+        assertEquals("UK-CN", pair.get(0).rates().get(0).agreementName());
+
+        // Importer-only returns every code under the prefix, in code order
+        List<TariffRateLookupDto> importerOnly = svc.getSubcategories("GBR", null, "0101", 10);
+        assertEquals(List.of("0101.21", "0101.30"), importerOnly.stream().map(TariffRateLookupDto::hsCode).toList());
+        assertEquals(2, importerOnly.get(0).rates().size());
+
+        verifyNoInteractions(hsProducts, tariffRates, agreements);
     }
 }
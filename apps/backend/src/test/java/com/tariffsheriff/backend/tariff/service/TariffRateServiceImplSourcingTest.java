@@ -0,0 +1,226 @@
+package com.tariffsheriff.backend.tariff.service;
+
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingOptionDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingRequestDto;
+import com.tariffsheriff.backend.tariff.dto.TariffSourcingResponse;
+import com.tariffsheriff.backend.tariff.exception.TariffRateNotFoundException;
+import com.tariffsheriff.backend.tariff.index.CountryRegistry;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndex;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshot;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshotHolder;
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import com.tariffsheriff.backend.tariff.model.Country;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
+import com.tariffsheriff.backend.tariff.repository.CountryRepository;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TariffRateServiceImplSourcingTest {
+
+    @Mock
+    TariffRateRepository tariffRates;
+
+    @Mock
+    AgreementRepository agreements;
+
+    @Mock
+    CountryRepository countries;
+
+    @Mock
+    HsProductRepository hsProducts;
+
+    @Mock
+    TariffRateSnapshotHolder snapshots;
+
+    @Mock
+    CountryRegistryHolder countryRegistry;
+
+    @Mock
+    HsConcordanceIndexHolder concordance;
+
+    @InjectMocks
+    TariffRateServiceImpl svc;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(countryRegistry.current()).thenReturn(CountryRegistry.EMPTY);
+        lenient().when(concordance.forDestination(any())).thenReturn(HsConcordanceIndex.EMPTY);
+    }
+
+    @Test
+    void rankOrigins_appliesEachAgreementsThresholdAndSortsByDuty() {
+        when(countries.findByIso3IgnoreCase("USA")).thenReturn(Optional.of(country("USA")));
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.builder()
+                .addProduct(1L, "USA", "850760")
+                .addRate(rate(10L, "USA", null, "MFN", null, "0.034"))
+                .addRate(rate(11L, "USA", "CHN", "MFN", null, "0.284"))
+                .addRate(rate(12L, "USA", "KOR", "PREF", 7L, "0.000"))
+                .addRate(rate(13L, "USA", "MEX", "PREF", 8L, "0.000"))
+                .addRate(rate(14L, "USA", "AUS", "PREF", 9L, "0.010"))
+                .addRate(specific(15L, "USA", "JPN", "MFN", "$1.20/kg"))
+                .addRate(rate(16L, "CAN", "KOR", "PREF", 7L, "0.000"))
+                .addAgreement(agreement(7L, "KORUS", "35"))
+                .addAgreement(agreement(8L, "USMCA", "75"))
+                .addAgreement(agreement(9L, "AUSFTA", "50"))
+                .build());
+
+        // Cost build-up of 600 on a FOB of 1000: an RVC of 60%
+        TariffSourcingResponse ranking = svc.rankOrigins(request("usa", "850760"));
+
+        assertEquals("USA", ranking.importerIso3());
+        assertEquals("850760", ranking.hsCode());
+        List<TariffSourcingOptionDto> origins = ranking.origins();
+        assertEquals(List.of("KOR", "AUS", "BASE", "MEX", "CHN", "JPN"),
+                origins.stream().map(o -> o.originIso3() == null ? "BASE" : o.originIso3()).toList());
+
+        assertEquals("PREF", origins.get(0).basis());
+        assertEquals("KORUS", origins.get(0).agreementName());
+        assertDecimal("0", origins.get(0).totalDuty());
+        assertDecimal("60", origins.get(0).rvc());
+        assertDecimal("10", origins.get(1).totalDuty());
+        assertDecimal("34", origins.get(2).totalDuty());
+        // USMCA wants 75%, so Mexico pays the MFN baseline
+        assertEquals("MFN", origins.get(3).basis());
+        assertDecimal("75", origins.get(3).rvcThreshold());
+        assertDecimal("34", origins.get(3).totalDuty());
+        assertDecimal("284", origins.get(4).totalDuty());
+        // A specific duty has no value-based total and ranks last
+        assertNull(origins.get(5).totalDuty());
+        assertTrue(origins.get(5).nonAdValorem());
+        assertEquals("$1.20/kg", origins.get(5).nonAdValoremText());
+        verifyNoInteractions(tariffRates, hsProducts, agreements);
+    }
+
+    @Test
+    void rankOrigins_resolvesSnapshotMissesWithOneStatement() {
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.EMPTY);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(sourcingRow(1L, 20L, null, "MFN", null, "0.05", null, null));
+        rows.add(sourcingRow(2L, 30L, null, "MFN", null, "0.04", null, null));
+        rows.add(sourcingRow(2L, 31L, "IND", "PREF", 7L, "0.00", "AISFTA", "40"));
+        when(tariffRates.findSourcingRows("SGP", "850760")).thenReturn(rows);
+
+        List<TariffSourcingOptionDto> origins = svc.rankOrigins(request("SGP", "850760")).origins();
+
+        // Product 2 is the newer HS version, so product 1's MFN row is not used
+        assertEquals(2, origins.size());
+        assertEquals("IND", origins.get(0).originIso3());
+        assertEquals("AISFTA", origins.get(0).agreementName());
+        assertDecimal("0", origins.get(0).totalDuty());
+        assertNull(origins.get(1).originIso3());
+        assertDecimal("40", origins.get(1).totalDuty());
+        verify(tariffRates, times(1)).findSourcingRows("SGP", "850760");
+        verifyNoMoreInteractions(tariffRates);
+        verifyNoInteractions(countries, hsProducts, agreements);
+    }
+
+    @Test
+    void rankOrigins_reportsUnknownImportersAndCodes() {
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.EMPTY);
+        when(tariffRates.findSourcingRows("XXX", "850760")).thenReturn(List.of());
+        List<Object[]> noProduct = new ArrayList<>();
+        noProduct.add(new Object[] { "SGP", "Singapore", null, null, null, null, null, null, null, null, null, null,
+                null, null, null });
+        when(tariffRates.findSourcingRows("SGP", "9999")).thenReturn(noProduct);
+
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+                () -> svc.rankOrigins(request("XXX", "850760")));
+        assertEquals("Unknown importer ISO3: XXX", unknown.getMessage());
+        assertThrows(TariffRateNotFoundException.class, () -> svc.rankOrigins(request("SGP", "9999")));
+        assertThrows(IllegalArgumentException.class, () -> svc.rankOrigins(request("SGP", " ")));
+    }
+
+    @Test
+    void rankOrigins_synthesizesTheBaselineWhenThereIsNoMfnRow() {
+        when(countries.findByIso3IgnoreCase("SGP")).thenReturn(Optional.of(country("SGP")));
+        when(snapshots.current()).thenReturn(TariffRateSnapshot.builder()
+                .addProduct(1L, "SGP", "850760")
+                .addRate(rate(12L, "SGP", "IND", "PREF", 7L, "0.00"))
+                .addAgreement(agreement(7L, "AISFTA", "80"))
+                .build());
+
+        List<TariffSourcingOptionDto> origins = svc.rankOrigins(request("SGP", "850760")).origins();
+
+        // RVC of 60% misses AISFTA's 80%, so both options pay the synthetic MFN rate
+        assertEquals(2, origins.size());
+        assertEquals("MFN", origins.get(0).basis());
+        assertEquals("MFN", origins.get(1).basis());
+        assertEquals(origins.get(0).totalDuty(), origins.get(1).totalDuty());
+        assertNotNull(origins.get(0).totalDuty());
+    }
+
+    private static TariffSourcingRequestDto request(String importer, String hsCode) {
+        TariffSourcingRequestDto rq = new TariffSourcingRequestDto();
+        rq.setImporterIso3(importer);
+        rq.setHsCode(hsCode);
+        rq.setTotalValue(new BigDecimal("1000"));
+        rq.setMaterialCost(new BigDecimal("400"));
+        rq.setLabourCost(new BigDecimal("100"));
+        rq.setOverheadCost(new BigDecimal("50"));
+        rq.setProfit(new BigDecimal("25"));
+        rq.setOtherCosts(new BigDecimal("25"));
+        rq.setFob(new BigDecimal("1000"));
+        return rq;
+    }
+
+    private static Object[] sourcingRow(Long productId, Long id, String origin, String basis, Long agreementId,
+            String adValorem, String agreementName, String threshold) {
+        return new Object[] { "SGP", "Singapore", productId, id, "SGP", origin, productId, basis, agreementId,
+                new BigDecimal(adValorem), false, null, null, agreementName,
+                threshold != null ? new BigDecimal(threshold) : null };
+    }
+
+    private static void assertDecimal(String expected, BigDecimal actual) {
+        assertNotNull(actual);
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> expected + " != " + actual);
+    }
+
+    private static Agreement agreement(Long id, String name, String threshold) {
+        return Agreement.builder().id(id).name(name).rvcThreshold(new BigDecimal(threshold)).build();
+    }
+
+    private static Country country(String iso3) {
+        Country country = new Country();
+        country.setIso3(iso3);
+        country.setName(iso3);
+        return country;
+    }
+
+    private static TariffRate specific(Long id, String importer, String origin, String basis, String text) {
+        TariffRate rate = rate(id, importer, origin, basis, null, null);
+        rate.setNonAdValorem(true);
+        rate.setNonAdValoremText(text);
+        return rate;
+    }
+
+    private static TariffRate rate(Long id, String importer, String origin, String basis, Long agreementId,
+            String adValorem) {
+        TariffRate rate = new TariffRate();
+        rate.setId(id);
+        rate.setImporterIso3(importer);
+        rate.setOriginIso3(origin);
+        rate.setHsProductId(1L);
+        rate.setBasis(basis);
+        rate.setAgreementId(agreementId);
+        rate.setAdValoremRate(adValorem != null ? new BigDecimal(adValorem) : null);
+        return rate;
+    }
+}
@@ -10,6 +10,7 @@ import com.tariffsheriff.backend.tariffcalculation.dto.SaveTariffCalculationRequ
 import com.tariffsheriff.backend.tariffcalculation.dto.TariffCalculationDetail;
 import com.tariffsheriff.backend.tariffcalculation.dto.TariffCalculationSummary;
 import com.tariffsheriff.backend.tariffcalculation.entity.TariffCalculation;
+import com.tariffsheriff.backend.tariffcalculation.service.TariffCalculationRepricingService;
 import com.tariffsheriff.backend.tariffcalculation.service.TariffCalculationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -56,6 +57,9 @@ class TariffCalculationControllerTest {
     // @Mock
     // private AgreementMapper agreementMapper; 
 
+    @Mock
+    private TariffCalculationRepricingService repricing;
+
     @InjectMocks
     private TariffCalculationController controller;
 
@@ -135,6 +139,22 @@ class TariffCalculationControllerTest {
         assertEquals("Test Calculation", result.getName());
     }
 
+    @Test
+    void get_includesThePreviousResultOfARepricedCalculation() {
+        mockValidUser();
+        savedCalculation.setPreviousRateUsed("PREF");
+        savedCalculation.setPreviousAppliedRate(new BigDecimal("0.01"));
+        savedCalculation.setPreviousTotalTariff(new BigDecimal("1010.00"));
+        savedCalculation.setRepricedAt(LocalDateTime.now());
+        when(service.getForUser(1L, testUser.getId())).thenReturn(Optional.of(savedCalculation));
+
+        TariffCalculationDetail result = controller.get(1L, jwt);
+
+        assertNotNull(result.getRepricedAt());
+        assertEquals("PREF", result.getPreviousResult().getRateUsed());
+        assertEquals(new BigDecimal("1010.00"), result.getPreviousResult().getTotalTariff());
+    }
+
     @Test
     void get_throwsWhenNotFound() {
         mockValidUser();
@@ -150,6 +170,14 @@ class TariffCalculationControllerTest {
         verify(service).deleteForUser(1L, testUser.getId());
     }
 
+    @Test
+    void reprice_queuesTheRoute() {
+        var response = controller.reprice("GBR", null, "8507.60");
+
+        assertEquals(202, response.getStatusCode().value());
+        verify(repricing).requestRepricing("GBR", null, "8507.60");
+    }
+
     private User createTestUser() {
         User user = new User();
         user.setId(1L);
@@ -0,0 +1,245 @@
+package com.tariffsheriff.backend.tariffcalculation.service;
+
+import com.tariffsheriff.backend.auth.entity.User;
+import com.tariffsheriff.backend.auth.repository.UserRepository;
+import com.tariffsheriff.backend.tariff.index.CountryRegistryHolder;
+import com.tariffsheriff.backend.tariff.index.HsCodeIndexHolder;
+import com.tariffsheriff.backend.tariff.index.HsConcordanceIndexHolder;
+import com.tariffsheriff.backend.tariff.index.TariffRateChangedEvent;
+import com.tariffsheriff.backend.tariff.index.TariffRateSnapshotHolder;
+import com.tariffsheriff.backend.tariff.model.Agreement;
+import com.tariffsheriff.backend.tariff.model.Country;
+import com.tariffsheriff.backend.tariff.model.HsProduct;
+import com.tariffsheriff.backend.tariff.model.TariffRate;
+import com.tariffsheriff.backend.tariff.repository.AgreementRepository;
+import com.tariffsheriff.backend.tariff.repository.CountryRepository;
+import com.tariffsheriff.backend.tariff.repository.HsConcordanceRepository;
+import com.tariffsheriff.backend.tariff.repository.HsProductRepository;
+import com.tariffsheriff.backend.tariff.repository.TariffRateRepository;
+import com.tariffsheriff.backend.tariff.service.TariffRateServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reprices saved calculations against H2. Runs outside a test transaction,
+ * because the workers write on their own connections.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TariffCalculationRepricingServiceTest {
+
+    private static final int CHINA_ROWS = 1050;
+    private static final int US_ROWS = 300;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    TariffRateRepository tariffRates;
+
+    @Autowired
+    AgreementRepository agreements;
+
+    @Autowired
+    CountryRepository countries;
+
+    @Autowired
+    HsProductRepository hsProducts;
+
+    @Autowired
+    HsConcordanceRepository concordance;
+
+    @Autowired
+    UserRepository users;
+
+    JdbcTemplate jdbc;
+    TariffCalculationRepricingService svc;
+    HsProduct battery;
+    TariffRate mfn;
+    TariffRate pref;
+    Long userId;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        // The holders are never loaded, so rates always come from the database
+        TariffRateServiceImpl rateService = new TariffRateServiceImpl(tariffRates, agreements, countries, hsProducts,
+                new TariffRateSnapshotHolder(tariffRates, hsProducts, agreements), new HsCodeIndexHolder(hsProducts),
+                new CountryRegistryHolder(countries), new HsConcordanceIndexHolder(hsProducts, concordance));
+        // Small chunks, so a route spans many parallel batches
+        svc = new TariffCalculationRepricingService(jdbc, rateService, hsProducts, 4, 100);
+
+        countries.save(new Country(null, "GBR", "United Kingdom"));
+        countries.save(new Country(null, "CHN", "China"));
+        countries.save(new Country(null, "USA", "United States"));
+        battery = hsProducts.save(new HsProduct(null, "GBR", null, "HS2022", "8507.60", "Lithium-ion"));
+        Agreement agreement = agreements.save(
+                Agreement.builder().name("UK-CN").rvcThreshold(new BigDecimal("40.00")).build());
+        mfn = tariffRates.save(rate(null, "MFN", null, "0.040000"));
+        pref = tariffRates.save(rate("CHN", "PREF", agreement.getId(), "0.010000"));
+
+        User user = new User();
+        user.setName("Alice");
+        user.setEmail("alice@example.com");
+        user.setRole("USER");
+        user.setPassword("secret");
+        userId = users.save(user).getId();
+
+        // An RVC of 50% meets UK-CN's 40%: China pays 1%, everyone else the 4% MFN rate
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < CHINA_ROWS; i++) {
+            rows.add(savedRow("850760", "CHN", "1000.00", "PREF", "0.010000", "1010.00"));
+        }
+        for (int i = 0; i < US_ROWS; i++) {
+            rows.add(savedRow("850760", "USA", "1000.00", "MFN", "0.040000", "1040.00"));
+        }
+        rows.add(savedRow("0101", "CHN", "1000.00", "PREF", "0.010000", "1010.00"));
+        jdbc.batchUpdate("INSERT INTO tariff_calculation (user_id, name, hs_code, importer_iso3, origin_iso3, "
+                + "total_value, material_cost, labour_cost, overhead_cost, profit, other_costs, fob, "
+                + "rate_used, applied_rate, total_tariff, created_at) "
+                + "VALUES (?, ?, ?, 'GBR', ?, ?, 500, 0, 0, 0, 0, 1000, ?, ?, ?, ?)", rows);
+    }
+
+    @AfterEach
+    void tearDown() {
+        svc.shutdown();
+        jdbc.update("DELETE FROM tariff_calculation");
+        users.deleteAll();
+        tariffRates.deleteAll();
+        agreements.deleteAll();
+        hsProducts.deleteAll();
+        countries.deleteAll();
+    }
+
+    @Test
+    void reprice_rewritesTheOriginsRowsAndKeepsThePreviousResult() {
+        pref.setAdValoremRate(new BigDecimal("0.020000"));
+        tariffRates.save(pref);
+
+        TariffCalculationRepricingService.RepricingResult result = svc.reprice("GBR", "CHN", "8507.60");
+
+        assertEquals(new TariffCalculationRepricingService.RepricingResult(CHINA_ROWS, CHINA_ROWS, 0, 0), result);
+        Map<String, Object> row = jdbc.queryForMap(
+                "SELECT * FROM tariff_calculation WHERE origin_iso3 = 'CHN' AND hs_code = '850760' "
+                        + "ORDER BY id LIMIT 1");
+        assertDecimal("1020.00", row.get("TOTAL_TARIFF"));
+        assertDecimal("0.02", row.get("APPLIED_RATE"));
+        assertDecimal("0.02", row.get("PREF_RATE"));
+        assertDecimal("50", row.get("RVC_COMPUTED"));
+        assertEquals("PREF", row.get("RATE_USED"));
+        assertDecimal("1010.00", row.get("PREVIOUS_TOTAL_TARIFF"));
+        assertDecimal("0.01", row.get("PREVIOUS_APPLIED_RATE"));
+        assertEquals("PREF", row.get("PREVIOUS_RATE_USED"));
+        assertNotNull(row.get("REPRICED_AT"));
+
+        // Other origins and other HS codes are not touched
+        assertEquals(CHINA_ROWS, countRepriced());
+        assertEquals(0L, jdbc.queryForObject("SELECT COUNT(*) FROM tariff_calculation "
+                + "WHERE hs_code = '0101' AND repriced_at IS NOT NULL", Long.class));
+    }
+
+    @Test
+    void reprice_coversEveryOriginAfterAnMfnChangeAndSkipsCurrentRows() {
+        mfn.setAdValoremRate(new BigDecimal("0.050000"));
+        tariffRates.save(mfn);
+
+        TariffCalculationRepricingService.RepricingResult result = svc.reprice("GBR", null, "8507.60");
+
+        // China still qualifies for its preference, so only the MFN rows change
+        assertEquals(new TariffCalculationRepricingService.RepricingResult(CHINA_ROWS + US_ROWS, US_ROWS,
+                CHINA_ROWS, 0), result);
+        assertEquals(US_ROWS, countRepriced());
+        assertEquals(US_ROWS, jdbc.queryForObject("SELECT COUNT(*) FROM tariff_calculation "
+                + "WHERE origin_iso3 = 'USA' AND total_tariff = 1050.00 AND previous_total_tariff = 1040.00",
+                Long.class));
+    }
+
+    @Test
+    void reprice_walksBothSpellingsOfTheHsCode() {
+        jdbc.batchUpdate("INSERT INTO tariff_calculation (user_id, name, hs_code, importer_iso3, origin_iso3, "
+                + "total_value, material_cost, labour_cost, overhead_cost, profit, other_costs, fob, "
+                + "rate_used, applied_rate, total_tariff, created_at) "
+                + "VALUES (?, ?, ?, 'GBR', ?, ?, 500, 0, 0, 0, 0, 1000, ?, ?, ?, ?)", List.of(
+                        savedRow("8507.60", "USA", "1000.00", "MFN", "0.040000", "1040.00"),
+                        savedRow("8507.60", "USA", "1000.00", "MFN", "0.040000", "1040.00")));
+        mfn.setAdValoremRate(new BigDecimal("0.050000"));
+        tariffRates.save(mfn);
+
+        TariffCalculationRepricingService.RepricingResult result = svc.reprice("GBR", "USA", "8507.60");
+
+        assertEquals(new TariffCalculationRepricingService.RepricingResult(US_ROWS + 2, US_ROWS + 2, 0, 0), result);
+        assertEquals(2L, jdbc.queryForObject("SELECT COUNT(*) FROM tariff_calculation "
+                + "WHERE hs_code = '8507.60' AND total_tariff = 1050.00", Long.class));
+    }
+
+    @Test
+    void reprice_leavesRowsThatCannotBePriced() {
+        jdbc.update("UPDATE tariff_calculation SET fob = NULL WHERE origin_iso3 = 'USA'");
+        mfn.setAdValoremRate(new BigDecimal("0.050000"));
+        tariffRates.save(mfn);
+
+        TariffCalculationRepricingService.RepricingResult result = svc.reprice("GBR", "USA", "8507.60");
+
+        assertEquals(new TariffCalculationRepricingService.RepricingResult(US_ROWS, 0, 0, US_ROWS), result);
+        assertEquals(0, countRepriced());
+    }
+
+    @Test
+    void onTariffRateChanged_repricesTheRouteInTheBackground() throws InterruptedException {
+        pref.setAdValoremRate(BigDecimal.ZERO.setScale(6));
+        tariffRates.save(pref);
+
+        svc.onTariffRateChanged(new TariffRateChangedEvent(pref.getId(), "GBR", "CHN", battery.getId(), false));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (countRepriced() < CHINA_ROWS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(CHINA_ROWS, countRepriced());
+        assertEquals(CHINA_ROWS, jdbc.queryForObject("SELECT COUNT(*) FROM tariff_calculation "
+                + "WHERE total_tariff = 1000.00 AND previous_total_tariff = 1010.00", Long.class));
+    }
+
+    private long countRepriced() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM tariff_calculation WHERE repriced_at IS NOT NULL",
+                Long.class);
+    }
+
+    private Object[] savedRow(String hsCode, String origin, String totalValue, String rateUsed, String appliedRate,
+            String totalTariff) {
+        return new Object[] { userId, "Battery import", hsCode, origin, new BigDecimal(totalValue), rateUsed,
+                new BigDecimal(appliedRate), new BigDecimal(totalTariff), Timestamp.valueOf(LocalDateTime.now()) };
+    }
+
+    private TariffRate rate(String origin, String basis, Long agreementId, String adValorem) {
+        TariffRate rate = new TariffRate();
+        rate.setImporterIso3("GBR");
+        rate.setOriginIso3(origin);
+        rate.setHsProductId(battery.getId());
+        rate.setBasis(basis);
+        rate.setAgreementId(agreementId);
+        rate.setAdValoremRate(new BigDecimal(adValorem));
+        return rate;
+    }
+
+    private static void assertDecimal(String expected, Object actual) {
+        assertNotNull(actual);
+        assertEquals(0, new BigDecimal(expected).compareTo((BigDecimal) actual), () -> expected + " != " + actual);
+    }
+}
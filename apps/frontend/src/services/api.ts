@@ -154,6 +154,10 @@ export interface SavedTariffSummary {
   importerIso3: string | null
   originIso3: string | null
   agreementName: string | null
+  previousRateUsed?: string | null // set once repriced after a rate change
+  previousAppliedRate?: number | null
+  previousTotalTariff?: number | null
+  repricedAt?: string | null
 }
 
 export interface PageResponse<T> {